@@ -0,0 +1,30 @@
+package com.ecommerce.inventoryservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 热点 SKU（秒杀）模式配置：指定的 variant 由 Redis 账本受理预留，再批量回写到 PostgreSQL
+ */
+@Component
+@ConfigurationProperties(prefix = "inventory.hot-sku")
+@Getter
+@Setter
+public class HotSkuProperties {
+    private boolean enabled = false;
+    private Set<Long> variantIds = new HashSet<>();
+    private long flushIntervalMs = 500;
+    private int flushBatchSize = 500;
+    private long lockTtlMs = 30000;
+    private long lockWaitMs = 5000;
+    private int maxFlushAttempts = 3;
+    
+    public boolean isHot(Long variantId) {
+        return enabled && variantIds.contains(variantId);
+    }
+}
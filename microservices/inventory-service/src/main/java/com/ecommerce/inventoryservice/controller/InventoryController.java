@@ -1,5 +1,7 @@
 package com.ecommerce.inventoryservice.controller;
 
+import com.ecommerce.inventoryservice.dto.AvailabilityResponse;
+import com.ecommerce.inventoryservice.dto.InventoryPageResponse;
 import com.ecommerce.inventoryservice.dto.InventoryRequest;
 import com.ecommerce.inventoryservice.dto.InventoryResponse;
 import com.ecommerce.inventoryservice.dto.ReserveStockRequest;
@@ -7,10 +9,13 @@ import com.ecommerce.inventoryservice.dto.StockReservationRequest;
 import com.ecommerce.inventoryservice.dto.StockReservationResponse;
 import com.ecommerce.inventoryservice.dto.StockUpdateRequest;
 import com.ecommerce.inventoryservice.service.InventoryService;
+import com.ecommerce.inventoryservice.util.InventoryConstants;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -43,6 +48,21 @@ public class InventoryController {
         return ResponseEntity.ok(responses);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<InventoryPageResponse> getInventoriesPage(
+            @RequestParam(defaultValue = "0") Long afterId,
+            @RequestParam(defaultValue = "" + InventoryConstants.DEFAULT_PAGE_SIZE) int size) {
+        InventoryPageResponse page = inventoryService.getInventories(afterId, size);
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportInventories() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(inventoryService::exportInventories);
+    }
+
     @PutMapping("/variant/{variantId}")
     public ResponseEntity<InventoryResponse> updateInventory(
             @PathVariable Long variantId, 
@@ -69,6 +89,36 @@ public class InventoryController {
         return ResponseEntity.ok(responses);
     }
 
+    @GetMapping("/low-stock/page")
+    public ResponseEntity<InventoryPageResponse> getLowStockItemsPage(
+            @RequestParam(defaultValue = "0") Long afterId,
+            @RequestParam(defaultValue = "" + InventoryConstants.DEFAULT_PAGE_SIZE) int size) {
+        InventoryPageResponse page = inventoryService.getLowStockItems(afterId, size);
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping("/out-of-stock/page")
+    public ResponseEntity<InventoryPageResponse> getOutOfStockItemsPage(
+            @RequestParam(defaultValue = "0") Long afterId,
+            @RequestParam(defaultValue = "" + InventoryConstants.DEFAULT_PAGE_SIZE) int size) {
+        InventoryPageResponse page = inventoryService.getOutOfStockItems(afterId, size);
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping(value = "/low-stock/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportLowStockItems() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(inventoryService::exportLowStockItems);
+    }
+
+    @GetMapping(value = "/out-of-stock/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportOutOfStockItems() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(inventoryService::exportOutOfStockItems);
+    }
+
     @GetMapping("/variant/{variantId}/available")
     public ResponseEntity<Map<String, Integer>> getAvailableStock(@PathVariable Long variantId) {
         Integer availableStock = inventoryService.getAvailableStock(variantId);
@@ -105,6 +155,15 @@ public class InventoryController {
         return ResponseEntity.ok(availability);
     }
 
+    @GetMapping("/availability")
+    public ResponseEntity<List<AvailabilityResponse>> getAvailability(@RequestParam("ids") List<Long> variantIds) {
+        if (variantIds.size() > InventoryConstants.MAX_AVAILABILITY_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<AvailabilityResponse> availability = inventoryService.getAvailability(variantIds);
+        return ResponseEntity.ok(availability);
+    }
+
     @PostMapping("/cleanup-expired")
     public ResponseEntity<Void> cleanupExpiredReservations() {
         inventoryService.cleanupExpiredReservations();
@@ -50,11 +50,11 @@ public class StockReservationController {
     }
 
     @PostMapping("/batch/reserve")
-    public ResponseEntity<Void> processBatchReservations(
+    public ResponseEntity<List<StockReservationResponse>> processBatchReservations(
             @RequestParam String orderId,
             @RequestBody Map<Long, Integer> variantQuantities) {
-        inventoryService.processBatchReservations(orderId, variantQuantities);
-        return ResponseEntity.ok().build();
+        List<StockReservationResponse> responses = inventoryService.processBatchReservations(orderId, variantQuantities);
+        return new ResponseEntity<>(responses, HttpStatus.CREATED);
     }
 
     @PostMapping("/batch/confirm")
@@ -0,0 +1,28 @@
+package com.ecommerce.inventoryservice.dto;
+
+import com.ecommerce.inventoryservice.model.Inventory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 可用库存快照，供购物车渲染与下单前校验使用
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityResponse {
+    private Long variantId;
+    private Integer availableStock;
+    private Inventory.InventoryStatus status;
+    
+    public static AvailabilityResponse fromEntity(Inventory inventory) {
+        return AvailabilityResponse.builder()
+                .variantId(inventory.getVariantId())
+                .availableStock(Math.max(0, inventory.getCurrentStock() - inventory.getReservedStock()))
+                .status(inventory.getStatus())
+                .build();
+    }
+}
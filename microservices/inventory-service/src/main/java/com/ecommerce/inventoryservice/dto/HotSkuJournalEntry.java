@@ -0,0 +1,35 @@
+package com.ecommerce.inventoryservice.dto;
+
+import com.ecommerce.inventoryservice.model.StockReservation;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 热点 SKU 账本中已受理、尚未回写数据库的一条预留
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotSkuJournalEntry {
+    private String reservationId;
+    private Long variantId;
+    private String orderId;
+    private Integer quantity;
+    private LocalDateTime expiresAt;
+    
+    public StockReservationResponse toReservationResponse() {
+        return StockReservationResponse.builder()
+                .reservationId(reservationId)
+                .variantId(variantId)
+                .orderId(orderId)
+                .quantity(quantity)
+                .status(StockReservation.ReservationStatus.PENDING)
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.ecommerce.inventoryservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 按 id 的 keyset 分页结果，下一页以 nextAfterId 作为 afterId 请求
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryPageResponse {
+    private List<InventoryResponse> items;
+    private Long nextAfterId;
+    private boolean hasNext;
+}
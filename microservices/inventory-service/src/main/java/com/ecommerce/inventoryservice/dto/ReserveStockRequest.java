@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 
@@ -22,5 +23,6 @@ public class ReserveStockRequest {
     @Positive(message = "数量必须大于0")
     private Integer quantity;
     
+    @NotBlank(message = "订单号不能为空")
     private String orderNumber;
 }
\ No newline at end of file
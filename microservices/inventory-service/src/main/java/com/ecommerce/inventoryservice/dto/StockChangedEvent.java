@@ -0,0 +1,22 @@
+package com.ecommerce.inventoryservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 库存变更事件（按 variant 合并后的最新状态）。
+ * 每条消息携带一批事件；version 单调递增，消费方应忽略 version 不大于已处理值的事件。
+ * 库存记录被删除时 availableStock 为 0、status 为 null。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockChangedEvent {
+    private Long variantId;
+    private Integer availableStock;
+    private String status;
+    private Long version;
+}
@@ -0,0 +1,15 @@
+package com.ecommerce.inventoryservice.exception;
+
+/**
+ * 同一订单同一 variant 的预留与已有记录冲突，且无法按幂等重放返回
+ */
+public class DuplicateReservationException extends RuntimeException {
+    public DuplicateReservationException(String message) {
+        super(message);
+    }
+
+    public DuplicateReservationException(String operation, Throwable cause) {
+        super(String.format("Reservation operation '%s' conflicts with a concurrent reservation for the same order", 
+                           operation), cause);
+    }
+}
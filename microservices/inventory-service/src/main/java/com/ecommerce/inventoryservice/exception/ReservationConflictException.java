@@ -0,0 +1,11 @@
+package com.ecommerce.inventoryservice.exception;
+
+/**
+ * 并发冲突（死锁、序列化失败、锁等待超时）重试耗尽，客户端可稍后重试
+ */
+public class ReservationConflictException extends RuntimeException {
+    public ReservationConflictException(String operation, int attempts, Throwable cause) {
+        super(String.format("Reservation operation '%s' aborted after %d attempts due to concurrent updates", 
+                           operation, attempts), cause);
+    }
+}
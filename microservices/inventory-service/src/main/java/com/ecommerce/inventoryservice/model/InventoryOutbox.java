@@ -0,0 +1,31 @@
+package com.ecommerce.inventoryservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 库存变更发件箱记录，由 inventory 表上的触发器写入（见 V6 迁移），发布后删除
+ */
+@Entity
+@Table(name = "inventory_outbox")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryOutbox {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "variant_id", nullable = false)
+    private Long variantId;
+    
+    @Column(name = "created_at", insertable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,56 @@
+package com.ecommerce.inventoryservice.repository;
+
+import com.ecommerce.inventoryservice.model.InventoryOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface InventoryOutboxRepository extends JpaRepository<InventoryOutbox, Long> {
+    
+    /**
+     * 领取并删除最多 batchSize 条发件箱记录，按 variant 合并，附带当前库存与本批次的版本号。
+     * 已删除的库存行返回空的库存字段。必须在持有发布锁的事务内执行，发布失败回滚即可重发。
+     */
+    String CLAIM_STOCK_CHANGES_SQL =
+            "WITH claimed AS ( " +
+            "    DELETE FROM inventory_outbox " +
+            "    WHERE id IN (SELECT id FROM inventory_outbox ORDER BY id LIMIT :batchSize FOR UPDATE SKIP LOCKED) " +
+            "    RETURNING variant_id " +
+            "), changed AS ( " +
+            "    SELECT variant_id, COUNT(*) AS entries FROM claimed GROUP BY variant_id " +
+            "), version AS ( " +
+            "    SELECT nextval('inventory_event_version_seq') AS value " +
+            ") " +
+            "SELECT c.variant_id AS \"variantId\", c.entries AS \"entries\", " +
+            "       i.current_stock AS \"currentStock\", i.reserved_stock AS \"reservedStock\", i.status AS \"status\", " +
+            "       v.value AS \"version\" " +
+            "FROM changed c " +
+            "CROSS JOIN version v " +
+            "LEFT JOIN inventory i ON i.variant_id = c.variant_id " +
+            "ORDER BY c.variant_id";
+    
+    @Query(value = CLAIM_STOCK_CHANGES_SQL, nativeQuery = true)
+    List<StockChange> claimStockChanges(@Param("batchSize") int batchSize);
+    
+    /**
+     * 事务级 advisory 锁，保证任一时刻只有一个副本在发布，事件版本号与库存快照的先后一致
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryPublisherLock(@Param("key") long key);
+    
+    /**
+     * 合并后的单个 variant 变更
+     */
+    interface StockChange {
+        Long getVariantId();
+        Long getEntries();
+        Integer getCurrentStock();
+        Integer getReservedStock();
+        String getStatus();
+        Long getVersion();
+    }
+}
@@ -1,20 +1,58 @@
 package com.ecommerce.inventoryservice.repository;
 
 import com.ecommerce.inventoryservice.model.Inventory;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     
+    // 流式导出每次从数据库取回的行数
+    String STREAM_FETCH_SIZE = "500";
+    
+    String RESERVE_STOCK_ATOMICALLY_SQL =
+            "WITH reserved AS ( " +
+            "    UPDATE inventory SET " +
+            "        reserved_stock = reserved_stock + :quantity, " +
+            "        available_stock = current_stock - reserved_stock - :quantity, " +
+            "        status = CASE " +
+            "            WHEN NOT is_tracked THEN 'IN_STOCK' " +
+            "            WHEN current_stock <= 0 THEN 'OUT_OF_STOCK' " +
+            "            WHEN current_stock - reserved_stock - :quantity <= reorder_point THEN 'LOW_STOCK' " +
+            "            ELSE 'IN_STOCK' END, " +
+            "        updated_at = CURRENT_TIMESTAMP " +
+            "    WHERE variant_id = :variantId AND current_stock - reserved_stock >= :quantity " +
+            "    RETURNING * " +
+            "), reservation AS ( " +
+            "    INSERT INTO stock_reservation (reservation_id, variant_id, order_id, quantity, status, expires_at) " +
+            "    SELECT :reservationId, variant_id, :orderId, :quantity, 'PENDING', :expiresAt FROM reserved " +
+            ") " +
+            "SELECT * FROM reserved";
+    
     Optional<Inventory> findByVariantId(Long variantId);
     
+    List<Inventory> findByVariantIdIn(Collection<Long> variantIds);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.variantId = :variantId")
+    Optional<Inventory> findByVariantIdForUpdate(@Param("variantId") Long variantId);
+    
     List<Inventory> findByStatus(Inventory.InventoryStatus status);
     
     List<Inventory> findByIsTrackedTrue();
@@ -25,6 +63,27 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     @Query("SELECT i FROM Inventory i WHERE i.availableStock = 0 AND i.isTracked = true")
     List<Inventory> findOutOfStockItems();
     
+    List<Inventory> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT i FROM Inventory i ORDER BY i.id")
+    Stream<Inventory> streamAll();
+    
+    // 告警查询由 V7 的部分索引支撑，按 id 做 keyset 分页
+    @Query("SELECT i FROM Inventory i WHERE i.availableStock <= i.reorderPoint AND i.isTracked = true AND i.id > :afterId ORDER BY i.id")
+    List<Inventory> findLowStockItemsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT i FROM Inventory i WHERE i.availableStock = 0 AND i.isTracked = true AND i.id > :afterId ORDER BY i.id")
+    List<Inventory> findOutOfStockItemsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT i FROM Inventory i WHERE i.availableStock <= i.reorderPoint AND i.isTracked = true ORDER BY i.id")
+    Stream<Inventory> streamLowStockItems();
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT i FROM Inventory i WHERE i.availableStock = 0 AND i.isTracked = true ORDER BY i.id")
+    Stream<Inventory> streamOutOfStockItems();
+    
     @Modifying
     @Query("UPDATE Inventory i SET i.currentStock = i.currentStock + :quantity, i.lastRestockedDate = CURRENT_TIMESTAMP WHERE i.variantId = :variantId")
     void increaseStock(@Param("variantId") Long variantId, @Param("quantity") Integer quantity);
@@ -44,4 +103,16 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     @Modifying
     @Query("UPDATE Inventory i SET i.currentStock = i.currentStock - :quantity, i.reservedStock = i.reservedStock - :quantity, i.totalSold = i.totalSold + :quantity WHERE i.variantId = :variantId AND i.reservedStock >= :quantity")
     int confirmReservation(@Param("variantId") Long variantId, @Param("quantity") Integer quantity);
+    
+    /**
+     * 原子预留库存：条件扣减与预留记录插入在同一条语句中完成（一次数据库往返）。
+     * 库存不足或库存记录不存在时不返回任何行，也不会插入预留记录。
+     * 返回的是更新后的库存行，调用方无需再次查询。
+     */
+    @Query(value = RESERVE_STOCK_ATOMICALLY_SQL, nativeQuery = true)
+    Optional<Inventory> reserveStockAtomically(@Param("variantId") Long variantId,
+                                               @Param("quantity") Integer quantity,
+                                               @Param("reservationId") String reservationId,
+                                               @Param("orderId") String orderId,
+                                               @Param("expiresAt") LocalDateTime expiresAt);
 }
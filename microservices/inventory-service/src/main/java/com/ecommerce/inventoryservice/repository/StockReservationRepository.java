@@ -2,11 +2,12 @@ package com.ecommerce.inventoryservice.repository;
 
 import com.ecommerce.inventoryservice.model.StockReservation;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -14,10 +15,156 @@ import java.util.Optional;
 @Repository
 public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
     
+    /**
+     * 批量原子预留（全部成功或全部不变）：
+     * 按 variant_id 顺序锁定库存行，任一行不存在或库存不足时不更新任何行；
+     * 否则一次集合更新所有库存行并批量插入预留记录，返回插入的预留记录。
+     * 参数均为逗号分隔、按 variantId 升序对齐的列表。
+     */
+    String RESERVE_BATCH_ATOMICALLY_SQL =
+            "WITH request AS ( " +
+            "    SELECT * FROM unnest( " +
+            "        CAST(string_to_array(:variantIds, ',') AS BIGINT[]), " +
+            "        CAST(string_to_array(:quantities, ',') AS INTEGER[]), " +
+            "        string_to_array(:reservationIds, ',') " +
+            "    ) AS r(variant_id, quantity, reservation_id) " +
+            "), locked AS ( " +
+            "    SELECT i.variant_id, i.current_stock - i.reserved_stock AS available, r.quantity, r.reservation_id " +
+            "    FROM inventory i JOIN request r ON r.variant_id = i.variant_id " +
+            "    ORDER BY i.variant_id " +
+            "    FOR UPDATE OF i " +
+            "), satisfiable AS ( " +
+            "    SELECT COUNT(*) = (SELECT COUNT(*) FROM request) AND COALESCE(bool_and(available >= quantity), false) AS ok " +
+            "    FROM locked " +
+            "), reserved AS ( " +
+            "    UPDATE inventory i SET " +
+            "        reserved_stock = i.reserved_stock + l.quantity, " +
+            "        available_stock = i.current_stock - i.reserved_stock - l.quantity, " +
+            "        status = CASE " +
+            "            WHEN NOT i.is_tracked THEN 'IN_STOCK' " +
+            "            WHEN i.current_stock <= 0 THEN 'OUT_OF_STOCK' " +
+            "            WHEN i.current_stock - i.reserved_stock - l.quantity <= i.reorder_point THEN 'LOW_STOCK' " +
+            "            ELSE 'IN_STOCK' END, " +
+            "        updated_at = CURRENT_TIMESTAMP " +
+            "    FROM locked l, satisfiable s " +
+            "    WHERE s.ok AND i.variant_id = l.variant_id " +
+            "    RETURNING i.variant_id, l.quantity, l.reservation_id " +
+            ") " +
+            "INSERT INTO stock_reservation (reservation_id, variant_id, order_id, quantity, status, expires_at) " +
+            "SELECT reservation_id, variant_id, :orderId, quantity, 'PENDING', :expiresAt FROM reserved " +
+            "ORDER BY variant_id " +
+            "RETURNING *";
+    
+    /**
+     * 回写热点 SKU 账本中已受理的预留：幂等插入预留记录（reservation_id 或 (order_id, variant_id) 冲突则跳过），
+     * 只按实际插入的行累加库存的 reserved_stock，因此崩溃后重放同一批次是安全的。
+     * 库存行按 variant_id 顺序加锁。
+     * 返回因幂等键重复而丢弃的数量（按 variant 汇总，不含重放的记录），由调用方归还账本。
+     * 参数为以 ASCII 31（单元分隔符）分隔、按行对齐的列表。
+     */
+    String APPLY_HOT_SKU_JOURNAL_SQL =
+            "WITH entries AS ( " +
+            "    SELECT * FROM unnest( " +
+            "        string_to_array(:reservationIds, chr(31)), " +
+            "        CAST(string_to_array(:variantIds, chr(31)) AS BIGINT[]), " +
+            "        string_to_array(:orderIds, chr(31)), " +
+            "        CAST(string_to_array(:quantities, chr(31)) AS INTEGER[]), " +
+            "        CAST(string_to_array(:expiresAts, chr(31)) AS TIMESTAMP[]) " +
+            "    ) AS e(reservation_id, variant_id, order_id, quantity, expires_at) " +
+            "), inserted AS ( " +
+            "    INSERT INTO stock_reservation (reservation_id, variant_id, order_id, quantity, status, expires_at) " +
+            "    SELECT reservation_id, variant_id, order_id, quantity, 'PENDING', expires_at FROM entries " +
+            "    ON CONFLICT DO NOTHING " +
+            "    RETURNING reservation_id, variant_id, quantity " +
+            "), deltas AS ( " +
+            "    SELECT variant_id, SUM(quantity) AS quantity FROM inserted GROUP BY variant_id " +
+            "), locked AS ( " +
+            "    SELECT i.id, d.quantity FROM inventory i JOIN deltas d ON d.variant_id = i.variant_id " +
+            "    ORDER BY i.variant_id " +
+            "    FOR UPDATE OF i " +
+            "), updated AS ( " +
+            "    UPDATE inventory i SET " +
+            "        reserved_stock = i.reserved_stock + d.quantity, " +
+            "        available_stock = GREATEST(0, i.current_stock - i.reserved_stock - d.quantity), " +
+            "        status = CASE " +
+            "            WHEN NOT i.is_tracked THEN 'IN_STOCK' " +
+            "            WHEN i.current_stock <= 0 THEN 'OUT_OF_STOCK' " +
+            "            WHEN i.current_stock - i.reserved_stock - d.quantity <= i.reorder_point THEN 'LOW_STOCK' " +
+            "            ELSE 'IN_STOCK' END, " +
+            "        updated_at = CURRENT_TIMESTAMP " +
+            "    FROM locked d " +
+            "    WHERE i.id = d.id " +
+            "    RETURNING i.id " +
+            ") " +
+            "SELECT e.variant_id AS \"variantId\", SUM(e.quantity) AS \"quantity\" " +
+            "FROM entries e " +
+            "WHERE NOT EXISTS (SELECT 1 FROM inserted n WHERE n.reservation_id = e.reservation_id) " +
+            "  AND NOT EXISTS (SELECT 1 FROM stock_reservation sr WHERE sr.reservation_id = e.reservation_id) " +
+            "GROUP BY e.variant_id " +
+            "ORDER BY e.variant_id";
+    
+    /**
+     * 过期清理的一个分块：用 SKIP LOCKED 领取最多 chunkSize 条到期的 PENDING 预留并标记为 EXPIRED，
+     * 按 variant 汇总释放数量，按 variant_id 顺序锁定库存行后每个 variant 只更新一次。
+     * 多个副本并发执行时领取的分块互不重叠。
+     */
+    String EXPIRE_DUE_RESERVATIONS_SQL =
+            "WITH due AS ( " +
+            "    SELECT id FROM stock_reservation " +
+            "    WHERE status = 'PENDING' AND expires_at < CURRENT_TIMESTAMP " +
+            "    ORDER BY expires_at " +
+            "    LIMIT :chunkSize " +
+            "    FOR UPDATE SKIP LOCKED " +
+            "), expired AS ( " +
+            "    UPDATE stock_reservation sr SET status = 'EXPIRED', updated_at = CURRENT_TIMESTAMP " +
+            "    FROM due WHERE sr.id = due.id " +
+            "    RETURNING sr.variant_id, sr.quantity, sr.expires_at " +
+            "), released AS ( " +
+            "    SELECT variant_id, SUM(quantity) AS quantity, COUNT(*) AS reservations, MIN(expires_at) AS oldest_expires_at " +
+            "    FROM expired GROUP BY variant_id " +
+            "), locked AS ( " +
+            "    SELECT i.id, r.quantity FROM inventory i JOIN released r ON r.variant_id = i.variant_id " +
+            "    ORDER BY i.variant_id " +
+            "    FOR UPDATE OF i " +
+            "), updated AS ( " +
+            "    UPDATE inventory i SET " +
+            "        reserved_stock = GREATEST(0, i.reserved_stock - r.quantity), " +
+            "        available_stock = GREATEST(0, i.current_stock - GREATEST(0, i.reserved_stock - r.quantity)), " +
+            "        status = CASE " +
+            "            WHEN NOT i.is_tracked THEN 'IN_STOCK' " +
+            "            WHEN i.current_stock <= 0 THEN 'OUT_OF_STOCK' " +
+            "            WHEN i.current_stock - GREATEST(0, i.reserved_stock - r.quantity) <= i.reorder_point THEN 'LOW_STOCK' " +
+            "            ELSE 'IN_STOCK' END, " +
+            "        updated_at = CURRENT_TIMESTAMP " +
+            "    FROM locked r WHERE i.id = r.id " +
+            "    RETURNING i.variant_id " +
+            ") " +
+            "SELECT r.variant_id AS \"variantId\", r.quantity AS \"quantity\", r.reservations AS \"reservations\", " +
+            "       r.oldest_expires_at AS \"oldestExpiresAt\" " +
+            "FROM released r ORDER BY r.variant_id";
+    
     Optional<StockReservation> findByReservationId(String reservationId);
     
+    boolean existsByReservationId(String reservationId);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT sr FROM StockReservation sr WHERE sr.reservationId = :reservationId")
+    Optional<StockReservation> findByReservationIdForUpdate(@Param("reservationId") String reservationId);
+    
+    /**
+     * 锁定订单的全部预留，按 id 顺序加锁
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT sr FROM StockReservation sr WHERE sr.orderId = :orderId ORDER BY sr.id")
+    List<StockReservation> findByOrderIdForUpdate(@Param("orderId") String orderId);
+    
     List<StockReservation> findByOrderId(String orderId);
     
+    /**
+     * 按幂等键 (order_id, variant_id) 查找最新的一条预留（任意状态），由调用方按状态决定重放、拒绝或重新预留
+     */
+    Optional<StockReservation> findFirstByOrderIdAndVariantIdOrderByIdDesc(String orderId, Long variantId);
+    
     List<StockReservation> findByVariantId(Long variantId);
     
     List<StockReservation> findByStatus(StockReservation.ReservationStatus status);
@@ -27,7 +174,38 @@ public interface StockReservationRepository extends JpaRepository<StockReservati
     @Query("SELECT sr FROM StockReservation sr WHERE sr.orderId = :orderId AND sr.variantId = :variantId AND sr.status = 'PENDING'")
     List<StockReservation> findPendingReservationsByOrderAndVariant(@Param("orderId") String orderId, @Param("variantId") Long variantId);
     
-    @Modifying
-    @Query("UPDATE StockReservation sr SET sr.status = 'EXPIRED' WHERE sr.expiresAt < CURRENT_TIMESTAMP AND sr.status = 'PENDING'")
-    int expireOldReservations();
+    @Query(value = RESERVE_BATCH_ATOMICALLY_SQL, nativeQuery = true)
+    List<StockReservation> reserveBatchAtomically(@Param("variantIds") String variantIds,
+                                                  @Param("quantities") String quantities,
+                                                  @Param("reservationIds") String reservationIds,
+                                                  @Param("orderId") String orderId,
+                                                  @Param("expiresAt") LocalDateTime expiresAt);
+    
+    @Query(value = APPLY_HOT_SKU_JOURNAL_SQL, nativeQuery = true)
+    List<SkippedDuplicate> applyHotSkuJournal(@Param("reservationIds") String reservationIds,
+                           @Param("variantIds") String variantIds,
+                           @Param("orderIds") String orderIds,
+                           @Param("quantities") String quantities,
+                           @Param("expiresAts") String expiresAts);
+    
+    @Query(value = EXPIRE_DUE_RESERVATIONS_SQL, nativeQuery = true)
+    List<ExpiredRelease> expireDueReservations(@Param("chunkSize") int chunkSize);
+    
+    /**
+     * 热点 SKU 回写时因幂等键重复而丢弃的数量
+     */
+    interface SkippedDuplicate {
+        Long getVariantId();
+        Long getQuantity();
+    }
+    
+    /**
+     * 过期清理一个分块中某个 variant 的释放汇总
+     */
+    interface ExpiredRelease {
+        Long getVariantId();
+        Long getQuantity();
+        Long getReservations();
+        LocalDateTime getOldestExpiresAt();
+    }
 }
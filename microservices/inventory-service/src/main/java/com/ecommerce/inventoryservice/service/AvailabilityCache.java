@@ -0,0 +1,142 @@
+package com.ecommerce.inventoryservice.service;
+
+import com.ecommerce.inventoryservice.dto.AvailabilityResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 可用库存快照的短 TTL 读穿缓存（Redis，所有副本共享）。
+ * 任何库存变更在事务提交后删除对应 variant 的快照；提交前已读到旧值的并发请求
+ * 最多把旧快照回填一个 TTL，因此 TTL 保持在秒级。Redis 不可用时直接回源数据库。
+ */
+@Slf4j
+@Component
+public class AvailabilityCache {
+
+    private static final String KEY_PREFIX = "inventory:availability:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final long ttlMs;
+
+    public AvailabilityCache(StringRedisTemplate redisTemplate,
+                             ObjectMapper objectMapper,
+                             @Value("${inventory.settings.availability-cache-ttl-ms:2000}") long ttlMs) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * 一次 MGET 读取多个快照，只返回命中的 variant
+     */
+    public Map<Long, AvailabilityResponse> getAll(List<Long> variantIds) {
+        Map<Long, AvailabilityResponse> hits = new HashMap<>();
+        if (variantIds.isEmpty() || ttlMs <= 0) {
+            return hits;
+        }
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(keys(variantIds));
+            for (int i = 0; values != null && i < variantIds.size(); i++) {
+                if (values.get(i) != null) {
+                    hits.put(variantIds.get(i), objectMapper.readValue(values.get(i), AvailabilityResponse.class));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Availability cache read failed, falling back to database: {}", e.getMessage());
+        }
+        return hits;
+    }
+
+    /**
+     * 通过管道一次写入多个快照
+     */
+    public void putAll(Collection<AvailabilityResponse> snapshots) {
+        if (snapshots.isEmpty() || ttlMs <= 0) {
+            return;
+        }
+        try {
+            Map<byte[], byte[]> entries = new HashMap<>();
+            for (AvailabilityResponse snapshot : snapshots) {
+                entries.put(bytes(key(snapshot.getVariantId())), bytes(serialize(snapshot)));
+            }
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                entries.forEach((key, value) -> connection.stringCommands()
+                        .set(key, value, Expiration.milliseconds(ttlMs), RedisStringCommands.SetOption.UPSERT));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Availability cache write failed: {}", e.getMessage());
+        }
+    }
+
+    public void evict(Long variantId) {
+        evictAll(List.of(variantId));
+    }
+
+    /**
+     * 删除快照；处于事务中时在提交后删除，保证删除后回源读到的是已提交的新库存
+     */
+    public void evictAll(Collection<Long> variantIds) {
+        if (variantIds.isEmpty()) {
+            return;
+        }
+        List<String> keys = keys(variantIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            delete(keys);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                delete(keys);
+            }
+        });
+    }
+
+    private void delete(List<String> keys) {
+        try {
+            redisTemplate.delete(keys);
+        } catch (Exception e) {
+            log.warn("Availability cache eviction failed for {} keys, entries expire in {} ms: {}",
+                    keys.size(), ttlMs, e.getMessage());
+        }
+    }
+
+    private List<String> keys(Collection<Long> variantIds) {
+        return variantIds.stream().map(this::key).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private String key(Long variantId) {
+        return KEY_PREFIX + variantId;
+    }
+
+    private String serialize(AvailabilityResponse snapshot) {
+        try {
+            return objectMapper.writeValueAsString(snapshot);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize availability snapshot: " + snapshot.getVariantId(), e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
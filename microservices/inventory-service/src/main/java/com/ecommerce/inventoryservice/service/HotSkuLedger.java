@@ -0,0 +1,277 @@
+package com.ecommerce.inventoryservice.service;
+
+import com.ecommerce.inventoryservice.dto.HotSkuJournalEntry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 热点 SKU 的 Redis 库存账本。
+ * 每个 variant 一个 hash（字段 available），预留通过 Lua 脚本原子地检查并扣减，
+ * 同时把预留写入 journal 列表，由 {@link HotSkuService} 批量回写数据库。
+ * 每条预留另存一个以 (orderId, variantId) 为键的幂等记录，回写前的重试直接返回已受理的预留。
+ * 所有 key 使用同一个 hash tag，保证在 Redis Cluster 下也能在一个脚本内操作。
+ */
+@Component
+@RequiredArgsConstructor
+public class HotSkuLedger {
+
+    private static final String KEY_PREFIX = "inventory:{hot-sku}:";
+    private static final String JOURNAL_KEY = KEY_PREFIX + "journal";
+    private static final String PROCESSING_KEY = KEY_PREFIX + "processing";
+    private static final String ATTEMPTS_KEY = KEY_PREFIX + "processing-attempts";
+    private static final String DEAD_LETTER_KEY = KEY_PREFIX + "dead-letter";
+    private static final String FLUSH_LOCK_KEY = KEY_PREFIX + "flush-lock";
+    private static final String AVAILABLE_FIELD = "available";
+
+    /**
+     * 返回列表首项为状态：0 表示全部受理；i > 0 表示第 i 行库存不足；-i 表示第 i 行账本尚未加载。
+     * 任一行失败都不会修改任何账本。
+     * 带预留记录时按 (orderId, variantId) 幂等：幂等键已存在的行不再扣减、不写 journal，
+     * 状态之后按行返回已有预留（新受理的行为空串）；幂等键随预留过期。
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "local n = tonumber(ARGV[1]) " +
+            "local indexed = #KEYS > n + 1 " +
+            "local existing = {} " +
+            "for i = 1, n do " +
+            "  existing[i] = indexed and redis.call('GET', KEYS[n + 1 + i]) " +
+            "  if not existing[i] then " +
+            "    local available = redis.call('HGET', KEYS[i], 'available') " +
+            "    if not available then return {tostring(-i)} end " +
+            "    if tonumber(available) < tonumber(ARGV[i + 1]) then return {tostring(i)} end " +
+            "  end " +
+            "end " +
+            "local result = {'0'} " +
+            "for i = 1, n do " +
+            "  if existing[i] then " +
+            "    result[i + 1] = existing[i] " +
+            "  else " +
+            "    redis.call('HINCRBY', KEYS[i], 'available', -tonumber(ARGV[i + 1])) " +
+            "    if indexed then " +
+            "      redis.call('RPUSH', KEYS[n + 1], ARGV[n + 1 + i]) " +
+            "      redis.call('SET', KEYS[n + 1 + i], ARGV[n + 1 + i], 'PX', ARGV[2 * n + 2]) " +
+            "    end " +
+            "    result[i + 1] = '' " +
+            "  end " +
+            "end " +
+            "return result", List.class);
+
+    private static final RedisScript<Long> CREDIT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then " +
+            "  return redis.call('HINCRBY', KEYS[1], 'available', ARGV[1]) " +
+            "end " +
+            "return -1", Long.class);
+
+    private static final RedisScript<Long> SEED_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then " +
+            "  redis.call('HSET', KEYS[1], 'available', ARGV[1]) " +
+            "  return 1 " +
+            "end " +
+            "return 0", Long.class);
+
+    /**
+     * 撤销尚未被回写的预留：从 journal 中删除成功才删除幂等键并归还库存，已被回写的预留交给过期清理释放
+     */
+    private static final RedisScript<Long> COMPENSATE_SCRIPT = new DefaultRedisScript<>(
+            "local credited = 0 " +
+            "for i = 1, #ARGV / 2 do " +
+            "  local quantity = tonumber(ARGV[i * 2]) " +
+            "  if redis.call('LREM', KEYS[1], 1, ARGV[i * 2 - 1]) == 1 then " +
+            "    redis.call('DEL', KEYS[i * 2 + 1]) " +
+            "    if redis.call('EXISTS', KEYS[i * 2]) == 1 then " +
+            "      redis.call('HINCRBY', KEYS[i * 2], 'available', quantity) " +
+            "      credited = credited + quantity " +
+            "    end " +
+            "  end " +
+            "end " +
+            "return credited", Long.class);
+
+    /**
+     * 优先返回上次未确认的批次（崩溃恢复），否则从 journal 移动最多 ARGV[1] 条到 processing
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local claimed = redis.call('LRANGE', KEYS[2], 0, -1) " +
+            "if #claimed > 0 then return claimed end " +
+            "for i = 1, tonumber(ARGV[1]) do " +
+            "  local entry = redis.call('LMOVE', KEYS[1], KEYS[2], 'LEFT', 'RIGHT') " +
+            "  if not entry then break end " +
+            "  claimed[#claimed + 1] = entry " +
+            "end " +
+            "return claimed", List.class);
+
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 原子扣减多行账本；entries 非空时与 lines 按行对齐，受理的行写入 journal 并登记幂等键
+     */
+    @SuppressWarnings("unchecked")
+    public ReserveResult reserve(SortedMap<Long, Integer> lines, List<HotSkuJournalEntry> entries) {
+        List<String> keys = new ArrayList<>(lines.size() * 2 + 1);
+        List<String> args = new ArrayList<>(lines.size() + entries.size() + 2);
+        args.add(String.valueOf(lines.size()));
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            keys.add(ledgerKey(line.getKey()));
+            args.add(String.valueOf(line.getValue()));
+        }
+        keys.add(JOURNAL_KEY);
+        for (HotSkuJournalEntry entry : entries) {
+            keys.add(reservationKey(entry));
+            args.add(serialize(entry));
+        }
+        if (!entries.isEmpty()) {
+            LocalDateTime expiresAt = entries.get(0).getExpiresAt();
+            args.add(String.valueOf(Math.max(1, Duration.between(LocalDateTime.now(), expiresAt).toMillis())));
+        }
+        List<String> result = redisTemplate.execute(RESERVE_SCRIPT, keys, args.toArray());
+        if (result == null || result.isEmpty()) {
+            throw new IllegalStateException("Hot SKU reserve script returned no result");
+        }
+        List<HotSkuJournalEntry> existing = result.subList(1, result.size()).stream()
+                .map(json -> json.isEmpty() ? null : deserialize(json))
+                .collect(Collectors.toList());
+        return new ReserveResult(Long.parseLong(result.get(0)), existing);
+    }
+
+    public void credit(Long variantId, int quantity) {
+        redisTemplate.execute(CREDIT_SCRIPT, List.of(ledgerKey(variantId)), String.valueOf(quantity));
+    }
+
+    public int compensate(List<HotSkuJournalEntry> entries) {
+        List<String> keys = new ArrayList<>(entries.size() * 2 + 1);
+        List<String> args = new ArrayList<>(entries.size() * 2);
+        keys.add(JOURNAL_KEY);
+        for (HotSkuJournalEntry entry : entries) {
+            keys.add(ledgerKey(entry.getVariantId()));
+            keys.add(reservationKey(entry));
+            args.add(serialize(entry));
+            args.add(String.valueOf(entry.getQuantity()));
+        }
+        Long credited = redisTemplate.execute(COMPENSATE_SCRIPT, keys, args.toArray());
+        return credited != null ? credited.intValue() : 0;
+    }
+
+    public boolean seedIfAbsent(Long variantId, int available) {
+        Long seeded = redisTemplate.execute(SEED_SCRIPT, List.of(ledgerKey(variantId)), String.valueOf(available));
+        return seeded != null && seeded == 1;
+    }
+
+    public Integer getAvailable(Long variantId) {
+        Object available = redisTemplate.opsForHash().get(ledgerKey(variantId), AVAILABLE_FIELD);
+        return available != null ? Integer.valueOf(available.toString()) : null;
+    }
+
+    public void evict(Long variantId) {
+        redisTemplate.delete(ledgerKey(variantId));
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<HotSkuJournalEntry> claimBatch(int maxEntries) {
+        List<String> claimed = redisTemplate.execute(CLAIM_SCRIPT, List.of(JOURNAL_KEY, PROCESSING_KEY), String.valueOf(maxEntries));
+        if (claimed == null) {
+            return Collections.emptyList();
+        }
+        return claimed.stream().map(this::deserialize).collect(Collectors.toList());
+    }
+
+    public void acknowledgeBatch() {
+        redisTemplate.delete(List.of(PROCESSING_KEY, ATTEMPTS_KEY));
+    }
+
+    /**
+     * 记录当前未确认批次的一次回写失败，返回累计失败次数
+     */
+    public long recordFailedFlush() {
+        Long attempts = redisTemplate.opsForValue().increment(ATTEMPTS_KEY);
+        return attempts != null ? attempts : 0;
+    }
+
+    /**
+     * 无法回写的记录转入死信列表，保留原始 JSON 供人工核对后重放
+     */
+    public void deadLetter(HotSkuJournalEntry entry) {
+        redisTemplate.opsForList().rightPush(DEAD_LETTER_KEY, serialize(entry));
+    }
+
+    public long journalSize() {
+        Long size = redisTemplate.opsForList().size(JOURNAL_KEY);
+        return size != null ? size : 0;
+    }
+
+    /**
+     * 尚未落库的记录数：journal 加上未确认批次
+     */
+    public long pendingSize() {
+        Long processing = redisTemplate.opsForList().size(PROCESSING_KEY);
+        return journalSize() + (processing != null ? processing : 0);
+    }
+
+    /**
+     * 获取跨副本的回写锁，成功返回锁令牌，失败返回 null
+     */
+    public String tryLock(long ttlMs) {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(FLUSH_LOCK_KEY, token, Duration.ofMillis(ttlMs));
+        return Boolean.TRUE.equals(acquired) ? token : null;
+    }
+
+    public void unlock(String token) {
+        redisTemplate.execute(UNLOCK_SCRIPT, List.of(FLUSH_LOCK_KEY), token);
+    }
+
+    private String ledgerKey(Long variantId) {
+        return KEY_PREFIX + "ledger:" + variantId;
+    }
+
+    private String reservationKey(HotSkuJournalEntry entry) {
+        return KEY_PREFIX + "reservation:" + entry.getOrderId() + ":" + entry.getVariantId();
+    }
+
+    private String serialize(HotSkuJournalEntry entry) {
+        try {
+            return objectMapper.writeValueAsString(entry);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize hot SKU journal entry: " + entry.getReservationId(), e);
+        }
+    }
+
+    private HotSkuJournalEntry deserialize(String json) {
+        try {
+            return objectMapper.readValue(json, HotSkuJournalEntry.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to deserialize hot SKU journal entry: " + json, e);
+        }
+    }
+
+    /**
+     * 账本预留结果：status 含义见 RESERVE_SCRIPT；existing 与请求行对齐，命中幂等键的行为已有预留，其余为 null
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class ReserveResult {
+        private final long status;
+        private final List<HotSkuJournalEntry> existing;
+    }
+}
@@ -0,0 +1,366 @@
+package com.ecommerce.inventoryservice.service;
+
+import com.ecommerce.inventoryservice.config.HotSkuProperties;
+import com.ecommerce.inventoryservice.dto.HotSkuJournalEntry;
+import com.ecommerce.inventoryservice.exception.InsufficientStockException;
+import com.ecommerce.inventoryservice.exception.InventoryNotFoundException;
+import com.ecommerce.inventoryservice.model.Inventory;
+import com.ecommerce.inventoryservice.repository.InventoryRepository;
+import com.ecommerce.inventoryservice.repository.StockReservationRepository;
+import com.ecommerce.inventoryservice.repository.StockReservationRepository.SkippedDuplicate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 热点 SKU（秒杀）模式：预留由 Redis 账本受理并立即返回，
+ * 账本 journal 由定时任务批量回写 inventory 与 stock_reservation。
+ *
+ * 一致性约定：
+ * - 账本首次使用时在回写锁内先排空 journal，再以数据库可用库存（行锁读取）初始化；
+ * - 数据库侧释放库存（取消、过期、补货）在事务提交前同步给账本，回滚时撤销；
+ * - 回写幂等（reservation_id 唯一），崩溃后重放未确认批次即可与 stock_reservation 对账；
+ * - 账本按 (orderId, variantId) 幂等：回写前的重试返回已受理的预留，不再扣减；
+ *   漏过账本幂等键的重复预留在回写时丢弃，确认批次后归还账本；
+ * - 同一批次因数据错误（如 variant 已删除）连续失败 max-flush-attempts 次后逐条回写，
+ *   仍失败的记录转入死信列表，不再阻塞后续批次；
+ * - 按 reservationId / 订单操作预留时若记录尚在 journal 中，先强制回写再查询。
+ */
+@Slf4j
+@Service
+public class HotSkuService {
+
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final HotSkuProperties properties;
+    private final HotSkuLedger ledger;
+    private final InventoryRepository inventoryRepository;
+    private final StockReservationRepository reservationRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public HotSkuService(HotSkuProperties properties,
+                         HotSkuLedger ledger,
+                         InventoryRepository inventoryRepository,
+                         StockReservationRepository reservationRepository,
+                         PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.ledger = ledger;
+        this.inventoryRepository = inventoryRepository;
+        this.reservationRepository = reservationRepository;
+        // 回写与账本初始化使用独立事务，不受调用方事务回滚影响
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public boolean isHot(Long variantId) {
+        return properties.isHot(variantId);
+    }
+
+    /**
+     * 在账本中原子预留多行（全部成功或全部失败），返回与 lines 对齐的预留记录；
+     * 该订单已在账本受理的行返回原预留。
+     * 若当前事务回滚，本次新受理且尚未回写的预留会从 journal 撤销并归还账本。
+     */
+    public List<HotSkuJournalEntry> reserve(String orderId, SortedMap<Long, Integer> lines, LocalDateTime expiresAt) {
+        List<HotSkuJournalEntry> entries = lines.entrySet().stream()
+                .map(line -> HotSkuJournalEntry.builder()
+                        .reservationId(UUID.randomUUID().toString())
+                        .variantId(line.getKey())
+                        .orderId(orderId)
+                        .quantity(line.getValue())
+                        .expiresAt(expiresAt)
+                        .build())
+                .collect(Collectors.toList());
+
+        List<HotSkuJournalEntry> existing = apply(lines, entries);
+        List<HotSkuJournalEntry> accepted = new ArrayList<>(entries.size());
+        List<HotSkuJournalEntry> created = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            if (existing.get(i) != null) {
+                // 同一订单同一 variant 已在账本受理（回写前的重试），返回原预留，不再扣减
+                accepted.add(existing.get(i));
+            } else {
+                accepted.add(entries.get(i));
+                created.add(entries.get(i));
+            }
+        }
+        if (!created.isEmpty()) {
+            afterRollback(() -> ledger.compensate(created));
+        }
+        return accepted;
+    }
+
+    /**
+     * 直接扣减账本库存（不产生预留记录），用于热点 SKU 的出库；事务回滚时归还
+     */
+    public void take(Long variantId, int quantity) {
+        apply(new TreeMap<>(Map.of(variantId, quantity)), List.of());
+        afterRollback(() -> ledger.credit(variantId, quantity));
+    }
+
+    /**
+     * 数据库释放了热点 SKU 的库存后归还账本。
+     * 在提交前执行（此时仍持有库存行锁，避免与账本初始化交错），提交失败则撤销。
+     */
+    public void credit(Long variantId, int quantity) {
+        if (!isHot(variantId) || quantity <= 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ledger.credit(variantId, quantity);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                ledger.credit(variantId, quantity);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    ledger.credit(variantId, -quantity);
+                }
+            }
+        });
+    }
+
+    public Integer getLedgerAvailable(Long variantId) {
+        return ledger.getAvailable(variantId);
+    }
+
+    /**
+     * 库存记录删除后丢弃账本，避免继续受理已不存在的 variant
+     */
+    public void evict(Long variantId) {
+        if (properties.isEnabled()) {
+            ledger.evict(variantId);
+        }
+    }
+
+    /**
+     * journal 中是否还有尚未落库的预留
+     */
+    public boolean hasPending() {
+        return properties.isEnabled() && ledger.pendingSize() > 0;
+    }
+
+    /**
+     * 立即回写 journal 中尚未落库的预留，返回回写条数。
+     * 热点预留在回写前没有 stock_reservation 记录，确认/取消查不到时先在事务外调用此方法。
+     */
+    public int flushPending() {
+        if (!properties.isEnabled() || ledger.pendingSize() == 0) {
+            return 0;
+        }
+        String token = acquireLock();
+        try {
+            return drain(ledger.journalSize());
+        } finally {
+            ledger.unlock(token);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.hot-sku.flush-interval-ms:500}")
+    public void flush() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String token = ledger.tryLock(properties.getLockTtlMs());
+        if (token == null) {
+            return; // 其他副本正在回写
+        }
+        try {
+            drain(ledger.journalSize());
+        } catch (Exception e) {
+            log.error("Hot SKU write-behind flush failed, batch will be replayed: {}", e.getMessage());
+        } finally {
+            ledger.unlock(token);
+        }
+    }
+
+    /**
+     * 启动时重放崩溃前未确认的批次，并把已积压的 journal 回写数据库
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            String token = acquireLock();
+            try {
+                int applied = drain(ledger.journalSize());
+                log.info("Hot SKU ledger recovered, {} journal entries reconciled with stock_reservation", applied);
+            } finally {
+                ledger.unlock(token);
+            }
+        } catch (Exception e) {
+            log.error("Hot SKU ledger recovery failed, flush will retry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 扣减账本，返回与 lines 对齐的已有预留（命中幂等键的行），新受理的行为 null
+     */
+    private List<HotSkuJournalEntry> apply(SortedMap<Long, Integer> lines, List<HotSkuJournalEntry> entries) {
+        List<Long> variantIds = new ArrayList<>(lines.keySet());
+        for (int attempt = 0; attempt < MAX_LOAD_ATTEMPTS; attempt++) {
+            HotSkuLedger.ReserveResult reserved = ledger.reserve(lines, entries);
+            long result = reserved.getStatus();
+            if (result == 0) {
+                return reserved.getExisting();
+            }
+            Long variantId = variantIds.get((int) Math.abs(result) - 1);
+            if (result > 0) {
+                Integer available = ledger.getAvailable(variantId);
+                throw new InsufficientStockException(variantId, lines.get(variantId), available != null ? available : 0);
+            }
+            load(variantId);
+        }
+        throw new IllegalStateException("Hot SKU ledger could not be loaded for variants: " + variantIds);
+    }
+
+    /**
+     * 初始化某个 variant 的账本：持有回写锁，先排空 journal（账本缺失时不会有该 variant 的新预留），
+     * 再在行锁下读取数据库可用库存写入账本
+     */
+    private void load(Long variantId) {
+        String token = acquireLock();
+        try {
+            drain(ledger.journalSize());
+            transactionTemplate.executeWithoutResult(status -> {
+                Inventory inventory = inventoryRepository.findByVariantIdForUpdate(variantId)
+                        .orElseThrow(() -> new InventoryNotFoundException(variantId));
+                int available = Math.max(0, inventory.getCurrentStock() - inventory.getReservedStock());
+                if (ledger.seedIfAbsent(variantId, available)) {
+                    log.info("Loaded hot SKU ledger for variant {} with available stock {}", variantId, available);
+                }
+            });
+        } finally {
+            ledger.unlock(token);
+        }
+    }
+
+    /**
+     * 至少回写 minEntries 条 journal 记录（加上崩溃遗留的未确认批次），返回回写条数
+     */
+    private int drain(long minEntries) {
+        int applied = 0;
+        while (true) {
+            List<HotSkuJournalEntry> batch = ledger.claimBatch(properties.getFlushBatchSize());
+            if (batch.isEmpty()) {
+                return applied;
+            }
+            List<SkippedDuplicate> duplicates;
+            try {
+                duplicates = transactionTemplate.execute(status -> writeBehind(batch));
+            } catch (NonTransientDataAccessException e) {
+                // 连接类故障不计入失败次数，只有数据本身导致的失败才会在达到上限后拆批
+                if (e instanceof DataAccessResourceFailureException
+                        || ledger.recordFailedFlush() < properties.getMaxFlushAttempts()) {
+                    throw e;
+                }
+                log.error("Hot SKU batch of {} entries failed {} times, writing entries one by one: {}",
+                        batch.size(), properties.getMaxFlushAttempts(), e.getMessage());
+                duplicates = writeBehindOneByOne(batch);
+            }
+            ledger.acknowledgeBatch();
+            // 先确认批次再归还：两步之间崩溃只会少归还（少卖），不会因重放重复归还导致超卖
+            if (duplicates != null) {
+                duplicates.forEach(duplicate -> ledger.credit(duplicate.getVariantId(), duplicate.getQuantity().intValue()));
+            }
+            applied += batch.size();
+            if (applied >= minEntries) {
+                return applied;
+            }
+        }
+    }
+
+    private List<SkippedDuplicate> writeBehindOneByOne(List<HotSkuJournalEntry> batch) {
+        List<SkippedDuplicate> duplicates = new ArrayList<>();
+        for (HotSkuJournalEntry entry : batch) {
+            try {
+                duplicates.addAll(transactionTemplate.execute(status -> writeBehind(List.of(entry))));
+            } catch (NonTransientDataAccessException e) {
+                ledger.deadLetter(entry);
+                log.error("Moved hot SKU reservation {} (variant {}, order {}) to dead letter: {}",
+                        entry.getReservationId(), entry.getVariantId(), entry.getOrderId(), e.getMessage());
+            }
+        }
+        return duplicates;
+    }
+
+    private List<SkippedDuplicate> writeBehind(List<HotSkuJournalEntry> batch) {
+        String separator = String.valueOf((char) 31);
+        List<SkippedDuplicate> duplicates = reservationRepository.applyHotSkuJournal(
+                join(batch, HotSkuJournalEntry::getReservationId, separator),
+                join(batch, HotSkuJournalEntry::getVariantId, separator),
+                join(batch, HotSkuJournalEntry::getOrderId, separator),
+                join(batch, HotSkuJournalEntry::getQuantity, separator),
+                join(batch, HotSkuJournalEntry::getExpiresAt, separator));
+        if (!duplicates.isEmpty()) {
+            log.info("Dropped duplicate hot SKU reservations for {} variants while flushing", duplicates.size());
+        }
+        log.debug("Flushed {} hot SKU reservations", batch.size());
+        return duplicates;
+    }
+
+    private String acquireLock() {
+        long deadline = System.currentTimeMillis() + properties.getLockWaitMs();
+        while (true) {
+            String token = ledger.tryLock(properties.getLockTtlMs());
+            if (token != null) {
+                return token;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Timed out waiting for hot SKU flush lock");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for hot SKU flush lock", e);
+            }
+        }
+    }
+
+    private static void afterRollback(Runnable compensation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    compensation.run();
+                }
+            }
+        });
+    }
+
+    private static String join(List<HotSkuJournalEntry> batch,
+                               Function<HotSkuJournalEntry, Object> field,
+                               String separator) {
+        return batch.stream().map(field).map(String::valueOf).collect(Collectors.joining(separator));
+    }
+}
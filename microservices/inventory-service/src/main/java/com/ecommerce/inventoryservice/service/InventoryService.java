@@ -1,5 +1,7 @@
 package com.ecommerce.inventoryservice.service;
 
+import com.ecommerce.inventoryservice.dto.AvailabilityResponse;
+import com.ecommerce.inventoryservice.dto.InventoryPageResponse;
 import com.ecommerce.inventoryservice.dto.InventoryRequest;
 import com.ecommerce.inventoryservice.dto.InventoryResponse;
 import com.ecommerce.inventoryservice.dto.StockReservationRequest;
@@ -7,6 +9,8 @@ import com.ecommerce.inventoryservice.dto.StockReservationResponse;
 import com.ecommerce.inventoryservice.dto.StockUpdateRequest;
 import com.ecommerce.inventoryservice.dto.ReserveStockRequest;
 
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -16,12 +20,18 @@ public interface InventoryService {
     InventoryResponse createInventory(InventoryRequest request);
     InventoryResponse getInventoryByVariantId(Long variantId);
     List<InventoryResponse> getAllInventories();
+    InventoryPageResponse getInventories(Long afterId, int size);
+    void exportInventories(OutputStream outputStream);
     InventoryResponse updateInventory(Long variantId, InventoryRequest request);
     void deleteInventory(Long variantId);
     
     // 库存查询
     List<InventoryResponse> getLowStockItems();
     List<InventoryResponse> getOutOfStockItems();
+    InventoryPageResponse getLowStockItems(Long afterId, int size);
+    InventoryPageResponse getOutOfStockItems(Long afterId, int size);
+    void exportLowStockItems(OutputStream outputStream);
+    void exportOutOfStockItems(OutputStream outputStream);
     Integer getAvailableStock(Long variantId);
     
     // 库存操作
@@ -39,7 +49,8 @@ public interface InventoryService {
     
     // 批量操作
     Map<Long, Integer> checkStockAvailability(Map<Long, Integer> variantQuantities);
-    void processBatchReservations(String orderId, Map<Long, Integer> variantQuantities);
+    List<AvailabilityResponse> getAvailability(Collection<Long> variantIds);
+    List<StockReservationResponse> processBatchReservations(String orderId, Map<Long, Integer> variantQuantities);
     void confirmBatchReservations(String orderId);
     void cancelBatchReservations(String orderId);
     
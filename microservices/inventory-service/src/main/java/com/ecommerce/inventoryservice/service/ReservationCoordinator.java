@@ -0,0 +1,155 @@
+package com.ecommerce.inventoryservice.service;
+
+import com.ecommerce.inventoryservice.exception.DuplicateReservationException;
+import com.ecommerce.inventoryservice.exception.ReservationConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * 预留操作的事务协调器：每次调用在独立事务中执行，遇到死锁、序列化失败或锁等待超时时整体重试，
+ * 使用有上限的指数退避加随机抖动，避免冲突双方同时重试再次相撞。
+ * 幂等键 (order_id, variant_id) 的唯一冲突不是锁冲突：说明并发的重复请求已先提交，
+ * 立即重放一次即可走幂等分支返回已有预留；重放仍冲突则返回 409。
+ *
+ * 加锁顺序约定（所有预留路径都遵守，保证不会形成等待环）：
+ * 先锁 stock_reservation 行（按 id），再锁 inventory 行（按 variant_id 升序）。
+ * 已处于外层事务中时直接执行，由最外层负责重试。
+ */
+@Slf4j
+@Component
+public class ReservationCoordinator {
+
+    private static final String SERIALIZATION_FAILURE = "40001";
+    private static final String DEADLOCK_DETECTED = "40P01";
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+
+    public ReservationCoordinator(PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${inventory.settings.lock-retry-max-attempts:5}") int maxAttempts,
+                                  @Value("${inventory.settings.lock-retry-initial-backoff-ms:20}") long initialBackoffMs,
+                                  @Value("${inventory.settings.lock-retry-max-backoff-ms:500}") long maxBackoffMs) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        boolean replayed = false;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (RuntimeException e) {
+                if (hasSqlState(e, UNIQUE_VIOLATION)) {
+                    if (replayed) {
+                        throw new DuplicateReservationException(operation, e);
+                    }
+                    replayed = true;
+                    attempt--; // 重放不占用锁冲突的重试次数
+                    Counter.builder("inventory.reservations.duplicate.replays")
+                            .tag("operation", operation)
+                            .register(meterRegistry)
+                            .increment();
+                    log.debug("Reservation operation {} lost an idempotency race, replaying", operation);
+                    continue;
+                }
+                String reason = conflictReason(e);
+                if (reason == null) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    counter("inventory.reservations.lock.aborts", operation, reason).increment();
+                    log.warn("Reservation operation {} aborted after {} attempts ({})", operation, attempt, reason);
+                    throw new ReservationConflictException(operation, attempt, e);
+                }
+                counter("inventory.reservations.lock.retries", operation, reason).increment();
+                long backoffMs = backoff(attempt);
+                log.debug("Reservation operation {} hit {} on attempt {}, retrying in {} ms", operation, reason, attempt, backoffMs);
+                sleep(backoffMs);
+            }
+        }
+    }
+
+    public void run(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 等值抖动：退避上限的一半固定，另一半随机
+     */
+    long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    /**
+     * 沿异常链查找 SQLState，返回可重试的冲突类型，不可重试时返回 null
+     */
+    static String conflictReason(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                String sqlState = ((SQLException) cause).getSQLState();
+                if (DEADLOCK_DETECTED.equals(sqlState)) {
+                    return "deadlock";
+                }
+                if (SERIALIZATION_FAILURE.equals(sqlState)) {
+                    return "serialization";
+                }
+                if (LOCK_NOT_AVAILABLE.equals(sqlState)) {
+                    return "lock-timeout";
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasSqlState(Throwable error, String expected) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && expected.equals(((SQLException) cause).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Counter counter(String name, String operation, String reason) {
+        return Counter.builder(name)
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off a reservation retry", e);
+        }
+    }
+}
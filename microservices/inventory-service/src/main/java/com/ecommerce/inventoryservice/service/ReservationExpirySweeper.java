@@ -0,0 +1,120 @@
+package com.ecommerce.inventoryservice.service;
+
+import com.ecommerce.inventoryservice.repository.StockReservationRepository;
+import com.ecommerce.inventoryservice.repository.StockReservationRepository.ExpiredRelease;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 预留过期清理：按 (status, expires_at) 索引分块领取到期的 PENDING 预留，
+ * 每个分块一个事务，按 variant 汇总后每个 variant 只释放一次库存。
+ * 领取使用 FOR UPDATE SKIP LOCKED，多个副本同时运行时各自处理不同的分块，且每条预留只会释放一次。
+ */
+@Slf4j
+@Component
+public class ReservationExpirySweeper {
+
+    private final StockReservationRepository reservationRepository;
+    private final HotSkuService hotSkuService;
+    private final AvailabilityCache availabilityCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxChunksPerRun;
+
+    private final Counter expiredCounter;
+    private final Counter releasedQuantityCounter;
+    private final Timer lagTimer;
+    private final Timer sweepTimer;
+
+    public ReservationExpirySweeper(StockReservationRepository reservationRepository,
+                                    HotSkuService hotSkuService,
+                                    AvailabilityCache availabilityCache,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${inventory.settings.expiry-chunk-size:500}") int chunkSize,
+                                    @Value("${inventory.settings.expiry-max-chunks-per-run:200}") int maxChunksPerRun) {
+        this.reservationRepository = reservationRepository;
+        this.hotSkuService = hotSkuService;
+        this.availabilityCache = availabilityCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxChunksPerRun = maxChunksPerRun;
+
+        this.expiredCounter = Counter.builder("inventory.reservations.expired")
+                .description("Reservations expired by the sweeper")
+                .register(meterRegistry);
+        this.releasedQuantityCounter = Counter.builder("inventory.reservations.expired.released.quantity")
+                .description("Reserved stock returned to availability by expiry")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("inventory.reservations.expiry.lag")
+                .description("Delay between a reservation's expires_at and its release (oldest per variant per chunk)")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("inventory.reservations.expiry.sweep")
+                .description("Duration of one expiry sweep run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.settings.expiry-sweep-interval-ms:30000}",
+               initialDelayString = "${inventory.settings.expiry-sweep-interval-ms:30000}")
+    public void scheduledSweep() {
+        try {
+            sweep();
+        } catch (Exception e) {
+            log.error("Reservation expiry sweep failed, will retry next run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 处理到期预留直到没有剩余或达到单次分块上限，返回过期的预留条数
+     */
+    public int sweep() {
+        long startNanos = System.nanoTime();
+        int expired = 0;
+        int chunks = 0;
+        while (chunks < maxChunksPerRun) {
+            Integer rows = transactionTemplate.execute(status -> sweepChunk());
+            chunks++;
+            expired += rows != null ? rows : 0;
+            if (rows == null || rows < chunkSize) {
+                break;
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        sweepTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        if (expired > 0) {
+            double rowsPerSecond = expired / Math.max(elapsedNanos / 1e9, 1e-3);
+            log.info("Expired {} reservations in {} chunks, {} ms ({} rows/s)",
+                    expired, chunks, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), Math.round(rowsPerSecond));
+        }
+        return expired;
+    }
+
+    private int sweepChunk() {
+        List<ExpiredRelease> releases = reservationRepository.expireDueReservations(chunkSize);
+        LocalDateTime now = LocalDateTime.now();
+        int rows = 0;
+        for (ExpiredRelease release : releases) {
+            rows += release.getReservations().intValue();
+            releasedQuantityCounter.increment(release.getQuantity());
+            lagTimer.record(Duration.between(release.getOldestExpiresAt(), now));
+            hotSkuService.credit(release.getVariantId(), release.getQuantity().intValue());
+        }
+        availabilityCache.evictAll(releases.stream().map(ExpiredRelease::getVariantId).collect(Collectors.toList()));
+        expiredCounter.increment(rows);
+        return rows;
+    }
+}
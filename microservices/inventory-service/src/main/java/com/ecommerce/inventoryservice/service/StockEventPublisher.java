@@ -0,0 +1,112 @@
+package com.ecommerce.inventoryservice.service;
+
+import com.ecommerce.inventoryservice.config.RabbitMQConfig;
+import com.ecommerce.inventoryservice.dto.StockChangedEvent;
+import com.ecommerce.inventoryservice.repository.InventoryOutboxRepository;
+import com.ecommerce.inventoryservice.repository.InventoryOutboxRepository.StockChange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 发布库存变更事件：从 inventory_outbox 领取一批已提交的变更，按 variant 合并为最新状态，
+ * 作为一条消息发送到 inventory.exchange，等待 broker 确认后再提交删除。
+ * 发布失败时事务回滚，记录留在发件箱中下次重发（至少一次）。
+ */
+@Slf4j
+@Component
+public class StockEventPublisher {
+
+    // pg advisory 锁的键，仅用于发布者互斥
+    private static final long PUBLISHER_LOCK_KEY = 7_146_001L;
+
+    private final InventoryOutboxRepository outboxRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final HotSkuService hotSkuService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long confirmTimeoutMs;
+
+    public StockEventPublisher(InventoryOutboxRepository outboxRepository,
+                               RabbitTemplate rabbitTemplate,
+                               HotSkuService hotSkuService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${inventory.events.enabled:true}") boolean enabled,
+                               @Value("${inventory.events.batch-size:500}") int batchSize,
+                               @Value("${inventory.events.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.outboxRepository = outboxRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.hotSkuService = hotSkuService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.events.publish-interval-ms:200}")
+    public void publishPending() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Integer claimed;
+            do {
+                claimed = transactionTemplate.execute(status -> publishBatch());
+            } while (claimed != null && claimed >= batchSize);
+        } catch (Exception e) {
+            log.warn("Stock change publishing failed, outbox will be retried: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 发布一批事件，返回领取的发件箱记录数；其他副本正在发布时返回 0
+     */
+    int publishBatch() {
+        if (!outboxRepository.tryPublisherLock(PUBLISHER_LOCK_KEY)) {
+            return 0;
+        }
+        List<StockChange> changes = outboxRepository.claimStockChanges(batchSize);
+        if (changes.isEmpty()) {
+            return 0;
+        }
+
+        List<StockChangedEvent> events = changes.stream()
+                .map(this::toEvent)
+                .collect(Collectors.toList());
+        rabbitTemplate.invoke(operations -> {
+            operations.convertAndSend(RabbitMQConfig.INVENTORY_EXCHANGE, RabbitMQConfig.STOCK_CHANGED_ROUTING_KEY, events);
+            operations.waitForConfirmsOrDie(confirmTimeoutMs);
+            return null;
+        });
+
+        int claimed = changes.stream().mapToInt(change -> change.getEntries().intValue()).sum();
+        log.debug("Published {} stock changes coalesced from {} outbox entries", events.size(), claimed);
+        return claimed;
+    }
+
+    private StockChangedEvent toEvent(StockChange change) {
+        boolean deleted = change.getCurrentStock() == null;
+        Integer availableStock = deleted ? 0 : Math.max(0, change.getCurrentStock() - change.getReservedStock());
+        // 热点 SKU 的数据库库存落后于账本，以账本为准
+        if (!deleted && hotSkuService.isHot(change.getVariantId())) {
+            Integer ledgerAvailable = hotSkuService.getLedgerAvailable(change.getVariantId());
+            if (ledgerAvailable != null) {
+                availableStock = ledgerAvailable;
+            }
+        }
+        return StockChangedEvent.builder()
+                .variantId(change.getVariantId())
+                .availableStock(availableStock)
+                .status(change.getStatus())
+                .version(change.getVersion())
+                .build();
+    }
+}
@@ -1,11 +1,14 @@
 package com.ecommerce.inventoryservice.service.impl;
 
+import com.ecommerce.inventoryservice.dto.AvailabilityResponse;
+import com.ecommerce.inventoryservice.dto.InventoryPageResponse;
 import com.ecommerce.inventoryservice.dto.InventoryRequest;
 import com.ecommerce.inventoryservice.dto.InventoryResponse;
 import com.ecommerce.inventoryservice.dto.ReserveStockRequest;
 import com.ecommerce.inventoryservice.dto.StockReservationRequest;
 import com.ecommerce.inventoryservice.dto.StockReservationResponse;
 import com.ecommerce.inventoryservice.dto.StockUpdateRequest;
+import com.ecommerce.inventoryservice.exception.DuplicateReservationException;
 import com.ecommerce.inventoryservice.exception.InsufficientStockException;
 import com.ecommerce.inventoryservice.exception.InventoryNotFoundException;
 import com.ecommerce.inventoryservice.exception.ReservationNotFoundException;
@@ -13,18 +16,43 @@ import com.ecommerce.inventoryservice.model.Inventory;
 import com.ecommerce.inventoryservice.model.StockReservation;
 import com.ecommerce.inventoryservice.repository.InventoryRepository;
 import com.ecommerce.inventoryservice.repository.StockReservationRepository;
+import com.ecommerce.inventoryservice.service.AvailabilityCache;
+import com.ecommerce.inventoryservice.service.HotSkuService;
 import com.ecommerce.inventoryservice.service.InventoryService;
+import com.ecommerce.inventoryservice.service.ReservationCoordinator;
+import com.ecommerce.inventoryservice.service.ReservationExpirySweeper;
+import com.ecommerce.inventoryservice.util.InventoryConstants;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -33,6 +61,12 @@ public class InventoryServiceImpl implements InventoryService {
 
     private final InventoryRepository inventoryRepository;
     private final StockReservationRepository reservationRepository;
+    private final HotSkuService hotSkuService;
+    private final ReservationExpirySweeper expirySweeper;
+    private final ReservationCoordinator reservationCoordinator;
+    private final AvailabilityCache availabilityCache;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
 
     @Override
     @Transactional
@@ -58,6 +92,7 @@ public class InventoryServiceImpl implements InventoryService {
                 .build();
 
         Inventory savedInventory = inventoryRepository.save(inventory);
+        availabilityCache.evict(request.getVariantId());
         log.info("Created inventory with ID: {} for variant ID: {}", savedInventory.getId(), request.getVariantId());
         
         return InventoryResponse.fromEntity(savedInventory);
@@ -82,6 +117,21 @@ public class InventoryServiceImpl implements InventoryService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public InventoryPageResponse getInventories(Long afterId, int size) {
+        log.debug("Fetching inventories after ID: {}", afterId);
+        
+        int pageSize = pageSize(size);
+        return toPage(inventoryRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, pageSize + 1)), pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportInventories(OutputStream outputStream) {
+        log.info("Exporting all inventories");
+        writeNdjson(inventoryRepository.streamAll(), outputStream);
+    }
+
     @Override
     @Transactional
     public InventoryResponse updateInventory(Long variantId, InventoryRequest request) {
@@ -97,6 +147,7 @@ public class InventoryServiceImpl implements InventoryService {
         inventory.setNotes(request.getNotes());
 
         Inventory updatedInventory = inventoryRepository.save(inventory);
+        availabilityCache.evict(variantId);
         log.info("Updated inventory for variant ID: {}", variantId);
         
         return InventoryResponse.fromEntity(updatedInventory);
@@ -111,6 +162,8 @@ public class InventoryServiceImpl implements InventoryService {
                 .orElseThrow(() -> new InventoryNotFoundException(variantId));
                 
         inventoryRepository.delete(inventory);
+        availabilityCache.evict(variantId);
+        hotSkuService.evict(variantId);
         log.info("Deleted inventory for variant ID: {}", variantId);
     }
 
@@ -132,6 +185,68 @@ public class InventoryServiceImpl implements InventoryService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public InventoryPageResponse getLowStockItems(Long afterId, int size) {
+        int pageSize = pageSize(size);
+        return toPage(inventoryRepository.findLowStockItemsAfter(afterId, PageRequest.of(0, pageSize + 1)), pageSize);
+    }
+
+    @Override
+    public InventoryPageResponse getOutOfStockItems(Long afterId, int size) {
+        int pageSize = pageSize(size);
+        return toPage(inventoryRepository.findOutOfStockItemsAfter(afterId, PageRequest.of(0, pageSize + 1)), pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportLowStockItems(OutputStream outputStream) {
+        writeNdjson(inventoryRepository.streamLowStockItems(), outputStream);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportOutOfStockItems(OutputStream outputStream) {
+        writeNdjson(inventoryRepository.streamOutOfStockItems(), outputStream);
+    }
+
+    private static int pageSize(int size) {
+        return Math.min(Math.max(size, 1), InventoryConstants.MAX_PAGE_SIZE);
+    }
+
+    /**
+     * 多取一行判断是否还有下一页
+     */
+    private static InventoryPageResponse toPage(List<Inventory> rows, int pageSize) {
+        List<InventoryResponse> items = rows.stream()
+                .limit(pageSize)
+                .map(InventoryResponse::fromEntity)
+                .collect(Collectors.toList());
+        return InventoryPageResponse.builder()
+                .items(items)
+                .nextAfterId(items.isEmpty() ? null : items.get(items.size() - 1).getId())
+                .hasNext(rows.size() > pageSize)
+                .build();
+    }
+
+    /**
+     * 逐行写出 NDJSON，写出后立即从持久化上下文移除，内存占用与行数无关
+     */
+    private void writeNdjson(Stream<Inventory> inventories, OutputStream outputStream) {
+        ObjectWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n");
+        try (Stream<Inventory> rows = inventories; SequenceWriter lines = writer.writeValues(outputStream)) {
+            Iterator<Inventory> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Inventory inventory = iterator.next();
+                lines.write(InventoryResponse.fromEntity(inventory));
+                entityManager.detach(inventory);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write inventory export", e);
+        }
+    }
+
     @Override
     public Integer getAvailableStock(Long variantId) {
         log.debug("Fetching available stock for variant ID: {}", variantId);
@@ -151,6 +266,8 @@ public class InventoryServiceImpl implements InventoryService {
                 .orElseThrow(() -> new InventoryNotFoundException(variantId));
 
         inventoryRepository.increaseStock(variantId, request.getQuantity());
+        hotSkuService.credit(variantId, request.getQuantity());
+        availabilityCache.evict(variantId);
         
         // 刷新实体
         Inventory updatedInventory = inventoryRepository.findByVariantId(variantId)
@@ -166,10 +283,16 @@ public class InventoryServiceImpl implements InventoryService {
     public InventoryResponse decreaseStock(Long variantId, StockUpdateRequest request) {
         log.info("Decreasing stock for variant ID: {} by {}", variantId, request.getQuantity());
         
+        // 热点 SKU 以账本为准，先从账本扣减（事务回滚时自动归还）
+        boolean hot = hotSkuService.isHot(variantId);
+        if (hot) {
+            hotSkuService.take(variantId, request.getQuantity());
+        }
+        
         Inventory inventory = inventoryRepository.findByVariantId(variantId)
                 .orElseThrow(() -> new InventoryNotFoundException(variantId));
 
-        if (inventory.getAvailableStock() < request.getQuantity()) {
+        if (!hot && inventory.getAvailableStock() < request.getQuantity()) {
             throw new InsufficientStockException(variantId, request.getQuantity(), inventory.getAvailableStock());
         }
 
@@ -177,6 +300,7 @@ public class InventoryServiceImpl implements InventoryService {
         if (updatedRows == 0) {
             throw new InsufficientStockException(variantId, request.getQuantity(), inventory.getAvailableStock());
         }
+        availabilityCache.evict(variantId);
 
         // 刷新实体
         Inventory updatedInventory = inventoryRepository.findByVariantId(variantId)
@@ -196,100 +320,152 @@ public class InventoryServiceImpl implements InventoryService {
     }
 
     @Override
-    @Transactional
     public StockReservationResponse reserveStock(StockReservationRequest request) {
-        log.info("Reserving stock for order: {}, variant: {}, quantity: {}", 
-                 request.getOrderId(), request.getVariantId(), request.getQuantity());
+        return reservationCoordinator.execute("reserve", () -> {
+            log.info("Reserving stock for order: {}, variant: {}, quantity: {}", 
+                     request.getOrderId(), request.getVariantId(), request.getQuantity());
+        
+            // 幂等：同一订单同一 variant 已有 PENDING 预留时直接返回，不产生任何写入
+            Optional<StockReservation> existing = reservationRepository
+                    .findFirstByOrderIdAndVariantIdOrderByIdDesc(request.getOrderId(), request.getVariantId());
+            if (existing.isPresent() && isReplay(existing.get())) {
+                log.info("Reservation already exists for order: {}, variant: {}", request.getOrderId(), request.getVariantId());
+                return StockReservationResponse.fromEntity(existing.get());
+            }
         
-        Inventory inventory = inventoryRepository.findByVariantId(request.getVariantId())
-                .orElseThrow(() -> new InventoryNotFoundException(request.getVariantId()));
-
-        // 检查可用库存
-        if (inventory.getAvailableStock() < request.getQuantity()) {
-            throw new InsufficientStockException(request.getVariantId(), request.getQuantity(), inventory.getAvailableStock());
-        }
-
-        // 预留库存
-        int updatedRows = inventoryRepository.reserveStock(request.getVariantId(), request.getQuantity());
-        if (updatedRows == 0) {
-            throw new InsufficientStockException(request.getVariantId(), request.getQuantity(), inventory.getAvailableStock());
-        }
+            if (hotSkuService.isHot(request.getVariantId())) {
+                LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(request.getExpirationMinutes());
+                return hotSkuService.reserve(request.getOrderId(),
+                                new TreeMap<>(Map.of(request.getVariantId(), request.getQuantity())), expiresAt)
+                        .get(0).toReservationResponse();
+            }
+        
+            Inventory inventory = inventoryRepository.findByVariantId(request.getVariantId())
+                    .orElseThrow(() -> new InventoryNotFoundException(request.getVariantId()));
 
-        // 创建预留记录
-        String reservationId = UUID.randomUUID().toString();
-        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(request.getExpirationMinutes());
+            // 检查可用库存
+            if (inventory.getAvailableStock() < request.getQuantity()) {
+                throw new InsufficientStockException(request.getVariantId(), request.getQuantity(), inventory.getAvailableStock());
+            }
 
-        StockReservation reservation = StockReservation.builder()
-                .reservationId(reservationId)
-                .variantId(request.getVariantId())
-                .orderId(request.getOrderId())
-                .quantity(request.getQuantity())
-                .expiresAt(expiresAt)
-                .status(StockReservation.ReservationStatus.PENDING)
-                .build();
+            // 预留库存
+            int updatedRows = inventoryRepository.reserveStock(request.getVariantId(), request.getQuantity());
+            if (updatedRows == 0) {
+                throw new InsufficientStockException(request.getVariantId(), request.getQuantity(), inventory.getAvailableStock());
+            }
+            availabilityCache.evict(request.getVariantId());
+
+            // 创建预留记录
+            String reservationId = UUID.randomUUID().toString();
+            LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(request.getExpirationMinutes());
+
+            StockReservation reservation = StockReservation.builder()
+                    .reservationId(reservationId)
+                    .variantId(request.getVariantId())
+                    .orderId(request.getOrderId())
+                    .quantity(request.getQuantity())
+                    .expiresAt(expiresAt)
+                    .status(StockReservation.ReservationStatus.PENDING)
+                    .build();
 
-        StockReservation savedReservation = reservationRepository.save(reservation);
-        log.info("Created reservation: {} for order: {}", reservationId, request.getOrderId());
+            StockReservation savedReservation = reservationRepository.save(reservation);
+            log.info("Created reservation: {} for order: {}", reservationId, request.getOrderId());
         
-        return StockReservationResponse.fromEntity(savedReservation);
+            return StockReservationResponse.fromEntity(savedReservation);
+        });
     }
 
     @Override
-    @Transactional
     public InventoryResponse reserveStock(ReserveStockRequest request) {
-        log.info("Reserving stock for product: {}, quantity: {}, order: {}", 
-                 request.getProductId(), request.getQuantity(), request.getOrderNumber());
-        
-        Long variantId = request.getProductId(); // 使用 productId 作为 variantId
-        
-        Inventory inventory = inventoryRepository.findByVariantId(variantId)
-                .orElseThrow(() -> new InventoryNotFoundException(variantId));
+        return reservationCoordinator.execute("reserve", () -> {
+            log.info("Reserving stock for product: {}, quantity: {}, order: {}", 
+                     request.getProductId(), request.getQuantity(), request.getOrderNumber());
+        
+            Long variantId = request.getProductId(); // 使用 productId 作为 variantId
+            String orderId = request.getOrderNumber();
+            boolean hot = hotSkuService.isHot(variantId);
+
+            // 幂等：订单号 + variant 已有 PENDING 预留时返回当前库存，不产生任何写入
+            Optional<StockReservation> existing = reservationRepository.findFirstByOrderIdAndVariantIdOrderByIdDesc(orderId, variantId);
+            if (existing.isPresent() && isReplay(existing.get())) {
+                log.info("Reservation already exists for order: {}, product: {}", orderId, variantId);
+                return hot ? hotSkuResponse(variantId) : inventoryRepository.findByVariantId(variantId)
+                        .map(InventoryResponse::fromEntity)
+                        .orElseThrow(() -> new InventoryNotFoundException(variantId));
+            }
 
-        // 检查可用库存
-        if (inventory.getAvailableStock() < request.getQuantity()) {
-            throw new InsufficientStockException(variantId, request.getQuantity(), inventory.getAvailableStock());
-        }
+            String reservationId = UUID.randomUUID().toString();
+            LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(30); // 默认30分钟过期
 
-        // 预留库存
-        int updatedRows = inventoryRepository.reserveStock(variantId, request.getQuantity());
-        if (updatedRows == 0) {
-            throw new InsufficientStockException(variantId, request.getQuantity(), inventory.getAvailableStock());
-        }
+            if (hot) {
+                // 热点 SKU 由账本受理，预留记录异步回写
+                hotSkuService.reserve(orderId, new TreeMap<>(Map.of(variantId, request.getQuantity())), expiresAt);
+                return hotSkuResponse(variantId);
+            }
 
-        // 创建预留记录
-        String reservationId = UUID.randomUUID().toString();
-        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(30); // 默认30分钟过期
+            // 条件扣减 + 创建预留记录，一次往返完成，并直接返回更新后的库存
+            Inventory updatedInventory = inventoryRepository
+                    .reserveStockAtomically(variantId, request.getQuantity(), reservationId, orderId, expiresAt)
+                    .orElseThrow(() -> reservationFailure(variantId, request.getQuantity()));
+            availabilityCache.evict(variantId);
 
-        StockReservation reservation = StockReservation.builder()
-                .reservationId(reservationId)
+            log.info("Created reservation: {} for order: {}", reservationId, orderId);
+            log.info("Reserved stock for product ID: {}. Reserved: {}, Available: {}", 
+                     variantId, updatedInventory.getReservedStock(), updatedInventory.getAvailableStock());
+        
+            return InventoryResponse.fromEntity(updatedInventory);
+        });
+    }
+
+    /**
+     * 幂等键命中已有预留时按其状态处理：PENDING 视为重放直接返回；EXPIRED 已释放库存，按新请求重新预留；
+     * CONFIRMED / CANCELLED 说明该订单行已结束，再次预留返回 409
+     */
+    private boolean isReplay(StockReservation existing) {
+        switch (existing.getStatus()) {
+            case PENDING:
+                return true;
+            case EXPIRED:
+                log.info("Reservation {} for order: {}, variant: {} has expired, reserving again", 
+                         existing.getReservationId(), existing.getOrderId(), existing.getVariantId());
+                return false;
+            default:
+                throw new DuplicateReservationException(String.format(
+                        "Reservation %s for order %s, variant %d is already %s", existing.getReservationId(),
+                        existing.getOrderId(), existing.getVariantId(), existing.getStatus()));
+        }
+    }
+
+    /**
+     * 热点 SKU 的响应只包含账本中的可用库存
+     */
+    private InventoryResponse hotSkuResponse(Long variantId) {
+        return InventoryResponse.builder()
                 .variantId(variantId)
-                .orderId(request.getOrderNumber() != null ? request.getOrderNumber() : "TEMP_ORDER_" + System.currentTimeMillis())
-                .quantity(request.getQuantity())
-                .expiresAt(expiresAt)
-                .status(StockReservation.ReservationStatus.PENDING)
+                .availableStock(hotSkuService.getLedgerAvailable(variantId))
                 .build();
+    }
 
-        reservationRepository.save(reservation);
-        log.info("Created reservation: {} for order: {}", reservationId, 
-                 request.getOrderNumber() != null ? request.getOrderNumber() : "TEMP_ORDER");
-
-        // 刷新实体并返回库存响应
-        Inventory updatedInventory = inventoryRepository.findByVariantId(variantId)
-                .orElseThrow(() -> new InventoryNotFoundException(variantId));
-                
-        log.info("Reserved stock for product ID: {}. Reserved: {}, Available: {}", 
-                 variantId, updatedInventory.getReservedStock(), updatedInventory.getAvailableStock());
-        
-        return InventoryResponse.fromEntity(updatedInventory);
+    /**
+     * 原子预留失败时才回查库存，区分库存不存在与库存不足
+     */
+    private RuntimeException reservationFailure(Long variantId, Integer quantity) {
+        return inventoryRepository.findByVariantId(variantId)
+                .<RuntimeException>map(inventory -> new InsufficientStockException(variantId, quantity,
+                        Math.max(0, inventory.getCurrentStock() - inventory.getReservedStock())))
+                .orElseGet(() -> new InventoryNotFoundException(variantId));
     }
 
     @Override
-    @Transactional
     public StockReservationResponse confirmReservation(String reservationId) {
+        flushIfNotWritten(reservationId);
+        // 先锁预留行再改库存，与其他预留路径保持同一加锁顺序
+        return reservationCoordinator.execute("confirm", () -> confirm(lockReservation(reservationId)));
+    }
+
+    private StockReservationResponse confirm(StockReservation reservation) {
+        String reservationId = reservation.getReservationId();
         log.info("Confirming reservation: {}", reservationId);
-        
-        StockReservation reservation = reservationRepository.findByReservationId(reservationId)
-                .orElseThrow(() -> new ReservationNotFoundException("Reservation not found: " + reservationId));
 
         if (reservation.isExpired()) {
             reservation.setStatus(StockReservation.ReservationStatus.EXPIRED);
@@ -306,50 +482,79 @@ public class InventoryServiceImpl implements InventoryService {
         if (updatedRows == 0) {
             throw new InsufficientStockException(reservation.getVariantId(), reservation.getQuantity(), 0);
         }
+        availabilityCache.evict(reservation.getVariantId());
 
         reservation.setStatus(StockReservation.ReservationStatus.CONFIRMED);
         StockReservation confirmedReservation = reservationRepository.save(reservation);
-        
+
         log.info("Confirmed reservation: {}", reservationId);
         return StockReservationResponse.fromEntity(confirmedReservation);
     }
 
     @Override
-    @Transactional
     public StockReservationResponse cancelReservation(String reservationId) {
-        log.info("Cancelling reservation: {}", reservationId);
+        flushIfNotWritten(reservationId);
+        return reservationCoordinator.execute("cancel", () -> {
+            log.info("Cancelling reservation: {}", reservationId);
         
-        StockReservation reservation = reservationRepository.findByReservationId(reservationId)
-                .orElseThrow(() -> new ReservationNotFoundException("Reservation not found: " + reservationId));
+            StockReservation reservation = lockReservation(reservationId);
 
-        if (reservation.getStatus() == StockReservation.ReservationStatus.PENDING) {
-            // 释放预留库存
-            inventoryRepository.releaseReservedStock(reservation.getVariantId(), reservation.getQuantity());
-        }
+            if (reservation.getStatus() == StockReservation.ReservationStatus.PENDING) {
+                // 释放预留库存
+                inventoryRepository.releaseReservedStock(reservation.getVariantId(), reservation.getQuantity());
+                hotSkuService.credit(reservation.getVariantId(), reservation.getQuantity());
+                availabilityCache.evict(reservation.getVariantId());
+            }
 
-        reservation.setStatus(StockReservation.ReservationStatus.CANCELLED);
-        StockReservation cancelledReservation = reservationRepository.save(reservation);
+            reservation.setStatus(StockReservation.ReservationStatus.CANCELLED);
+            StockReservation cancelledReservation = reservationRepository.save(reservation);
         
-        log.info("Cancelled reservation: {}", reservationId);
-        return StockReservationResponse.fromEntity(cancelledReservation);
+            log.info("Cancelled reservation: {}", reservationId);
+            return StockReservationResponse.fromEntity(cancelledReservation);
+        });
+    }
+
+    /**
+     * 热点 SKU 的预留在回写前只存在于 Redis journal：journal 非空且库中查不到该预留时，先强制回写一次。
+     * 回写在独立事务中执行，必须在进入协调器事务之前调用，否则一次确认/取消会同时占用两个连接
+     */
+    private void flushIfNotWritten(String reservationId) {
+        if (hotSkuService.hasPending() && !reservationRepository.existsByReservationId(reservationId)) {
+            hotSkuService.flushPending();
+        }
+    }
+
+    private StockReservation lockReservation(String reservationId) {
+        return reservationRepository.findByReservationIdForUpdate(reservationId)
+                .orElseThrow(() -> new ReservationNotFoundException("Reservation not found: " + reservationId));
     }
 
     @Override
-    @Transactional
     public void cancelReservationsByOrderId(String orderId) {
-        log.info("Cancelling all reservations for order: {}", orderId);
-        
-        List<StockReservation> reservations = reservationRepository.findByOrderId(orderId);
-        
-        for (StockReservation reservation : reservations) {
-            if (reservation.getStatus() == StockReservation.ReservationStatus.PENDING) {
-                inventoryRepository.releaseReservedStock(reservation.getVariantId(), reservation.getQuantity());
-                reservation.setStatus(StockReservation.ReservationStatus.CANCELLED);
+        // 按订单操作前先回写热点预留，否则 journal 中的记录会被漏掉
+        hotSkuService.flushPending();
+        reservationCoordinator.run("cancel-order", () -> {
+            log.info("Cancelling all reservations for order: {}", orderId);
+        
+            List<StockReservation> reservations = reservationRepository.findByOrderIdForUpdate(orderId);
+        
+            // 同一 variant 的多条预留合并释放，并按 variantId 升序更新库存行
+            TreeMap<Long, Integer> released = new TreeMap<>();
+            for (StockReservation reservation : reservations) {
+                if (reservation.getStatus() == StockReservation.ReservationStatus.PENDING) {
+                    released.merge(reservation.getVariantId(), reservation.getQuantity(), Integer::sum);
+                    reservation.setStatus(StockReservation.ReservationStatus.CANCELLED);
+                }
             }
-        }
-        
-        reservationRepository.saveAll(reservations);
-        log.info("Cancelled {} reservations for order: {}", reservations.size(), orderId);
+            released.forEach((variantId, quantity) -> {
+                inventoryRepository.releaseReservedStock(variantId, quantity);
+                hotSkuService.credit(variantId, quantity);
+            });
+            availabilityCache.evictAll(released.keySet());
+        
+            reservationRepository.saveAll(reservations);
+            log.info("Cancelled {} reservations for order: {}", reservations.size(), orderId);
+        });
     }
 
     @Override
@@ -365,80 +570,168 @@ public class InventoryServiceImpl implements InventoryService {
     public Map<Long, Integer> checkStockAvailability(Map<Long, Integer> variantQuantities) {
         log.debug("Checking stock availability for {} variants", variantQuantities.size());
         
-        Map<Long, Integer> availability = new HashMap<>();
-        
-        for (Map.Entry<Long, Integer> entry : variantQuantities.entrySet()) {
-            Long variantId = entry.getKey();
-            Integer requestedQuantity = entry.getValue();
-            
-            try {
-                Inventory inventory = inventoryRepository.findByVariantId(variantId)
-                        .orElseThrow(() -> new InventoryNotFoundException(variantId));
-                        
-                availability.put(variantId, 
-                    inventory.getAvailableStock() >= requestedQuantity ? requestedQuantity : inventory.getAvailableStock());
-            } catch (InventoryNotFoundException e) {
-                availability.put(variantId, 0);
-            }
-        }
+        Map<Long, Integer> available = getAvailability(variantQuantities.keySet()).stream()
+                .collect(Collectors.toMap(AvailabilityResponse::getVariantId, AvailabilityResponse::getAvailableStock));
         
+        // 不存在的 variant 视为无库存
+        Map<Long, Integer> availability = new HashMap<>();
+        variantQuantities.forEach((variantId, requestedQuantity) ->
+                availability.put(variantId, Math.min(requestedQuantity, available.getOrDefault(variantId, 0))));
         return availability;
     }
 
     @Override
-    @Transactional
-    public void processBatchReservations(String orderId, Map<Long, Integer> variantQuantities) {
-        log.info("Processing batch reservations for order: {}", orderId);
-        
-        for (Map.Entry<Long, Integer> entry : variantQuantities.entrySet()) {
-            StockReservationRequest request = StockReservationRequest.builder()
-                    .orderId(orderId)
-                    .variantId(entry.getKey())
-                    .quantity(entry.getValue())
-                    .build();
-                    
-            reserveStock(request);
+    public List<AvailabilityResponse> getAvailability(Collection<Long> variantIds) {
+        List<Long> ids = new ArrayList<>(new TreeSet<>(variantIds));
+        
+        // 先批量读缓存，未命中的 variant 用一次 IN 查询回源并回填
+        Map<Long, AvailabilityResponse> snapshots = new TreeMap<>(availabilityCache.getAll(ids));
+        List<Long> misses = ids.stream()
+                .filter(variantId -> !snapshots.containsKey(variantId))
+                .collect(Collectors.toList());
+        if (!misses.isEmpty()) {
+            List<AvailabilityResponse> loaded = inventoryRepository.findByVariantIdIn(misses).stream()
+                    .map(AvailabilityResponse::fromEntity)
+                    .collect(Collectors.toList());
+            availabilityCache.putAll(loaded);
+            loaded.forEach(snapshot -> snapshots.put(snapshot.getVariantId(), snapshot));
         }
+        
+        // 热点 SKU 以账本为准（数据库落后于回写周期）
+        snapshots.values().stream()
+                .filter(snapshot -> hotSkuService.isHot(snapshot.getVariantId()))
+                .forEach(snapshot -> {
+                    Integer ledgerAvailable = hotSkuService.getLedgerAvailable(snapshot.getVariantId());
+                    if (ledgerAvailable != null) {
+                        snapshot.setAvailableStock(ledgerAvailable);
+                    }
+                });
+        
+        log.debug("Resolved availability for {} variants, {} from database", ids.size(), misses.size());
+        return new ArrayList<>(snapshots.values());
     }
 
     @Override
-    @Transactional
-    public void confirmBatchReservations(String orderId) {
-        log.info("Confirming batch reservations for order: {}", orderId);
+    public List<StockReservationResponse> processBatchReservations(String orderId, Map<Long, Integer> variantQuantities) {
+        return reservationCoordinator.execute("batch-reserve", () -> {
+            log.info("Processing batch reservations for order: {}, lines: {}", orderId, variantQuantities.size());
+        
+            if (variantQuantities.isEmpty()) {
+                throw new IllegalArgumentException("Batch reservation must contain at least one line");
+            }
         
-        List<StockReservation> reservations = reservationRepository.findByOrderId(orderId);
+            // 按 variantId 排序，保证所有事务以相同顺序加锁，避免死锁
+            TreeMap<Long, Integer> lines = new TreeMap<>(variantQuantities);
+            lines.forEach((variantId, quantity) -> {
+                if (quantity == null || quantity <= 0) {
+                    throw new IllegalArgumentException("Invalid reservation quantity for variant " + variantId + ": " + quantity);
+                }
+            });
+        
+            // 幂等：订单已持有 PENDING 预留的行直接返回，只为缺少或已过期的行预留（一次按订单的索引查询）
+            Map<Long, StockReservation> latest = reservationRepository.findByOrderId(orderId).stream()
+                    .filter(existing -> lines.containsKey(existing.getVariantId()))
+                    .collect(Collectors.toMap(StockReservation::getVariantId, Function.identity(),
+                            BinaryOperator.maxBy(Comparator.comparing(StockReservation::getId))));
+            List<StockReservationResponse> responses = new ArrayList<>(lines.size());
+            for (StockReservation existing : latest.values()) {
+                if (isReplay(existing)) {
+                    lines.remove(existing.getVariantId());
+                    responses.add(StockReservationResponse.fromEntity(existing));
+                }
+            }
+            if (!responses.isEmpty()) {
+                log.info("Order {} already holds {} of the requested reservations", orderId, responses.size());
+            }
         
-        for (StockReservation reservation : reservations) {
-            if (reservation.getStatus() == StockReservation.ReservationStatus.PENDING) {
-                confirmReservation(reservation.getReservationId());
+            LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(InventoryConstants.DEFAULT_RESERVATION_EXPIRATION_MINUTES);
+        
+            // 热点 SKU 行由账本受理，其余行走数据库；账本在数据库之后执行，失败时数据库事务整体回滚
+            TreeMap<Long, Integer> hotLines = new TreeMap<>();
+            lines.forEach((variantId, quantity) -> {
+                if (hotSkuService.isHot(variantId)) {
+                    hotLines.put(variantId, quantity);
+                }
+            });
+            lines.keySet().removeAll(hotLines.keySet());
+        
+            if (!lines.isEmpty()) {
+                List<String> reservationIds = new ArrayList<>(lines.size());
+                for (int i = 0; i < lines.size(); i++) {
+                    reservationIds.add(UUID.randomUUID().toString());
+                }
+                List<StockReservation> reservations = reservationRepository.reserveBatchAtomically(
+                        joinValues(lines.keySet()), joinValues(lines.values()), String.join(",", reservationIds), orderId, expiresAt);
+            
+                if (reservations.size() != lines.size()) {
+                    throw batchReservationFailure(orderId, lines);
+                }
+                availabilityCache.evictAll(lines.keySet());
+                reservations.forEach(reservation -> responses.add(StockReservationResponse.fromEntity(reservation)));
             }
+            if (!hotLines.isEmpty()) {
+                hotSkuService.reserve(orderId, hotLines, expiresAt)
+                        .forEach(entry -> responses.add(entry.toReservationResponse()));
+            }
+        
+            log.info("Reserved {} lines for order: {}", responses.size(), orderId);
+            responses.sort(Comparator.comparing(StockReservationResponse::getVariantId));
+            return responses;
+        });
+    }
+
+    /**
+     * 批量预留未生效时回查库存，汇总所有不满足的行
+     */
+    private RuntimeException batchReservationFailure(String orderId, SortedMap<Long, Integer> lines) {
+        Map<Long, Inventory> inventories = inventoryRepository.findByVariantIdIn(lines.keySet()).stream()
+                .collect(Collectors.toMap(Inventory::getVariantId, Function.identity()));
+        
+        List<Long> missing = lines.keySet().stream()
+                .filter(variantId -> !inventories.containsKey(variantId))
+                .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            return new InventoryNotFoundException("Inventory not found for variant IDs: " + missing);
         }
+        
+        String shortLines = lines.entrySet().stream()
+                .map(line -> {
+                    Inventory inventory = inventories.get(line.getKey());
+                    int available = Math.max(0, inventory.getCurrentStock() - inventory.getReservedStock());
+                    return String.format("variant %d (requested: %d, available: %d)", line.getKey(), line.getValue(), available);
+                })
+                .collect(Collectors.joining(", "));
+        return new InsufficientStockException("Insufficient stock for batch reservation of order " + orderId + ": " + shortLines);
+    }
+
+    private static String joinValues(Collection<?> values) {
+        return values.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    @Override
+    public void confirmBatchReservations(String orderId) {
+        hotSkuService.flushPending();
+        reservationCoordinator.run("confirm-order", () -> {
+            log.info("Confirming batch reservations for order: {}", orderId);
+        
+            // 一次锁住订单的全部预留行，再按 variantId 升序逐条确认
+            reservationRepository.findByOrderIdForUpdate(orderId).stream()
+                    .filter(reservation -> reservation.getStatus() == StockReservation.ReservationStatus.PENDING)
+                    .sorted(Comparator.comparing(StockReservation::getVariantId))
+                    .forEach(this::confirm);
+        });
     }
 
     @Override
-    @Transactional
     public void cancelBatchReservations(String orderId) {
         log.info("Cancelling batch reservations for order: {}", orderId);
         cancelReservationsByOrderId(orderId);
     }
 
     @Override
-    @Transactional
     public void cleanupExpiredReservations() {
         log.info("Cleaning up expired reservations");
-        
-        int expiredCount = reservationRepository.expireOldReservations();
-        
-        if (expiredCount > 0) {
-            // 释放已过期的预留库存
-            List<StockReservation> expiredReservations = reservationRepository
-                    .findByStatus(StockReservation.ReservationStatus.EXPIRED);
-                    
-            for (StockReservation reservation : expiredReservations) {
-                inventoryRepository.releaseReservedStock(reservation.getVariantId(), reservation.getQuantity());
-            }
-            
-            log.info("Cleaned up {} expired reservations", expiredCount);
-        }
+        int expiredCount = expirySweeper.sweep();
+        log.info("Cleaned up {} expired reservations", expiredCount);
     }
-}
\ No newline at end of file
+}
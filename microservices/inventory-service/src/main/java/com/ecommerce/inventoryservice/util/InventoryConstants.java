@@ -11,6 +11,9 @@ public class InventoryConstants {
     public static final Integer DEFAULT_MAXIMUM_STOCK_LEVEL = 1000;
     public static final Integer DEFAULT_REORDER_POINT = 10;
     public static final Integer DEFAULT_RESERVATION_EXPIRATION_MINUTES = 30;
+    public static final int MAX_AVAILABILITY_BATCH_SIZE = 200;
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 500;
     
     // 库存状态
     public static final String STATUS_IN_STOCK = "IN_STOCK";
@@ -11,6 +11,7 @@ CREATE TABLE IF NOT EXISTS stock_reservation (
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
 
--- 添加检查约束
+-- 添加检查约束（先删后建，已有表结构的库按 baseline 迁移时可重复执行）
+ALTER TABLE stock_reservation DROP CONSTRAINT IF EXISTS stock_reservation_status_check;
 ALTER TABLE stock_reservation ADD CONSTRAINT stock_reservation_status_check 
     CHECK (status IN ('PENDING', 'CONFIRMED', 'CANCELLED', 'EXPIRED'));
@@ -12,7 +12,8 @@ CREATE INDEX IF NOT EXISTS idx_stock_reservation_status ON stock_reservation(sta
 CREATE INDEX IF NOT EXISTS idx_stock_reservation_expires_at ON stock_reservation(expires_at);
 CREATE INDEX IF NOT EXISTS idx_stock_reservation_reservation_id ON stock_reservation(reservation_id);
 
--- 添加外键约束
+-- 添加外键约束（先删后建，已有表结构的库按 baseline 迁移时可重复执行）
+ALTER TABLE stock_reservation DROP CONSTRAINT IF EXISTS fk_stock_reservation_variant;
 ALTER TABLE stock_reservation 
 ADD CONSTRAINT fk_stock_reservation_variant 
 FOREIGN KEY (variant_id) REFERENCES inventory(variant_id) ON DELETE CASCADE;
@@ -0,0 +1,2 @@
+-- 过期清理按 (status, expires_at) 查找到期的 PENDING 预留，避免扫描历史记录
+CREATE INDEX IF NOT EXISTS idx_stock_reservation_status_expires_at ON stock_reservation(status, expires_at);
@@ -0,0 +1,62 @@
+-- 库存变更事务发件箱：inventory 的库存字段发生变化时由语句级触发器写入，
+-- 与业务更新在同一事务提交，再由 StockEventPublisher 按 variant 合并后批量发布 StockChanged 事件
+CREATE TABLE IF NOT EXISTS inventory_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    variant_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 事件版本号，发布时分配，消费方据此丢弃乱序到达的旧事件
+CREATE SEQUENCE IF NOT EXISTS inventory_event_version_seq;
+
+CREATE OR REPLACE FUNCTION record_inventory_inserts()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO inventory_outbox (variant_id) SELECT variant_id FROM new_rows;
+    RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+CREATE OR REPLACE FUNCTION record_inventory_updates()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO inventory_outbox (variant_id)
+    SELECT n.variant_id
+    FROM new_rows n
+    JOIN old_rows o ON o.id = n.id
+    WHERE o.current_stock IS DISTINCT FROM n.current_stock
+       OR o.reserved_stock IS DISTINCT FROM n.reserved_stock
+       OR o.status IS DISTINCT FROM n.status;
+    RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+CREATE OR REPLACE FUNCTION record_inventory_deletes()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO inventory_outbox (variant_id) SELECT variant_id FROM old_rows;
+    RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+-- 语句级触发器：批量预留、过期清理等一条语句更新多行时只执行一次 INSERT ... SELECT
+DROP TRIGGER IF EXISTS inventory_outbox_on_insert ON inventory;
+CREATE TRIGGER inventory_outbox_on_insert
+    AFTER INSERT ON inventory
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION record_inventory_inserts();
+
+DROP TRIGGER IF EXISTS inventory_outbox_on_update ON inventory;
+CREATE TRIGGER inventory_outbox_on_update
+    AFTER UPDATE ON inventory
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION record_inventory_updates();
+
+DROP TRIGGER IF EXISTS inventory_outbox_on_delete ON inventory;
+CREATE TRIGGER inventory_outbox_on_delete
+    AFTER DELETE ON inventory
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION record_inventory_deletes();
@@ -0,0 +1,30 @@
+-- 可用库存与状态由触发器统一维护：JPQL 批量更新与原生 SQL 不经过实体的 @PreUpdate，
+-- 之前 available_stock 会与 current_stock - reserved_stock 不一致
+CREATE OR REPLACE FUNCTION sync_inventory_availability()
+RETURNS TRIGGER AS $$
+BEGIN
+    NEW.available_stock = GREATEST(0, NEW.current_stock - NEW.reserved_stock);
+    NEW.status = CASE
+        WHEN NOT NEW.is_tracked THEN 'IN_STOCK'
+        WHEN NEW.current_stock <= 0 THEN 'OUT_OF_STOCK'
+        WHEN NEW.available_stock <= NEW.reorder_point THEN 'LOW_STOCK'
+        ELSE 'IN_STOCK'
+    END;
+    RETURN NEW;
+END;
+$$ language 'plpgsql';
+
+DROP TRIGGER IF EXISTS inventory_sync_availability ON inventory;
+CREATE TRIGGER inventory_sync_availability
+    BEFORE INSERT OR UPDATE ON inventory
+    FOR EACH ROW
+    EXECUTE FUNCTION sync_inventory_availability();
+
+-- 修正已有数据
+UPDATE inventory SET available_stock = GREATEST(0, current_stock - reserved_stock);
+
+-- 低库存 / 缺货部分索引：只包含告警行，随每次库存变更增量维护，按 id 排序支持 keyset 分页
+CREATE INDEX IF NOT EXISTS idx_inventory_low_stock ON inventory(id)
+    WHERE is_tracked = true AND available_stock <= reorder_point;
+CREATE INDEX IF NOT EXISTS idx_inventory_out_of_stock ON inventory(id)
+    WHERE is_tracked = true AND available_stock = 0;
@@ -0,0 +1,29 @@
+-- 预留幂等键：同一订单同一 variant 同时只允许一条 PENDING 预留，订单服务重试时直接返回该预留
+-- 已确认/已取消/已过期的行是历史记录，不参与唯一约束；过期后重新下单可以再次预留
+
+-- 历史数据不改写：引入幂等键之前重试产生的重复 PENDING 行留在原处（按原状态确认或过期），
+-- 唯一约束只覆盖最后一条历史重复之后写入的行
+DO $$
+DECLARE
+    legacy_max_id BIGINT;
+BEGIN
+    SELECT COALESCE(MAX(sr.id), 0) INTO legacy_max_id
+    FROM stock_reservation sr
+    WHERE sr.status = 'PENDING'
+      AND EXISTS (SELECT 1 FROM stock_reservation d
+                  WHERE d.order_id = sr.order_id AND d.variant_id = sr.variant_id
+                    AND d.status = 'PENDING' AND d.id <> sr.id);
+
+    IF legacy_max_id = 0 THEN
+        CREATE UNIQUE INDEX IF NOT EXISTS uk_stock_reservation_order_variant
+            ON stock_reservation(order_id, variant_id) WHERE status = 'PENDING';
+    ELSE
+        RAISE NOTICE 'stock_reservation has duplicate PENDING rows up to id %, unique key starts after it', legacy_max_id;
+        EXECUTE format('CREATE UNIQUE INDEX IF NOT EXISTS uk_stock_reservation_order_variant '
+                       'ON stock_reservation(order_id, variant_id) WHERE status = ''PENDING'' AND id > %s', legacy_max_id);
+    END IF;
+END $$;
+
+-- 幂等查询按 (order_id, variant_id) 查最新一条（含非 PENDING 行），同时覆盖按订单查询
+CREATE INDEX IF NOT EXISTS idx_stock_reservation_order_variant ON stock_reservation(order_id, variant_id);
+DROP INDEX IF EXISTS idx_stock_reservation_order_id;
@@ -0,0 +1,122 @@
+package com.ecommerce.inventoryservice.controller;
+
+import com.ecommerce.inventoryservice.model.Inventory;
+import com.ecommerce.inventoryservice.repository.InventoryRepository;
+import com.ecommerce.inventoryservice.repository.StockReservationRepository;
+import com.ecommerce.inventoryservice.service.AvailabilityCache;
+import com.ecommerce.inventoryservice.service.HotSkuService;
+import com.ecommerce.inventoryservice.service.ReservationCoordinator;
+import com.ecommerce.inventoryservice.service.ReservationExpirySweeper;
+import com.ecommerce.inventoryservice.service.impl.InventoryServiceImpl;
+import com.ecommerce.inventoryservice.util.InventoryConstants;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class InventoryControllerTest {
+
+    private InventoryRepository inventoryRepository;
+    private EntityManager entityManager;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        inventoryRepository = mock(InventoryRepository.class);
+        entityManager = mock(EntityManager.class);
+        InventoryServiceImpl inventoryService = new InventoryServiceImpl(inventoryRepository,
+                mock(StockReservationRepository.class), mock(HotSkuService.class), mock(ReservationExpirySweeper.class),
+                mock(ReservationCoordinator.class), mock(AvailabilityCache.class),
+                new ObjectMapper().findAndRegisterModules(), entityManager);
+        mockMvc = MockMvcBuilders.standaloneSetup(new InventoryController(inventoryService)).build();
+    }
+
+    @Test
+    void pageFollowsCursorUntilLastPage() throws Exception {
+        when(inventoryRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(inventory(11L, 1L), inventory(12L, 2L), inventory(13L, 3L)));
+        when(inventoryRepository.findByIdGreaterThanOrderByIdAsc(12L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(inventory(13L, 3L)));
+
+        // 首页不带 afterId，多取的一行只用于判断 hasNext
+        mockMvc.perform(get("/api/inventory/page").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[1].variantId").value(2))
+                .andExpect(jsonPath("$.nextAfterId").value(12))
+                .andExpect(jsonPath("$.hasNext").value(true));
+
+        mockMvc.perform(get("/api/inventory/page").param("afterId", "12").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.nextAfterId").value(13))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
+    @Test
+    void pageSizeIsCappedAtMaximum() throws Exception {
+        when(inventoryRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/inventory/page").param("size", "100000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(0))
+                .andExpect(jsonPath("$.hasNext").value(false));
+
+        verify(inventoryRepository).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, InventoryConstants.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void exportStreamsOneJsonObjectPerLine() throws Exception {
+        Inventory first = inventory(1L, 100L);
+        Inventory second = inventory(2L, 200L);
+        when(inventoryRepository.streamAll()).thenReturn(Stream.of(first, second));
+
+        MvcResult started = mockMvc.perform(get("/api/inventory/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{") && lines[0].contains("\"variantId\":100"));
+        assertTrue(lines[1].contains("\"variantId\":200"));
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+
+    private static Inventory inventory(Long id, Long variantId) {
+        return Inventory.builder()
+                .id(id)
+                .variantId(variantId)
+                .currentStock(10)
+                .reservedStock(0)
+                .availableStock(10)
+                .build();
+    }
+}
@@ -0,0 +1,189 @@
+package com.ecommerce.inventoryservice.repository;
+
+import com.ecommerce.inventoryservice.config.HotSkuProperties;
+import com.ecommerce.inventoryservice.service.AvailabilityCache;
+import com.ecommerce.inventoryservice.service.HotSkuLedger;
+import com.ecommerce.inventoryservice.service.HotSkuService;
+import com.ecommerce.inventoryservice.service.InventoryService;
+import com.ecommerce.inventoryservice.service.ReservationCoordinator;
+import com.ecommerce.inventoryservice.service.ReservationExpirySweeper;
+import com.ecommerce.inventoryservice.service.impl.InventoryServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 50 件商品购物车的可用库存校验基准：对比逐个 findByVariantId 与一次 IN 查询，
+ * 以及 checkStockAvailability 在关闭缓存、缓存全部命中、缓存全部未命中时的耗时。
+ * 需要已执行迁移的 PostgreSQL，例如：
+ * INVENTORY_BENCHMARK_DB_URL=jdbc:postgresql://localhost:5432/ecommerce_inventory
+ * 缓存对比另需 Redis：INVENTORY_BENCHMARK_REDIS_HOST=localhost
+ */
+@EnabledIfEnvironmentVariable(named = "INVENTORY_BENCHMARK_DB_URL", matches = ".+")
+class AvailabilityBenchmarkTest {
+
+    private static final long FIRST_VARIANT_ID = 9_100_001L;
+    private static final int CART_SIZE = 50;
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int ROUNDS = 2_000;
+
+    private static final String FIND_ONE_SQL = "SELECT * FROM inventory WHERE variant_id = :variantId";
+    private static final String FIND_IN_SQL = "SELECT * FROM inventory WHERE variant_id IN (:variantIds)";
+
+    private HikariDataSource dataSource;
+    private NamedParameterJdbcTemplate jdbc;
+    private List<Long> cart;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("INVENTORY_BENCHMARK_DB_URL"));
+        dataSource.setUsername(System.getenv().getOrDefault("INVENTORY_BENCHMARK_DB_USERNAME", "admin"));
+        dataSource.setPassword(System.getenv().getOrDefault("INVENTORY_BENCHMARK_DB_PASSWORD", "postgres123"));
+        dataSource.setMaximumPoolSize(2);
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+
+        cart = new ArrayList<>();
+        for (int i = 0; i < CART_SIZE; i++) {
+            cart.add(FIRST_VARIANT_ID + i);
+        }
+        cleanUp();
+        for (Long variantId : cart) {
+            jdbc.update("INSERT INTO inventory (variant_id, current_stock, reserved_stock, available_stock, reorder_point) " +
+                    "VALUES (:variantId, 100, 0, 100, 0)", new MapSqlParameterSource("variantId", variantId));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+        dataSource.close();
+    }
+
+    private void cleanUp() {
+        jdbc.update("DELETE FROM inventory WHERE variant_id IN (:variantIds)",
+                new MapSqlParameterSource("variantIds", cart));
+    }
+
+    @Test
+    void perVariantLoopVersusSingleInQuery() {
+        double loopMicros = measure("loop (findByVariantId x " + CART_SIZE + ")", () -> {
+            Map<Long, Integer> availability = new HashMap<>();
+            for (Long variantId : cart) {
+                Map<String, Object> row = jdbc.queryForMap(FIND_ONE_SQL, new MapSqlParameterSource("variantId", variantId));
+                availability.put(variantId, (Integer) row.get("available_stock"));
+            }
+            return availability;
+        });
+        double inMicros = measure("bulk (single IN query)", () -> {
+            Map<Long, Integer> availability = new HashMap<>();
+            jdbc.queryForList(FIND_IN_SQL, new MapSqlParameterSource("variantIds", cart))
+                    .forEach(row -> availability.put((Long) row.get("variant_id"), (Integer) row.get("available_stock")));
+            return availability;
+        });
+        System.out.printf("%d-item cart: bulk lookup is %.1fx faster%n", CART_SIZE, loopMicros / inMicros);
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "INVENTORY_BENCHMARK_REDIS_HOST", matches = ".+")
+    void serviceLookupWithAndWithoutAvailabilityCache() {
+        LocalContainerEntityManagerFactoryBean entityManagerFactory = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactory.setDataSource(dataSource);
+        entityManagerFactory.setPackagesToScan("com.ecommerce.inventoryservice.model");
+        entityManagerFactory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactory.setJpaPropertyMap(Map.of(
+                "hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect",
+                "hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName()));
+        entityManagerFactory.afterPropertiesSet();
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(
+                System.getenv("INVENTORY_BENCHMARK_REDIS_HOST"),
+                Integer.parseInt(System.getenv().getOrDefault("INVENTORY_BENCHMARK_REDIS_PORT", "6379")));
+        connectionFactory.afterPropertiesSet();
+        try {
+            EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory.getObject());
+            InventoryRepository repository = new JpaRepositoryFactory(entityManager).getRepository(InventoryRepository.class);
+            StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+            redisTemplate.afterPropertiesSet();
+            ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+            // TTL 为 0 时缓存不读不写，即引入缓存前的 IN 查询路径
+            InventoryService uncachedService = service(repository, new AvailabilityCache(redisTemplate, objectMapper, 0),
+                    objectMapper, entityManager);
+            AvailabilityCache cache = new AvailabilityCache(redisTemplate, objectMapper, 60_000);
+            InventoryService cachedService = service(repository, cache, objectMapper, entityManager);
+            Map<Long, Integer> cartQuantities = new HashMap<>();
+            cart.forEach(variantId -> cartQuantities.put(variantId, 1));
+
+            double uncachedMicros = measure("service, cache disabled (IN query)",
+                    () -> uncachedService.checkStockAvailability(cartQuantities));
+            cache.evictAll(cart);
+            double hitMicros = measure("service, all cache hits (MGET)",
+                    () -> cachedService.checkStockAvailability(cartQuantities));
+            // 每轮计时前删除快照（不计入耗时），测的是 MGET 未命中 + IN 查询 + 管道回填
+            double missMicros = measure("service, all cache misses (MGET + IN query + refill)",
+                    () -> cache.evictAll(cart),
+                    () -> cachedService.checkStockAvailability(cartQuantities));
+            cache.evictAll(cart);
+            System.out.printf("%d-item cart: cache hits are %.1fx faster than the uncached path, misses cost %.1fx%n",
+                    CART_SIZE, uncachedMicros / hitMicros, missMicros / uncachedMicros);
+        } finally {
+            connectionFactory.destroy();
+            entityManagerFactory.destroy();
+        }
+    }
+
+    private InventoryService service(InventoryRepository repository, AvailabilityCache cache,
+                                     ObjectMapper objectMapper, EntityManager entityManager) {
+        // 热点模式关闭时的真实 HotSkuService：每个 variant 都会调用 isHot，mock 的调用开销会计入耗时
+        StockReservationRepository reservationRepository = mock(StockReservationRepository.class);
+        HotSkuService hotSkuService = new HotSkuService(new HotSkuProperties(), mock(HotSkuLedger.class), repository,
+                reservationRepository, mock(PlatformTransactionManager.class));
+        return new InventoryServiceImpl(repository, reservationRepository, hotSkuService, mock(ReservationExpirySweeper.class),
+                mock(ReservationCoordinator.class), cache, objectMapper, entityManager);
+    }
+
+    private double measure(String label, Supplier<Map<Long, Integer>> check) {
+        return measure(label, () -> { }, check);
+    }
+
+    private double measure(String label, Runnable beforeEach, Supplier<Map<Long, Integer>> check) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            beforeEach.run();
+            assertEquals(CART_SIZE, check.get().size());
+        }
+        long elapsedNanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            beforeEach.run();
+            long startNanos = System.nanoTime();
+            check.get();
+            elapsedNanos += System.nanoTime() - startNanos;
+        }
+        double micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos) / (double) ROUNDS;
+        System.out.printf("%s: %.0f us per cart check%n", label, micros);
+        return micros;
+    }
+}
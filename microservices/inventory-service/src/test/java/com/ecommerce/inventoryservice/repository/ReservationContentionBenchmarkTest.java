@@ -0,0 +1,155 @@
+package com.ecommerce.inventoryservice.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 单个 variantId 的预留争用基准测试：对比旧的四次往返路径与原子 CTE 路径。
+ * 需要已执行迁移的 PostgreSQL，例如：
+ * INVENTORY_BENCHMARK_DB_URL=jdbc:postgresql://localhost:5432/ecommerce_inventory
+ */
+@EnabledIfEnvironmentVariable(named = "INVENTORY_BENCHMARK_DB_URL", matches = ".+")
+class ReservationContentionBenchmarkTest {
+
+    private static final long VARIANT_ID = 9_000_001L;
+    private static final int THREADS = 32;
+    private static final int RESERVATIONS_PER_THREAD = 200;
+    private static final int INITIAL_STOCK = THREADS * RESERVATIONS_PER_THREAD / 2; // 故意不足，验证不会超卖
+
+    private HikariDataSource dataSource;
+    private NamedParameterJdbcTemplate jdbc;
+    private TransactionTemplate tx;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("INVENTORY_BENCHMARK_DB_URL"));
+        dataSource.setUsername(System.getenv().getOrDefault("INVENTORY_BENCHMARK_DB_USERNAME", "admin"));
+        dataSource.setPassword(System.getenv().getOrDefault("INVENTORY_BENCHMARK_DB_PASSWORD", "postgres123"));
+        dataSource.setMaximumPoolSize(THREADS);
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        cleanUp();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+        dataSource.close();
+    }
+
+    private void cleanUp() {
+        MapSqlParameterSource params = new MapSqlParameterSource("variantId", VARIANT_ID);
+        jdbc.update("DELETE FROM stock_reservation WHERE variant_id = :variantId", params);
+        jdbc.update("DELETE FROM inventory WHERE variant_id = :variantId", params);
+    }
+
+    @Test
+    void legacyFourRoundTripPath() throws Exception {
+        run("legacy (find/update/insert/find)", () -> tx.execute(status -> {
+            MapSqlParameterSource params = reservationParams();
+            Map<String, Object> before = jdbc.queryForMap(
+                    "SELECT * FROM inventory WHERE variant_id = :variantId", params);
+            if ((Integer) before.get("available_stock") < 1) {
+                return false;
+            }
+            int updated = jdbc.update("UPDATE inventory SET reserved_stock = reserved_stock + :quantity, " +
+                    "available_stock = available_stock - :quantity " +
+                    "WHERE variant_id = :variantId AND available_stock >= :quantity", params);
+            if (updated == 0) {
+                return false;
+            }
+            jdbc.update("INSERT INTO stock_reservation (reservation_id, variant_id, order_id, quantity, status, expires_at) " +
+                    "VALUES (:reservationId, :variantId, :orderId, :quantity, 'PENDING', :expiresAt)", params);
+            jdbc.queryForMap("SELECT * FROM inventory WHERE variant_id = :variantId", params);
+            return true;
+        }));
+    }
+
+    @Test
+    void atomicSingleStatementPath() throws Exception {
+        run("atomic (CTE UPDATE ... RETURNING)", () -> tx.execute(status ->
+                !jdbc.queryForList(InventoryRepository.RESERVE_STOCK_ATOMICALLY_SQL, reservationParams()).isEmpty()));
+    }
+
+    private void run(String label, ReservationAttempt attempt) throws Exception {
+        jdbc.update("INSERT INTO inventory (variant_id, current_stock, reserved_stock, available_stock, reorder_point) " +
+                "VALUES (:variantId, :stock, 0, :stock, 0)",
+                new MapSqlParameterSource("variantId", VARIANT_ID).addValue("stock", INITIAL_STOCK));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < RESERVATIONS_PER_THREAD; i++) {
+                    if (Boolean.TRUE.equals(attempt.reserve())) {
+                        succeeded.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        executor.shutdown();
+
+        int attempts = THREADS * RESERVATIONS_PER_THREAD;
+        System.out.printf("%s: %d attempts, %d reserved, %d ms, %.0f attempts/s%n",
+                label, attempts, succeeded.get(), elapsedMillis, attempts * 1000.0 / Math.max(1, elapsedMillis));
+
+        MapSqlParameterSource params = new MapSqlParameterSource("variantId", VARIANT_ID);
+        Integer reservedStock = jdbc.queryForObject(
+                "SELECT reserved_stock FROM inventory WHERE variant_id = :variantId", params, Integer.class);
+        Integer reservationRows = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM stock_reservation WHERE variant_id = :variantId", params, Integer.class);
+        assertEquals(succeeded.get(), reservedStock);
+        assertEquals(succeeded.get(), reservationRows);
+        assertTrue(reservedStock <= INITIAL_STOCK, "oversold");
+    }
+
+    private MapSqlParameterSource reservationParams() {
+        // 每次预留一个订单：(order_id, variant_id) 是幂等键
+        String reservationId = UUID.randomUUID().toString();
+        return new MapSqlParameterSource()
+                .addValue("variantId", VARIANT_ID)
+                .addValue("quantity", 1)
+                .addValue("reservationId", reservationId)
+                .addValue("orderId", "BENCH_" + reservationId)
+                .addValue("expiresAt", LocalDateTime.now().plusMinutes(30));
+    }
+
+    @FunctionalInterface
+    private interface ReservationAttempt {
+        Boolean reserve();
+    }
+}
@@ -0,0 +1,114 @@
+package com.ecommerce.inventoryservice.service;
+
+import com.ecommerce.inventoryservice.dto.HotSkuJournalEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 热点 SKU 账本的单 SKU 压测，输出格式与 ReservationContentionBenchmarkTest 一致，便于对比数据库路径。
+ * 需要 Redis，例如：INVENTORY_BENCHMARK_REDIS_HOST=localhost
+ */
+@EnabledIfEnvironmentVariable(named = "INVENTORY_BENCHMARK_REDIS_HOST", matches = ".+")
+class HotSkuLedgerLoadTest {
+
+    private static final long VARIANT_ID = 9_000_001L;
+    private static final int THREADS = 32;
+    private static final int RESERVATIONS_PER_THREAD = 200;
+    private static final int INITIAL_STOCK = THREADS * RESERVATIONS_PER_THREAD / 2; // 故意不足，验证不会超卖
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private HotSkuLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(
+                System.getenv("INVENTORY_BENCHMARK_REDIS_HOST"),
+                Integer.parseInt(System.getenv().getOrDefault("INVENTORY_BENCHMARK_REDIS_PORT", "6379")));
+        connectionFactory.afterPropertiesSet();
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        ledger = new HotSkuLedger(redisTemplate, objectMapper);
+        reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reset();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void ledgerPath() throws Exception {
+        ledger.seedIfAbsent(VARIANT_ID, INITIAL_STOCK);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < RESERVATIONS_PER_THREAD; i++) {
+                    HotSkuJournalEntry entry = HotSkuJournalEntry.builder()
+                            .reservationId(UUID.randomUUID().toString())
+                            .variantId(VARIANT_ID)
+                            .orderId("BENCH_" + UUID.randomUUID())
+                            .quantity(1)
+                            .expiresAt(LocalDateTime.now().plusMinutes(30))
+                            .build();
+                    if (ledger.reserve(new TreeMap<>(Map.of(VARIANT_ID, 1)), List.of(entry)).getStatus() == 0) {
+                        succeeded.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        executor.shutdown();
+
+        int attempts = THREADS * RESERVATIONS_PER_THREAD;
+        System.out.printf("hot SKU ledger (Redis Lua): %d attempts, %d reserved, %d ms, %.0f attempts/s%n",
+                attempts, succeeded.get(), elapsedMillis, attempts * 1000.0 / Math.max(1, elapsedMillis));
+
+        assertEquals(INITIAL_STOCK, succeeded.get());
+        assertEquals(0, ledger.getAvailable(VARIANT_ID));
+        assertEquals(INITIAL_STOCK, ledger.journalSize());
+    }
+
+    private void reset() {
+        ledger.evict(VARIANT_ID);
+        redisTemplate.delete(redisTemplate.keys("inventory:{hot-sku}:reservation:BENCH_*"));
+        while (!ledger.claimBatch(1000).isEmpty()) {
+            ledger.acknowledgeBatch();
+        }
+    }
+}
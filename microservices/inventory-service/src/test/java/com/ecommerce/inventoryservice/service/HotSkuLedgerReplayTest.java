@@ -0,0 +1,119 @@
+package com.ecommerce.inventoryservice.service;
+
+import com.ecommerce.inventoryservice.config.HotSkuProperties;
+import com.ecommerce.inventoryservice.dto.HotSkuJournalEntry;
+import com.ecommerce.inventoryservice.repository.InventoryRepository;
+import com.ecommerce.inventoryservice.repository.StockReservationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 热点 SKU 预留在回写前重放（客户端或 saga 重试）的幂等性，直接运行账本 Lua 脚本。
+ * 需要 Redis，例如：INVENTORY_BENCHMARK_REDIS_HOST=localhost
+ */
+@EnabledIfEnvironmentVariable(named = "INVENTORY_BENCHMARK_REDIS_HOST", matches = ".+")
+class HotSkuLedgerReplayTest {
+
+    private static final long VARIANT_ID = 9_000_101L;
+    private static final long OTHER_VARIANT_ID = 9_000_102L;
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private HotSkuLedger ledger;
+    private HotSkuService hotSkuService;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(
+                System.getenv("INVENTORY_BENCHMARK_REDIS_HOST"),
+                Integer.parseInt(System.getenv().getOrDefault("INVENTORY_BENCHMARK_REDIS_PORT", "6379")));
+        connectionFactory.afterPropertiesSet();
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        ledger = new HotSkuLedger(redisTemplate, objectMapper);
+
+        HotSkuProperties properties = new HotSkuProperties();
+        properties.setEnabled(true);
+        properties.setVariantIds(Set.of(VARIANT_ID, OTHER_VARIANT_ID));
+        hotSkuService = new HotSkuService(properties, ledger, mock(InventoryRepository.class),
+                mock(StockReservationRepository.class), mock(PlatformTransactionManager.class));
+
+        reset();
+        ledger.seedIfAbsent(VARIANT_ID, 100);
+        ledger.seedIfAbsent(OTHER_VARIANT_ID, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reset();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void sameReservationTwiceBeforeFlushTakesStockOnce() {
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(30);
+
+        HotSkuJournalEntry first = hotSkuService.reserve("REPLAY_1", new TreeMap<>(Map.of(VARIANT_ID, 3)), expiresAt).get(0);
+        HotSkuJournalEntry replay = hotSkuService.reserve("REPLAY_1", new TreeMap<>(Map.of(VARIANT_ID, 3)), expiresAt).get(0);
+
+        assertEquals(first.getReservationId(), replay.getReservationId());
+        assertEquals(97, ledger.getAvailable(VARIANT_ID));
+        assertEquals(1, ledger.journalSize());
+    }
+
+    @Test
+    void batchReplayOnlyTakesStockForNewLines() {
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(30);
+        HotSkuJournalEntry first = hotSkuService.reserve("REPLAY_2", new TreeMap<>(Map.of(VARIANT_ID, 2)), expiresAt).get(0);
+
+        List<HotSkuJournalEntry> batch = hotSkuService.reserve("REPLAY_2",
+                new TreeMap<>(Map.of(VARIANT_ID, 2, OTHER_VARIANT_ID, 5)), expiresAt);
+
+        assertEquals(first.getReservationId(), batch.get(0).getReservationId());
+        assertNotEquals(first.getReservationId(), batch.get(1).getReservationId());
+        assertEquals(98, ledger.getAvailable(VARIANT_ID));
+        assertEquals(95, ledger.getAvailable(OTHER_VARIANT_ID));
+        assertEquals(2, ledger.journalSize());
+    }
+
+    @Test
+    void compensatedReservationCanBeReservedAgain() {
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(30);
+        HotSkuJournalEntry first = hotSkuService.reserve("REPLAY_3", new TreeMap<>(Map.of(VARIANT_ID, 4)), expiresAt).get(0);
+
+        // 调用方事务回滚：撤销 journal 记录、归还库存并删除幂等键
+        assertEquals(4, ledger.compensate(List.of(first)));
+        HotSkuJournalEntry retried = hotSkuService.reserve("REPLAY_3", new TreeMap<>(Map.of(VARIANT_ID, 4)), expiresAt).get(0);
+
+        assertNotEquals(first.getReservationId(), retried.getReservationId());
+        assertEquals(96, ledger.getAvailable(VARIANT_ID));
+        assertEquals(1, ledger.journalSize());
+    }
+
+    private void reset() {
+        ledger.evict(VARIANT_ID);
+        ledger.evict(OTHER_VARIANT_ID);
+        redisTemplate.delete(redisTemplate.keys("inventory:{hot-sku}:reservation:REPLAY_*"));
+        while (!ledger.claimBatch(1000).isEmpty()) {
+            ledger.acknowledgeBatch();
+        }
+    }
+}
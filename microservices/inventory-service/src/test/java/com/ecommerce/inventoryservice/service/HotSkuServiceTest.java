@@ -0,0 +1,103 @@
+package com.ecommerce.inventoryservice.service;
+
+import com.ecommerce.inventoryservice.config.HotSkuProperties;
+import com.ecommerce.inventoryservice.dto.HotSkuJournalEntry;
+import com.ecommerce.inventoryservice.repository.InventoryRepository;
+import com.ecommerce.inventoryservice.repository.StockReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HotSkuServiceTest {
+
+    private static final HotSkuJournalEntry GOOD = entry("R-good", 100L);
+    private static final HotSkuJournalEntry ORPHAN = entry("R-orphan", 999L);
+
+    private HotSkuLedger ledger;
+    private StockReservationRepository reservationRepository;
+    private HotSkuService hotSkuService;
+
+    @BeforeEach
+    void setUp() {
+        HotSkuProperties properties = new HotSkuProperties();
+        properties.setEnabled(true);
+        properties.setVariantIds(Set.of(100L, 999L));
+        properties.setMaxFlushAttempts(3);
+
+        ledger = mock(HotSkuLedger.class);
+        when(ledger.tryLock(anyLong())).thenReturn("token");
+        when(ledger.journalSize()).thenReturn(2L);
+        when(ledger.claimBatch(anyInt())).thenReturn(List.of(GOOD, ORPHAN)).thenReturn(List.of());
+
+        // 整批包含已删除 variant 的记录时违反外键；单独回写正常记录成功
+        reservationRepository = mock(StockReservationRepository.class);
+        when(reservationRepository.applyHotSkuJournal(anyString(), anyString(), anyString(), anyString(), anyString()))
+                .thenThrow(new DataIntegrityViolationException("fk_stock_reservation_variant"));
+        when(reservationRepository.applyHotSkuJournal(eq("R-good"), anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(List.of());
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        hotSkuService = new HotSkuService(properties, ledger, mock(InventoryRepository.class),
+                reservationRepository, transactionManager);
+    }
+
+    @Test
+    void failingBatchIsReplayedUntilAttemptLimit() {
+        when(ledger.recordFailedFlush()).thenReturn(1L);
+
+        hotSkuService.flush();
+
+        verify(ledger, never()).acknowledgeBatch();
+        verify(ledger, never()).deadLetter(any());
+        verify(ledger).unlock("token");
+    }
+
+    @Test
+    void batchOverAttemptLimitIsWrittenOneByOneAndFailuresDeadLettered() {
+        when(ledger.recordFailedFlush()).thenReturn(3L);
+
+        hotSkuService.flush();
+
+        verify(reservationRepository).applyHotSkuJournal(eq("R-good"), anyString(), anyString(), anyString(), anyString());
+        verify(ledger).deadLetter(ORPHAN);
+        verify(ledger, never()).deadLetter(GOOD);
+        verify(ledger).acknowledgeBatch();
+    }
+
+    @Test
+    void flushPendingSkipsLockWhenNothingIsPending() {
+        when(ledger.pendingSize()).thenReturn(0L);
+
+        hotSkuService.flushPending();
+
+        verify(ledger, never()).tryLock(anyLong());
+    }
+
+    private static HotSkuJournalEntry entry(String reservationId, Long variantId) {
+        return HotSkuJournalEntry.builder()
+                .reservationId(reservationId)
+                .variantId(variantId)
+                .orderId("ORD1")
+                .quantity(1)
+                .expiresAt(LocalDateTime.of(2026, 1, 1, 0, 0))
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package com.ecommerce.inventoryservice.service;
+
+import com.ecommerce.inventoryservice.exception.DuplicateReservationException;
+import com.ecommerce.inventoryservice.exception.ReservationConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationCoordinatorTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReservationCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coordinator = new ReservationCoordinator(transactionManager, meterRegistry, 3, 1, 4);
+    }
+
+    @Test
+    void execute_RetriesDeadlockThenSucceeds() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = coordinator.execute("reserve", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw conflict("40P01");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, meterRegistry.get("inventory.reservations.lock.retries")
+                .tags("operation", "reserve", "reason", "deadlock").counter().count());
+    }
+
+    @Test
+    void execute_GivesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(ReservationConflictException.class,
+                () -> coordinator.execute("confirm", () -> {
+                    attempts.incrementAndGet();
+                    throw conflict("40001");
+                }));
+
+        assertEquals(3, attempts.get());
+        assertEquals(1.0, meterRegistry.get("inventory.reservations.lock.aborts")
+                .tags("operation", "confirm", "reason", "serialization").counter().count());
+    }
+
+    @Test
+    void execute_RetriesLockTimeout() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        coordinator.run("cancel-order", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw conflict("55P03");
+            }
+        });
+
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, meterRegistry.get("inventory.reservations.lock.retries")
+                .tags("operation", "cancel-order", "reason", "lock-timeout").counter().count());
+    }
+
+    @Test
+    void execute_ReplaysUniqueViolationOnceWithoutCountingLockConflicts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = coordinator.execute("reserve", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw conflict("23505");
+            }
+            return "existing";
+        });
+
+        assertEquals("existing", result);
+        assertEquals(1.0, meterRegistry.get("inventory.reservations.duplicate.replays")
+                .tags("operation", "reserve").counter().count());
+        assertTrue(meterRegistry.find("inventory.reservations.lock.retries").counters().isEmpty());
+    }
+
+    @Test
+    void execute_RepeatedUniqueViolationIsAConflictNotAnAbort() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(DuplicateReservationException.class, () -> coordinator.execute("reserve", () -> {
+            attempts.incrementAndGet();
+            throw conflict("23505");
+        }));
+
+        assertEquals(2, attempts.get());
+        assertTrue(meterRegistry.find("inventory.reservations.lock.aborts").counters().isEmpty());
+    }
+
+    @Test
+    void execute_DoesNotRetryOtherFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalArgumentException.class, () -> coordinator.execute("cancel", () -> {
+            attempts.incrementAndGet();
+            throw new IllegalArgumentException("Reservation is not in PENDING status");
+        }));
+
+        assertEquals(1, attempts.get());
+        assertTrue(meterRegistry.find("inventory.reservations.lock.retries").counters().isEmpty());
+    }
+
+    @Test
+    void backoff_StaysWithinCeiling() {
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long backoff = coordinator.backoff(attempt);
+            long ceiling = Math.min(4, 1L << (attempt - 1));
+            assertTrue(backoff >= ceiling / 2 && backoff <= ceiling, "attempt " + attempt + ": " + backoff);
+        }
+    }
+
+    private static RuntimeException conflict(String sqlState) {
+        return new CannotAcquireLockException("could not execute statement",
+                new SQLException("ERROR: lock conflict", sqlState));
+    }
+}
@@ -0,0 +1,103 @@
+package com.ecommerce.inventoryservice.service;
+
+import com.ecommerce.inventoryservice.config.RabbitMQConfig;
+import com.ecommerce.inventoryservice.dto.StockChangedEvent;
+import com.ecommerce.inventoryservice.repository.InventoryOutboxRepository;
+import com.ecommerce.inventoryservice.repository.InventoryOutboxRepository.StockChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockEventPublisherTest {
+
+    @Mock
+    private InventoryOutboxRepository outboxRepository;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitOperations rabbitOperations;
+
+    @Mock
+    private HotSkuService hotSkuService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StockEventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new StockEventPublisher(outboxRepository, rabbitTemplate, hotSkuService, transactionManager, true, 500, 1000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishBatch_CoalescedChangesInOneConfirmedMessage() {
+        // Given
+        List<StockChange> changes = List.of(
+                change(1L, 3L, 100, 8, "IN_STOCK", 42L),
+                change(2L, 1L, null, null, null, 42L));
+        when(outboxRepository.tryPublisherLock(anyLong())).thenReturn(true);
+        when(outboxRepository.claimStockChanges(500)).thenReturn(changes);
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<Object>>getArgument(0).doInRabbit(rabbitOperations));
+
+        // When
+        int claimed = publisher.publishBatch();
+
+        // Then
+        assertEquals(4, claimed);
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(rabbitOperations).convertAndSend(eq(RabbitMQConfig.INVENTORY_EXCHANGE),
+                eq(RabbitMQConfig.STOCK_CHANGED_ROUTING_KEY), payload.capture());
+        verify(rabbitOperations).waitForConfirmsOrDie(1000);
+        assertEquals(List.of(
+                StockChangedEvent.builder().variantId(1L).availableStock(92).status("IN_STOCK").version(42L).build(),
+                StockChangedEvent.builder().variantId(2L).availableStock(0).version(42L).build()),
+                payload.getValue());
+    }
+
+    @Test
+    void publishBatch_SkipsWhenAnotherReplicaIsPublishing() {
+        // Given
+        when(outboxRepository.tryPublisherLock(anyLong())).thenReturn(false);
+
+        // When
+        int claimed = publisher.publishBatch();
+
+        // Then
+        assertEquals(0, claimed);
+        verify(outboxRepository, never()).claimStockChanges(anyInt());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    private static StockChange change(Long variantId, Long entries, Integer currentStock, Integer reservedStock,
+                                      String status, Long version) {
+        StockChange change = mock(StockChange.class);
+        lenient().when(change.getVariantId()).thenReturn(variantId);
+        lenient().when(change.getEntries()).thenReturn(entries);
+        lenient().when(change.getCurrentStock()).thenReturn(currentStock);
+        lenient().when(change.getReservedStock()).thenReturn(reservedStock);
+        lenient().when(change.getStatus()).thenReturn(status);
+        lenient().when(change.getVersion()).thenReturn(version);
+        return change;
+    }
+}
@@ -1,23 +1,46 @@
 package com.ecommerce.inventoryservice.service.impl;
 
+import com.ecommerce.inventoryservice.dto.AvailabilityResponse;
+import com.ecommerce.inventoryservice.dto.InventoryPageResponse;
 import com.ecommerce.inventoryservice.dto.InventoryRequest;
+import com.ecommerce.inventoryservice.dto.ReserveStockRequest;
 import com.ecommerce.inventoryservice.dto.StockReservationRequest;
+import com.ecommerce.inventoryservice.exception.DuplicateReservationException;
 import com.ecommerce.inventoryservice.exception.InsufficientStockException;
 import com.ecommerce.inventoryservice.exception.InventoryNotFoundException;
 import com.ecommerce.inventoryservice.model.Inventory;
+import com.ecommerce.inventoryservice.model.StockReservation;
 import com.ecommerce.inventoryservice.repository.InventoryRepository;
 import com.ecommerce.inventoryservice.repository.StockReservationRepository;
+import com.ecommerce.inventoryservice.service.AvailabilityCache;
+import com.ecommerce.inventoryservice.service.HotSkuService;
+import com.ecommerce.inventoryservice.service.ReservationCoordinator;
+import com.ecommerce.inventoryservice.service.ReservationExpirySweeper;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,6 +52,24 @@ class InventoryServiceImplTest {
     @Mock
     private StockReservationRepository reservationRepository;
 
+    @Mock
+    private HotSkuService hotSkuService;
+
+    @Mock
+    private ReservationExpirySweeper expirySweeper;
+
+    @Mock
+    private ReservationCoordinator reservationCoordinator;
+
+    @Mock
+    private AvailabilityCache availabilityCache;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private InventoryServiceImpl inventoryService;
 
@@ -37,6 +78,14 @@ class InventoryServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        // 协调器只负责事务与重试，单元测试中直接执行
+        lenient().when(reservationCoordinator.execute(anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(reservationCoordinator).run(anyString(), any());
+
         inventory = Inventory.builder()
                 .id(1L)
                 .variantId(100L)
@@ -96,6 +145,7 @@ class InventoryServiceImplTest {
     void reserveStock_Success() {
         when(inventoryRepository.findByVariantId(100L)).thenReturn(Optional.of(inventory));
         when(inventoryRepository.reserveStock(100L, 5)).thenReturn(1);
+        when(reservationRepository.save(any(StockReservation.class))).then(returnsFirstArg());
 
         var request = StockReservationRequest.builder()
                 .orderId("ORDER123")
@@ -124,4 +174,346 @@ class InventoryServiceImplTest {
             inventoryService.reserveStock(request);
         });
     }
+
+    @Test
+    void reserveStockForOrder_SingleRoundTrip() {
+        Inventory reserved = Inventory.builder()
+                .id(1L)
+                .variantId(100L)
+                .currentStock(50)
+                .reservedStock(15)
+                .availableStock(35)
+                .isTracked(true)
+                .build();
+        when(inventoryRepository.reserveStockAtomically(eq(100L), eq(5), anyString(), eq("ORD1"), any()))
+                .thenReturn(Optional.of(reserved));
+
+        var request = ReserveStockRequest.builder()
+                .productId(100L)
+                .quantity(5)
+                .orderNumber("ORD1")
+                .build();
+
+        var response = inventoryService.reserveStock(request);
+
+        assertEquals(15, response.getReservedStock());
+        assertEquals(35, response.getAvailableStock());
+        verify(inventoryRepository, never()).findByVariantId(any());
+        verify(reservationRepository).findFirstByOrderIdAndVariantIdOrderByIdDesc("ORD1", 100L);
+        verifyNoMoreInteractions(reservationRepository);
+    }
+
+    @Test
+    void reserveStockForOrder_RepeatReturnsExistingWithoutWrites() {
+        when(reservationRepository.findFirstByOrderIdAndVariantIdOrderByIdDesc("ORD1", 100L))
+                .thenReturn(Optional.of(reservation("r1", 100L, StockReservation.ReservationStatus.PENDING)));
+        when(inventoryRepository.findByVariantId(100L)).thenReturn(Optional.of(inventory));
+
+        var request = ReserveStockRequest.builder()
+                .productId(100L)
+                .quantity(5)
+                .orderNumber("ORD1")
+                .build();
+
+        var response = inventoryService.reserveStock(request);
+
+        assertEquals(10, response.getReservedStock());
+        verify(inventoryRepository, never()).reserveStockAtomically(any(), any(), any(), any(), any());
+        verify(reservationRepository, never()).save(any());
+        verifyNoInteractions(availabilityCache);
+    }
+
+    @Test
+    void reserveStockForOrder_ExpiredReservationIsReservedAgain() {
+        when(reservationRepository.findFirstByOrderIdAndVariantIdOrderByIdDesc("ORD1", 100L))
+                .thenReturn(Optional.of(reservation("r1", 100L, StockReservation.ReservationStatus.EXPIRED)));
+        when(inventoryRepository.reserveStockAtomically(eq(100L), eq(5), anyString(), eq("ORD1"), any()))
+                .thenReturn(Optional.of(inventory));
+
+        var request = ReserveStockRequest.builder()
+                .productId(100L)
+                .quantity(5)
+                .orderNumber("ORD1")
+                .build();
+
+        inventoryService.reserveStock(request);
+
+        verify(inventoryRepository).reserveStockAtomically(eq(100L), eq(5), anyString(), eq("ORD1"), any());
+        verify(availabilityCache).evict(100L);
+    }
+
+    @Test
+    void reserveStock_ConfirmedReservationIsRejected() {
+        when(reservationRepository.findFirstByOrderIdAndVariantIdOrderByIdDesc("ORDER123", 100L))
+                .thenReturn(Optional.of(reservation("r1", 100L, StockReservation.ReservationStatus.CONFIRMED)));
+
+        var request = StockReservationRequest.builder()
+                .orderId("ORDER123")
+                .variantId(100L)
+                .quantity(5)
+                .build();
+
+        assertThrows(DuplicateReservationException.class, () -> inventoryService.reserveStock(request));
+        verify(inventoryRepository, never()).reserveStock(any(), any());
+        verify(reservationRepository, never()).save(any());
+    }
+
+    @Test
+    void reserveStockForOrder_InsufficientStock() {
+        when(inventoryRepository.reserveStockAtomically(eq(100L), eq(100), anyString(), eq("ORD1"), any()))
+                .thenReturn(Optional.empty());
+        when(inventoryRepository.findByVariantId(100L)).thenReturn(Optional.of(inventory));
+
+        var request = ReserveStockRequest.builder()
+                .productId(100L)
+                .quantity(100)
+                .orderNumber("ORD1")
+                .build();
+
+        assertThrows(InsufficientStockException.class, () -> inventoryService.reserveStock(request));
+    }
+
+    @Test
+    void reserveStockForOrder_NotFound() {
+        when(inventoryRepository.reserveStockAtomically(eq(100L), eq(5), anyString(), eq("ORD1"), any()))
+                .thenReturn(Optional.empty());
+        when(inventoryRepository.findByVariantId(100L)).thenReturn(Optional.empty());
+
+        var request = ReserveStockRequest.builder()
+                .productId(100L)
+                .quantity(5)
+                .orderNumber("ORD1")
+                .build();
+
+        assertThrows(InventoryNotFoundException.class, () -> inventoryService.reserveStock(request));
+    }
+
+    @Test
+    void processBatchReservations_SortedSingleStatement() {
+        StockReservation first = StockReservation.builder()
+                .reservationId("r1").variantId(100L).orderId("ORD1").quantity(2)
+                .status(StockReservation.ReservationStatus.PENDING).expiresAt(LocalDateTime.now().plusMinutes(30))
+                .build();
+        StockReservation second = StockReservation.builder()
+                .reservationId("r2").variantId(200L).orderId("ORD1").quantity(3)
+                .status(StockReservation.ReservationStatus.PENDING).expiresAt(LocalDateTime.now().plusMinutes(30))
+                .build();
+        when(reservationRepository.reserveBatchAtomically(eq("100,200"), eq("2,3"), anyString(), eq("ORD1"), any()))
+                .thenReturn(List.of(second, first));
+
+        var responses = inventoryService.processBatchReservations("ORD1", Map.of(200L, 3, 100L, 2));
+
+        assertEquals(2, responses.size());
+        assertEquals(100L, responses.get(0).getVariantId());
+        assertEquals(200L, responses.get(1).getVariantId());
+        verify(inventoryRepository, never()).findByVariantIdIn(any());
+    }
+
+    @Test
+    void processBatchReservations_RepeatReservesOnlyMissingLines() {
+        StockReservation existing = StockReservation.builder()
+                .reservationId("r1").variantId(100L).orderId("ORD1").quantity(2)
+                .status(StockReservation.ReservationStatus.PENDING).expiresAt(LocalDateTime.now().plusMinutes(30))
+                .build();
+        StockReservation added = StockReservation.builder()
+                .reservationId("r2").variantId(200L).orderId("ORD1").quantity(3)
+                .status(StockReservation.ReservationStatus.PENDING).expiresAt(LocalDateTime.now().plusMinutes(30))
+                .build();
+        when(reservationRepository.findByOrderId("ORD1")).thenReturn(List.of(existing));
+        when(reservationRepository.reserveBatchAtomically(eq("200"), eq("3"), anyString(), eq("ORD1"), any()))
+                .thenReturn(List.of(added));
+
+        var responses = inventoryService.processBatchReservations("ORD1", Map.of(100L, 2, 200L, 3));
+
+        assertEquals(List.of("r1", "r2"), List.of(responses.get(0).getReservationId(), responses.get(1).getReservationId()));
+    }
+
+    @Test
+    void processBatchReservations_RepeatWithoutWrites() {
+        StockReservation existing = StockReservation.builder()
+                .reservationId("r1").variantId(100L).orderId("ORD1").quantity(2)
+                .status(StockReservation.ReservationStatus.PENDING).expiresAt(LocalDateTime.now().plusMinutes(30))
+                .build();
+        when(reservationRepository.findByOrderId("ORD1")).thenReturn(List.of(existing));
+
+        var responses = inventoryService.processBatchReservations("ORD1", Map.of(100L, 2));
+
+        assertEquals("r1", responses.get(0).getReservationId());
+        verify(reservationRepository, never()).reserveBatchAtomically(any(), any(), any(), any(), any());
+        verifyNoInteractions(availabilityCache, hotSkuService);
+    }
+
+    @Test
+    void processBatchReservations_UsesLatestReservationPerLine() {
+        StockReservation expired = reservation("r1", 100L, StockReservation.ReservationStatus.EXPIRED);
+        expired.setId(1L);
+        StockReservation cancelled = reservation("r2", 200L, StockReservation.ReservationStatus.CANCELLED);
+        cancelled.setId(2L);
+        StockReservation pending = reservation("r3", 200L, StockReservation.ReservationStatus.PENDING);
+        pending.setId(3L);
+        when(reservationRepository.findByOrderId("ORD1")).thenReturn(List.of(expired, cancelled, pending));
+        when(reservationRepository.reserveBatchAtomically(eq("100"), eq("2"), anyString(), eq("ORD1"), any()))
+                .thenReturn(List.of(reservation("r4", 100L, StockReservation.ReservationStatus.PENDING)));
+
+        var responses = inventoryService.processBatchReservations("ORD1", Map.of(100L, 2, 200L, 3));
+
+        assertEquals(List.of("r4", "r3"), List.of(responses.get(0).getReservationId(), responses.get(1).getReservationId()));
+    }
+
+    @Test
+    void processBatchReservations_CancelledLineIsRejected() {
+        when(reservationRepository.findByOrderId("ORD1"))
+                .thenReturn(List.of(reservation("r1", 100L, StockReservation.ReservationStatus.CANCELLED)));
+
+        assertThrows(DuplicateReservationException.class,
+                () -> inventoryService.processBatchReservations("ORD1", Map.of(100L, 2)));
+        verify(reservationRepository, never()).reserveBatchAtomically(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void processBatchReservations_AllOrNothing() {
+        Inventory other = Inventory.builder()
+                .variantId(200L)
+                .currentStock(1)
+                .reservedStock(0)
+                .build();
+        when(reservationRepository.reserveBatchAtomically(eq("100,200"), eq("2,3"), anyString(), eq("ORD1"), any()))
+                .thenReturn(List.of());
+        when(inventoryRepository.findByVariantIdIn(any())).thenReturn(List.of(inventory, other));
+
+        var exception = assertThrows(InsufficientStockException.class,
+                () -> inventoryService.processBatchReservations("ORD1", Map.of(100L, 2, 200L, 3)));
+        assertTrue(exception.getMessage().contains("variant 200 (requested: 3, available: 1)"));
+    }
+
+    @Test
+    void reserveStockForOrder_HotSkuServedFromLedger() {
+        when(hotSkuService.isHot(100L)).thenReturn(true);
+        when(hotSkuService.getLedgerAvailable(100L)).thenReturn(995);
+
+        var request = ReserveStockRequest.builder()
+                .productId(100L)
+                .quantity(5)
+                .orderNumber("ORD1")
+                .build();
+
+        var response = inventoryService.reserveStock(request);
+
+        assertEquals(995, response.getAvailableStock());
+        verify(hotSkuService).reserve(eq("ORD1"), eq(new TreeMap<>(Map.of(100L, 5))), any());
+        verify(reservationRepository).findFirstByOrderIdAndVariantIdOrderByIdDesc("ORD1", 100L);
+        verifyNoMoreInteractions(reservationRepository);
+        verifyNoInteractions(inventoryRepository);
+    }
+
+    @Test
+    void confirmReservation_FlushesHotJournalWhenNotYetWritten() {
+        StockReservation reservation = StockReservation.builder()
+                .reservationId("R1")
+                .variantId(100L)
+                .orderId("ORD1")
+                .quantity(5)
+                .status(StockReservation.ReservationStatus.PENDING)
+                .expiresAt(LocalDateTime.now().plusMinutes(30))
+                .build();
+        when(hotSkuService.hasPending()).thenReturn(true);
+        when(reservationRepository.existsByReservationId("R1")).thenReturn(false);
+        when(reservationRepository.findByReservationIdForUpdate("R1")).thenReturn(Optional.of(reservation));
+        when(inventoryRepository.confirmReservation(100L, 5)).thenReturn(1);
+        when(reservationRepository.save(any(StockReservation.class))).then(returnsFirstArg());
+
+        var response = inventoryService.confirmReservation("R1");
+
+        assertEquals(StockReservation.ReservationStatus.CONFIRMED, response.getStatus());
+        // 回写使用独立事务，必须在协调器事务之外执行
+        var order = inOrder(hotSkuService, reservationCoordinator);
+        order.verify(hotSkuService).flushPending();
+        order.verify(reservationCoordinator).execute(eq("confirm"), any());
+    }
+
+    @Test
+    void cancelReservation_SkipsFlushWhenReservationIsWritten() {
+        StockReservation reservation = reservation("R1", 100L, StockReservation.ReservationStatus.PENDING);
+        when(hotSkuService.hasPending()).thenReturn(true);
+        when(reservationRepository.existsByReservationId("R1")).thenReturn(true);
+        when(reservationRepository.findByReservationIdForUpdate("R1")).thenReturn(Optional.of(reservation));
+        when(reservationRepository.save(any(StockReservation.class))).then(returnsFirstArg());
+
+        var response = inventoryService.cancelReservation("R1");
+
+        assertEquals(StockReservation.ReservationStatus.CANCELLED, response.getStatus());
+        verify(hotSkuService, never()).flushPending();
+        verify(inventoryRepository).releaseReservedStock(100L, 2);
+    }
+
+    @Test
+    void deleteInventory_EvictsHotSkuLedger() {
+        when(inventoryRepository.findByVariantId(100L)).thenReturn(Optional.of(inventory));
+
+        inventoryService.deleteInventory(100L);
+
+        verify(inventoryRepository).delete(inventory);
+        verify(hotSkuService).evict(100L);
+    }
+
+    @Test
+    void checkStockAvailability_CacheThenSingleInQuery() {
+        // Given
+        AvailabilityResponse cached = AvailabilityResponse.builder().variantId(100L).availableStock(40).build();
+        Inventory other = Inventory.builder().variantId(200L).currentStock(5).reservedStock(2).build();
+        when(availabilityCache.getAll(List.of(100L, 200L, 300L))).thenReturn(Map.of(100L, cached));
+        when(inventoryRepository.findByVariantIdIn(List.of(200L, 300L))).thenReturn(List.of(other));
+
+        // When
+        Map<Long, Integer> result = inventoryService.checkStockAvailability(Map.of(100L, 5, 200L, 10, 300L, 1));
+
+        // Then
+        assertEquals(Map.of(100L, 5, 200L, 3, 300L, 0), result);
+        verify(inventoryRepository, never()).findByVariantId(any());
+        verify(availabilityCache).putAll(argThat(snapshots -> snapshots.size() == 1));
+    }
+
+    @Test
+    void getLowStockItems_KeysetPageWithHasNext() {
+        // Given
+        Inventory first = Inventory.builder().id(11L).variantId(1L).build();
+        Inventory second = Inventory.builder().id(12L).variantId(2L).build();
+        Inventory lookahead = Inventory.builder().id(13L).variantId(3L).build();
+        when(inventoryRepository.findLowStockItemsAfter(eq(10L), argThat(pageable -> pageable.getPageSize() == 3)))
+                .thenReturn(List.of(first, second, lookahead));
+
+        // When
+        InventoryPageResponse page = inventoryService.getLowStockItems(10L, 2);
+
+        // Then
+        assertEquals(2, page.getItems().size());
+        assertEquals(12L, page.getNextAfterId());
+        assertTrue(page.isHasNext());
+    }
+
+    @Test
+    void exportOutOfStockItems_WritesNdjsonAndDetachesRows() {
+        // Given
+        Inventory first = Inventory.builder().id(1L).variantId(100L).build();
+        Inventory second = Inventory.builder().id(2L).variantId(200L).build();
+        when(inventoryRepository.streamOutOfStockItems()).thenReturn(Stream.of(first, second));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        inventoryService.exportOutOfStockItems(out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].contains("\"variantId\":200"));
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+
+    private static StockReservation reservation(String reservationId, Long variantId, StockReservation.ReservationStatus status) {
+        return StockReservation.builder()
+                .reservationId(reservationId).variantId(variantId).orderId("ORD1").quantity(2)
+                .status(status).expiresAt(LocalDateTime.now().plusMinutes(30))
+                .build();
+    }
 }
@@ -0,0 +1,283 @@
+package com.ecommerce.inventoryservice.service.impl;
+
+import com.ecommerce.inventoryservice.exception.InsufficientStockException;
+import com.ecommerce.inventoryservice.repository.StockReservationRepository;
+import com.ecommerce.inventoryservice.service.AvailabilityCache;
+import com.ecommerce.inventoryservice.service.HotSkuService;
+import com.ecommerce.inventoryservice.service.ReservationCoordinator;
+import com.ecommerce.inventoryservice.service.ReservationExpirySweeper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 预留并发压力测试：
+ * - 并发执行多行批量预留、按订单确认/取消、单条取消与过期清理，所有路径按同一顺序加锁时不应出现死锁；
+ * - 同一订单的重复请求并发到达（客户端重试/对冲）时只预留一次，所有请求拿到同一组预留；
+ * 两种场景下 reserved_stock 都与 PENDING 预留一致。
+ * 需要已执行迁移的 PostgreSQL，例如：
+ * INVENTORY_BENCHMARK_DB_URL=jdbc:postgresql://localhost:5432/ecommerce_inventory
+ */
+@EnabledIfEnvironmentVariable(named = "INVENTORY_BENCHMARK_DB_URL", matches = ".+")
+@DataJpaTest(properties = {"spring.flyway.enabled=false", "spring.jpa.hibernate.ddl-auto=none"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({InventoryServiceImpl.class, ReservationCoordinator.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservationConcurrencyStressTest {
+
+    private static final long FIRST_VARIANT_ID = 9_200_001L;
+    private static final int VARIANTS = 12;
+    private static final int INITIAL_STOCK = 100_000;
+    private static final int THREADS = 16;
+    private static final int ORDERS_PER_THREAD = 150;
+
+    /**
+     * 应用主类带有显式 @ComponentScan，会绕过切片过滤加载全部组件，这里只装配 JPA 与预留相关的 bean
+     */
+    @SpringBootConfiguration
+    @EntityScan("com.ecommerce.inventoryservice.model")
+    @EnableJpaRepositories("com.ecommerce.inventoryservice.repository")
+    static class StressConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+    }
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("INVENTORY_BENCHMARK_DB_URL"));
+        registry.add("spring.datasource.username",
+                () -> System.getenv().getOrDefault("INVENTORY_BENCHMARK_DB_USERNAME", "admin"));
+        registry.add("spring.datasource.password",
+                () -> System.getenv().getOrDefault("INVENTORY_BENCHMARK_DB_PASSWORD", "postgres123"));
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> THREADS + 4);
+    }
+
+    @MockBean
+    private HotSkuService hotSkuService;
+
+    @MockBean
+    private AvailabilityCache availabilityCache;
+
+    @MockBean
+    private ReservationExpirySweeper expirySweeper;
+
+    @Autowired
+    private InventoryServiceImpl inventoryService;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private NamedParameterJdbcTemplate jdbc;
+    private List<Long> variantIds;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        variantIds = new ArrayList<>();
+        for (int i = 0; i < VARIANTS; i++) {
+            variantIds.add(FIRST_VARIANT_ID + i);
+        }
+        cleanUp();
+        for (Long variantId : variantIds) {
+            jdbc.update("INSERT INTO inventory (variant_id, current_stock, reserved_stock, available_stock, reorder_point) " +
+                    "VALUES (:variantId, :stock, 0, :stock, 0)",
+                    new MapSqlParameterSource("variantId", variantId).addValue("stock", INITIAL_STOCK));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+    }
+
+    private void cleanUp() {
+        MapSqlParameterSource params = new MapSqlParameterSource("variantIds", variantIds);
+        jdbc.update("DELETE FROM stock_reservation WHERE variant_id IN (:variantIds)", params);
+        jdbc.update("DELETE FROM inventory WHERE variant_id IN (:variantIds)", params);
+    }
+
+    @Test
+    void mixedReservationWorkloadHasNoDeadlocks() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger completedOrders = new AtomicInteger();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        // 清理线程：持续把一部分预留改为已到期并执行过期释放，与业务事务交错
+        Future<?> sweeper = executor.submit(() -> {
+            while (running.get()) {
+                tx.execute(status -> reservationRepository.expireDueReservations(50));
+            }
+        });
+
+        long startNanos = System.nanoTime();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            workers.add(executor.submit(() -> {
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    runOrder("STRESS-" + thread + "-" + i);
+                    completedOrders.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get(5, TimeUnit.MINUTES);
+        }
+        running.set(false);
+        sweeper.get(1, TimeUnit.MINUTES);
+        executor.shutdown();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        double retries = meterRegistry.find("inventory.reservations.lock.retries").counters().stream()
+                .filter(counter -> !"duplicate".equals(counter.getId().getTag("reason")))
+                .mapToDouble(counter -> counter.count()).sum();
+        double aborts = meterRegistry.find("inventory.reservations.lock.aborts").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum();
+        System.out.printf("%d orders on %d threads in %d ms: %.0f lock retries, %.0f aborts%n",
+                completedOrders.get(), THREADS, elapsedMs, retries, aborts);
+
+        assertEquals(THREADS * ORDERS_PER_THREAD, completedOrders.get());
+        assertEquals(0.0, retries, "deadlock/serialization retries");
+        assertEquals(0.0, aborts, "aborted operations");
+        assertLedgerConsistent();
+    }
+
+    @Test
+    void hedgedDuplicateRequestsReserveOnce() throws Exception {
+        int hedges = 6;
+        int orders = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(hedges);
+        Map<Long, Integer> lines = Map.of(variantIds.get(0), 1, variantIds.get(3), 2, variantIds.get(7), 1);
+
+        for (int i = 0; i < orders; i++) {
+            String orderId = "HEDGE-" + i;
+            List<Future<List<String>>> attempts = new ArrayList<>();
+            for (int h = 0; h < hedges; h++) {
+                attempts.add(executor.submit(() -> inventoryService.processBatchReservations(orderId, lines).stream()
+                        .map(reservation -> reservation.getReservationId())
+                        .collect(Collectors.toList())));
+            }
+            List<String> first = attempts.get(0).get(1, TimeUnit.MINUTES);
+            for (Future<List<String>> attempt : attempts) {
+                assertEquals(first, attempt.get(1, TimeUnit.MINUTES), "order " + orderId);
+            }
+        }
+        executor.shutdown();
+
+        Integer reservations = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM stock_reservation WHERE order_id LIKE 'HEDGE-%' AND variant_id IN (:variantIds)",
+                new MapSqlParameterSource("variantIds", variantIds), Integer.class);
+        double duplicates = meterRegistry.find("inventory.reservations.lock.retries").tag("reason", "duplicate").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum();
+        System.out.printf("%d orders x %d hedged requests: %d reservations, %.0f duplicate retries%n",
+                orders, hedges, reservations, duplicates);
+
+        assertEquals(orders * lines.size(), reservations);
+        assertLedgerConsistent();
+    }
+
+    private void runOrder(String orderId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Long> shuffled = new ArrayList<>(variantIds);
+        Collections.shuffle(shuffled, random);
+        Map<Long, Integer> lines = shuffled.subList(0, 2 + random.nextInt(5)).stream()
+                .collect(Collectors.toMap(variantId -> variantId, variantId -> 1 + random.nextInt(3)));
+        try {
+            inventoryService.processBatchReservations(orderId, lines);
+        } catch (InsufficientStockException e) {
+            return;
+        }
+
+        switch (random.nextInt(4)) {
+            case 0:
+                inventoryService.confirmBatchReservations(orderId);
+                break;
+            case 1:
+                inventoryService.cancelBatchReservations(orderId);
+                break;
+            case 2:
+                inventoryService.getReservationsByOrderId(orderId).stream()
+                        .filter(reservation -> random.nextBoolean())
+                        .forEach(reservation -> inventoryService.cancelReservation(reservation.getReservationId()));
+                break;
+            default:
+                // 留给清理线程过期释放
+                jdbc.update("UPDATE stock_reservation SET expires_at = now() - interval '1 minute' WHERE order_id = :orderId",
+                        new MapSqlParameterSource("orderId", orderId));
+        }
+    }
+
+    private void assertLedgerConsistent() {
+        List<Map<String, Object>> rows = jdbc.queryForList(
+                "SELECT i.variant_id, i.current_stock, i.reserved_stock, " +
+                "       COALESCE(SUM(r.quantity) FILTER (WHERE r.status = 'PENDING'), 0) AS pending, " +
+                "       COALESCE(SUM(r.quantity) FILTER (WHERE r.status = 'CONFIRMED'), 0) AS confirmed " +
+                "FROM inventory i LEFT JOIN stock_reservation r ON r.variant_id = i.variant_id " +
+                "WHERE i.variant_id IN (:variantIds) " +
+                "GROUP BY i.variant_id, i.current_stock, i.reserved_stock",
+                new MapSqlParameterSource("variantIds", variantIds));
+        assertEquals(VARIANTS, rows.size());
+        for (Map<String, Object> row : rows) {
+            long pending = ((Number) row.get("pending")).longValue();
+            long confirmed = ((Number) row.get("confirmed")).longValue();
+            assertEquals(pending, ((Number) row.get("reserved_stock")).longValue(), "reserved_stock of " + row.get("variant_id"));
+            assertEquals(INITIAL_STOCK - confirmed, ((Number) row.get("current_stock")).longValue(), "current_stock of " + row.get("variant_id"));
+            assertTrue(pending >= 0);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.ecommerce.order.client;
+
+import com.ecommerce.order.config.ClientResilienceProperties;
+import com.ecommerce.order.exception.ClientTimeoutException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkhead;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 库存、支付、商品服务调用的保护层：熔断器（最外层）→ 舱壁 → 限时器（仅线程池舱壁）→ Feign 调用。
+ * 下游变慢时并发调用数被舱壁限制、等待时间被限时器截断，失败率或慢调用比例超过阈值后熔断器直接拒绝，
+ * 调用方线程不会被下游拖住。熔断器、舱壁（resilience4j.bulkhead / resilience4j.thread-pool-bulkhead）
+ * 与限时器都按客户端名称读取 resilience4j 配置并由其导出指标；调用耗时按结果记在 order.client.calls。
+ */
+@Slf4j
+@Component
+public class ClientCallGuard implements DisposableBean {
+
+    public static final String INVENTORY = "inventory-service";
+    public static final String PAYMENT = "payment-service";
+    public static final String PRODUCT = "product-service";
+
+    private final ClientResilienceProperties properties;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final ThreadPoolBulkheadRegistry threadPoolBulkheadRegistry;
+    private final TimeLimiterRegistry timeLimiterRegistry;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Guard> guards = new ConcurrentHashMap<>();
+
+    public ClientCallGuard(ClientResilienceProperties properties,
+                           CircuitBreakerRegistry circuitBreakerRegistry,
+                           BulkheadRegistry bulkheadRegistry,
+                           ThreadPoolBulkheadRegistry threadPoolBulkheadRegistry,
+                           TimeLimiterRegistry timeLimiterRegistry,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.threadPoolBulkheadRegistry = threadPoolBulkheadRegistry;
+        this.timeLimiterRegistry = timeLimiterRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 受保护地执行一次调用。熔断时抛出 {@link CallNotPermittedException}，舱壁已满抛出
+     * {@link BulkheadFullException}，超时抛出 {@link ClientTimeoutException}，其余异常原样抛出
+     */
+    public <T> T call(String client, Supplier<T> call) {
+        Guard guard = guards.computeIfAbsent(client, this::createGuard);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            T result = guard.circuitBreaker.executeSupplier(() -> guard.execute(call));
+            outcome = "success";
+            return result;
+        } catch (CallNotPermittedException e) {
+            outcome = "short_circuited";
+            throw e;
+        } catch (BulkheadFullException e) {
+            outcome = "rejected";
+            throw e;
+        } catch (ClientTimeoutException e) {
+            outcome = "timeout";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("order.client.calls")
+                    .description("Guarded calls to downstream services")
+                    .tag("client", client)
+                    .tag("outcome", outcome)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry));
+        }
+    }
+
+    public void run(String client, Runnable call) {
+        call(client, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * 熔断器打开或舱壁已满：请求没有发出，下游不会产生任何副作用（超时则不一定）
+     */
+    public static boolean isRejected(Throwable e) {
+        return e instanceof CallNotPermittedException || e instanceof BulkheadFullException;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (Guard guard : guards.values()) {
+            if (guard.threadPoolBulkhead != null) {
+                guard.threadPoolBulkhead.close();
+            }
+        }
+    }
+
+    private Guard createGuard(String client) {
+        ClientResilienceProperties.BulkheadType type = properties.bulkhead(client).getType();
+        Guard guard = type == ClientResilienceProperties.BulkheadType.THREAD_POOL
+                ? new Guard(client, circuitBreakerRegistry.circuitBreaker(client), null,
+                        threadPoolBulkheadRegistry.bulkhead(client), timeLimiterRegistry.timeLimiter(client))
+                : new Guard(client, circuitBreakerRegistry.circuitBreaker(client),
+                        bulkheadRegistry.bulkhead(client), null, null);
+        log.info("Guarding calls to {} with a {} bulkhead", client, type);
+        return guard;
+    }
+
+    private static final class Guard {
+        private final String client;
+        private final CircuitBreaker circuitBreaker;
+        private final Bulkhead bulkhead;
+        private final ThreadPoolBulkhead threadPoolBulkhead;
+        private final TimeLimiter timeLimiter;
+
+        private Guard(String client, CircuitBreaker circuitBreaker, Bulkhead bulkhead,
+                      ThreadPoolBulkhead threadPoolBulkhead, TimeLimiter timeLimiter) {
+            this.client = client;
+            this.circuitBreaker = circuitBreaker;
+            this.bulkhead = bulkhead;
+            this.threadPoolBulkhead = threadPoolBulkhead;
+            this.timeLimiter = timeLimiter;
+        }
+
+        private <T> T execute(Supplier<T> call) {
+            return threadPoolBulkhead != null ? executeInPool(call) : bulkhead.executeSupplier(call);
+        }
+
+        private <T> T executeInPool(Supplier<T> call) {
+            // 线程池与队列都满时 executeSupplier 直接抛出 BulkheadFullException
+            var future = threadPoolBulkhead.executeSupplier(call).toCompletableFuture();
+            try {
+                // 超时后调用方立即返回；池中线程继续等到该客户端的 Feign readTimeout 为止
+                return timeLimiter.executeFutureSupplier(() -> future);
+            } catch (TimeoutException e) {
+                throw new ClientTimeoutException(client, e);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Call to " + client + " failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.ecommerce.order.client;
+
+import feign.FeignException;
+
+import java.util.function.Predicate;
+
+/**
+ * 熔断器的失败判定（resilience4j.circuitbreaker record-failure-predicate）：
+ * 4xx 是下游对请求本身的业务拒绝（如库存不足），不计入失败率；
+ * 但 408 请求超时与 429 限流说明下游已过载，与 5xx、超时、连接失败一样计为失败
+ */
+public class DownstreamFailurePredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable e) {
+        if (e instanceof FeignException.FeignClientException) {
+            int status = ((FeignException) e).status();
+            return status == 408 || status == 429;
+        }
+        return true;
+    }
+}
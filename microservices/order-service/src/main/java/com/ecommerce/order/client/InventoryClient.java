@@ -1,9 +1,13 @@
 package com.ecommerce.order.client;
 
+import com.ecommerce.order.dto.checkout.StockAvailability;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
 import java.util.Map;
 
 @FeignClient(name = "inventory-service", url = "${app.inventory-service.url}")
@@ -12,6 +16,25 @@ public interface InventoryClient {
     @PostMapping("/api/inventory/reserve")
     Map<String, Object> reserveStock(@RequestBody Map<String, Object> request);
     
+    /**
+     * 整单预留：一次请求提交订单所有行（variantId -> 数量），库存服务全部成功或全部失败
+     */
+    @PostMapping("/api/inventory/reservations/batch/reserve")
+    List<Map<String, Object>> reserveStockBatch(@RequestParam("orderId") String orderId,
+                                                @RequestBody Map<Long, Integer> variantQuantities);
+    
     @PostMapping("/api/inventory/release")
     Map<String, Object> releaseStock(@RequestBody Map<String, Object> request);
+    
+    /**
+     * 取消订单的全部待确认预留（幂等，已取消或不存在时无操作）
+     */
+    @PostMapping("/api/inventory/reservations/batch/cancel")
+    void cancelReservations(@RequestParam("orderId") String orderId);
+    
+    /**
+     * 批量查询可用库存，每次最多 200 个 variant
+     */
+    @GetMapping("/api/inventory/availability")
+    List<StockAvailability> getAvailability(@RequestParam("ids") List<Long> variantIds);
 }
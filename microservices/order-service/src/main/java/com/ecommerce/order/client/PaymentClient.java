@@ -1,6 +1,8 @@
 package com.ecommerce.order.client;
 
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
@@ -12,6 +14,9 @@ public interface PaymentClient {
     @PostMapping("/api/payments/create")
     Map<String, Object> createPayment(@RequestBody Map<String, Object> paymentRequest);
     
+    @GetMapping("/api/payments/{orderNumber}")
+    Map<String, Object> getPayment(@PathVariable("orderNumber") String orderNumber);
+    
     @PostMapping("/api/payments/{orderNumber}/cancel")
-    Map<String, Object> cancelPayment(@RequestBody String orderNumber);
+    Map<String, Object> cancelPayment(@PathVariable("orderNumber") String orderNumber);
 }
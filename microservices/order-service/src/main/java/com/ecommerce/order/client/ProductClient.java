@@ -0,0 +1,18 @@
+package com.ecommerce.order.client;
+
+import com.ecommerce.order.dto.checkout.ProductPriceListResponse;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
+
+@FeignClient(name = "product-service", url = "${app.product-service.url}")
+public interface ProductClient {
+    
+    /**
+     * 批量查询商品当前售价，每次最多 200 个
+     */
+    @GetMapping("/api/products/prices")
+    ProductPriceListResponse getPrices(@RequestParam("ids") List<Long> productIds);
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.order.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 下游服务调用的隔离方式，按客户端名称（与 resilience4j 各实例同名）选择舱壁类型，
+ * 并发数、排队长度等在 resilience4j.bulkhead / resilience4j.thread-pool-bulkhead 下配置。
+ * SEMAPHORE：在调用方线程执行，限制并发数，超时由该客户端的 Feign readTimeout 保证；
+ * THREAD_POOL：在独立的有界线程池执行，调用方最多等待限时器的超时时间。
+ */
+@Component
+@ConfigurationProperties(prefix = "app.resilience")
+@Getter
+@Setter
+public class ClientResilienceProperties {
+    private Map<String, Bulkhead> clients = new HashMap<>();
+    
+    public Bulkhead bulkhead(String client) {
+        return clients.getOrDefault(client, new Bulkhead());
+    }
+    
+    public enum BulkheadType {
+        SEMAPHORE,
+        THREAD_POOL
+    }
+    
+    @Getter
+    @Setter
+    public static class Bulkhead {
+        private BulkheadType type = BulkheadType.SEMAPHORE;
+    }
+}
@@ -1,6 +1,9 @@
 package com.ecommerce.order.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -13,6 +16,12 @@ public class RabbitMQConfig {
     public static final String ORDER_CANCELLED_QUEUE = "order.cancelled.queue";
     public static final String ORDER_EXCHANGE = "order.exchange";
     
+    // 下单 saga：步骤命令与执行结果
+    public static final String CHECKOUT_COMMAND_QUEUE = "order.checkout.command.queue";
+    public static final String CHECKOUT_REPLY_QUEUE = "order.checkout.reply.queue";
+    public static final String CHECKOUT_COMMAND_ROUTING_KEY = "order.checkout.command";
+    public static final String CHECKOUT_REPLY_ROUTING_KEY = "order.checkout.reply";
+    
     @Bean
     public TopicExchange orderExchange() {
         return new TopicExchange(ORDER_EXCHANGE);
@@ -53,4 +62,33 @@ public class RabbitMQConfig {
                 .to(orderExchange())
                 .with("order.cancelled");
     }
+    
+    @Bean
+    public Queue checkoutCommandQueue() {
+        return new Queue(CHECKOUT_COMMAND_QUEUE, true);
+    }
+    
+    @Bean
+    public Queue checkoutReplyQueue() {
+        return new Queue(CHECKOUT_REPLY_QUEUE, true);
+    }
+    
+    @Bean
+    public Binding checkoutCommandBinding() {
+        return BindingBuilder.bind(checkoutCommandQueue())
+                .to(orderExchange())
+                .with(CHECKOUT_COMMAND_ROUTING_KEY);
+    }
+    
+    @Bean
+    public Binding checkoutReplyBinding() {
+        return BindingBuilder.bind(checkoutReplyQueue())
+                .to(orderExchange())
+                .with(CHECKOUT_REPLY_ROUTING_KEY);
+    }
+    
+    @Bean
+    public MessageConverter jsonMessageConverter(ObjectMapper objectMapper) {
+        return new Jackson2JsonMessageConverter(objectMapper);
+    }
 }
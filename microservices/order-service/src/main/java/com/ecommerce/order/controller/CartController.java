@@ -1,20 +1,21 @@
 package com.ecommerce.order.controller;
 
+import com.ecommerce.order.dto.checkout.ValidatedCartResponse;
 import com.ecommerce.order.dto.request.AddToCartRequest;
 import com.ecommerce.order.dto.request.UpdateCartItemRequest;
 import com.ecommerce.order.dto.response.CartResponse;
 import com.ecommerce.order.service.CartService;
+import com.ecommerce.order.service.CheckoutValidationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
 @RequestMapping("/api/cart")
 @RequiredArgsConstructor
-@Transactional
 public class CartController {
     private final CartService cartService;
+    private final CheckoutValidationService checkoutValidationService;
     
     @GetMapping("/items")
     public ResponseEntity<CartResponse> getCartItems(@RequestHeader("X-User-Id") Long userId) {
@@ -47,6 +48,15 @@ public class CartController {
         return ResponseEntity.ok(cart);
     }
     
+    /**
+     * 结账前按当前售价与库存重新校验购物车
+     */
+    @GetMapping("/validate")
+    public ResponseEntity<ValidatedCartResponse> validateCart(@RequestHeader("X-User-Id") Long userId) {
+        ValidatedCartResponse cart = checkoutValidationService.validateCart(userId);
+        return ResponseEntity.ok(cart);
+    }
+    
     @PostMapping("/clear")
     public ResponseEntity<Void> clearCart(@RequestHeader("X-User-Id") Long userId) {
         cartService.clearCart(userId);
@@ -1,9 +1,13 @@
 package com.ecommerce.order.controller;
 
+import com.ecommerce.order.dto.request.BulkStatusUpdateRequest;
 import com.ecommerce.order.dto.request.CreateOrderRequest;
 import com.ecommerce.order.dto.request.UpdateOrderStatusRequest;
+import com.ecommerce.order.dto.response.BulkStatusUpdateResponse;
+import com.ecommerce.order.dto.response.OrderPageResponse;
 import com.ecommerce.order.dto.response.OrderResponse;
 import com.ecommerce.order.model.enums.OrderStatus;
+import com.ecommerce.order.service.OrderQueryService;
 import com.ecommerce.order.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -25,6 +29,7 @@ import java.util.Map;
 public class OrderController {
     
     private final OrderService orderService;
+    private final OrderQueryService orderQueryService;
     
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody CreateOrderRequest request) {
@@ -102,6 +107,41 @@ public class OrderController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * 订单列表（keyset 分页，不返回总数）：首页不传游标，下一页传上一页返回的 nextCreatedAt/nextId
+     */
+    @GetMapping("/page")
+    public ResponseEntity<OrderPageResponse> getOrdersPage(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeCreatedAt,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "" + OrderQueryService.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean includeItems) {
+        OrderPageResponse page = orderQueryService.getOrders(beforeCreatedAt, beforeId, size, includeItems);
+        return ResponseEntity.ok(page);
+    }
+    
+    @GetMapping("/user/{userId}/page")
+    public ResponseEntity<OrderPageResponse> getOrdersByUserPage(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeCreatedAt,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "" + OrderQueryService.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean includeItems) {
+        OrderPageResponse page = orderQueryService.getOrdersByUser(userId, beforeCreatedAt, beforeId, size, includeItems);
+        return ResponseEntity.ok(page);
+    }
+    
+    @GetMapping("/status/{status}/page")
+    public ResponseEntity<OrderPageResponse> getOrdersByStatusPage(
+            @PathVariable OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeCreatedAt,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "" + OrderQueryService.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean includeItems) {
+        OrderPageResponse page = orderQueryService.getOrdersByStatus(status, beforeCreatedAt, beforeId, size, includeItems);
+        return ResponseEntity.ok(page);
+    }
+    
     @PutMapping("/{id}/status")
     public ResponseEntity<OrderResponse> updateOrderStatus(
             @PathVariable Long id,
@@ -111,6 +151,17 @@ public class OrderController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * 批量变更订单状态（如批量发货并回填物流单号），返回未变更的订单及其当前状态
+     */
+    @PostMapping("/status/bulk")
+    public ResponseEntity<BulkStatusUpdateResponse> updateOrderStatuses(
+            @Valid @RequestBody BulkStatusUpdateRequest request) {
+        
+        BulkStatusUpdateResponse response = orderService.updateOrderStatuses(request);
+        return ResponseEntity.ok(response);
+    }
+    
     @PostMapping("/{id}/cancel")
     public ResponseEntity<OrderResponse> cancelOrder(
             @PathVariable Long id,
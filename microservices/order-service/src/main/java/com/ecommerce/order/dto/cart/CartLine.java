@@ -0,0 +1,30 @@
+package com.ecommerce.order.dto.cart;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Redis 购物车中的一行。
+ * 商品与数量分别是数量 hash 的字段和值（HINCRBY 原子累加），其余展示信息以 JSON 存在明细 hash 中；
+ * addedAt 只用于保持加入顺序。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartLine {
+    @JsonIgnore
+    private Long productId;
+    @JsonIgnore
+    private Integer quantity;
+    private String productName;
+    private String imageUrl;
+    private BigDecimal price;
+    private String weight;
+    private long addedAt;
+}
@@ -0,0 +1,16 @@
+package com.ecommerce.order.dto.cart;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 购物车在 Redis 中的一致快照；version 每次写入递增，落库后据此判断期间是否又有修改
+ */
+@Data
+@AllArgsConstructor
+public class CartSnapshot {
+    private long version;
+    private List<CartLine> lines;
+}
@@ -0,0 +1,23 @@
+package com.ecommerce.order.dto.checkout;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品服务返回的当前售价
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPrice {
+    private Long productId;
+    private String name;
+    private BigDecimal price;
+    private String mainImageUrl;
+    private Boolean isActive;
+}
@@ -0,0 +1,15 @@
+package com.ecommerce.order.dto.checkout;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 商品服务的统一响应包装（ApiResponse）
+ */
+@Data
+public class ProductPriceListResponse {
+    private boolean success;
+    private String message;
+    private List<ProductPrice> data;
+}
@@ -0,0 +1,19 @@
+package com.ecommerce.order.dto.checkout;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 库存服务返回的可用库存快照
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAvailability {
+    private Long variantId;
+    private Integer availableStock;
+    private String status;
+}
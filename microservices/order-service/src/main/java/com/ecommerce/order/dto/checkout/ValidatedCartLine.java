@@ -0,0 +1,30 @@
+package com.ecommerce.order.dto.checkout;
+
+import com.ecommerce.order.model.enums.CartLineIssue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 按当前售价与库存重新校验后的购物车行；cartPrice 是加入购物车时的价格，unitPrice 是当前售价
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValidatedCartLine {
+    private Long productId;
+    private String productName;
+    private String imageUrl;
+    private String weight;
+    private Integer quantity;
+    private BigDecimal cartPrice;
+    private BigDecimal unitPrice;
+    private BigDecimal lineTotal;
+    private Integer availableStock;
+    private List<CartLineIssue> issues;
+}
@@ -0,0 +1,26 @@
+package com.ecommerce.order.dto.checkout;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 结账前的购物车校验结果；valid 为 false 时需要用户确认价格变化或调整数量。
+ * stockChecked 为 false 表示库存检查未开启或库存服务不可用（已按配置降级）。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValidatedCartResponse {
+    private Long userId;
+    private List<ValidatedCartLine> lines;
+    private Integer totalItems;
+    private BigDecimal subtotal;
+    private boolean valid;
+    private boolean stockChecked;
+}
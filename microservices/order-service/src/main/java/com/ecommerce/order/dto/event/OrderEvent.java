@@ -0,0 +1,33 @@
+package com.ecommerce.order.dto.event;
+
+import com.ecommerce.order.model.enums.OrderEventType;
+import com.ecommerce.order.model.enums.OrderStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * order.exchange 上的订单事件消息体，只序列化该类事件用到的字段。
+ * 投递至少一次：消费方按消息 messageId（outbox 行 id）去重，按 occurredAt 判断先后
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderEvent {
+    private OrderEventType type;
+    private String orderNumber;
+    private Long userId;
+    private String guestEmail;
+    private BigDecimal totalAmount;
+    private OrderStatus previousStatus;
+    private OrderStatus status;
+    private String reason;
+    private LocalDateTime occurredAt;
+}
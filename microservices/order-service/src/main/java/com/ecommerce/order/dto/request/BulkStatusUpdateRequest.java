@@ -0,0 +1,30 @@
+package com.ecommerce.order.dto.request;
+
+import com.ecommerce.order.model.enums.OrderStatus;
+import lombok.Data;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+@Data
+public class BulkStatusUpdateRequest {
+    @NotNull(message = "Status is required")
+    private OrderStatus status;
+    
+    private String notes;
+    
+    @NotEmpty(message = "Orders are required")
+    @Valid
+    private List<Item> orders;
+    
+    @Data
+    public static class Item {
+        @NotBlank(message = "Order number is required")
+        private String orderNumber;
+        
+        private String trackingNumber;
+    }
+}
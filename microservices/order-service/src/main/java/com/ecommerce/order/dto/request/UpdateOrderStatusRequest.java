@@ -13,4 +13,7 @@ public class UpdateOrderStatusRequest {
     private String notes;
     
     private String trackingNumber;
+    
+    // 客户端读取订单时的版本号；提供时订单已被修改则拒绝（409），不提供时并发冲突自动重试
+    private Integer expectedVersion;
 }
@@ -0,0 +1,31 @@
+package com.ecommerce.order.dto.response;
+
+import com.ecommerce.order.model.enums.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量状态变更结果：rejected 为未变更的订单及其当前状态（订单不存在时 currentStatus 为空）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusUpdateResponse {
+    private OrderStatus status;
+    private int requested;
+    private int updated;
+    private List<Rejection> rejected;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rejection {
+        private String orderNumber;
+        private OrderStatus currentStatus;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ecommerce.order.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 按 (createdAt, id) 倒序的 keyset 分页结果，下一页以 nextCreatedAt/nextId 作为 beforeCreatedAt/beforeId 请求
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPageResponse {
+    private List<OrderSummaryResponse> orders;
+    private LocalDateTime nextCreatedAt;
+    private Long nextId;
+    private boolean hasNext;
+}
@@ -1,6 +1,7 @@
 package com.ecommerce.order.dto.response;
 
 import com.ecommerce.order.model.Address;
+import com.ecommerce.order.model.enums.CheckoutState;
 import com.ecommerce.order.model.enums.OrderStatus;
 import com.ecommerce.order.model.enums.PaymentMethod;
 import com.ecommerce.order.model.enums.PaymentStatus;
@@ -26,6 +27,7 @@ public class OrderResponse {
     private Address shippingAddress;
     private PaymentMethod paymentMethod;
     private PaymentStatus paymentStatus;
+    private CheckoutState checkoutState;
     private String paymentId;
     private String shippingMethod;
     private String trackingNumber;
@@ -40,4 +42,5 @@ public class OrderResponse {
     private List<OrderItemResponse> orderItems;
     private List<OrderStatusHistoryResponse> statusHistory;
     private boolean guestOrder;
+    private Integer version;
 }
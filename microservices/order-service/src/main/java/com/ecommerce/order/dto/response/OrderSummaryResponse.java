@@ -0,0 +1,26 @@
+package com.ecommerce.order.dto.response;
+
+import com.ecommerce.order.model.enums.OrderStatus;
+import com.ecommerce.order.model.enums.PaymentStatus;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单列表行；items 只在请求明细时返回
+ */
+@Data
+public class OrderSummaryResponse {
+    private Long id;
+    private String orderNumber;
+    private Long userId;
+    private String guestEmail;
+    private OrderStatus status;
+    private BigDecimal totalAmount;
+    private String currency;
+    private PaymentStatus paymentStatus;
+    private LocalDateTime createdAt;
+    private List<OrderItemResponse> items;
+}
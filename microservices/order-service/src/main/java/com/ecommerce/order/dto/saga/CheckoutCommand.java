@@ -0,0 +1,28 @@
+package com.ecommerce.order.dto.saga;
+
+import com.ecommerce.order.model.enums.CheckoutStep;
+import com.ecommerce.order.model.enums.PaymentMethod;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * saga 步骤命令：携带执行该步骤所需的全部数据，执行方不再回查订单库
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutCommand {
+    private String orderNumber;
+    private CheckoutStep step;
+    private int attempt;
+    private Map<Long, Integer> variantQuantities;
+    private BigDecimal amount;
+    private String currency;
+    private PaymentMethod paymentMethod;
+}
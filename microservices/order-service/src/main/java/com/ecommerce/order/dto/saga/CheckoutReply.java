@@ -0,0 +1,22 @@
+package com.ecommerce.order.dto.saga;
+
+import com.ecommerce.order.model.enums.CheckoutStep;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * saga 步骤执行结果；retryable 表示失败可能是暂时的（超时、5xx），可以重发同一步骤
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutReply {
+    private String orderNumber;
+    private CheckoutStep step;
+    private boolean success;
+    private boolean retryable;
+    private String reason;
+}
@@ -0,0 +1,10 @@
+package com.ecommerce.order.exception;
+
+/**
+ * 下游服务调用超过限时器的超时时间，调用方已放弃等待
+ */
+public class ClientTimeoutException extends RuntimeException {
+    public ClientTimeoutException(String client, Throwable cause) {
+        super("Call to " + client + " timed out", cause);
+    }
+}
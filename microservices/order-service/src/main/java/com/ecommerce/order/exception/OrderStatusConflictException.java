@@ -0,0 +1,10 @@
+package com.ecommerce.order.exception;
+
+/**
+ * 订单在读取后被并发修改（版本号不一致），且无法自动重试
+ */
+public class OrderStatusConflictException extends RuntimeException {
+    public OrderStatusConflictException(String message) {
+        super(message);
+    }
+}
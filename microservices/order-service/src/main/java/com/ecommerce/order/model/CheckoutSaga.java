@@ -0,0 +1,75 @@
+package com.ecommerce.order.model;
+
+import com.ecommerce.order.model.enums.CheckoutState;
+import com.ecommerce.order.model.enums.CheckoutStep;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "checkout_saga")
+public class CheckoutSaga {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "checkout_saga_id_seq")
+    @SequenceGenerator(name = "checkout_saga_id_seq", sequenceName = "checkout_saga_id_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "order_id", unique = true, nullable = false)
+    private Long orderId;
+    
+    @Column(name = "order_number", unique = true, nullable = false)
+    private String orderNumber;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false)
+    private CheckoutState state = CheckoutState.RUNNING;
+    
+    // 当前等待回复的步骤，终态时为空
+    @Enumerated(EnumType.STRING)
+    @Column(name = "step")
+    private CheckoutStep step;
+    
+    // 可能持有库存预留（预留请求超时也视为持有，补偿时释放）
+    @Column(name = "inventory_held", nullable = false)
+    private boolean inventoryHeld;
+    
+    @Column(name = "payment_initialized", nullable = false)
+    private boolean paymentInitialized;
+    
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+    
+    @Column(name = "failure_reason")
+    private String failureReason;
+    
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @Version
+    private Integer version;
+    
+    public boolean isActive() {
+        return state == CheckoutState.RUNNING || state == CheckoutState.COMPENSATING;
+    }
+    
+    public void advanceTo(CheckoutStep nextStep) {
+        this.step = nextStep;
+        this.attempts = 0;
+    }
+    
+    public void finish(CheckoutState finalState) {
+        this.state = finalState;
+        this.step = null;
+    }
+}
@@ -19,8 +19,10 @@ import java.util.List;
 @Entity
 @Table(name = "orders")
 public class Order {
+    // 序列每次预分配 50 个 id（pooled 优化器），下单时订单、明细、状态历史可以批量插入
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_id_seq")
+    @SequenceGenerator(name = "orders_id_seq", sequenceName = "orders_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "order_number", unique = true, nullable = false)
@@ -128,13 +130,6 @@ public class Order {
     @Version
     private Integer version;
     
-    @PrePersist
-    protected void onCreate() {
-        if (orderNumber == null) {
-            orderNumber = "ORD" + System.currentTimeMillis() + (int)(Math.random() * 1000);
-        }
-    }
-    
     public void addOrderItem(OrderItem item) {
         orderItems.add(item);
         item.setOrder(this);
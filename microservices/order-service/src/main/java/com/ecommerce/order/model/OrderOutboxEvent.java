@@ -0,0 +1,43 @@
+package com.ecommerce.order.model;
+
+import com.ecommerce.order.model.enums.OrderEventType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 待发布的订单事件，payload 为写入时已序列化好的消息体
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "order_outbox")
+public class OrderOutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_outbox_id_seq")
+    @SequenceGenerator(name = "order_outbox_id_seq", sequenceName = "order_outbox_id_seq", allocationSize = 50)
+    private Long id;
+    
+    /**
+     * 排序键，插入时由数据库从不预分配的序列取号；同一订单内随写入先后递增
+     */
+    @Column(name = "seq", insertable = false, updatable = false)
+    private Long seq;
+    
+    @Column(name = "order_number", nullable = false)
+    private String orderNumber;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false)
+    private OrderEventType eventType;
+    
+    @Column(name = "payload", nullable = false)
+    private String payload;
+    
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,7 @@
+package com.ecommerce.order.model.enums;
+
+public enum CartLineIssue {
+    PRICE_CHANGED,       // 当前售价与加入购物车时不同
+    UNAVAILABLE,         // 商品不存在或已下架
+    INSUFFICIENT_STOCK   // 可用库存不足
+}
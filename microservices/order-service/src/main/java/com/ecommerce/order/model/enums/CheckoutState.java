@@ -0,0 +1,9 @@
+package com.ecommerce.order.model.enums;
+
+public enum CheckoutState {
+    RUNNING,        // 执行中
+    COMPLETED,      // 已完成（库存已预留，支付已创建）
+    COMPENSATING,   // 补偿中
+    COMPENSATED,    // 已补偿
+    FAILED          // 补偿失败，需要人工处理
+}
@@ -0,0 +1,8 @@
+package com.ecommerce.order.model.enums;
+
+public enum CheckoutStep {
+    RESERVE_INVENTORY,      // 预留库存
+    INITIALIZE_PAYMENT,     // 创建支付
+    CANCEL_PAYMENT,         // 补偿：取消支付
+    RELEASE_INVENTORY       // 补偿：释放库存
+}
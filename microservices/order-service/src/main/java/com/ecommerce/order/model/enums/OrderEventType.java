@@ -0,0 +1,17 @@
+package com.ecommerce.order.model.enums;
+
+public enum OrderEventType {
+    ORDER_CREATED("order.created"),
+    ORDER_STATUS_UPDATED("order.status.update"),
+    ORDER_CANCELLED("order.cancelled");
+    
+    private final String routingKey;
+    
+    OrderEventType(String routingKey) {
+        this.routingKey = routingKey;
+    }
+    
+    public String getRoutingKey() {
+        return routingKey;
+    }
+}
@@ -2,6 +2,8 @@ package com.ecommerce.order.repository;
 
 import com.ecommerce.order.model.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
@@ -9,4 +11,10 @@ import java.util.Optional;
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUserId(Long userId);
     void deleteByUserId(Long userId);
-}
\ No newline at end of file
+    
+    /**
+     * 购物车连同明细一次查出，加载到 Redis 与落库时使用
+     */
+    @Query("SELECT DISTINCT c FROM Cart c LEFT JOIN FETCH c.items WHERE c.userId = :userId")
+    Optional<Cart> findWithItemsByUserId(@Param("userId") Long userId);
+}
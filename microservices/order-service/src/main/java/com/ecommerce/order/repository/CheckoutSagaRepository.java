@@ -0,0 +1,38 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.model.CheckoutSaga;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CheckoutSagaRepository extends JpaRepository<CheckoutSaga, Long> {
+    
+    Optional<CheckoutSaga> findByOrderNumber(String orderNumber);
+    
+    Optional<CheckoutSaga> findByOrderId(Long orderId);
+    
+    /**
+     * 处理步骤回复前锁定 saga，同一订单的回复与超时重发串行执行
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CheckoutSaga s WHERE s.orderNumber = :orderNumber")
+    Optional<CheckoutSaga> findByOrderNumberForUpdate(@Param("orderNumber") String orderNumber);
+    
+    /**
+     * 领取超过 before 仍未推进的进行中 saga，多个副本并发执行时互不重叠
+     */
+    @Query(value = "SELECT * FROM checkout_saga " +
+                   "WHERE state IN ('RUNNING', 'COMPENSATING') AND updated_at < :before " +
+                   "ORDER BY updated_at " +
+                   "LIMIT :limit " +
+                   "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<CheckoutSaga> claimStale(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
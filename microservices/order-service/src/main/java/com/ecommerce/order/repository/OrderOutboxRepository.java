@@ -0,0 +1,25 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.model.OrderOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OrderOutboxRepository extends JpaRepository<OrderOutboxEvent, Long> {
+    
+    /**
+     * 领取一批待发布事件，每个订单只取 seq 最小的一条：同一订单的后续事件要等前一条发布并删除后才能被领取，
+     * 多个副本并发中继时既互不重叠，也不会并行发送同一订单的两条事件
+     */
+    @Query(value = "SELECT * FROM order_outbox o " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM order_outbox e " +
+                   "                  WHERE e.order_number = o.order_number AND e.seq < o.seq) " +
+                   "ORDER BY o.seq " +
+                   "LIMIT :limit " +
+                   "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OrderOutboxEvent> claimBatch(@Param("limit") int limit);
+}
@@ -0,0 +1,85 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.enums.OrderStatus;
+import com.ecommerce.order.model.enums.PaymentStatus;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 订单列表的读模型：只查询列表需要的列，按 (created_at, id) 倒序做 keyset 分页，不做 COUNT。
+ * 游标为上一页最后一行的 (created_at, id)，查询 limit 条（调用方多取一条判断是否有下一页）。
+ */
+public interface OrderQueryRepository extends Repository<Order, Long> {
+    
+    String SUMMARY_COLUMNS =
+            "SELECT o.id AS \"id\", o.order_number AS \"orderNumber\", o.user_id AS \"userId\", " +
+            "       o.guest_email AS \"guestEmail\", o.status AS \"status\", o.total_amount AS \"totalAmount\", " +
+            "       o.currency AS \"currency\", o.payment_status AS \"paymentStatus\", o.created_at AS \"createdAt\" " +
+            "FROM orders o ";
+    
+    String KEYSET_ORDER = "ORDER BY o.created_at DESC, o.id DESC LIMIT :limit";
+    
+    @Query(value = SUMMARY_COLUMNS +
+                   "WHERE (o.created_at, o.id) < (:beforeCreatedAt, :beforeId) " +
+                   KEYSET_ORDER, nativeQuery = true)
+    List<OrderSummaryView> findPage(@Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                    @Param("beforeId") Long beforeId,
+                                    @Param("limit") int limit);
+    
+    @Query(value = SUMMARY_COLUMNS +
+                   "WHERE o.user_id = :userId AND (o.created_at, o.id) < (:beforeCreatedAt, :beforeId) " +
+                   KEYSET_ORDER, nativeQuery = true)
+    List<OrderSummaryView> findPageByUserId(@Param("userId") Long userId,
+                                            @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                            @Param("beforeId") Long beforeId,
+                                            @Param("limit") int limit);
+    
+    @Query(value = SUMMARY_COLUMNS +
+                   "WHERE o.status = :status AND (o.created_at, o.id) < (:beforeCreatedAt, :beforeId) " +
+                   KEYSET_ORDER, nativeQuery = true)
+    List<OrderSummaryView> findPageByStatus(@Param("status") String status,
+                                            @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                            @Param("beforeId") Long beforeId,
+                                            @Param("limit") int limit);
+    
+    /**
+     * 一次取回一页订单的全部明细
+     */
+    @Query(value = "SELECT i.order_id AS \"orderId\", i.id AS \"id\", i.product_id AS \"productId\", " +
+                   "       i.product_name AS \"productName\", i.sku AS \"sku\", i.unit_price AS \"unitPrice\", " +
+                   "       i.quantity AS \"quantity\", i.total_price AS \"totalPrice\", i.image_url AS \"imageUrl\" " +
+                   "FROM order_items i WHERE i.order_id IN (:orderIds) " +
+                   "ORDER BY i.order_id, i.id", nativeQuery = true)
+    List<OrderItemView> findItemsByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+    
+    interface OrderSummaryView {
+        Long getId();
+        String getOrderNumber();
+        Long getUserId();
+        String getGuestEmail();
+        OrderStatus getStatus();
+        BigDecimal getTotalAmount();
+        String getCurrency();
+        PaymentStatus getPaymentStatus();
+        LocalDateTime getCreatedAt();
+    }
+    
+    interface OrderItemView {
+        Long getOrderId();
+        Long getId();
+        Long getProductId();
+        String getProductName();
+        String getSku();
+        BigDecimal getUnitPrice();
+        Integer getQuantity();
+        BigDecimal getTotalPrice();
+        String getImageUrl();
+    }
+}
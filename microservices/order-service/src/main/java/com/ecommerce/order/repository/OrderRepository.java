@@ -9,13 +9,49 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     
+    /**
+     * 批量状态变更的一个分块（一条语句）：按 id 顺序锁定当前状态允许变更的订单，集合更新状态、
+     * 对应时间戳与物流单号（为空时保留原值），版本号加一，并为每个订单插入一条状态历史。
+     * 只返回实际变更的订单及其原状态；锁等待后状态已变化的订单会被重新判断。
+     * 订单号与物流单号以 ASCII 31（单元分隔符）分隔、按行对齐。
+     */
+    String TRANSITION_BATCH_SQL =
+            "WITH request AS ( " +
+            "    SELECT * FROM unnest( " +
+            "        string_to_array(:orderNumbers, chr(31)), " +
+            "        string_to_array(:trackingNumbers, chr(31)) " +
+            "    ) AS r(order_number, tracking_number) " +
+            "), locked AS ( " +
+            "    SELECT o.id, o.status AS previous_status, r.tracking_number " +
+            "    FROM orders o JOIN request r ON r.order_number = o.order_number " +
+            "    WHERE o.status IN (:fromStatuses) " +
+            "    ORDER BY o.id " +
+            "    FOR UPDATE OF o " +
+            "), updated AS ( " +
+            "    UPDATE orders o SET " +
+            "        status = :status, " +
+            "        tracking_number = COALESCE(NULLIF(l.tracking_number, ''), o.tracking_number), " +
+            "        confirmed_at = CASE WHEN :status = 'CONFIRMED' THEN CURRENT_TIMESTAMP ELSE o.confirmed_at END, " +
+            "        shipped_at = CASE WHEN :status = 'SHIPPED' THEN CURRENT_TIMESTAMP ELSE o.shipped_at END, " +
+            "        delivered_at = CASE WHEN :status = 'DELIVERED' THEN CURRENT_TIMESTAMP ELSE o.delivered_at END, " +
+            "        version = COALESCE(o.version, 0) + 1 " +
+            "    FROM locked l " +
+            "    WHERE o.id = l.id " +
+            "    RETURNING o.id, o.order_number, l.previous_status " +
+            "), history AS ( " +
+            "    INSERT INTO order_status_history (order_id, status, notes, created_by) " +
+            "    SELECT id, :status, NULLIF(:notes, ''), :createdBy FROM updated " +
+            ") " +
+            "SELECT order_number AS \"orderNumber\", previous_status AS \"previousStatus\" " +
+            "FROM updated ORDER BY id";
+    
     Optional<Order> findByOrderNumber(String orderNumber);
     
     Page<Order> findByUserId(Long userId, Pageable pageable);
@@ -24,13 +60,27 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     
     Page<Order> findByGuestEmail(String email, Pageable pageable);
     
-    @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.status = 'DELIVERED' AND o.createdAt BETWEEN :startDate AND :endDate")
-    BigDecimal getTotalRevenueByDateRange(@Param("startDate") LocalDateTime startDate, 
-                                         @Param("endDate") LocalDateTime endDate);
+    boolean existsByOrderNumber(String orderNumber);
     
-    @Query("SELECT COUNT(o) FROM Order o WHERE o.createdAt BETWEEN :startDate AND :endDate")
-    Long countOrdersByDateRange(@Param("startDate") LocalDateTime startDate, 
-                               @Param("endDate") LocalDateTime endDate);
+    @Query(value = TRANSITION_BATCH_SQL, nativeQuery = true)
+    List<TransitionedOrderView> transitionBatch(@Param("orderNumbers") String orderNumbers,
+                                                @Param("trackingNumbers") String trackingNumbers,
+                                                @Param("fromStatuses") Collection<String> fromStatuses,
+                                                @Param("status") String status,
+                                                @Param("notes") String notes,
+                                                @Param("createdBy") String createdBy);
     
-    boolean existsByOrderNumber(String orderNumber);
+    @Query(value = "SELECT order_number AS \"orderNumber\", status AS \"status\" " +
+                   "FROM orders WHERE order_number IN (:orderNumbers)", nativeQuery = true)
+    List<OrderStatusView> findStatusesByOrderNumbers(@Param("orderNumbers") Collection<String> orderNumbers);
+    
+    interface TransitionedOrderView {
+        String getOrderNumber();
+        OrderStatus getPreviousStatus();
+    }
+    
+    interface OrderStatusView {
+        String getOrderNumber();
+        OrderStatus getStatus();
+    }
 }
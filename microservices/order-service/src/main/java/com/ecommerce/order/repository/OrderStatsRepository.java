@@ -0,0 +1,141 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.enums.OrderStatus;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单统计的小时/日桶：桶按订单 created_at 划分，维度为 (status, currency)
+ */
+public interface OrderStatsRepository extends Repository<Order, Long> {
+    
+    long ROLLUP_LOCK_KEY = 7_310_015L;
+    
+    /**
+     * 重算 (since, until] 内有变动的订单所在的小时桶：写入新值，删除桶内已不存在的 (status, currency) 组合。
+     * 整桶重算是幂等的，重复处理同一区间没有副作用。返回重算的桶数。
+     */
+    String ROLLUP_HOURLY_SQL =
+            "WITH touched AS ( " +
+            "    SELECT DISTINCT date_trunc('hour', created_at) AS bucket_start FROM orders " +
+            "    WHERE updated_at > :since AND updated_at <= :until AND created_at IS NOT NULL " +
+            "), fresh AS ( " +
+            "    SELECT t.bucket_start, o.status, COALESCE(o.currency, 'CNY') AS currency, " +
+            "           COUNT(*) AS order_count, SUM(o.total_amount) AS revenue " +
+            "    FROM touched t JOIN orders o " +
+            "      ON o.created_at >= t.bucket_start AND o.created_at < t.bucket_start + INTERVAL '1 hour' " +
+            "    GROUP BY t.bucket_start, o.status, COALESCE(o.currency, 'CNY') " +
+            "), upserted AS ( " +
+            "    INSERT INTO order_stats_hourly (bucket_start, status, currency, order_count, revenue, updated_at) " +
+            "    SELECT bucket_start, status, currency, order_count, revenue, CURRENT_TIMESTAMP FROM fresh " +
+            "    ON CONFLICT (bucket_start, status, currency) DO UPDATE SET " +
+            "        order_count = EXCLUDED.order_count, revenue = EXCLUDED.revenue, updated_at = EXCLUDED.updated_at " +
+            "    RETURNING 1 " +
+            "), removed AS ( " +
+            "    DELETE FROM order_stats_hourly h USING touched t " +
+            "    WHERE h.bucket_start = t.bucket_start " +
+            "      AND NOT EXISTS (SELECT 1 FROM fresh f " +
+            "                      WHERE f.bucket_start = h.bucket_start AND f.status = h.status AND f.currency = h.currency) " +
+            "    RETURNING 1 " +
+            ") " +
+            "SELECT COUNT(*) FROM touched";
+    
+    /**
+     * 用小时桶重算 (since, until] 内有变动的订单所在的日桶，须在小时桶重算之后执行。返回重算的桶数。
+     */
+    String ROLLUP_DAILY_SQL =
+            "WITH touched AS ( " +
+            "    SELECT DISTINCT date_trunc('day', created_at) AS bucket_start FROM orders " +
+            "    WHERE updated_at > :since AND updated_at <= :until AND created_at IS NOT NULL " +
+            "), fresh AS ( " +
+            "    SELECT t.bucket_start, h.status, h.currency, SUM(h.order_count) AS order_count, SUM(h.revenue) AS revenue " +
+            "    FROM touched t JOIN order_stats_hourly h " +
+            "      ON h.bucket_start >= t.bucket_start AND h.bucket_start < t.bucket_start + INTERVAL '1 day' " +
+            "    GROUP BY t.bucket_start, h.status, h.currency " +
+            "), upserted AS ( " +
+            "    INSERT INTO order_stats_daily (bucket_start, status, currency, order_count, revenue, updated_at) " +
+            "    SELECT bucket_start, status, currency, order_count, revenue, CURRENT_TIMESTAMP FROM fresh " +
+            "    ON CONFLICT (bucket_start, status, currency) DO UPDATE SET " +
+            "        order_count = EXCLUDED.order_count, revenue = EXCLUDED.revenue, updated_at = EXCLUDED.updated_at " +
+            "    RETURNING 1 " +
+            "), removed AS ( " +
+            "    DELETE FROM order_stats_daily d USING touched t " +
+            "    WHERE d.bucket_start = t.bucket_start " +
+            "      AND NOT EXISTS (SELECT 1 FROM fresh f " +
+            "                      WHERE f.bucket_start = d.bucket_start AND f.status = d.status AND f.currency = d.currency) " +
+            "    RETURNING 1 " +
+            ") " +
+            "SELECT COUNT(*) FROM touched";
+    
+    /**
+     * 区间统计：整天部分取日桶，首尾不足一天的整点部分取小时桶，首尾不足一小时的零头直接扫 orders。
+     * 边界由调用方按 start <= hourFrom <= dayFrom <= dayTo <= hourTo <= end 对齐。
+     */
+    String RANGE_STATS_SQL =
+            "SELECT s.status AS \"status\", s.currency AS \"currency\", " +
+            "       SUM(s.order_count) AS \"orderCount\", SUM(s.revenue) AS \"revenue\" " +
+            "FROM ( " +
+            "    SELECT status, currency, order_count, revenue FROM order_stats_daily " +
+            "    WHERE bucket_start >= :dayFrom AND bucket_start < :dayTo " +
+            "    UNION ALL " +
+            "    SELECT status, currency, order_count, revenue FROM order_stats_hourly " +
+            "    WHERE (bucket_start >= :hourFrom AND bucket_start < :dayFrom) " +
+            "       OR (bucket_start >= :dayTo AND bucket_start < :hourTo) " +
+            "    UNION ALL " +
+            "    SELECT status, COALESCE(currency, 'CNY'), 1, total_amount FROM orders " +
+            "    WHERE (created_at >= :start AND created_at < :hourFrom) " +
+            "       OR (created_at >= :hourTo AND created_at <= :end) " +
+            ") s " +
+            "GROUP BY s.status, s.currency " +
+            "ORDER BY s.status, s.currency";
+    
+    /**
+     * 多副本只允许一个执行增量汇总，锁随事务释放
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(" + ROLLUP_LOCK_KEY + ")", nativeQuery = true)
+    boolean tryRollupLock();
+    
+    @Query(value = "SELECT last_updated_at FROM order_stats_watermark WHERE id = 1", nativeQuery = true)
+    LocalDateTime findWatermark();
+    
+    @Modifying
+    @Query(value = "UPDATE order_stats_watermark SET last_updated_at = :watermark WHERE id = 1", nativeQuery = true)
+    int saveWatermark(@Param("watermark") LocalDateTime watermark);
+    
+    @Query(value = "SELECT MAX(updated_at) FROM orders", nativeQuery = true)
+    LocalDateTime findMaxUpdatedAt();
+    
+    /**
+     * 水位之后最早的变动，积压时从这里开始分段，跳过没有订单变动的时段（如初始水位 1970-01-01）
+     */
+    @Query(value = "SELECT MIN(updated_at) FROM orders WHERE updated_at > :watermark", nativeQuery = true)
+    LocalDateTime findMinUpdatedAtAfter(@Param("watermark") LocalDateTime watermark);
+    
+    @Query(value = ROLLUP_HOURLY_SQL, nativeQuery = true)
+    long rollupHourly(@Param("since") LocalDateTime since, @Param("until") LocalDateTime until);
+    
+    @Query(value = ROLLUP_DAILY_SQL, nativeQuery = true)
+    long rollupDaily(@Param("since") LocalDateTime since, @Param("until") LocalDateTime until);
+    
+    @Query(value = RANGE_STATS_SQL, nativeQuery = true)
+    List<StatsRow> sumRange(@Param("start") LocalDateTime start,
+                            @Param("hourFrom") LocalDateTime hourFrom,
+                            @Param("dayFrom") LocalDateTime dayFrom,
+                            @Param("dayTo") LocalDateTime dayTo,
+                            @Param("hourTo") LocalDateTime hourTo,
+                            @Param("end") LocalDateTime end);
+    
+    interface StatsRow {
+        OrderStatus getStatus();
+        String getCurrency();
+        Long getOrderCount();
+        BigDecimal getRevenue();
+    }
+}
@@ -1,132 +1,242 @@
 package com.ecommerce.order.service;
 
+import com.ecommerce.order.dto.cart.CartLine;
+import com.ecommerce.order.dto.cart.CartSnapshot;
 import com.ecommerce.order.dto.request.AddToCartRequest;
 import com.ecommerce.order.dto.request.UpdateCartItemRequest;
 import com.ecommerce.order.dto.response.CartItemResponse;
 import com.ecommerce.order.dto.response.CartResponse;
+import com.ecommerce.order.exception.OrderValidationException;
 import com.ecommerce.order.model.Cart;
 import com.ecommerce.order.model.CartItem;
 import com.ecommerce.order.repository.CartRepository;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * 购物车以 Redis 为主存储（见 {@link CartStore}），读写都不占用数据库连接。
+ * 数据库中的 carts / cart_items 只是持久副本：购物车首次访问（或在 Redis 中过期后）从数据库加载，
+ * 修改后由定时任务在购物车空闲或用户结账时异步写回，同一购物车的连续修改合并为一次落库。
+ * 购物车行以商品 id 标识，接口中的 itemId 即商品 id。
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
-@Transactional // 在类级别添加事务注解
 public class CartService {
+
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final CartStore cartStore;
     private final CartRepository cartRepository;
-    // 移除了未使用的 cartItemRepository
-    
-    public Cart getOrCreateCart(Long userId) {
-        return cartRepository.findByUserId(userId)
-                .orElseGet(() -> {
-                    Cart newCart = new Cart(userId);
-                    return cartRepository.save(newCart);
-                });
+    private final TransactionTemplate transactionTemplate;
+    private final int flushBatchSize;
+    private final long flushLockTtlMs;
+
+    public CartService(CartStore cartStore,
+                       CartRepository cartRepository,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${app.cart.flush-batch-size:200}") int flushBatchSize,
+                       @Value("${app.cart.flush-lock-ttl-ms:30000}") long flushLockTtlMs) {
+        this.cartStore = cartStore;
+        this.cartRepository = cartRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flushBatchSize = flushBatchSize;
+        this.flushLockTtlMs = flushLockTtlMs;
     }
-    
-    @Transactional(readOnly = true)
+
     public CartResponse getCart(Long userId) {
-        Cart cart = getOrCreateCart(userId);
-        return convertToResponse(cart);
+        return convertToResponse(userId, withLoadedCart(userId, () -> cartStore.read(userId)));
+    }
+
+    /**
+     * 购物车当前内容（按加入顺序），供结账校验使用
+     */
+    public List<CartLine> getCartLines(Long userId) {
+        return withLoadedCart(userId, () -> cartStore.read(userId)).getLines();
     }
-    
+
     public CartResponse addToCart(Long userId, AddToCartRequest request) {
-        Cart cart = getOrCreateCart(userId);
-        
-        // 检查商品是否已存在
-        Optional<CartItem> existingItem = cart.getItems().stream()
-                .filter(item -> item.getProductId().equals(request.getProductId()))
-                .findFirst();
-        
-        if (existingItem.isPresent()) {
-            // 更新数量
-            CartItem item = existingItem.get();
-            item.setQuantity(item.getQuantity() + request.getQuantity());
-        } else {
-            // 添加新商品
-            CartItem newItem = new CartItem(
-                cart,
-                request.getProductId(),
-                request.getProductName(),
-                request.getImageUrl(),
-                request.getPrice(),
-                request.getQuantity(),
-                request.getWeight()
-            );
-            cart.addItem(newItem);
+        if (request.getProductId() == null || request.getQuantity() == null) {
+            throw new OrderValidationException("商品和数量不能为空");
         }
-        
-        Cart savedCart = cartRepository.save(cart);
-        return convertToResponse(savedCart);
+        CartLine line = CartLine.builder()
+                .productId(request.getProductId())
+                .productName(request.getProductName())
+                .imageUrl(request.getImageUrl())
+                .price(request.getPrice())
+                .weight(request.getWeight())
+                .addedAt(System.currentTimeMillis())
+                .build();
+        return convertToResponse(userId, withLoadedCart(userId, () -> cartStore.add(userId, line, request.getQuantity())));
     }
-    
+
     public CartResponse updateCartItem(Long userId, Long itemId, UpdateCartItemRequest request) {
-        Cart cart = getOrCreateCart(userId);
-        
-        CartItem item = cart.getItems().stream()
-                .filter(cartItem -> cartItem.getId().equals(itemId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("购物车商品不存在"));
-        
-        if (request.getQuantity() <= 0) {
-            cart.getItems().remove(item);
-        } else {
-            item.setQuantity(request.getQuantity());
+        if (request.getQuantity() == null) {
+            throw new OrderValidationException("数量不能为空");
         }
-        
-        Cart savedCart = cartRepository.save(cart);
-        return convertToResponse(savedCart);
+        return convertToResponse(userId,
+                withLoadedCart(userId, () -> cartStore.setQuantity(userId, itemId, request.getQuantity())));
     }
-    
+
     public CartResponse removeCartItem(Long userId, Long itemId) {
-        Cart cart = getOrCreateCart(userId);
-        
-        boolean removed = cart.getItems().removeIf(item -> item.getId().equals(itemId));
-        if (removed) {
-            Cart savedCart = cartRepository.save(cart);
-            return convertToResponse(savedCart);
-        }
-        throw new RuntimeException("购物车商品不存在");
+        return convertToResponse(userId, withLoadedCart(userId, () -> cartStore.remove(userId, itemId)));
     }
-    
+
     public void clearCart(Long userId) {
-        Cart cart = getOrCreateCart(userId);
-        cart.getItems().clear();
+        cartStore.clear(userId);
+    }
+
+    /**
+     * 结账时安排购物车尽快落库；Redis 不可用不影响下单
+     */
+    public void persistAtCheckout(Long userId) {
+        try {
+            cartStore.markDue(userId);
+        } catch (Exception e) {
+            log.warn("Failed to schedule cart persistence for user {} at checkout: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * 把空闲超时或已结账的购物车写回数据库。多副本通过 Redis 锁保证同一时刻只有一个在落库；
+     * 落库期间购物车又被修改时，确认失败并重新等待空闲。
+     */
+    @Scheduled(fixedDelayString = "${app.cart.flush-interval-ms:5000}")
+    public void flushIdleCarts() {
+        String token;
+        try {
+            token = cartStore.tryLock(flushLockTtlMs);
+        } catch (Exception e) {
+            log.warn("Cart flush skipped, Redis unavailable: {}", e.getMessage());
+            return;
+        }
+        if (token == null) {
+            return; // 其他副本正在落库
+        }
+        try {
+            Set<String> due;
+            int failed = 0;
+            do {
+                due = cartStore.findDue(System.currentTimeMillis(), flushBatchSize);
+                for (String userId : due) {
+                    if (!flush(Long.valueOf(userId))) {
+                        failed++;
+                    }
+                }
+            } while (due.size() == flushBatchSize && failed == 0);
+        } finally {
+            cartStore.unlock(token);
+        }
+    }
+
+    private boolean flush(Long userId) {
+        try {
+            CartSnapshot snapshot = cartStore.read(userId);
+            if (snapshot != null) {
+                transactionTemplate.executeWithoutResult(status -> persist(userId, snapshot.getLines()));
+            }
+            cartStore.acknowledge(userId, snapshot != null ? snapshot.getVersion() : -1, System.currentTimeMillis());
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to persist cart for user {}, will retry: {}", userId, e.getMessage());
+            return false;
+        }
+    }
+
+    private void persist(Long userId, List<CartLine> lines) {
+        Cart cart = cartRepository.findWithItemsByUserId(userId).orElseGet(() -> new Cart(userId));
+        cart.clearItems();
+        for (CartLine line : lines) {
+            cart.addItem(new CartItem(
+                cart,
+                line.getProductId(),
+                line.getProductName(),
+                line.getImageUrl(),
+                line.getPrice(),
+                line.getQuantity(),
+                line.getWeight()
+            ));
+        }
         cartRepository.save(cart);
     }
-    
-    private CartResponse convertToResponse(Cart cart) {
-        List<CartItemResponse> itemResponses = cart.getItems().stream()
+
+    /**
+     * 执行 Redis 操作；购物车尚未加载时从数据库加载后重试
+     */
+    private CartSnapshot withLoadedCart(Long userId, Supplier<CartSnapshot> operation) {
+        for (int attempt = 0; attempt < MAX_LOAD_ATTEMPTS; attempt++) {
+            CartSnapshot snapshot = operation.get();
+            if (snapshot != null) {
+                return snapshot;
+            }
+            load(userId);
+        }
+        throw new IllegalStateException("Cart could not be loaded for user: " + userId);
+    }
+
+    private void load(Long userId) {
+        List<CartLine> lines = new ArrayList<>();
+        cartRepository.findWithItemsByUserId(userId).ifPresent(cart -> {
+            List<CartItem> items = new ArrayList<>(cart.getItems());
+            items.sort(Comparator.comparing(CartItem::getId));
+            // 数据库不记录加入时间，按明细 id 的顺序保持原有排列
+            for (int i = 0; i < items.size(); i++) {
+                CartItem item = items.get(i);
+                lines.add(CartLine.builder()
+                        .productId(item.getProductId())
+                        .quantity(item.getQuantity())
+                        .productName(item.getProductName())
+                        .imageUrl(item.getImageUrl())
+                        .price(item.getPrice())
+                        .weight(item.getWeight())
+                        .addedAt(i)
+                        .build());
+            }
+        });
+        if (cartStore.load(userId, lines)) {
+            log.debug("Loaded cart for user {} into Redis with {} lines", userId, lines.size());
+        }
+    }
+
+    /**
+     * 每个用户只有一个购物车，响应中的购物车 id 即用户 id
+     */
+    private CartResponse convertToResponse(Long userId, CartSnapshot snapshot) {
+        List<CartItemResponse> itemResponses = snapshot.getLines().stream()
                 .map(this::convertToItemResponse)
                 .collect(Collectors.toList());
-        
-        Integer totalItems = cart.getItems().stream()
-                .mapToInt(CartItem::getQuantity)
+
+        Integer totalItems = snapshot.getLines().stream()
+                .mapToInt(CartLine::getQuantity)
                 .sum();
-        
+
         return new CartResponse(
-            cart.getId(),
-            cart.getUserId(),
+            userId,
+            userId,
             itemResponses,
             totalItems
         );
     }
-    
-    private CartItemResponse convertToItemResponse(CartItem item) {
+
+    private CartItemResponse convertToItemResponse(CartLine line) {
         return new CartItemResponse(
-            item.getId(),
-            item.getProductId(),
-            item.getProductName(),
-            item.getImageUrl(),
-            item.getPrice(),
-            item.getQuantity(),
-            item.getWeight()
+            line.getProductId(),
+            line.getProductId(),
+            line.getProductName(),
+            line.getImageUrl(),
+            line.getPrice(),
+            line.getQuantity(),
+            line.getWeight()
         );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,300 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.cart.CartLine;
+import com.ecommerce.order.dto.cart.CartSnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 购物车的 Redis 存储。
+ * 每个用户两个 hash：数量 hash（商品 id -> 数量，HINCRBY 原子累加）与明细 hash（商品 id -> 展示信息 JSON，
+ * 外加 @version 字段，每次写入递增）；明细 hash 存在即表示购物车已从数据库加载。
+ * 每次写入刷新两个 key 的 TTL，长期无人访问的购物车由 Redis 自动过期；
+ * 同时把用户放入待落库的有序集合（分数为到期时间），由 {@link CartService} 在空闲或结账时异步写回数据库。
+ * 脚本同时操作用户 key 与待落库集合，要求单实例 Redis（与当前部署一致）。
+ */
+@Component
+public class CartStore {
+
+    private static final String KEY_PREFIX = "cart:";
+    private static final String DUE_KEY = KEY_PREFIX + "due";
+    private static final String FLUSH_LOCK_KEY = KEY_PREFIX + "flush-lock";
+    private static final String VERSION_FIELD = "@version";
+    private static final String MISSING_ITEM = "-1";
+
+    /**
+     * 公共函数：snapshot 返回 {version, 商品 id, 数量, 明细 JSON, ...}；
+     * touch 递增版本、刷新 TTL，并在用户尚未到期落库时把到期时间推迟到 now + idle
+     */
+    private static final String FUNCTIONS =
+            "local function snapshot(quantities, lines) " +
+            "  local out = { redis.call('HGET', lines, '@version') or '0' } " +
+            "  local items = redis.call('HGETALL', quantities) " +
+            "  for i = 1, #items, 2 do " +
+            "    out[#out + 1] = items[i] " +
+            "    out[#out + 1] = items[i + 1] " +
+            "    out[#out + 1] = redis.call('HGET', lines, items[i]) or '{}' " +
+            "  end " +
+            "  return out " +
+            "end " +
+            "local function touch() " +
+            "  redis.call('HINCRBY', KEYS[2], '@version', 1) " +
+            "  redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "  redis.call('EXPIRE', KEYS[2], ARGV[2]) " +
+            "  local due = redis.call('ZSCORE', KEYS[3], ARGV[1]) " +
+            "  if not due or tonumber(due) > tonumber(ARGV[3]) then " +
+            "    redis.call('ZADD', KEYS[3], tonumber(ARGV[3]) + tonumber(ARGV[4]), ARGV[1]) " +
+            "  end " +
+            "end ";
+
+    /*
+     * 写入脚本的约定：KEYS = {数量 hash, 明细 hash, 待落库集合}，ARGV = {userId, ttl 秒, now 毫秒, idle 毫秒, ...}；
+     * 购物车未加载时返回空列表，商品不存在时返回 {'-1'}，否则返回写入后的快照
+     */
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ADD_SCRIPT = new DefaultRedisScript<>(FUNCTIONS +
+            "if redis.call('EXISTS', KEYS[2]) == 0 then return {} end " +
+            "local quantity = redis.call('HINCRBY', KEYS[1], ARGV[5], ARGV[6]) " +
+            "if quantity <= 0 then " +
+            "  redis.call('HDEL', KEYS[1], ARGV[5]) " +
+            "  redis.call('HDEL', KEYS[2], ARGV[5]) " +
+            "else " +
+            "  redis.call('HSETNX', KEYS[2], ARGV[5], ARGV[7]) " +
+            "end " +
+            "touch() " +
+            "return snapshot(KEYS[1], KEYS[2])", List.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SET_QUANTITY_SCRIPT = new DefaultRedisScript<>(FUNCTIONS +
+            "if redis.call('EXISTS', KEYS[2]) == 0 then return {} end " +
+            "if redis.call('HEXISTS', KEYS[1], ARGV[5]) == 0 then return {'-1'} end " +
+            "if tonumber(ARGV[6]) <= 0 then " +
+            "  redis.call('HDEL', KEYS[1], ARGV[5]) " +
+            "  redis.call('HDEL', KEYS[2], ARGV[5]) " +
+            "else " +
+            "  redis.call('HSET', KEYS[1], ARGV[5], ARGV[6]) " +
+            "end " +
+            "touch() " +
+            "return snapshot(KEYS[1], KEYS[2])", List.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> REMOVE_SCRIPT = new DefaultRedisScript<>(FUNCTIONS +
+            "if redis.call('EXISTS', KEYS[2]) == 0 then return {} end " +
+            "if redis.call('HDEL', KEYS[1], ARGV[5]) == 0 then return {'-1'} end " +
+            "redis.call('HDEL', KEYS[2], ARGV[5]) " +
+            "touch() " +
+            "return snapshot(KEYS[1], KEYS[2])", List.class);
+
+    /**
+     * 清空不需要先加载：结果与数据库中的旧内容无关。保留版本号，保证落库确认不会把清空前的快照误认为最新
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLEAR_SCRIPT = new DefaultRedisScript<>(FUNCTIONS +
+            "local version = redis.call('HGET', KEYS[2], '@version') or '0' " +
+            "redis.call('DEL', KEYS[1], KEYS[2]) " +
+            "redis.call('HSET', KEYS[2], '@version', version) " +
+            "touch() " +
+            "return snapshot(KEYS[1], KEYS[2])", List.class);
+
+    /**
+     * 读取并刷新 TTL；KEYS = {数量 hash, 明细 hash}，ARGV = {ttl 秒}
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> READ_SCRIPT = new DefaultRedisScript<>(FUNCTIONS +
+            "if redis.call('EXISTS', KEYS[2]) == 0 then return {} end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[1]) " +
+            "return snapshot(KEYS[1], KEYS[2])", List.class);
+
+    /**
+     * 用数据库内容初始化购物车，已加载则不覆盖；ARGV = {ttl 秒, 商品 id, 数量, 明细 JSON, ...}
+     */
+    private static final RedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[2]) == 1 then return 0 end " +
+            "redis.call('HSET', KEYS[2], '@version', '0') " +
+            "for i = 2, #ARGV, 3 do " +
+            "  redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) " +
+            "  redis.call('HSET', KEYS[2], ARGV[i], ARGV[i + 2]) " +
+            "end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[1]) " +
+            "return 1", Long.class);
+
+    /**
+     * 落库确认：版本未变（或购物车已过期）则移出待落库集合；期间又有写入则重新等待空闲。
+     * KEYS = {明细 hash, 待落库集合}，ARGV = {userId, 落库的版本, 下次到期时间}
+     */
+    private static final RedisScript<Long> ACKNOWLEDGE_SCRIPT = new DefaultRedisScript<>(
+            "local version = redis.call('HGET', KEYS[1], '@version') " +
+            "if not version or version == ARGV[2] then return redis.call('ZREM', KEYS[2], ARGV[1]) end " +
+            "redis.call('ZADD', KEYS[2], ARGV[3], ARGV[1]) " +
+            "return 0", Long.class);
+
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final long ttlSeconds;
+    private final long idleMillis;
+
+    public CartStore(StringRedisTemplate redisTemplate,
+                     ObjectMapper objectMapper,
+                     @Value("${app.cart.ttl-seconds:2592000}") long ttlSeconds,
+                     @Value("${app.cart.idle-seconds:300}") long idleSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttlSeconds = ttlSeconds;
+        this.idleMillis = Duration.ofSeconds(idleSeconds).toMillis();
+    }
+
+    /**
+     * 返回购物车快照，尚未从数据库加载时返回 null
+     */
+    public CartSnapshot read(Long userId) {
+        return parse(redisTemplate.execute(READ_SCRIPT, List.of(quantitiesKey(userId), linesKey(userId)),
+                String.valueOf(ttlSeconds)));
+    }
+
+    /**
+     * 原子累加商品数量（delta 可为负，减到 0 及以下时删除该行）；商品首次加入时记录展示信息
+     */
+    public CartSnapshot add(Long userId, CartLine line, int delta) {
+        return write(ADD_SCRIPT, userId, String.valueOf(line.getProductId()), String.valueOf(delta), serialize(line));
+    }
+
+    public CartSnapshot setQuantity(Long userId, Long productId, int quantity) {
+        return write(SET_QUANTITY_SCRIPT, userId, String.valueOf(productId), String.valueOf(quantity));
+    }
+
+    public CartSnapshot remove(Long userId, Long productId) {
+        return write(REMOVE_SCRIPT, userId, String.valueOf(productId));
+    }
+
+    public CartSnapshot clear(Long userId) {
+        return write(CLEAR_SCRIPT, userId);
+    }
+
+    public boolean load(Long userId, List<CartLine> lines) {
+        List<String> args = new ArrayList<>(lines.size() * 3 + 1);
+        args.add(String.valueOf(ttlSeconds));
+        for (CartLine line : lines) {
+            args.add(String.valueOf(line.getProductId()));
+            args.add(String.valueOf(line.getQuantity()));
+            args.add(serialize(line));
+        }
+        Long loaded = redisTemplate.execute(LOAD_SCRIPT, List.of(quantitiesKey(userId), linesKey(userId)), args.toArray());
+        return loaded != null && loaded == 1;
+    }
+
+    /**
+     * 立即安排落库（结账时调用）
+     */
+    public void markDue(Long userId) {
+        redisTemplate.opsForZSet().add(DUE_KEY, String.valueOf(userId), 0);
+    }
+
+    public Set<String> findDue(long nowMillis, int limit) {
+        Set<String> due = redisTemplate.opsForZSet().rangeByScore(DUE_KEY, Double.NEGATIVE_INFINITY, nowMillis, 0, limit);
+        return due != null ? due : Collections.emptySet();
+    }
+
+    public boolean acknowledge(Long userId, long version, long nowMillis) {
+        Long removed = redisTemplate.execute(ACKNOWLEDGE_SCRIPT, List.of(linesKey(userId), DUE_KEY),
+                String.valueOf(userId), String.valueOf(version), String.valueOf(nowMillis + idleMillis));
+        return removed != null && removed == 1;
+    }
+
+    public long dueSize() {
+        Long size = redisTemplate.opsForZSet().size(DUE_KEY);
+        return size != null ? size : 0;
+    }
+
+    public void evict(Long userId) {
+        redisTemplate.delete(List.of(quantitiesKey(userId), linesKey(userId)));
+        redisTemplate.opsForZSet().remove(DUE_KEY, String.valueOf(userId));
+    }
+
+    /**
+     * 获取跨副本的落库锁，成功返回锁令牌，失败返回 null
+     */
+    public String tryLock(long ttlMs) {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(FLUSH_LOCK_KEY, token, Duration.ofMillis(ttlMs));
+        return Boolean.TRUE.equals(acquired) ? token : null;
+    }
+
+    public void unlock(String token) {
+        redisTemplate.execute(UNLOCK_SCRIPT, List.of(FLUSH_LOCK_KEY), token);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private CartSnapshot write(RedisScript<List> script, Long userId, String... extraArgs) {
+        List<String> args = new ArrayList<>(4 + extraArgs.length);
+        args.add(String.valueOf(userId));
+        args.add(String.valueOf(ttlSeconds));
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(String.valueOf(idleMillis));
+        Collections.addAll(args, extraArgs);
+        return parse(redisTemplate.execute(script, List.of(quantitiesKey(userId), linesKey(userId), DUE_KEY), args.toArray()));
+    }
+
+    @SuppressWarnings("rawtypes")
+    private CartSnapshot parse(List result) {
+        if (result == null || result.isEmpty()) {
+            return null;
+        }
+        String version = result.get(0).toString();
+        if (MISSING_ITEM.equals(version)) {
+            throw new RuntimeException("购物车商品不存在");
+        }
+        List<CartLine> lines = new ArrayList<>(result.size() / 3);
+        for (int i = 1; i + 2 < result.size(); i += 3) {
+            CartLine line = deserialize(result.get(i + 2).toString());
+            line.setProductId(Long.valueOf(result.get(i).toString()));
+            line.setQuantity(Integer.valueOf(result.get(i + 1).toString()));
+            lines.add(line);
+        }
+        lines.sort(Comparator.comparingLong(CartLine::getAddedAt).thenComparing(CartLine::getProductId));
+        return new CartSnapshot(Long.parseLong(version), lines);
+    }
+
+    private String quantitiesKey(Long userId) {
+        return KEY_PREFIX + userId + ":quantities";
+    }
+
+    private String linesKey(Long userId) {
+        return KEY_PREFIX + userId + ":lines";
+    }
+
+    private String serialize(CartLine line) {
+        try {
+            return objectMapper.writeValueAsString(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize cart line: " + line.getProductId(), e);
+        }
+    }
+
+    private CartLine deserialize(String json) {
+        try {
+            return objectMapper.readValue(json, CartLine.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to deserialize cart line: " + json, e);
+        }
+    }
+}
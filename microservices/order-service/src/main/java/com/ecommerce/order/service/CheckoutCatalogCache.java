@@ -0,0 +1,110 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.checkout.ProductPrice;
+import com.ecommerce.order.dto.checkout.StockAvailability;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 结账校验用的商品售价与可用库存短 TTL 缓存（Redis，所有副本共享），按商品缓存。
+ * 售价变化不频繁，TTL 为数十秒；库存 TTL 保持在秒级，真正的扣减仍以下单后的预留为准。
+ * Redis 不可用时直接回源。
+ */
+@Slf4j
+@Component
+public class CheckoutCatalogCache {
+
+    private static final String PRICE_PREFIX = "checkout:price:";
+    private static final String STOCK_PREFIX = "checkout:stock:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final long priceTtlMs;
+    private final long stockTtlMs;
+
+    public CheckoutCatalogCache(StringRedisTemplate redisTemplate,
+                                ObjectMapper objectMapper,
+                                @Value("${app.checkout.price-cache-ttl-ms:30000}") long priceTtlMs,
+                                @Value("${app.checkout.stock-cache-ttl-ms:2000}") long stockTtlMs) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.priceTtlMs = priceTtlMs;
+        this.stockTtlMs = stockTtlMs;
+    }
+
+    public Map<Long, ProductPrice> getPrices(List<Long> productIds) {
+        return getAll(PRICE_PREFIX, productIds, ProductPrice.class, priceTtlMs);
+    }
+
+    public void putPrices(Map<Long, ProductPrice> prices) {
+        putAll(PRICE_PREFIX, prices, priceTtlMs);
+    }
+
+    public Map<Long, StockAvailability> getAvailability(List<Long> variantIds) {
+        return getAll(STOCK_PREFIX, variantIds, StockAvailability.class, stockTtlMs);
+    }
+
+    public void putAvailability(Map<Long, StockAvailability> availability) {
+        putAll(STOCK_PREFIX, availability, stockTtlMs);
+    }
+
+    /**
+     * 一次 MGET 读取，只返回命中的 id
+     */
+    private <T> Map<Long, T> getAll(String prefix, List<Long> ids, Class<T> type, long ttlMs) {
+        Map<Long, T> hits = new HashMap<>();
+        if (ids.isEmpty() || ttlMs <= 0) {
+            return hits;
+        }
+        try {
+            List<String> keys = ids.stream().map(id -> prefix + id).collect(Collectors.toList());
+            List<String> values = redisTemplate.opsForValue().multiGet(keys);
+            for (int i = 0; values != null && i < ids.size(); i++) {
+                if (values.get(i) != null) {
+                    hits.put(ids.get(i), objectMapper.readValue(values.get(i), type));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Checkout cache read failed, calling upstream services: {}", e.getMessage());
+        }
+        return hits;
+    }
+
+    /**
+     * 通过管道一次写入
+     */
+    private <T> void putAll(String prefix, Map<Long, T> values, long ttlMs) {
+        if (values.isEmpty() || ttlMs <= 0) {
+            return;
+        }
+        try {
+            Map<byte[], byte[]> entries = new HashMap<>();
+            for (Map.Entry<Long, T> entry : values.entrySet()) {
+                entries.put(bytes(prefix + entry.getKey()), bytes(objectMapper.writeValueAsString(entry.getValue())));
+            }
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                entries.forEach((key, value) -> connection.stringCommands()
+                        .set(key, value, Expiration.milliseconds(ttlMs), RedisStringCommands.SetOption.UPSERT));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Checkout cache write failed: {}", e.getMessage());
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,352 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.config.InventoryConfig;
+import com.ecommerce.order.config.RabbitMQConfig;
+import com.ecommerce.order.dto.saga.CheckoutCommand;
+import com.ecommerce.order.dto.saga.CheckoutReply;
+import com.ecommerce.order.model.CheckoutSaga;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.model.OrderStatusHistory;
+import com.ecommerce.order.model.enums.CheckoutState;
+import com.ecommerce.order.model.enums.CheckoutStep;
+import com.ecommerce.order.model.enums.OrderStatus;
+import com.ecommerce.order.repository.CheckoutSagaRepository;
+import com.ecommerce.order.repository.OrderRepository;
+import com.ecommerce.order.repository.OrderStatusHistoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 下单 saga 编排：订单以 PENDING 落库后立即提交，库存预留与支付创建作为异步步骤，
+ * 通过 order.exchange 上的命令/回复消息逐步推进；任一步骤最终失败时取消订单并按相反顺序补偿
+ * （取消支付、释放库存）。
+ *
+ * saga 状态与订单在同一个库中，步骤命令只在事务提交后发出；回复丢失或命令未送达时，
+ * 由定时任务按超时重发当前步骤，步骤执行方对重复命令是幂等的。
+ */
+@Slf4j
+@Service
+public class CheckoutSagaOrchestrator {
+
+    private final CheckoutSagaRepository sagaRepository;
+    private final OrderRepository orderRepository;
+    private final OrderStatusHistoryRepository statusHistoryRepository;
+    private final InventoryConfig inventoryConfig;
+    // 状态机在取消订单时会回调本类补偿，这里延迟获取以避免构造器循环依赖
+    private final ObjectProvider<OrderStatusTransitionService> orderStatusTransitionService;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long stepTimeoutMs;
+    private final int maxAttempts;
+    private final int batchSize;
+
+    public CheckoutSagaOrchestrator(CheckoutSagaRepository sagaRepository,
+                                    OrderRepository orderRepository,
+                                    OrderStatusHistoryRepository statusHistoryRepository,
+                                    InventoryConfig inventoryConfig,
+                                    ObjectProvider<OrderStatusTransitionService> orderStatusTransitionService,
+                                    RabbitTemplate rabbitTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.checkout.step-timeout-ms:30000}") long stepTimeoutMs,
+                                    @Value("${app.checkout.max-attempts:5}") int maxAttempts,
+                                    @Value("${app.checkout.batch-size:100}") int batchSize) {
+        this.sagaRepository = sagaRepository;
+        this.orderRepository = orderRepository;
+        this.statusHistoryRepository = statusHistoryRepository;
+        this.inventoryConfig = inventoryConfig;
+        this.orderStatusTransitionService = orderStatusTransitionService;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stepTimeoutMs = stepTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 在下单事务中登记 saga，事务提交后发出第一步命令
+     */
+    public CheckoutSaga start(Order order) {
+        CheckoutSaga saga = new CheckoutSaga();
+        saga.setOrderId(order.getId());
+        saga.setOrderNumber(order.getOrderNumber());
+        if (inventoryConfig.isReservationAllowed()) {
+            // 预留请求一旦发出就可能生效，从此刻起视为持有库存
+            saga.setInventoryHeld(true);
+            saga.advanceTo(CheckoutStep.RESERVE_INVENTORY);
+        } else {
+            log.info("Inventory reservation is disabled via configuration, skipping inventory operations");
+            saga.advanceTo(CheckoutStep.INITIALIZE_PAYMENT);
+        }
+        CheckoutSaga savedSaga = sagaRepository.save(saga);
+        dispatchAfterCommit(savedSaga, order);
+        return savedSaga;
+    }
+
+    /**
+     * 取消订单前锁定其 saga 行。所有同时写 saga 与订单的事务都先锁 saga 再写订单，避免互相等待形成死锁。
+     * 没有 saga 记录的历史订单按“库存与支付都可能存在”处理。
+     */
+    public CheckoutSaga lockForCompensation(Order order) {
+        return sagaRepository.findByOrderNumberForUpdate(order.getOrderNumber())
+                .orElseGet(() -> legacySaga(order));
+    }
+
+    /**
+     * 订单已在调用方事务中取消（saga 行已由 {@link #lockForCompensation} 锁定）：
+     * 把 saga 转入补偿，提交后取消支付并释放库存
+     */
+    public void compensate(CheckoutSaga saga, Order order, String reason) {
+        if (saga.getState() == CheckoutState.COMPENSATING || saga.getState() == CheckoutState.COMPENSATED) {
+            log.debug("Checkout saga for order {} is already compensating", order.getOrderNumber());
+            return;
+        }
+        startCompensation(saga, order, reason);
+    }
+
+    public CheckoutState getState(Long orderId) {
+        return sagaRepository.findByOrderId(orderId)
+                .map(CheckoutSaga::getState)
+                .orElse(null);
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.CHECKOUT_REPLY_QUEUE)
+    @Transactional
+    public void onReply(CheckoutReply reply) {
+        CheckoutSaga saga = sagaRepository.findByOrderNumberForUpdate(reply.getOrderNumber()).orElse(null);
+        if (saga == null) {
+            log.warn("Received checkout reply for unknown order {}", reply.getOrderNumber());
+            return;
+        }
+        Order order = orderRepository.findById(saga.getOrderId())
+                .orElseThrow(() -> new IllegalStateException("Order not found for checkout saga: " + saga.getOrderNumber()));
+
+        if (reply.getStep() != saga.getStep() || !saga.isActive()) {
+            if (reply.isSuccess()) {
+                onLateSuccess(saga, order, reply.getStep());
+            } else {
+                log.debug("Ignoring stale {} reply for order {}", reply.getStep(), reply.getOrderNumber());
+            }
+            return;
+        }
+
+        if (reply.isSuccess()) {
+            onStepSucceeded(saga, order);
+        } else {
+            onStepFailed(saga, order, reply);
+        }
+    }
+
+    /**
+     * 超时重发：领取长时间未推进的 saga，重发当前步骤；超过最大次数时正向步骤转入补偿，补偿步骤标记为失败
+     */
+    @Scheduled(fixedDelayString = "${app.checkout.resend-interval-ms:10000}")
+    public void resendStale() {
+        LocalDateTime before = LocalDateTime.now().minusNanos(stepTimeoutMs * 1_000_000L);
+        Integer resent = transactionTemplate.execute(status -> {
+            int count = 0;
+            for (CheckoutSaga saga : sagaRepository.claimStale(before, batchSize)) {
+                Order order = orderRepository.findById(saga.getOrderId()).orElse(null);
+                if (order == null) {
+                    saga.setFailureReason("订单不存在");
+                    saga.finish(CheckoutState.FAILED);
+                    continue;
+                }
+                saga.setAttempts(saga.getAttempts() + 1);
+                if (saga.getAttempts() >= maxAttempts) {
+                    giveUp(saga, order, saga.getStep() + " 步骤超时");
+                } else {
+                    dispatchAfterCommit(saga, order);
+                    count++;
+                }
+            }
+            return count;
+        });
+        if (resent != null && resent > 0) {
+            log.info("Resent {} stale checkout steps", resent);
+        }
+    }
+
+    private void onStepSucceeded(CheckoutSaga saga, Order order) {
+        switch (saga.getStep()) {
+            case RESERVE_INVENTORY:
+                addStatusHistory(order, OrderStatus.PENDING, "库存已预留");
+                saga.advanceTo(CheckoutStep.INITIALIZE_PAYMENT);
+                dispatchAfterCommit(saga, order);
+                break;
+            case INITIALIZE_PAYMENT:
+                saga.setPaymentInitialized(true);
+                saga.finish(CheckoutState.COMPLETED);
+                addStatusHistory(order, OrderStatus.PENDING, "支付已创建，等待支付");
+                log.info("Checkout completed for order {}", order.getOrderNumber());
+                break;
+            case CANCEL_PAYMENT:
+                saga.setPaymentInitialized(false);
+                continueCompensation(saga, order);
+                break;
+            case RELEASE_INVENTORY:
+                saga.setInventoryHeld(false);
+                continueCompensation(saga, order);
+                break;
+        }
+    }
+
+    private void onStepFailed(CheckoutSaga saga, Order order, CheckoutReply reply) {
+        saga.setFailureReason(reply.getReason());
+        if (saga.getState() == CheckoutState.COMPENSATING || reply.isRetryable()) {
+            // 保持当前步骤，由超时重发重试
+            log.warn("Checkout step {} failed for order {}, will retry: {}",
+                    saga.getStep(), order.getOrderNumber(), reply.getReason());
+            return;
+        }
+        if (saga.getStep() == CheckoutStep.RESERVE_INVENTORY && !inventoryConfig.isValidationEnabled()) {
+            log.warn("Inventory validation is disabled, continuing despite reservation failure for order {}",
+                    order.getOrderNumber());
+            saga.setInventoryHeld(false);
+            saga.advanceTo(CheckoutStep.INITIALIZE_PAYMENT);
+            dispatchAfterCommit(saga, order);
+            return;
+        }
+        giveUp(saga, order, reply.getReason());
+    }
+
+    /**
+     * 补偿开始后才到达的正向成功回复（命令与取消并发）：记下新持有的资源，必要时再补偿一次
+     */
+    private void onLateSuccess(CheckoutSaga saga, Order order, CheckoutStep step) {
+        if (saga.getState() != CheckoutState.COMPENSATING && saga.getState() != CheckoutState.COMPENSATED) {
+            return;
+        }
+        boolean acquired = false;
+        if (step == CheckoutStep.RESERVE_INVENTORY && !saga.isInventoryHeld()) {
+            saga.setInventoryHeld(true);
+            acquired = true;
+        } else if (step == CheckoutStep.INITIALIZE_PAYMENT && !saga.isPaymentInitialized()) {
+            saga.setPaymentInitialized(true);
+            acquired = true;
+        }
+        if (acquired && saga.getState() == CheckoutState.COMPENSATED) {
+            log.info("Late {} reply for cancelled order {}, compensating again", step, order.getOrderNumber());
+            saga.setState(CheckoutState.COMPENSATING);
+            continueCompensation(saga, order);
+        }
+    }
+
+    private void giveUp(CheckoutSaga saga, Order order, String reason) {
+        if (saga.getState() == CheckoutState.RUNNING) {
+            startCompensation(saga, order, reason);
+        } else {
+            saga.setFailureReason(reason);
+            saga.finish(CheckoutState.FAILED);
+            log.error("Checkout compensation failed for order {} after {} attempts: {}",
+                    order.getOrderNumber(), saga.getAttempts(), reason);
+        }
+    }
+
+    private void startCompensation(CheckoutSaga saga, Order order, String reason) {
+        saga.setState(CheckoutState.COMPENSATING);
+        saga.setFailureReason(reason);
+        // 经状态机取消：只有允许取消的状态才会变更，并照常写状态历史与取消事件
+        if (orderStatusTransitionService.getObject().cancelForCheckout(order, reason)) {
+            log.warn("Order {} cancelled by checkout saga: {}", order.getOrderNumber(), reason);
+        }
+        continueCompensation(saga, order);
+    }
+
+    /**
+     * 按与正向相反的顺序补偿：先取消支付，再释放库存
+     */
+    private void continueCompensation(CheckoutSaga saga, Order order) {
+        if (saga.isPaymentInitialized()) {
+            saga.advanceTo(CheckoutStep.CANCEL_PAYMENT);
+        } else if (saga.isInventoryHeld()) {
+            saga.advanceTo(CheckoutStep.RELEASE_INVENTORY);
+        } else {
+            saga.finish(CheckoutState.COMPENSATED);
+            log.info("Checkout compensated for order {}", order.getOrderNumber());
+            return;
+        }
+        dispatchAfterCommit(saga, order);
+    }
+
+    private CheckoutSaga legacySaga(Order order) {
+        CheckoutSaga saga = new CheckoutSaga();
+        saga.setOrderId(order.getId());
+        saga.setOrderNumber(order.getOrderNumber());
+        saga.setInventoryHeld(inventoryConfig.isInventoryOperationsEnabled());
+        saga.setPaymentInitialized(true);
+        saga.finish(CheckoutState.COMPLETED);
+        return sagaRepository.save(saga);
+    }
+
+    private void dispatchAfterCommit(CheckoutSaga saga, Order order) {
+        CheckoutCommand command = buildCommand(saga, order);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(command);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                send(command);
+            }
+        });
+    }
+
+    private void send(CheckoutCommand command) {
+        try {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.ORDER_EXCHANGE, RabbitMQConfig.CHECKOUT_COMMAND_ROUTING_KEY, command);
+        } catch (Exception e) {
+            // saga 已落库，超时重发会补发这条命令
+            log.warn("Failed to dispatch checkout step {} for order {}: {}",
+                    command.getStep(), command.getOrderNumber(), e.getMessage());
+        }
+    }
+
+    private CheckoutCommand buildCommand(CheckoutSaga saga, Order order) {
+        CheckoutCommand.CheckoutCommandBuilder command = CheckoutCommand.builder()
+                .orderNumber(order.getOrderNumber())
+                .step(saga.getStep())
+                .attempt(saga.getAttempts());
+        switch (saga.getStep()) {
+            case RESERVE_INVENTORY:
+                // 合并同一商品的多行，整单一次请求预留
+                Map<Long, Integer> variantQuantities = new TreeMap<>();
+                for (OrderItem item : order.getOrderItems()) {
+                    variantQuantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+                }
+                command.variantQuantities(variantQuantities);
+                break;
+            case INITIALIZE_PAYMENT:
+                command.amount(order.getTotalAmount())
+                        .currency(order.getCurrency())
+                        .paymentMethod(order.getPaymentMethod());
+                break;
+            default:
+                break;
+        }
+        return command.build();
+    }
+
+    private void addStatusHistory(Order order, OrderStatus status, String notes) {
+        OrderStatusHistory history = new OrderStatusHistory();
+        history.setOrder(order);
+        history.setStatus(status);
+        history.setNotes(notes);
+        statusHistoryRepository.save(history);
+    }
+}
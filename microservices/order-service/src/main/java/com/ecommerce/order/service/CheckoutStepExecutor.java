@@ -0,0 +1,124 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.client.ClientCallGuard;
+import com.ecommerce.order.client.InventoryClient;
+import com.ecommerce.order.client.PaymentClient;
+import com.ecommerce.order.config.InventoryConfig;
+import com.ecommerce.order.config.RabbitMQConfig;
+import com.ecommerce.order.dto.saga.CheckoutCommand;
+import com.ecommerce.order.dto.saga.CheckoutReply;
+import com.ecommerce.order.model.enums.CheckoutStep;
+import feign.FeignException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 执行 saga 步骤：消费步骤命令，调用库存/支付服务，把结果作为回复发回 order.exchange。
+ * 不访问订单库、不持有数据库连接；所有步骤都可重复执行（库存按订单号幂等，支付重发前先查询）。
+ * 下游调用经过 {@link ClientCallGuard}，下游变慢时消费线程不会被长时间占住。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CheckoutStepExecutor {
+    
+    private final InventoryClient inventoryClient;
+    private final PaymentClient paymentClient;
+    private final ClientCallGuard callGuard;
+    private final InventoryConfig inventoryConfig;
+    private final RabbitTemplate rabbitTemplate;
+    
+    @RabbitListener(queues = RabbitMQConfig.CHECKOUT_COMMAND_QUEUE, concurrency = "${app.checkout.step-concurrency:4-16}")
+    public void execute(CheckoutCommand command) {
+        CheckoutReply.CheckoutReplyBuilder reply = CheckoutReply.builder()
+                .orderNumber(command.getOrderNumber())
+                .step(command.getStep());
+        try {
+            switch (command.getStep()) {
+                case RESERVE_INVENTORY:
+                    callGuard.run(ClientCallGuard.INVENTORY,
+                            () -> inventoryClient.reserveStockBatch(command.getOrderNumber(), command.getVariantQuantities()));
+                    break;
+                case INITIALIZE_PAYMENT:
+                    initializePayment(command);
+                    break;
+                case CANCEL_PAYMENT:
+                    cancelPayment(command.getOrderNumber());
+                    break;
+                case RELEASE_INVENTORY:
+                    callGuard.run(ClientCallGuard.INVENTORY, () -> inventoryClient.cancelReservations(command.getOrderNumber()));
+                    break;
+            }
+            reply.success(true);
+            log.debug("Checkout step {} succeeded for order {}", command.getStep(), command.getOrderNumber());
+        } catch (FeignException e) {
+            reply.success(false).retryable(isRetryable(e)).reason(e.status() + " " + e.getMessage());
+            log.warn("Checkout step {} failed for order {} (status {}): {}",
+                    command.getStep(), command.getOrderNumber(), e.status(), e.getMessage());
+        } catch (Exception e) {
+            reply.success(false).retryable(isRetryable(command.getStep(), e)).reason(e.getMessage());
+            log.warn("Checkout step {} failed for order {}: {}", command.getStep(), command.getOrderNumber(), e.getMessage());
+        }
+        rabbitTemplate.convertAndSend(RabbitMQConfig.ORDER_EXCHANGE, RabbitMQConfig.CHECKOUT_REPLY_ROUTING_KEY, reply.build());
+    }
+    
+    private void initializePayment(CheckoutCommand command) {
+        // 重发时支付可能已经创建（上次回复丢失或超时），先查询避免重复下单
+        if (command.getAttempt() > 0 && paymentExists(command.getOrderNumber())) {
+            log.info("Payment already exists for order {}, skipping creation", command.getOrderNumber());
+            return;
+        }
+        Map<String, Object> paymentRequest = new HashMap<>();
+        paymentRequest.put("orderNumber", command.getOrderNumber());
+        paymentRequest.put("amount", command.getAmount());
+        paymentRequest.put("currency", command.getCurrency());
+        paymentRequest.put("paymentMethod", command.getPaymentMethod());
+        paymentRequest.put("subject", "果蔬订单支付 - " + command.getOrderNumber());
+        callGuard.run(ClientCallGuard.PAYMENT, () -> paymentClient.createPayment(paymentRequest));
+    }
+    
+    /**
+     * 只有 404 说明支付确实不存在；超时、5xx 等查询失败照常抛出，由重发处理，避免误判后重复创建支付
+     */
+    private boolean paymentExists(String orderNumber) {
+        try {
+            callGuard.run(ClientCallGuard.PAYMENT, () -> paymentClient.getPayment(orderNumber));
+            return true;
+        } catch (FeignException.NotFound e) {
+            return false;
+        }
+    }
+    
+    private void cancelPayment(String orderNumber) {
+        try {
+            callGuard.run(ClientCallGuard.PAYMENT, () -> paymentClient.cancelPayment(orderNumber));
+        } catch (FeignException.NotFound e) {
+            log.debug("No payment to cancel for order {}", orderNumber);
+        }
+    }
+    
+    /**
+     * 连接失败、超时、429 与 5xx 可能是暂时的；其余 4xx 是业务拒绝（如库存不足），重试无意义
+     */
+    private static boolean isRetryable(FeignException e) {
+        int status = e.status();
+        return status < 400 || status == 408 || status == 429 || status >= 500;
+    }
+    
+    /**
+     * 库存服务熔断或舱壁已满时预留请求没有发出：未开启库存校验则回复不可重试，
+     * 由编排器跳过库存继续结账；开启校验时等待重发。其余失败都按暂时性故障重试
+     */
+    private boolean isRetryable(CheckoutStep step, Exception e) {
+        if (step == CheckoutStep.RESERVE_INVENTORY && ClientCallGuard.isRejected(e)) {
+            return inventoryConfig.isValidationEnabled();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,228 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.client.ClientCallGuard;
+import com.ecommerce.order.client.InventoryClient;
+import com.ecommerce.order.client.ProductClient;
+import com.ecommerce.order.config.InventoryConfig;
+import com.ecommerce.order.dto.cart.CartLine;
+import com.ecommerce.order.dto.checkout.ProductPrice;
+import com.ecommerce.order.dto.checkout.ProductPriceListResponse;
+import com.ecommerce.order.dto.checkout.StockAvailability;
+import com.ecommerce.order.dto.checkout.ValidatedCartLine;
+import com.ecommerce.order.dto.checkout.ValidatedCartResponse;
+import com.ecommerce.order.dto.request.OrderItemRequest;
+import com.ecommerce.order.exception.OrderValidationException;
+import com.ecommerce.order.model.enums.CartLineIssue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * 结账前的购物车重新校验：所有行的当前售价与可用库存各用一次批量请求查询（两者并行），
+ * 结果按商品短时缓存，与购物车中保存的价格和数量逐行比对，返回按当前售价计价的购物车。
+ * 购物车中的价格来自客户端加购时提交的数据，不能作为下单依据。
+ */
+@Slf4j
+@Service
+public class CheckoutValidationService {
+
+    /** 与商品服务、库存服务单次批量查询的上限一致 */
+    static final int MAX_BATCH_SIZE = 200;
+
+    private final CartService cartService;
+    private final ProductClient productClient;
+    private final InventoryClient inventoryClient;
+    private final ClientCallGuard callGuard;
+    private final InventoryConfig inventoryConfig;
+    private final CheckoutCatalogCache catalogCache;
+    private final Executor executor;
+    private final boolean revalidatePrices;
+
+    public CheckoutValidationService(CartService cartService,
+                                     ProductClient productClient,
+                                     InventoryClient inventoryClient,
+                                     ClientCallGuard callGuard,
+                                     InventoryConfig inventoryConfig,
+                                     CheckoutCatalogCache catalogCache,
+                                     @Qualifier("applicationTaskExecutor") Executor executor,
+                                     @Value("${app.checkout.revalidate-prices:true}") boolean revalidatePrices) {
+        this.cartService = cartService;
+        this.productClient = productClient;
+        this.inventoryClient = inventoryClient;
+        this.callGuard = callGuard;
+        this.inventoryConfig = inventoryConfig;
+        this.catalogCache = catalogCache;
+        this.executor = executor;
+        this.revalidatePrices = revalidatePrices;
+    }
+
+    public ValidatedCartResponse validateCart(Long userId) {
+        List<CartLine> lines = cartService.getCartLines(userId);
+        List<Long> productIds = lines.stream()
+                .map(CartLine::getProductId)
+                .distinct()
+                .collect(Collectors.toList());
+
+        // 库存查询放到线程池，售价在当前线程查询，两个批量请求并行
+        CompletableFuture<Map<Long, StockAvailability>> availabilityFuture = inventoryConfig.isCheckEnabled() && !productIds.isEmpty()
+                ? CompletableFuture.supplyAsync(() -> loadAvailability(productIds), executor)
+                : CompletableFuture.completedFuture(null);
+        Map<Long, ProductPrice> prices = loadPrices(productIds);
+        Map<Long, StockAvailability> availability = awaitAvailability(availabilityFuture);
+
+        List<ValidatedCartLine> validatedLines = new ArrayList<>(lines.size());
+        BigDecimal subtotal = BigDecimal.ZERO;
+        boolean valid = true;
+        for (CartLine line : lines) {
+            ValidatedCartLine validated = validateLine(line, prices.get(line.getProductId()), availability);
+            if (validated.getLineTotal() != null) {
+                subtotal = subtotal.add(validated.getLineTotal());
+            }
+            valid &= validated.getIssues().isEmpty();
+            validatedLines.add(validated);
+        }
+
+        return ValidatedCartResponse.builder()
+                .userId(userId)
+                .lines(validatedLines)
+                .totalItems(lines.stream().mapToInt(CartLine::getQuantity).sum())
+                .subtotal(subtotal)
+                .valid(valid)
+                .stockChecked(availability != null)
+                .build();
+    }
+
+    /**
+     * 下单前核对客户端提交的单价：商品已下架或价格与当前售价不一致时拒绝下单，由用户重新确认购物车。
+     * 订单金额按提交的单价计算，核对通过即等于当前售价；app.checkout.revalidate-prices=false 可显式关闭（仅限测试环境）
+     */
+    public void verifyOrderPrices(List<OrderItemRequest> items) {
+        if (!revalidatePrices || items.isEmpty()) {
+            return;
+        }
+        List<Long> productIds = items.stream()
+                .map(OrderItemRequest::getProductId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, ProductPrice> prices = loadPrices(productIds);
+        for (OrderItemRequest item : items) {
+            ProductPrice price = prices.get(item.getProductId());
+            if (price == null || !Boolean.TRUE.equals(price.getIsActive()) || price.getPrice() == null) {
+                throw new OrderValidationException("商品已下架: " + item.getProductName());
+            }
+            if (item.getUnitPrice().compareTo(price.getPrice()) != 0) {
+                throw new OrderValidationException("商品价格已变化，请重新确认购物车: " + item.getProductName());
+            }
+        }
+    }
+
+    private ValidatedCartLine validateLine(CartLine line, ProductPrice price, Map<Long, StockAvailability> availability) {
+        List<CartLineIssue> issues = new ArrayList<>();
+        BigDecimal unitPrice = null;
+        BigDecimal lineTotal = null;
+        if (price == null || !Boolean.TRUE.equals(price.getIsActive()) || price.getPrice() == null) {
+            issues.add(CartLineIssue.UNAVAILABLE);
+        } else {
+            unitPrice = price.getPrice();
+            lineTotal = unitPrice.multiply(BigDecimal.valueOf(line.getQuantity()));
+            if (line.getPrice() == null || line.getPrice().compareTo(unitPrice) != 0) {
+                issues.add(CartLineIssue.PRICE_CHANGED);
+            }
+        }
+
+        Integer availableStock = null;
+        if (availability != null) {
+            // 库存服务中不存在的 variant 视为无库存
+            StockAvailability stock = availability.get(line.getProductId());
+            availableStock = stock != null && stock.getAvailableStock() != null ? stock.getAvailableStock() : 0;
+            if (availableStock < line.getQuantity()) {
+                issues.add(CartLineIssue.INSUFFICIENT_STOCK);
+            }
+        }
+
+        return ValidatedCartLine.builder()
+                .productId(line.getProductId())
+                .productName(price != null && price.getName() != null ? price.getName() : line.getProductName())
+                .imageUrl(line.getImageUrl())
+                .weight(line.getWeight())
+                .quantity(line.getQuantity())
+                .cartPrice(line.getPrice())
+                .unitPrice(unitPrice)
+                .lineTotal(lineTotal)
+                .availableStock(availableStock)
+                .issues(issues)
+                .build();
+    }
+
+    /**
+     * 先读缓存，未命中的商品按批次查询商品服务并回填；不存在的商品不缓存
+     */
+    private Map<Long, ProductPrice> loadPrices(List<Long> productIds) {
+        Map<Long, ProductPrice> prices = new HashMap<>(catalogCache.getPrices(productIds));
+        List<Long> misses = productIds.stream()
+                .filter(productId -> !prices.containsKey(productId))
+                .collect(Collectors.toList());
+        Map<Long, ProductPrice> loaded = new HashMap<>();
+        for (List<Long> chunk : chunks(misses)) {
+            ProductPriceListResponse response = callGuard.call(ClientCallGuard.PRODUCT, () -> productClient.getPrices(chunk));
+            if (response == null || !response.isSuccess() || response.getData() == null) {
+                throw new IllegalStateException("Product price lookup failed: " + (response != null ? response.getMessage() : "empty response"));
+            }
+            response.getData().forEach(price -> loaded.put(price.getProductId(), price));
+        }
+        catalogCache.putPrices(loaded);
+        prices.putAll(loaded);
+        return prices;
+    }
+
+    private Map<Long, StockAvailability> loadAvailability(List<Long> variantIds) {
+        Map<Long, StockAvailability> availability = new HashMap<>(catalogCache.getAvailability(variantIds));
+        List<Long> misses = variantIds.stream()
+                .filter(variantId -> !availability.containsKey(variantId))
+                .collect(Collectors.toList());
+        Map<Long, StockAvailability> loaded = new HashMap<>();
+        for (List<Long> chunk : chunks(misses)) {
+            callGuard.call(ClientCallGuard.INVENTORY, () -> inventoryClient.getAvailability(chunk)).forEach(stock -> loaded.put(stock.getVariantId(), stock));
+        }
+        catalogCache.putAvailability(loaded);
+        availability.putAll(loaded);
+        return availability;
+    }
+
+    /**
+     * 库存服务不可用时，开启降级则跳过库存校验（返回 null），否则向上抛出
+     */
+    private Map<Long, StockAvailability> awaitAvailability(CompletableFuture<Map<Long, StockAvailability>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (inventoryConfig.isFallbackEnabled()) {
+                log.warn("Inventory availability lookup failed, skipping stock validation: {}", e.getCause().getMessage());
+                return null;
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += MAX_BATCH_SIZE) {
+            chunks.add(ids.subList(from, Math.min(ids.size(), from + MAX_BATCH_SIZE)));
+        }
+        return chunks;
+    }
+}
@@ -3,19 +3,16 @@ package com.ecommerce.order.service;
 import com.ecommerce.order.dto.request.OrderItemRequest;
 import com.ecommerce.order.model.Order;
 import com.ecommerce.order.model.OrderItem;
-import com.ecommerce.order.repository.OrderItemRepository;
-import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 @Service
-@RequiredArgsConstructor
 public class OrderItemService {
     
-    private final OrderItemRepository orderItemRepository;
-    
+    /**
+     * 构建订单明细并挂到订单上，由订单级联持久化，随订单一起批量插入
+     */
     public OrderItem createOrderItem(Order order, OrderItemRequest request) {
         OrderItem orderItem = new OrderItem();
-        orderItem.setOrder(order);
         orderItem.setProductId(request.getProductId());
         orderItem.setProductName(request.getProductName());
         orderItem.setSku(request.getSku());
@@ -25,6 +22,7 @@ public class OrderItemService {
         orderItem.setWeight(request.getWeight());
         orderItem.setIsDigital(request.getIsDigital());
         
-        return orderItemRepository.save(orderItem);
+        order.addOrderItem(orderItem);
+        return orderItem;
     }
 }
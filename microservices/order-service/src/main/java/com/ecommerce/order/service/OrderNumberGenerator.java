@@ -0,0 +1,9 @@
+package com.ecommerce.order.service;
+
+/**
+ * 订单号生成策略。实现必须在所有副本间全局唯一，且线程安全。
+ */
+public interface OrderNumberGenerator {
+    
+    String nextOrderNumber();
+}
@@ -0,0 +1,97 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.config.RabbitMQConfig;
+import com.ecommerce.order.model.OrderOutboxEvent;
+import com.ecommerce.order.repository.OrderOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * order_outbox 中继：领取一批事件（每个订单只取最早的一条待发布事件，同一订单的事件按 seq 先后逐条发布），
+ * 在同一个 channel 上连续发送，整批等待一次 publisher confirm，全部确认后删除。发送或确认失败时事务回滚，事件留在表中下一轮重发，
+ * 因此投递是至少一次的，消息以 outbox 行 id 作为 messageId 供消费方去重。
+ */
+@Slf4j
+@Component
+public class OrderOutboxRelay {
+
+    private final OrderOutboxRepository outboxRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long confirmTimeoutMs;
+
+    public OrderOutboxRelay(OrderOutboxRepository outboxRepository,
+                            RabbitTemplate rabbitTemplate,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.outbox.batch-size:200}") int batchSize,
+                            @Value("${app.outbox.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.outboxRepository = outboxRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    /**
+     * 积压时连续发布满批，直到取不满一批为止
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.relay-interval-ms:500}")
+    public void relay() {
+        try {
+            int published;
+            do {
+                published = relayBatch();
+            } while (published == batchSize);
+        } catch (Exception e) {
+            log.warn("Order outbox relay failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    int relayBatch() {
+        Integer published = transactionTemplate.execute(status -> {
+            List<OrderOutboxEvent> events = outboxRepository.claimBatch(batchSize);
+            if (events.isEmpty()) {
+                return 0;
+            }
+            rabbitTemplate.invoke(operations -> {
+                for (OrderOutboxEvent event : events) {
+                    operations.send(RabbitMQConfig.ORDER_EXCHANGE, event.getEventType().getRoutingKey(), toMessage(event));
+                }
+                operations.waitForConfirmsOrDie(confirmTimeoutMs);
+                return null;
+            });
+            outboxRepository.deleteAllInBatch(events);
+            return events.size();
+        });
+        if (published != null && published > 0) {
+            log.debug("Published {} order events", published);
+        }
+        return published != null ? published : 0;
+    }
+
+    /**
+     * 消息体是写入 outbox 时已序列化的 JSON，原样发送，不再经过消息转换器
+     */
+    static Message toMessage(OrderOutboxEvent event) {
+        return MessageBuilder.withBody(event.getPayload().getBytes(StandardCharsets.UTF_8))
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .setMessageId(String.valueOf(event.getId()))
+                .setType(event.getEventType().name())
+                .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+                .build();
+    }
+}
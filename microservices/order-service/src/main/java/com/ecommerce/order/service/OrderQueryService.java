@@ -0,0 +1,130 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.response.OrderItemResponse;
+import com.ecommerce.order.dto.response.OrderPageResponse;
+import com.ecommerce.order.dto.response.OrderSummaryResponse;
+import com.ecommerce.order.model.enums.OrderStatus;
+import com.ecommerce.order.repository.OrderQueryRepository;
+import com.ecommerce.order.repository.OrderQueryRepository.OrderItemView;
+import com.ecommerce.order.repository.OrderQueryRepository.OrderSummaryView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单列表查询：投影只取列表列，keyset 分页多取一行判断 hasNext，明细按页一次批量查询
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class OrderQueryService {
+    
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    
+    // 第一页的游标：早于任何订单的上界
+    private static final LocalDateTime FIRST_PAGE_CREATED_AT = LocalDateTime.of(9999, 12, 31, 0, 0);
+    
+    private final OrderQueryRepository orderQueryRepository;
+    
+    public OrderPageResponse getOrders(LocalDateTime beforeCreatedAt, Long beforeId, int size, boolean includeItems) {
+        int pageSize = pageSize(size);
+        List<OrderSummaryView> rows = orderQueryRepository.findPage(
+                cursorCreatedAt(beforeCreatedAt), cursorId(beforeId), pageSize + 1);
+        return toPage(rows, pageSize, includeItems);
+    }
+    
+    public OrderPageResponse getOrdersByUser(Long userId, LocalDateTime beforeCreatedAt, Long beforeId,
+                                             int size, boolean includeItems) {
+        int pageSize = pageSize(size);
+        List<OrderSummaryView> rows = orderQueryRepository.findPageByUserId(
+                userId, cursorCreatedAt(beforeCreatedAt), cursorId(beforeId), pageSize + 1);
+        return toPage(rows, pageSize, includeItems);
+    }
+    
+    public OrderPageResponse getOrdersByStatus(OrderStatus status, LocalDateTime beforeCreatedAt, Long beforeId,
+                                               int size, boolean includeItems) {
+        int pageSize = pageSize(size);
+        List<OrderSummaryView> rows = orderQueryRepository.findPageByStatus(
+                status.name(), cursorCreatedAt(beforeCreatedAt), cursorId(beforeId), pageSize + 1);
+        return toPage(rows, pageSize, includeItems);
+    }
+    
+    private OrderPageResponse toPage(List<OrderSummaryView> rows, int pageSize, boolean includeItems) {
+        boolean hasNext = rows.size() > pageSize;
+        List<OrderSummaryView> page = hasNext ? rows.subList(0, pageSize) : rows;
+        
+        List<OrderSummaryResponse> orders = new ArrayList<>(page.size());
+        for (OrderSummaryView row : page) {
+            orders.add(mapToSummary(row));
+        }
+        if (includeItems && !orders.isEmpty()) {
+            attachItems(orders);
+        }
+        
+        OrderPageResponse.OrderPageResponseBuilder response = OrderPageResponse.builder()
+                .orders(orders)
+                .hasNext(hasNext);
+        if (hasNext) {
+            OrderSummaryView last = page.get(page.size() - 1);
+            response.nextCreatedAt(last.getCreatedAt()).nextId(last.getId());
+        }
+        return response.build();
+    }
+    
+    private void attachItems(List<OrderSummaryResponse> orders) {
+        Map<Long, OrderSummaryResponse> byId = new HashMap<>();
+        for (OrderSummaryResponse order : orders) {
+            order.setItems(new ArrayList<>());
+            byId.put(order.getId(), order);
+        }
+        for (OrderItemView item : orderQueryRepository.findItemsByOrderIds(byId.keySet())) {
+            byId.get(item.getOrderId()).getItems().add(mapToItem(item));
+        }
+    }
+    
+    private static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+    
+    private static LocalDateTime cursorCreatedAt(LocalDateTime beforeCreatedAt) {
+        return beforeCreatedAt != null ? beforeCreatedAt : FIRST_PAGE_CREATED_AT;
+    }
+    
+    private static Long cursorId(Long beforeId) {
+        return beforeId != null ? beforeId : Long.MAX_VALUE;
+    }
+    
+    private static OrderSummaryResponse mapToSummary(OrderSummaryView row) {
+        OrderSummaryResponse response = new OrderSummaryResponse();
+        response.setId(row.getId());
+        response.setOrderNumber(row.getOrderNumber());
+        response.setUserId(row.getUserId());
+        response.setGuestEmail(row.getGuestEmail());
+        response.setStatus(row.getStatus());
+        response.setTotalAmount(row.getTotalAmount());
+        response.setCurrency(row.getCurrency());
+        response.setPaymentStatus(row.getPaymentStatus());
+        response.setCreatedAt(row.getCreatedAt());
+        return response;
+    }
+    
+    private static OrderItemResponse mapToItem(OrderItemView item) {
+        OrderItemResponse response = new OrderItemResponse();
+        response.setId(item.getId());
+        response.setProductId(item.getProductId());
+        response.setProductName(item.getProductName());
+        response.setSku(item.getSku());
+        response.setUnitPrice(item.getUnitPrice());
+        response.setQuantity(item.getQuantity());
+        response.setTotalPrice(item.getTotalPrice());
+        response.setImageUrl(item.getImageUrl());
+        return response;
+    }
+}
@@ -1,10 +1,9 @@
 package com.ecommerce.order.service;
 
-import com.ecommerce.order.config.InventoryConfig;
-import com.ecommerce.order.client.InventoryClient;
-import com.ecommerce.order.client.PaymentClient;
+import com.ecommerce.order.dto.request.BulkStatusUpdateRequest;
 import com.ecommerce.order.dto.request.CreateOrderRequest;
 import com.ecommerce.order.dto.request.UpdateOrderStatusRequest;
+import com.ecommerce.order.dto.response.BulkStatusUpdateResponse;
 import com.ecommerce.order.dto.response.OrderResponse;
 import com.ecommerce.order.model.*;
 import com.ecommerce.order.model.enums.OrderStatus;
@@ -15,11 +14,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.Map;
 
 @Slf4j
@@ -31,11 +29,14 @@ public class OrderService {
     private final OrderStatusHistoryRepository statusHistoryRepository;
     private final OrderItemService orderItemService;
     private final RabbitMQService rabbitMQService;
-    private final PaymentClient paymentClient;
-    private final InventoryClient inventoryClient;
-    private final InventoryConfig inventoryConfig;
+    private final CheckoutSagaOrchestrator checkoutSagaOrchestrator;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final OrderStatsService orderStatsService;
+    private final CartService cartService;
+    private final CheckoutValidationService checkoutValidationService;
+    private final OrderStatusTransitionService orderStatusTransitionService;
+    private final TransactionTemplate transactionTemplate;
     
-    @Transactional
     public OrderResponse createOrder(CreateOrderRequest request) {
         log.info("Creating order for user: {}, guest: {}", request.getUserId(), request.getGuestEmail());
         
@@ -43,7 +44,15 @@ public class OrderService {
             throw new RuntimeException("Either user ID or guest email is required");
         }
         
+        // 开启价格核对时，客户端提交的单价必须与当前售价一致；核对要调用商品服务，在事务开启前完成，不占用数据库连接
+        checkoutValidationService.verifyOrderPrices(request.getItems());
+        
+        return transactionTemplate.execute(status -> persistOrder(request));
+    }
+    
+    private OrderResponse persistOrder(CreateOrderRequest request) {
         Order order = new Order();
+        order.setOrderNumber(orderNumberGenerator.nextOrderNumber());
         order.setUserId(request.getUserId());
         order.setGuestEmail(request.getGuestEmail());
         order.setShippingAddress(request.getShippingAddress());
@@ -63,38 +72,45 @@ public class OrderService {
         order.setDiscountAmount(request.getDiscountAmount());
         
         calculateOrderTotals(order, request.getItems());
-        Order savedOrder = orderRepository.save(order);
-        
         for (var itemRequest : request.getItems()) {
-            OrderItem orderItem = orderItemService.createOrderItem(savedOrder, itemRequest);
-            savedOrder.addOrderItem(orderItem);
+            orderItemService.createOrderItem(order, itemRequest);
         }
         
+        // id 取自预分配的序列，persist 不触发 INSERT；订单、明细、状态历史与 saga 在提交时按表分组批量写入
+        Order savedOrder = orderRepository.save(order);
         addStatusHistory(savedOrder, OrderStatus.PENDING, "订单创建成功");
+        rabbitMQService.sendOrderCreatedEvent(savedOrder);
         
-        if (inventoryConfig.isReservationAllowed()) {
-            log.debug("Inventory reservation is enabled, proceeding with inventory operations");
-            reserveInventory(savedOrder);
-        } else {
-            log.info("Inventory reservation is disabled via configuration, skipping inventory operations");
+        // 库存预留与支付创建在事务提交后异步执行，结果通过 saga 回复推进订单
+        CheckoutSaga saga = checkoutSagaOrchestrator.start(savedOrder);
+        
+        if (savedOrder.getUserId() != null) {
+            cartService.persistAtCheckout(savedOrder.getUserId());
         }
         
-        initializePayment(savedOrder);
+        // 一次 flush 按表批量写入全部实体（提交时不再有待写入的行），createdAt/updatedAt 在插入时生成，响应才带得上
+        orderRepository.flush();
         
         log.info("Order created successfully: {}", savedOrder.getOrderNumber());
-        return mapToOrderResponse(savedOrder);
+        OrderResponse response = mapToOrderResponse(savedOrder);
+        response.setCheckoutState(saga.getState());
+        return response;
     }
     
     public OrderResponse getOrderById(Long id) {
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found with id: " + id));
-        return mapToOrderResponse(order);
+        OrderResponse response = mapToOrderResponse(order);
+        response.setCheckoutState(checkoutSagaOrchestrator.getState(order.getId()));
+        return response;
     }
     
     public OrderResponse getOrderByNumber(String orderNumber) {
         Order order = orderRepository.findByOrderNumber(orderNumber)
                 .orElseThrow(() -> new RuntimeException("Order not found: " + orderNumber));
-        return mapToOrderResponse(order);
+        OrderResponse response = mapToOrderResponse(order);
+        response.setCheckoutState(checkoutSagaOrchestrator.getState(order.getId()));
+        return response;
     }
     
     public Page<OrderResponse> getOrdersByUser(Long userId, Pageable pageable) {
@@ -112,62 +128,26 @@ public class OrderService {
                 .map(this::mapToOrderResponse);
     }
     
-    @Transactional
+    /**
+     * 状态变更由状态机校验，并发修改时自动重试（请求带 expectedVersion 时除外）
+     */
     public OrderResponse updateOrderStatus(Long id, UpdateOrderStatusRequest request) {
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Order not found with id: " + id));
-        
-        OrderStatus previousStatus = order.getStatus();
-        order.setStatus(request.getStatus());
-        updateOrderTimestamps(order, request.getStatus());
-        
-        if (request.getTrackingNumber() != null) {
-            order.setTrackingNumber(request.getTrackingNumber());
-        }
-        
-        Order updatedOrder = orderRepository.save(order);
-        addStatusHistory(updatedOrder, request.getStatus(), request.getNotes());
-        
-        log.info("Order status updated: {} -> {}", previousStatus, request.getStatus());
-        return mapToOrderResponse(updatedOrder);
+        Order order = orderStatusTransitionService.transition(id, request.getStatus(), request.getNotes(),
+                request.getTrackingNumber(), request.getExpectedVersion());
+        return mapToOrderResponse(order);
+    }
+    
+    public BulkStatusUpdateResponse updateOrderStatuses(BulkStatusUpdateRequest request) {
+        return orderStatusTransitionService.transitionAll(request);
     }
     
-    @Transactional
     public OrderResponse cancelOrder(Long id, String reason) {
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Order not found with id: " + id));
-        
-        if (!order.canBeCancelled()) {
-            throw new RuntimeException("Order cannot be cancelled in current status: " + order.getStatus());
-        }
-        
-        order.cancel(reason);
-        Order cancelledOrder = orderRepository.save(order);
-        addStatusHistory(cancelledOrder, OrderStatus.CANCELLED, "订单取消: " + reason);
-        
-        if (inventoryConfig.isInventoryOperationsEnabled()) {
-            releaseInventory(cancelledOrder);
-        } else {
-            log.debug("Inventory operations disabled, skipping inventory release");
-        }
-        
-        cancelPayment(cancelledOrder);
-        
-        log.info("Order cancelled: {}", cancelledOrder.getOrderNumber());
-        return mapToOrderResponse(cancelledOrder);
+        Order order = orderStatusTransitionService.transition(id, OrderStatus.CANCELLED, reason, null, null);
+        return mapToOrderResponse(order);
     }
     
     public Map<String, Object> getOrderStatistics(LocalDateTime startDate, LocalDateTime endDate) {
-        BigDecimal totalRevenue = orderRepository.getTotalRevenueByDateRange(startDate, endDate);
-        Long totalOrders = orderRepository.countOrdersByDateRange(startDate, endDate);
-        
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalRevenue", totalRevenue != null ? totalRevenue : BigDecimal.ZERO);
-        stats.put("totalOrders", totalOrders != null ? totalOrders : 0L);
-        stats.put("startDate", startDate);
-        stats.put("endDate", endDate);
-        
-        return stats;
+        return orderStatsService.getStatistics(startDate, endDate);
     }
     
     private void calculateOrderTotals(Order order, java.util.List<com.ecommerce.order.dto.request.OrderItemRequest> items) {
@@ -189,89 +169,6 @@ public class OrderService {
         statusHistoryRepository.save(history);
     }
     
-    private void updateOrderTimestamps(Order order, OrderStatus status) {
-        LocalDateTime now = LocalDateTime.now();
-        switch (status) {
-            case CONFIRMED: order.setConfirmedAt(now); break;
-            case SHIPPED: order.setShippedAt(now); break;
-            case DELIVERED: order.setDeliveredAt(now); break;
-        }
-    }
-    
-    private void reserveInventory(Order order) {
-        if (!inventoryConfig.isReservationAllowed()) {
-            log.debug("Inventory reservation is disabled, skipping");
-            return;
-        }
-        
-        log.info("Reserving inventory for order: {}", order.getOrderNumber());
-        
-        for (OrderItem item : order.getOrderItems()) {
-            try {
-                Map<String, Object> request = new HashMap<>();
-                request.put("productId", item.getProductId());
-                request.put("quantity", item.getQuantity());
-                request.put("orderNumber", order.getOrderNumber());
-                
-                inventoryClient.reserveStock(request);
-                log.debug("Successfully reserved inventory for product: {}", item.getProductId());
-                
-            } catch (Exception e) {
-                log.error("Failed to reserve inventory for product {}: {}", item.getProductId(), e.getMessage());
-                
-                if (inventoryConfig.isValidationEnabled()) {
-                    throw new RuntimeException("Inventory reservation failed for product: " + item.getProductId());
-                } else {
-                    log.warn("Inventory validation is disabled, continuing despite reservation failure");
-                }
-            }
-        }
-    }
-    
-    private void releaseInventory(Order order) {
-        if (!inventoryConfig.isInventoryOperationsEnabled()) {
-            log.debug("Inventory operations are disabled, skipping release");
-            return;
-        }
-        
-        log.info("Releasing inventory for order: {}", order.getOrderNumber());
-        
-        for (OrderItem item : order.getOrderItems()) {
-            try {
-                Map<String, Object> request = new HashMap<>();
-                request.put("productId", item.getProductId());
-                request.put("quantity", item.getQuantity());
-                request.put("orderNumber", order.getOrderNumber());
-                
-                inventoryClient.releaseStock(request);
-                log.debug("Successfully released inventory for product: {}", item.getProductId());
-                
-            } catch (Exception e) {
-                log.error("Failed to release inventory for product {}: {}", item.getProductId(), e.getMessage());
-            }
-        }
-    }
-    
-    private void initializePayment(Order order) {
-        try {
-            Map<String, Object> paymentRequest = new HashMap<>();
-            paymentRequest.put("orderNumber", order.getOrderNumber());
-            paymentRequest.put("amount", order.getTotalAmount());
-            paymentRequest.put("subject", "果蔬订单支付 - " + order.getOrderNumber());
-            paymentClient.createPayment(paymentRequest);
-        } catch (Exception e) {
-            log.error("Failed to initialize payment for order {}: {}", order.getOrderNumber(), e.getMessage());
-        }
-    }
-    
-    private void cancelPayment(Order order) {
-        try {
-            paymentClient.cancelPayment(order.getOrderNumber());
-        } catch (Exception e) {
-            log.error("Failed to cancel payment for order {}: {}", order.getOrderNumber(), e.getMessage());
-        }
-    }
-    
     private OrderResponse mapToOrderResponse(Order order) {
         OrderResponse response = new OrderResponse();
         response.setId(order.getId());
@@ -300,6 +197,7 @@ public class OrderService {
         response.setDeliveredAt(order.getDeliveredAt());
         response.setCancelledAt(order.getCancelledAt());
         response.setGuestOrder(order.isGuestOrder());
+        response.setVersion(order.getVersion());
         return response;
     }
 }
\ No newline at end of file
@@ -0,0 +1,271 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.request.BulkStatusUpdateRequest;
+import com.ecommerce.order.dto.response.BulkStatusUpdateResponse;
+import com.ecommerce.order.exception.OrderNotFoundException;
+import com.ecommerce.order.exception.OrderStatusConflictException;
+import com.ecommerce.order.exception.OrderValidationException;
+import com.ecommerce.order.model.CheckoutSaga;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderStatusHistory;
+import com.ecommerce.order.model.enums.OrderStatus;
+import com.ecommerce.order.repository.OrderRepository;
+import com.ecommerce.order.repository.OrderRepository.OrderStatusView;
+import com.ecommerce.order.repository.OrderRepository.TransitionedOrderView;
+import com.ecommerce.order.repository.OrderStatusHistoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 订单状态机：校验状态变更是否合法，单个订单的变更依靠 @Version 乐观锁，
+ * 冲突时在新事务中重新读取订单、重新校验后重试；批量变更按分块执行集合更新，
+ * 每个分块一条语句完成加锁、更新与状态历史插入，事件随分块事务写入 outbox。
+ */
+@Slf4j
+@Service
+public class OrderStatusTransitionService {
+
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        TRANSITIONS.put(OrderStatus.PENDING, EnumSet.of(OrderStatus.CONFIRMED, OrderStatus.CANCELLED));
+        TRANSITIONS.put(OrderStatus.CONFIRMED, EnumSet.of(OrderStatus.PROCESSING, OrderStatus.SHIPPED, OrderStatus.CANCELLED));
+        TRANSITIONS.put(OrderStatus.PROCESSING, EnumSet.of(OrderStatus.SHIPPED));
+        TRANSITIONS.put(OrderStatus.SHIPPED, EnumSet.of(OrderStatus.DELIVERED));
+        TRANSITIONS.put(OrderStatus.DELIVERED, EnumSet.of(OrderStatus.REFUNDED));
+        TRANSITIONS.put(OrderStatus.CANCELLED, EnumSet.of(OrderStatus.REFUNDED));
+        TRANSITIONS.put(OrderStatus.REFUNDED, EnumSet.noneOf(OrderStatus.class));
+    }
+
+    private static final String SEPARATOR = String.valueOf((char) 31);
+    private static final String BULK_CREATED_BY = "bulk";
+
+    private final OrderRepository orderRepository;
+    private final OrderStatusHistoryRepository statusHistoryRepository;
+    private final RabbitMQService rabbitMQService;
+    private final CheckoutSagaOrchestrator checkoutSagaOrchestrator;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final int chunkSize;
+    private final int maxBulkOrders;
+
+    public OrderStatusTransitionService(OrderRepository orderRepository,
+                                        OrderStatusHistoryRepository statusHistoryRepository,
+                                        RabbitMQService rabbitMQService,
+                                        CheckoutSagaOrchestrator checkoutSagaOrchestrator,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${app.order-status.max-attempts:3}") int maxAttempts,
+                                        @Value("${app.order-status.bulk-chunk-size:500}") int chunkSize,
+                                        @Value("${app.order-status.bulk-max-orders:10000}") int maxBulkOrders) {
+        this.orderRepository = orderRepository;
+        this.statusHistoryRepository = statusHistoryRepository;
+        this.rabbitMQService = rabbitMQService;
+        this.checkoutSagaOrchestrator = checkoutSagaOrchestrator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.chunkSize = chunkSize;
+        this.maxBulkOrders = maxBulkOrders;
+    }
+
+    public static boolean canTransition(OrderStatus from, OrderStatus to) {
+        return TRANSITIONS.getOrDefault(from, Collections.emptySet()).contains(to);
+    }
+
+    /**
+     * 可以变更为 target 的所有状态
+     */
+    public static Set<OrderStatus> sourcesOf(OrderStatus target) {
+        Set<OrderStatus> sources = EnumSet.noneOf(OrderStatus.class);
+        TRANSITIONS.forEach((from, targets) -> {
+            if (targets.contains(target)) {
+                sources.add(from);
+            }
+        });
+        return sources;
+    }
+
+    /**
+     * 变更单个订单的状态。订单已处于目标状态时不做任何修改（重复回调是安全的）；
+     * 提供 expectedVersion 时以调用方读到的版本为准，版本不一致直接返回冲突，不重试
+     */
+    public Order transition(Long orderId, OrderStatus target, String notes, String trackingNumber, Integer expectedVersion) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status ->
+                        applyTransition(orderId, target, notes, trackingNumber, expectedVersion));
+            } catch (OptimisticLockingFailureException e) {
+                if (expectedVersion != null || attempt >= maxAttempts) {
+                    throw new OrderStatusConflictException("订单已被并发修改，请刷新后重试: " + orderId);
+                }
+                log.debug("Order {} was modified concurrently, retrying {} transition (attempt {})", orderId, target, attempt);
+            }
+        }
+    }
+
+    private Order applyTransition(Long orderId, OrderStatus target, String notes, String trackingNumber, Integer expectedVersion) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new OrderNotFoundException(orderId));
+        if (expectedVersion != null && !expectedVersion.equals(order.getVersion())) {
+            throw new OrderStatusConflictException("订单已被修改，请刷新后重试: " + order.getOrderNumber());
+        }
+        OrderStatus previousStatus = order.getStatus();
+        if (previousStatus == target) {
+            log.debug("Order {} is already {}", order.getOrderNumber(), target);
+            return order;
+        }
+        if (!canTransition(previousStatus, target)) {
+            throw new OrderValidationException("订单状态不能从 " + previousStatus + " 变更为 " + target + ": " + order.getOrderNumber());
+        }
+
+        if (target != OrderStatus.CANCELLED) {
+            return apply(order, target, notes, trackingNumber);
+        }
+        // 与 saga 回复处理保持同一加锁顺序：先锁 saga 行，再写订单行
+        CheckoutSaga saga = checkoutSagaOrchestrator.lockForCompensation(order);
+        Order savedOrder = apply(order, target, notes, null);
+        // 取消支付、释放库存在事务提交后异步补偿
+        checkoutSagaOrchestrator.compensate(saga, savedOrder, notes);
+        return savedOrder;
+    }
+
+    /**
+     * saga 放弃结账时在其事务中取消订单（调用方已持有 saga 行锁）。
+     * 与接口取消走同一套状态校验、状态历史与事件；订单已不能取消时不做修改，返回 false
+     */
+    public boolean cancelForCheckout(Order order, String reason) {
+        if (!canTransition(order.getStatus(), OrderStatus.CANCELLED)) {
+            log.debug("Order {} is {}, not cancelling for checkout", order.getOrderNumber(), order.getStatus());
+            return false;
+        }
+        apply(order, OrderStatus.CANCELLED, reason, null);
+        return true;
+    }
+
+    private Order apply(Order order, OrderStatus target, String notes, String trackingNumber) {
+        OrderStatus previousStatus = order.getStatus();
+        if (target == OrderStatus.CANCELLED) {
+            order.cancel(notes);
+        } else {
+            order.setStatus(target);
+            updateOrderTimestamps(order, target);
+            if (trackingNumber != null) {
+                order.setTrackingNumber(trackingNumber);
+            }
+        }
+        // 立即刷新，版本冲突在写历史和事件之前暴露
+        Order savedOrder = orderRepository.saveAndFlush(order);
+
+        if (target == OrderStatus.CANCELLED) {
+            addStatusHistory(savedOrder, target, "订单取消: " + notes);
+            rabbitMQService.sendOrderCancelledEvent(savedOrder);
+        } else {
+            addStatusHistory(savedOrder, target, notes);
+            rabbitMQService.sendOrderStatusUpdateEvent(savedOrder, previousStatus);
+        }
+        log.info("Order {} status updated: {} -> {}", savedOrder.getOrderNumber(), previousStatus, target);
+        return savedOrder;
+    }
+
+    /**
+     * 批量变更：按分块各自提交，一个分块失败不影响已提交的分块。
+     * 取消需要逐单补偿库存与支付，不支持批量执行
+     */
+    public BulkStatusUpdateResponse transitionAll(BulkStatusUpdateRequest request) {
+        OrderStatus target = request.getStatus();
+        if (target == OrderStatus.CANCELLED) {
+            throw new OrderValidationException("批量操作不支持取消订单");
+        }
+        Set<OrderStatus> sources = sourcesOf(target);
+        if (sources.isEmpty()) {
+            throw new OrderValidationException("订单状态不能变更为 " + target);
+        }
+        if (request.getOrders().size() > maxBulkOrders) {
+            throw new OrderValidationException("单次批量变更最多 " + maxBulkOrders + " 个订单");
+        }
+        List<String> fromStatuses = sources.stream().map(Enum::name).collect(Collectors.toList());
+
+        // 同一订单重复出现时以最后一次的物流单号为准
+        Map<String, String> trackingNumbers = new LinkedHashMap<>();
+        for (BulkStatusUpdateRequest.Item item : request.getOrders()) {
+            trackingNumbers.put(item.getOrderNumber(), item.getTrackingNumber() != null ? item.getTrackingNumber() : "");
+        }
+        List<String> orderNumbers = new ArrayList<>(trackingNumbers.keySet());
+
+        int updated = 0;
+        List<BulkStatusUpdateResponse.Rejection> rejected = new ArrayList<>();
+        for (int from = 0; from < orderNumbers.size(); from += chunkSize) {
+            List<String> chunk = orderNumbers.subList(from, Math.min(orderNumbers.size(), from + chunkSize));
+            List<BulkStatusUpdateResponse.Rejection> chunkRejected = transactionTemplate.execute(status ->
+                    transitionChunk(chunk, trackingNumbers, fromStatuses, target, request.getNotes()));
+            updated += chunk.size() - chunkRejected.size();
+            rejected.addAll(chunkRejected);
+        }
+        log.info("Bulk status update to {}: {} of {} orders updated", target, updated, orderNumbers.size());
+        return BulkStatusUpdateResponse.builder()
+                .status(target)
+                .requested(orderNumbers.size())
+                .updated(updated)
+                .rejected(rejected)
+                .build();
+    }
+
+    private List<BulkStatusUpdateResponse.Rejection> transitionChunk(List<String> orderNumbers, Map<String, String> trackingNumbers,
+                                                                     List<String> fromStatuses, OrderStatus target, String notes) {
+        List<TransitionedOrderView> transitioned = orderRepository.transitionBatch(
+                String.join(SEPARATOR, orderNumbers),
+                orderNumbers.stream().map(trackingNumbers::get).collect(Collectors.joining(SEPARATOR)),
+                fromStatuses,
+                target.name(),
+                notes != null ? notes : "",
+                BULK_CREATED_BY);
+        Set<String> updated = new HashSet<>();
+        for (TransitionedOrderView order : transitioned) {
+            updated.add(order.getOrderNumber());
+            rabbitMQService.sendOrderStatusUpdateEvent(order.getOrderNumber(), order.getPreviousStatus(), target);
+        }
+        if (updated.size() == orderNumbers.size()) {
+            return Collections.emptyList();
+        }
+        List<String> missed = orderNumbers.stream()
+                .filter(orderNumber -> !updated.contains(orderNumber))
+                .collect(Collectors.toList());
+        Map<String, OrderStatus> current = orderRepository.findStatusesByOrderNumbers(missed).stream()
+                .collect(Collectors.toMap(OrderStatusView::getOrderNumber, OrderStatusView::getStatus));
+        return missed.stream()
+                .map(orderNumber -> new BulkStatusUpdateResponse.Rejection(orderNumber, current.get(orderNumber)))
+                .collect(Collectors.toList());
+    }
+
+    private void addStatusHistory(Order order, OrderStatus status, String notes) {
+        OrderStatusHistory history = new OrderStatusHistory();
+        history.setOrder(order);
+        history.setStatus(status);
+        history.setNotes(notes);
+        statusHistoryRepository.save(history);
+    }
+
+    private static void updateOrderTimestamps(Order order, OrderStatus status) {
+        LocalDateTime now = LocalDateTime.now();
+        switch (status) {
+            case CONFIRMED: order.setConfirmedAt(now); break;
+            case SHIPPED: order.setShippedAt(now); break;
+            case DELIVERED: order.setDeliveredAt(now); break;
+        }
+    }
+}
@@ -1,66 +1,95 @@
 package com.ecommerce.order.service;
 
+import com.ecommerce.order.dto.event.OrderEvent;
 import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderOutboxEvent;
+import com.ecommerce.order.model.enums.OrderEventType;
 import com.ecommerce.order.model.enums.OrderStatus;
+import com.ecommerce.order.repository.OrderOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.time.LocalDateTime;
 
+/**
+ * 订单事件：在调用方的事务中写入 order_outbox，与订单一起提交或回滚；
+ * 提交后由 {@link OrderOutboxRelay} 批量发布到 order.exchange，请求线程不等待 broker。
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RabbitMQService {
     
-    private final RabbitTemplate rabbitTemplate;
+    private final OrderOutboxRepository outboxRepository;
     private final ObjectMapper objectMapper;
     
+    @Transactional(propagation = Propagation.MANDATORY)
     public void sendOrderCreatedEvent(Order order) {
-        try {
-            Map<String, Object> event = new HashMap<>();
-            event.put("orderNumber", order.getOrderNumber());
-            event.put("userId", order.getUserId());
-            event.put("guestEmail", order.getGuestEmail());
-            event.put("totalAmount", order.getTotalAmount());
-            event.put("createdAt", order.getCreatedAt());
-            
-            rabbitTemplate.convertAndSend("order.exchange", "order.created", event);
-            log.info("Order created event sent: {}", order.getOrderNumber());
-        } catch (Exception e) {
-            log.error("Failed to send order created event: {}", e.getMessage());
-        }
+        enqueue(order.getOrderNumber(), OrderEvent.builder()
+                .type(OrderEventType.ORDER_CREATED)
+                .orderNumber(order.getOrderNumber())
+                .userId(order.getUserId())
+                .guestEmail(order.getGuestEmail())
+                .totalAmount(order.getTotalAmount())
+                .status(order.getStatus())
+                .occurredAt(LocalDateTime.now())
+                .build());
     }
     
+    @Transactional(propagation = Propagation.MANDATORY)
     public void sendOrderStatusUpdateEvent(Order order, OrderStatus previousStatus) {
-        try {
-            Map<String, Object> event = new HashMap<>();
-            event.put("orderNumber", order.getOrderNumber());
-            event.put("previousStatus", previousStatus);
-            event.put("currentStatus", order.getStatus());
-            event.put("updatedAt", order.getUpdatedAt());
-            
-            rabbitTemplate.convertAndSend("order.exchange", "order.status.update", event);
-            log.info("Order status update event sent: {} -> {}", previousStatus, order.getStatus());
-        } catch (Exception e) {
-            log.error("Failed to send order status update event: {}", e.getMessage());
-        }
+        enqueue(order.getOrderNumber(), OrderEvent.builder()
+                .type(OrderEventType.ORDER_STATUS_UPDATED)
+                .orderNumber(order.getOrderNumber())
+                .previousStatus(previousStatus)
+                .status(order.getStatus())
+                .occurredAt(LocalDateTime.now())
+                .build());
     }
     
+    /**
+     * 批量状态变更时没有加载订单实体，只按订单号写入事件
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sendOrderStatusUpdateEvent(String orderNumber, OrderStatus previousStatus, OrderStatus currentStatus) {
+        enqueue(orderNumber, OrderEvent.builder()
+                .type(OrderEventType.ORDER_STATUS_UPDATED)
+                .orderNumber(orderNumber)
+                .previousStatus(previousStatus)
+                .status(currentStatus)
+                .occurredAt(LocalDateTime.now())
+                .build());
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
     public void sendOrderCancelledEvent(Order order) {
+        enqueue(order.getOrderNumber(), OrderEvent.builder()
+                .type(OrderEventType.ORDER_CANCELLED)
+                .orderNumber(order.getOrderNumber())
+                .status(order.getStatus())
+                .reason(order.getCancellationReason())
+                .occurredAt(order.getCancelledAt() != null ? order.getCancelledAt() : LocalDateTime.now())
+                .build());
+    }
+    
+    /**
+     * 消息体在写入时序列化，中继直接发送这些字节；序列化失败时整个事务回滚，事件不会丢失
+     */
+    private void enqueue(String orderNumber, OrderEvent event) {
+        OrderOutboxEvent outboxEvent = new OrderOutboxEvent();
+        outboxEvent.setOrderNumber(orderNumber);
+        outboxEvent.setEventType(event.getType());
         try {
-            Map<String, Object> event = new HashMap<>();
-            event.put("orderNumber", order.getOrderNumber());
-            event.put("cancellationReason", order.getCancellationReason());
-            event.put("cancelledAt", order.getCancelledAt());
-            
-            rabbitTemplate.convertAndSend("order.exchange", "order.cancelled", event);
-            log.info("Order cancelled event sent: {}", order.getOrderNumber());
-        } catch (Exception e) {
-            log.error("Failed to send order cancelled event: {}", e.getMessage());
+            outboxEvent.setPayload(objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + event.getType() + " event for order " + orderNumber, e);
         }
+        outboxRepository.save(outboxEvent);
+        log.debug("Order event {} queued for {}", event.getType(), orderNumber);
     }
 }
@@ -0,0 +1,96 @@
+package com.ecommerce.order.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 类 Snowflake 的订单号：41 位毫秒时间戳（自 2024-01-01 UTC）+ 10 位节点号 + 12 位毫秒内序号，
+ * 以 "ORD" 加 19 位定长十进制输出，按时间递增，插入 B-tree 索引时集中在右侧叶子页。
+ *
+ * 时间戳与序号打包在一个 AtomicLong 中用 CAS 推进，不加锁、不分配对象（nextId）。
+ * 同一毫秒内序号用尽时借用下一毫秒，时钟回拨时沿用上次的值继续递增，因此单节点内严格单调。
+ * 节点号优先取 app.order-number.node-id，否则取 Pod 名称末尾的序号（StatefulSet 的 ordinal）；
+ * 两者都没有时启动失败——节点号重复会生成重复订单号，不能靠猜。
+ */
+@Slf4j
+@Component
+public class SnowflakeOrderNumberGenerator implements OrderNumberGenerator {
+    
+    static final long EPOCH_MILLIS = 1704067200000L;
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final Pattern POD_ORDINAL = Pattern.compile("-(\\d{1,4})$");
+    private static final String PREFIX = "ORD";
+    private static final int DIGITS = 19;
+    
+    private final long nodeBits;
+    private final LongSupplier clock;
+    // 高位为相对纪元的毫秒数，低 12 位为该毫秒内的序号
+    private final AtomicLong lastState = new AtomicLong(-1);
+    
+    @Autowired
+    public SnowflakeOrderNumberGenerator(@Value("${app.order-number.node-id:-1}") long nodeId,
+                                         @Value("${app.order-number.pod-name:}") String podName) {
+        this(resolveNodeId(nodeId, podName), System::currentTimeMillis);
+    }
+    
+    SnowflakeOrderNumberGenerator(long nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Order number node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+    
+    @Override
+    public String nextOrderNumber() {
+        long id = nextId();
+        char[] chars = new char[PREFIX.length() + DIGITS];
+        PREFIX.getChars(0, PREFIX.length(), chars, 0);
+        for (int i = chars.length - 1; i >= PREFIX.length(); i--) {
+            chars[i] = (char) ('0' + id % 10);
+            id /= 10;
+        }
+        return new String(chars);
+    }
+    
+    public long nextId() {
+        long now = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        while (true) {
+            long last = lastState.get();
+            long next = Math.max(now, last + 1);
+            if (lastState.compareAndSet(last, next)) {
+                return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+    
+    static long resolveNodeId(long configuredNodeId, String podName) {
+        if (configuredNodeId >= 0) {
+            return configuredNodeId;
+        }
+        if (podName != null) {
+            Matcher matcher = POD_ORDINAL.matcher(podName);
+            if (matcher.find()) {
+                long ordinal = Long.parseLong(matcher.group(1));
+                if (ordinal <= MAX_NODE_ID) {
+                    log.info("Using pod ordinal {} of {} as order number node id", ordinal, podName);
+                    return ordinal;
+                }
+            }
+        }
+        // Deployment 的 Pod 名称没有序号，名称哈希在副本之间可能相同，只能显式配置
+        throw new IllegalStateException("No order number node id: set ORDER_NODE_ID (0-" + MAX_NODE_ID
+                + ") or run as a StatefulSet so the pod name '" + podName + "' ends with its ordinal");
+    }
+}
@@ -0,0 +1,21 @@
+-- 下单 saga：订单提交后库存预留、支付创建通过 order.exchange 异步执行，失败时补偿
+CREATE TABLE checkout_saga (
+    id BIGSERIAL PRIMARY KEY,
+    order_id BIGINT NOT NULL UNIQUE,
+    order_number VARCHAR(50) NOT NULL UNIQUE,
+    state VARCHAR(20) NOT NULL,
+    step VARCHAR(30),
+    inventory_held BOOLEAN NOT NULL DEFAULT FALSE,
+    payment_initialized BOOLEAN NOT NULL DEFAULT FALSE,
+    attempts INT NOT NULL DEFAULT 0,
+    failure_reason TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version INT DEFAULT 0,
+
+    FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE
+);
+
+-- 超时重发只扫描进行中的 saga
+CREATE INDEX idx_checkout_saga_active ON checkout_saga(updated_at)
+    WHERE state IN ('RUNNING', 'COMPENSATING');
@@ -0,0 +1,7 @@
+-- 订单写路径改为序列主键 + pooled 优化器：每次 nextval 预分配 50 个 id，
+-- 与实体上的 allocationSize 保持一致，Hibernate 才能批量插入订单、明细、状态历史与 saga。
+-- 列默认值仍使用同一序列，直接 INSERT 的行拿到的 id 不会与 Hibernate 预分配的区间重叠。
+ALTER SEQUENCE orders_id_seq INCREMENT BY 50;
+ALTER SEQUENCE order_items_id_seq INCREMENT BY 50;
+ALTER SEQUENCE order_status_history_id_seq INCREMENT BY 50;
+ALTER SEQUENCE checkout_saga_id_seq INCREMENT BY 50;
@@ -0,0 +1,9 @@
+-- 订单列表按 (created_at, id) 倒序做 keyset 分页；按用户、按状态的列表各有一个以过滤列开头的复合索引。
+-- 原有的单列索引被复合索引的前缀覆盖，删除以减少写放大。
+CREATE INDEX idx_orders_created_at_id ON orders(created_at DESC, id DESC);
+CREATE INDEX idx_orders_user_created_at_id ON orders(user_id, created_at DESC, id DESC);
+CREATE INDEX idx_orders_status_created_at_id ON orders(status, created_at DESC, id DESC);
+
+DROP INDEX IF EXISTS idx_orders_created_at;
+DROP INDEX IF EXISTS idx_orders_user_id;
+DROP INDEX IF EXISTS idx_orders_status;
@@ -0,0 +1,36 @@
+-- 订单统计预聚合：按订单创建时间分小时/天分桶，维度为状态与币种。
+-- 由增量任务根据 orders.updated_at 找出变动过的桶并整桶重算，区间统计改为对桶求和。
+CREATE TABLE order_stats_hourly (
+    bucket_start TIMESTAMP NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    currency VARCHAR(3) NOT NULL,
+    order_count BIGINT NOT NULL,
+    revenue DECIMAL(14,2) NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (bucket_start, status, currency)
+);
+
+CREATE TABLE order_stats_daily (
+    bucket_start TIMESTAMP NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    currency VARCHAR(3) NOT NULL,
+    order_count BIGINT NOT NULL,
+    revenue DECIMAL(14,2) NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (bucket_start, status, currency)
+);
+
+-- 增量任务的水位：已处理到的 orders.updated_at
+CREATE TABLE order_stats_watermark (
+    id SMALLINT PRIMARY KEY CHECK (id = 1),
+    last_updated_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO order_stats_watermark (id, last_updated_at) VALUES (1, TIMESTAMP '1970-01-01 00:00:00');
+
+CREATE INDEX idx_orders_updated_at ON orders(updated_at);
+
+COMMENT ON TABLE order_stats_hourly IS '订单统计小时桶';
+COMMENT ON TABLE order_stats_daily IS '订单统计日桶';
@@ -0,0 +1,12 @@
+-- 订单事件 outbox：事件与订单在同一事务中写入，由后台中继批量发布到 order.exchange，
+-- broker 确认后删除；表中只保留尚未发布的事件
+CREATE TABLE order_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    order_number VARCHAR(50) NOT NULL,
+    event_type VARCHAR(30) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 与实体上的 allocationSize 一致，事件行与订单在提交时批量写入
+ALTER SEQUENCE order_outbox_id_seq INCREMENT BY 50;
@@ -0,0 +1,23 @@
+-- order_outbox.id 取自按 50 预分配的序列，各实例各持一段号，id 大小不代表写入先后。
+-- 改用 seq 作为排序键：插入时由数据库取号（不经过 Hibernate，不影响批量写入），
+-- 同一订单的事件都在修改该订单的事务中写入，这些事务按订单行锁/版本号串行提交，
+-- 因此同一订单后写入的事件 seq 一定更大。序列不设 CACHE，否则各连接缓存的号段会打乱先后
+CREATE SEQUENCE IF NOT EXISTS order_outbox_seq_seq INCREMENT BY 1 CACHE 1;
+
+ALTER TABLE order_outbox ADD COLUMN IF NOT EXISTS seq BIGINT;
+
+-- 尚未发布的存量事件按 id 顺序编号
+UPDATE order_outbox o
+SET seq = n.rn
+FROM (SELECT id, ROW_NUMBER() OVER (ORDER BY id) AS rn FROM order_outbox WHERE seq IS NULL) n
+WHERE o.id = n.id;
+
+SELECT setval('order_outbox_seq_seq', GREATEST((SELECT COALESCE(MAX(seq), 0) FROM order_outbox), 1));
+
+ALTER TABLE order_outbox ALTER COLUMN seq SET DEFAULT nextval('order_outbox_seq_seq');
+ALTER TABLE order_outbox ALTER COLUMN seq SET NOT NULL;
+ALTER SEQUENCE order_outbox_seq_seq OWNED BY order_outbox.seq;
+
+-- 领取时只取每个订单最早的一条待发布事件
+CREATE INDEX IF NOT EXISTS idx_order_outbox_order_seq ON order_outbox(order_number, seq);
+CREATE INDEX IF NOT EXISTS idx_order_outbox_seq ON order_outbox(seq);
@@ -0,0 +1,326 @@
+package com.ecommerce.order.client;
+
+import com.ecommerce.order.config.ClientResilienceProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import feign.Feign;
+import feign.FeignException;
+import feign.Request;
+import feign.Retryer;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadConfig;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.HttpMessageConverterCustomizer;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.cloud.openfeign.support.SpringEncoder;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 故障注入：本地桩服务模拟部分故障的库存服务（每 10 个请求中 2 个挂起、1 个返回 500），
+ * 以固定速率向有限的“请求线程”投递预留调用，统计从到达到返回的延迟（含排队）。
+ * 不加保护时挂起的调用占满请求线程，后续请求排队，p99 随之失控；
+ * 加保护后慢调用被超时截断、超出并发上限的调用被立即拒绝，p99 保持在超时附近。
+ */
+class ClientCallGuardFaultInjectionTest {
+
+    private static final String ORDER_ID = "ORD-FAULT";
+    private static final Map<Long, Integer> LINES = Map.of(1L, 1);
+
+    private static final int REQUEST_THREADS = 16;
+    private static final int REQUESTS = 300;
+    private static final long ARRIVAL_INTERVAL_MS = 10;
+    private static final long HANG_MS = 1_500;
+    private static final long HEALTHY_MS = 5;
+    private static final int GUARD_TIMEOUT_MS = 200;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final AtomicInteger received = new AtomicInteger();
+    private volatile boolean down;
+    private volatile int failWithStatus;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/api/inventory/reservations/batch/reserve", this::handleReserve);
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void semaphoreBulkheadKeepsP99UnderPartialFailure() throws Exception {
+        long[] unguarded = simulate(client(5_000), (client) -> client.reserveStockBatch(ORDER_ID, LINES));
+
+        ClientCallGuard guard = semaphoreGuard(REQUEST_THREADS / 2, circuitBreakers());
+        long[] guarded = simulate(client(GUARD_TIMEOUT_MS), (client) -> guard.call(ClientCallGuard.INVENTORY,
+                () -> client.reserveStockBatch(ORDER_ID, LINES)));
+        guard.destroy();
+
+        report("semaphore", unguarded, guarded);
+        assertTrue(p99(guarded) < 1_000, "guarded p99 should stay near the read timeout");
+        assertTrue(p99(unguarded) > 2 * p99(guarded), "unguarded p99 should be dominated by hung calls");
+    }
+
+    @Test
+    void threadPoolBulkheadCutsSlowCallsAtTimeLimit() throws Exception {
+        ClientCallGuard guard = threadPoolGuard(REQUEST_THREADS / 2, REQUEST_THREADS / 2);
+        // Feign 自身的读超时远大于限时器，调用方的等待只受限时器约束
+        long[] guarded = simulate(client(5_000), (client) -> guard.call(ClientCallGuard.INVENTORY,
+                () -> client.reserveStockBatch(ORDER_ID, LINES)));
+        guard.destroy();
+
+        report("thread pool", null, guarded);
+        assertTrue(p99(guarded) < 1_000, "guarded p99 should stay near the time limit");
+    }
+
+    @Test
+    void circuitOpensWhenInventoryIsDown() throws Exception {
+        down = true;
+        CircuitBreakerRegistry circuitBreakers = circuitBreakers();
+        ClientCallGuard guard = semaphoreGuard(REQUEST_THREADS, circuitBreakers);
+        InventoryClient client = client(GUARD_TIMEOUT_MS);
+
+        for (int i = 0; i < 10; i++) {
+            assertThrows(FeignException.class, () -> guard.run(ClientCallGuard.INVENTORY,
+                    () -> client.reserveStockBatch(ORDER_ID, LINES)));
+        }
+        int sent = received.get();
+        long start = System.nanoTime();
+        CallNotPermittedException rejected = assertThrows(CallNotPermittedException.class,
+                () -> guard.run(ClientCallGuard.INVENTORY, () -> client.reserveStockBatch(ORDER_ID, LINES)));
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreakers.circuitBreaker(ClientCallGuard.INVENTORY).getState());
+        assertTrue(ClientCallGuard.isRejected(rejected));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < GUARD_TIMEOUT_MS);
+        assertEquals(sent, received.get(), "short-circuited calls must not reach the service");
+        guard.destroy();
+    }
+
+    @Test
+    void throttlingOpensTheCircuitButBusinessRejectionsDoNot() throws Exception {
+        CircuitBreakerRegistry circuitBreakers = circuitBreakers();
+        CircuitBreaker circuitBreaker = circuitBreakers.circuitBreaker(ClientCallGuard.INVENTORY);
+        ClientCallGuard guard = semaphoreGuard(REQUEST_THREADS, circuitBreakers);
+        InventoryClient client = client(GUARD_TIMEOUT_MS);
+
+        failWithStatus = 409;
+        for (int i = 0; i < 10; i++) {
+            assertThrows(FeignException.Conflict.class, () -> guard.run(ClientCallGuard.INVENTORY,
+                    () -> client.reserveStockBatch(ORDER_ID, LINES)));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        failWithStatus = 429;
+        for (int i = 0; i < 10; i++) {
+            assertThrows(FeignException.TooManyRequests.class, () -> guard.run(ClientCallGuard.INVENTORY,
+                    () -> client.reserveStockBatch(ORDER_ID, LINES)));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        guard.destroy();
+    }
+
+    @Test
+    void fullBulkheadRejectsWithoutCallingTheService() throws Exception {
+        down = true;
+        ClientCallGuard guard = semaphoreGuard(1, circuitBreakers());
+        InventoryClient client = client(HANG_MS * 2);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        Future<?> hung = caller.submit(() -> assertThrows(FeignException.class, () -> guard.run(ClientCallGuard.INVENTORY,
+                () -> client.reserveStockBatch(ORDER_ID, LINES))));
+        while (received.get() == 0) {
+            Thread.sleep(1);
+        }
+
+        BulkheadFullException rejected = assertThrows(BulkheadFullException.class,
+                () -> guard.run(ClientCallGuard.INVENTORY, () -> client.reserveStockBatch(ORDER_ID, LINES)));
+
+        assertTrue(ClientCallGuard.isRejected(rejected));
+        assertEquals(1, received.get());
+        hung.get(HANG_MS * 2, TimeUnit.MILLISECONDS);
+        caller.shutdown();
+        guard.destroy();
+    }
+
+    /**
+     * 按固定间隔到达的请求交给 REQUEST_THREADS 个线程处理（相当于 Tomcat 工作线程），
+     * 下游调用失败时请求立即以错误返回；返回每个请求从到达到完成的毫秒数（已排序）
+     */
+    private long[] simulate(InventoryClient client, Consumer<InventoryClient> reserve) throws Exception {
+        received.set(0);
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        List<Future<Long>> futures = new ArrayList<>(REQUESTS);
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            long arrival = start + TimeUnit.MILLISECONDS.toNanos(i * ARRIVAL_INTERVAL_MS);
+            LockSupport.parkNanos(arrival - System.nanoTime());
+            futures.add(requestThreads.submit(() -> {
+                try {
+                    reserve.accept(client);
+                } catch (RuntimeException e) {
+                    // 降级：直接返回错误
+                }
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - arrival);
+            }));
+        }
+        long[] latencies = new long[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            latencies[i] = futures.get(i).get(60, TimeUnit.SECONDS);
+        }
+        requestThreads.shutdown();
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private void handleReserve(HttpExchange exchange) throws IOException {
+        int n = received.getAndIncrement() % 10;
+        try {
+            if (failWithStatus != 0) {
+                respond(exchange, failWithStatus, "{}");
+            } else if (down || n == 0 || n == 5) {
+                Thread.sleep(HANG_MS);
+                respond(exchange, 503, "{}");
+            } else if (n == 3) {
+                respond(exchange, 500, "{\"error\":\"boom\"}");
+            } else {
+                Thread.sleep(HEALTHY_MS);
+                respond(exchange, 200, "[]");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // 客户端已超时断开
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private InventoryClient client(long readTimeoutMs) {
+        ObjectFactory<HttpMessageConverters> converters =
+                () -> new HttpMessageConverters(new MappingJackson2HttpMessageConverter());
+        ObjectProvider<HttpMessageConverterCustomizer> customizers =
+                new StaticListableBeanFactory().getBeanProvider(HttpMessageConverterCustomizer.class);
+        return Feign.builder()
+                .contract(new SpringMvcContract())
+                .encoder(new SpringEncoder(converters))
+                .decoder(new ResponseEntityDecoder(new SpringDecoder(converters, customizers)))
+                .options(new Request.Options(500, TimeUnit.MILLISECONDS, readTimeoutMs, TimeUnit.MILLISECONDS, true))
+                .retryer(Retryer.NEVER_RETRY)
+                .target(InventoryClient.class, "http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    private static ClientCallGuard semaphoreGuard(int maxConcurrentCalls, CircuitBreakerRegistry circuitBreakers) {
+        BulkheadRegistry bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        return guard(ClientResilienceProperties.BulkheadType.SEMAPHORE, bulkheads,
+                ThreadPoolBulkheadRegistry.ofDefaults(), circuitBreakers);
+    }
+
+    private static ClientCallGuard threadPoolGuard(int threads, int queueCapacity) {
+        ThreadPoolBulkheadRegistry threadPoolBulkheads = ThreadPoolBulkheadRegistry.of(ThreadPoolBulkheadConfig.custom()
+                .coreThreadPoolSize(threads)
+                .maxThreadPoolSize(threads)
+                .queueCapacity(queueCapacity)
+                .build());
+        return guard(ClientResilienceProperties.BulkheadType.THREAD_POOL, BulkheadRegistry.ofDefaults(),
+                threadPoolBulkheads, circuitBreakers());
+    }
+
+    private static ClientCallGuard guard(ClientResilienceProperties.BulkheadType type, BulkheadRegistry bulkheads,
+                                         ThreadPoolBulkheadRegistry threadPoolBulkheads,
+                                         CircuitBreakerRegistry circuitBreakers) {
+        ClientResilienceProperties properties = new ClientResilienceProperties();
+        ClientResilienceProperties.Bulkhead bulkhead = new ClientResilienceProperties.Bulkhead();
+        bulkhead.setType(type);
+        properties.getClients().put(ClientCallGuard.INVENTORY, bulkhead);
+        TimeLimiterRegistry timeLimiters = TimeLimiterRegistry.of(TimeLimiterConfig.custom()
+                .timeoutDuration(Duration.ofMillis(GUARD_TIMEOUT_MS))
+                .cancelRunningFuture(true)
+                .build());
+        return new ClientCallGuard(properties, circuitBreakers, bulkheads, threadPoolBulkheads, timeLimiters,
+                new SimpleMeterRegistry());
+    }
+
+    /**
+     * 与 application.yml 中的默认熔断配置一致，窗口缩小以便在测试内触发
+     */
+    private static CircuitBreakerRegistry circuitBreakers() {
+        return CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(20)
+                .minimumNumberOfCalls(10)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofSeconds(30))
+                .recordException(new DownstreamFailurePredicate())
+                .ignoreExceptions(BulkheadFullException.class)
+                .build());
+    }
+
+    private static long p99(long[] sorted) {
+        return sorted[sorted.length * 99 / 100];
+    }
+
+    private static void report(String mode, long[] unguarded, long[] guarded) {
+        if (unguarded != null) {
+            System.out.printf("inventory partial failure, unguarded: p50 %d ms, p99 %d ms, max %d ms%n",
+                    unguarded[unguarded.length / 2], p99(unguarded), unguarded[unguarded.length - 1]);
+        }
+        System.out.printf("inventory partial failure, %s bulkhead: p50 %d ms, p99 %d ms, max %d ms%n",
+                mode, guarded[guarded.length / 2], p99(guarded), guarded[guarded.length - 1]);
+    }
+}
@@ -0,0 +1,117 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.cart.CartLine;
+import com.ecommerce.order.dto.cart.CartSnapshot;
+import com.ecommerce.order.model.Cart;
+import com.ecommerce.order.repository.CartRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartServiceTest {
+
+    private static final int BATCH_SIZE = 2;
+    private static final String TOKEN = "lock-token";
+
+    private CartStore cartStore;
+    private CartRepository cartRepository;
+    private CartService cartService;
+
+    @BeforeEach
+    void setUp() {
+        cartStore = mock(CartStore.class);
+        cartRepository = mock(CartRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(cartStore.tryLock(anyLong())).thenReturn(TOKEN);
+        when(cartRepository.findWithItemsByUserId(anyLong())).thenReturn(Optional.empty());
+        cartService = new CartService(cartStore, cartRepository, transactionManager, BATCH_SIZE, 30_000);
+    }
+
+    @Test
+    void flushPersistsSnapshotAndAcknowledgesTheVersionItWrote() {
+        when(cartStore.findDue(anyLong(), eq(BATCH_SIZE))).thenReturn(Set.of("7"));
+        when(cartStore.read(7L)).thenReturn(new CartSnapshot(5, List.of(line(11L, 2), line(12L, 1))));
+
+        cartService.flushIdleCarts();
+
+        ArgumentCaptor<Cart> saved = ArgumentCaptor.forClass(Cart.class);
+        verify(cartRepository).save(saved.capture());
+        assertEquals(7L, saved.getValue().getUserId());
+        assertEquals(2, saved.getValue().getItems().size());
+        // 确认携带落库时读到的版本；期间又有写入时由确认脚本让购物车继续等待
+        verify(cartStore).acknowledge(eq(7L), eq(5L), anyLong());
+        verify(cartStore).unlock(TOKEN);
+    }
+
+    @Test
+    void expiredCartIsAcknowledgedWithoutWriting() {
+        when(cartStore.findDue(anyLong(), eq(BATCH_SIZE))).thenReturn(Set.of("7"));
+
+        cartService.flushIdleCarts();
+
+        verify(cartRepository, never()).save(any());
+        verify(cartStore).acknowledge(eq(7L), eq(-1L), anyLong());
+    }
+
+    @Test
+    void failedPersistIsNotAcknowledgedAndStopsPaging() {
+        when(cartStore.findDue(anyLong(), eq(BATCH_SIZE))).thenReturn(Set.of("7", "8"));
+        when(cartStore.read(anyLong())).thenReturn(new CartSnapshot(3, List.of(line(11L, 1))));
+        when(cartRepository.save(any())).thenThrow(new IllegalStateException("db down"));
+
+        cartService.flushIdleCarts();
+
+        verify(cartStore, never()).acknowledge(anyLong(), anyLong(), anyLong());
+        // 整批都满也不再取下一批，留给下一轮重试
+        verify(cartStore, times(1)).findDue(anyLong(), anyInt());
+        verify(cartStore).unlock(TOKEN);
+    }
+
+    @Test
+    void fullBatchIsFollowedByAnotherPage() {
+        when(cartStore.findDue(anyLong(), eq(BATCH_SIZE))).thenReturn(Set.of("7", "8")).thenReturn(Set.of());
+
+        cartService.flushIdleCarts();
+
+        verify(cartStore, times(2)).findDue(anyLong(), anyInt());
+        verify(cartStore, times(2)).acknowledge(anyLong(), eq(-1L), anyLong());
+    }
+
+    @Test
+    void flushIsSkippedWhileAnotherReplicaHoldsTheLock() {
+        when(cartStore.tryLock(anyLong())).thenReturn(null);
+
+        cartService.flushIdleCarts();
+
+        verify(cartStore, never()).findDue(anyLong(), anyInt());
+        verify(cartStore, never()).unlock(any());
+    }
+
+    private static CartLine line(Long productId, int quantity) {
+        return CartLine.builder()
+                .productId(productId)
+                .quantity(quantity)
+                .productName("商品" + productId)
+                .price(new BigDecimal("9.90"))
+                .build();
+    }
+}
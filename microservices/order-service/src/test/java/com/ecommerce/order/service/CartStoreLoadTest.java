@@ -0,0 +1,161 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.cart.CartLine;
+import com.ecommerce.order.dto.cart.CartSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 购物车高频修改压测：多线程对少量购物车交替加购、减购、删除，统计吞吐与延迟，
+ * 并验证同一商品的并发 HINCRBY 不丢失更新、落库确认能识别期间的新修改。
+ * 需要 Redis，例如：ORDER_BENCHMARK_REDIS_HOST=localhost
+ */
+@EnabledIfEnvironmentVariable(named = "ORDER_BENCHMARK_REDIS_HOST", matches = ".+")
+class CartStoreLoadTest {
+
+    private static final long FIRST_USER_ID = 9_400_001L;
+    private static final int USERS = 64;
+    private static final int THREADS = 32;
+    private static final int OPS_PER_THREAD = 2_000;
+    private static final long HOT_PRODUCT_ID = 1L;
+    private static final int CHURN_PRODUCTS = 10;
+
+    private LettuceConnectionFactory connectionFactory;
+    private CartStore cartStore;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(
+                System.getenv("ORDER_BENCHMARK_REDIS_HOST"),
+                Integer.parseInt(System.getenv().getOrDefault("ORDER_BENCHMARK_REDIS_PORT", "6379")));
+        connectionFactory.afterPropertiesSet();
+        cartStore = new CartStore(new StringRedisTemplate(connectionFactory), new ObjectMapper(), 3_600, 300);
+        for (int u = 0; u < USERS; u++) {
+            cartStore.evict(FIRST_USER_ID + u);
+            cartStore.load(FIRST_USER_ID + u, List.of());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (int u = 0; u < USERS; u++) {
+            cartStore.evict(FIRST_USER_ID + u);
+        }
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void cartChurn() throws Exception {
+        AtomicIntegerArray expectedHot = new AtomicIntegerArray(USERS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long[] latencies = new long[OPS_PER_THREAD];
+                start.await();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    int user = random.nextInt(USERS);
+                    long userId = FIRST_USER_ID + user;
+                    long productId = HOT_PRODUCT_ID + 1 + random.nextInt(CHURN_PRODUCTS);
+                    long opStart = System.nanoTime();
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            // 热点商品只加不减，最终数量可精确校验
+                            cartStore.add(userId, line(HOT_PRODUCT_ID), 1);
+                            expectedHot.incrementAndGet(user);
+                            break;
+                        case 1:
+                            cartStore.add(userId, line(productId), 1 + random.nextInt(3));
+                            break;
+                        case 2:
+                            cartStore.add(userId, line(productId), -1);
+                            break;
+                        default:
+                            try {
+                                cartStore.remove(userId, productId);
+                            } catch (RuntimeException e) {
+                                // 该商品不在购物车中
+                            }
+                    }
+                    latencies[i] = System.nanoTime() - opStart;
+                }
+                return latencies;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        long[] all = new long[THREADS * OPS_PER_THREAD];
+        int offset = 0;
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get(120, TimeUnit.SECONDS);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+            offset += latencies.length;
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        executor.shutdown();
+
+        Arrays.sort(all);
+        System.out.printf("cart churn (Redis hash + Lua): %d ops on %d carts, %d ms, %.0f ops/s, p50 %d us, p99 %d us%n",
+                all.length, USERS, elapsedMillis, all.length * 1000.0 / Math.max(1, elapsedMillis),
+                TimeUnit.NANOSECONDS.toMicros(all[all.length / 2]),
+                TimeUnit.NANOSECONDS.toMicros(all[all.length * 99 / 100]));
+
+        for (int u = 0; u < USERS; u++) {
+            CartSnapshot snapshot = cartStore.read(FIRST_USER_ID + u);
+            assertNotNull(snapshot);
+            int hot = snapshot.getLines().stream()
+                    .filter(line -> line.getProductId() == HOT_PRODUCT_ID)
+                    .mapToInt(CartLine::getQuantity)
+                    .sum();
+            assertEquals(expectedHot.get(u), hot, "concurrent increments must not be lost");
+            assertTrue(snapshot.getLines().stream().allMatch(line -> line.getQuantity() > 0));
+        }
+    }
+
+    @Test
+    void acknowledgeDetectsWritesDuringFlush() {
+        long userId = FIRST_USER_ID;
+        cartStore.add(userId, line(HOT_PRODUCT_ID), 2);
+        CartSnapshot flushed = cartStore.read(userId);
+
+        cartStore.add(userId, line(HOT_PRODUCT_ID), 1);
+        assertFalse(cartStore.acknowledge(userId, flushed.getVersion(), System.currentTimeMillis()));
+
+        CartSnapshot latest = cartStore.read(userId);
+        assertTrue(cartStore.acknowledge(userId, latest.getVersion(), System.currentTimeMillis()));
+    }
+
+    private static CartLine line(long productId) {
+        return CartLine.builder()
+                .productId(productId)
+                .productName("商品 " + productId)
+                .price(new BigDecimal("9.90"))
+                .addedAt(System.currentTimeMillis())
+                .build();
+    }
+}
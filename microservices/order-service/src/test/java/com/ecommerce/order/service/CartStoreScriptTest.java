@@ -0,0 +1,115 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.cart.CartLine;
+import com.ecommerce.order.dto.cart.CartSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 购物车 Lua 脚本的落库协议：确认只在版本未变时移出待落库集合，清空保留版本号，修改不存在的商品返回错误。
+ * 需要 Redis，例如：ORDER_BENCHMARK_REDIS_HOST=localhost
+ */
+@EnabledIfEnvironmentVariable(named = "ORDER_BENCHMARK_REDIS_HOST", matches = ".+")
+class CartStoreScriptTest {
+
+    private static final long USER_ID = 9_500_001L;
+    private static final long IDLE_SECONDS = 300;
+
+    private LettuceConnectionFactory connectionFactory;
+    private CartStore cartStore;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(
+                System.getenv("ORDER_BENCHMARK_REDIS_HOST"),
+                Integer.parseInt(System.getenv().getOrDefault("ORDER_BENCHMARK_REDIS_PORT", "6379")));
+        connectionFactory.afterPropertiesSet();
+        cartStore = new CartStore(new StringRedisTemplate(connectionFactory), new ObjectMapper(), 3_600, IDLE_SECONDS);
+        cartStore.evict(USER_ID);
+        cartStore.load(USER_ID, List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartStore.evict(USER_ID);
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void acknowledgeKeepsCartDueWhenWrittenDuringFlush() {
+        cartStore.add(USER_ID, line(11L), 1);
+        cartStore.markDue(USER_ID);
+        CartSnapshot flushed = cartStore.read(USER_ID);
+
+        // 落库期间用户又加购了一件
+        cartStore.add(USER_ID, line(11L), 1);
+        long now = System.currentTimeMillis();
+
+        assertFalse(cartStore.acknowledge(USER_ID, flushed.getVersion(), now));
+        assertFalse(isDue(now), "重新等待空闲，而不是立即再次落库");
+        assertTrue(isDue(now + IDLE_SECONDS * 1000));
+
+        assertTrue(cartStore.acknowledge(USER_ID, cartStore.read(USER_ID).getVersion(), now));
+        assertFalse(isDue(Long.MAX_VALUE));
+    }
+
+    @Test
+    void clearKeepsVersionSoOlderSnapshotIsNotAcknowledged() {
+        cartStore.add(USER_ID, line(11L), 2);
+        CartSnapshot beforeClear = cartStore.add(USER_ID, line(12L), 1);
+
+        CartSnapshot cleared = cartStore.clear(USER_ID);
+
+        assertEquals(beforeClear.getVersion() + 1, cleared.getVersion());
+        assertTrue(cleared.getLines().isEmpty());
+        assertFalse(cartStore.acknowledge(USER_ID, beforeClear.getVersion(), System.currentTimeMillis()));
+        assertTrue(isDue(Long.MAX_VALUE));
+    }
+
+    @Test
+    void acknowledgeRemovesExpiredCart() {
+        cartStore.add(USER_ID, line(11L), 1);
+        cartStore.evict(USER_ID);
+        cartStore.markDue(USER_ID);
+
+        // 购物车在 Redis 中已过期，CartService 以 -1 确认
+        assertTrue(cartStore.acknowledge(USER_ID, -1, System.currentTimeMillis()));
+        assertFalse(isDue(Long.MAX_VALUE));
+    }
+
+    @Test
+    void missingProductIsRejectedWithoutTouchingVersion() {
+        long version = cartStore.add(USER_ID, line(11L), 1).getVersion();
+
+        assertThrows(RuntimeException.class, () -> cartStore.setQuantity(USER_ID, 99L, 3));
+        assertThrows(RuntimeException.class, () -> cartStore.remove(USER_ID, 99L));
+
+        assertEquals(version, cartStore.read(USER_ID).getVersion());
+    }
+
+    private boolean isDue(long nowMillis) {
+        return cartStore.findDue(nowMillis, Integer.MAX_VALUE).contains(String.valueOf(USER_ID));
+    }
+
+    private static CartLine line(Long productId) {
+        return CartLine.builder()
+                .productId(productId)
+                .productName("商品" + productId)
+                .price(new BigDecimal("9.90"))
+                .addedAt(System.currentTimeMillis())
+                .build();
+    }
+}
@@ -0,0 +1,82 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.cart.CartSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 脚本返回值的解析与参数约定；脚本本身的语义见 CartStoreScriptTest
+ */
+class CartStoreTest {
+
+    private static final long IDLE_SECONDS = 300;
+
+    private StringRedisTemplate redisTemplate;
+    private CartStore cartStore;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        cartStore = new CartStore(redisTemplate, new ObjectMapper(), 3_600, IDLE_SECONDS);
+    }
+
+    @Test
+    void missingItemResultIsReportedAsError() {
+        scriptReturns(List.of("-1"));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> cartStore.setQuantity(7L, 11L, 2));
+
+        assertEquals("购物车商品不存在", e.getMessage());
+    }
+
+    @Test
+    void emptyResultMeansCartNotLoaded() {
+        scriptReturns(List.of());
+
+        assertNull(cartStore.remove(7L, 11L));
+    }
+
+    @Test
+    void snapshotLinesAreOrderedByAddedAt() {
+        scriptReturns(List.of("4",
+                "12", "1", "{\"productName\":\"后加\",\"addedAt\":20}",
+                "11", "3", "{\"productName\":\"先加\",\"addedAt\":10}"));
+
+        CartSnapshot snapshot = cartStore.clear(7L);
+
+        assertEquals(4, snapshot.getVersion());
+        assertEquals(11L, snapshot.getLines().get(0).getProductId());
+        assertEquals(3, snapshot.getLines().get(0).getQuantity());
+        assertEquals("先加", snapshot.getLines().get(0).getProductName());
+        assertEquals(12L, snapshot.getLines().get(1).getProductId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void acknowledgePassesSnapshotVersionAndNextDueTime() {
+        cartStore.acknowledge(7L, 5, 1_000);
+
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("cart:7:lines", "cart:due")),
+                eq("7"), eq("5"), eq(String.valueOf(1_000 + IDLE_SECONDS * 1000)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void scriptReturns(List<String> result) {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any())).thenReturn(result);
+    }
+}
@@ -0,0 +1,260 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.config.InventoryConfig;
+import com.ecommerce.order.config.RabbitMQConfig;
+import com.ecommerce.order.dto.saga.CheckoutCommand;
+import com.ecommerce.order.dto.saga.CheckoutReply;
+import com.ecommerce.order.model.CheckoutSaga;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.model.enums.CheckoutState;
+import com.ecommerce.order.model.enums.CheckoutStep;
+import com.ecommerce.order.model.enums.OrderStatus;
+import com.ecommerce.order.repository.CheckoutSagaRepository;
+import com.ecommerce.order.repository.OrderRepository;
+import com.ecommerce.order.repository.OrderStatusHistoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CheckoutSagaOrchestratorTest {
+
+    private static final long ORDER_ID = 7L;
+    private static final String ORDER_NUMBER = "ORD7";
+    private static final int MAX_ATTEMPTS = 5;
+
+    private CheckoutSagaRepository sagaRepository;
+    private OrderStatusTransitionService orderStatusTransitionService;
+    private RabbitTemplate rabbitTemplate;
+    private InventoryConfig inventoryConfig;
+    private Order order;
+    private CheckoutSagaOrchestrator orchestrator;
+
+    @BeforeEach
+    void setUp() {
+        sagaRepository = mock(CheckoutSagaRepository.class);
+        when(sagaRepository.save(any(CheckoutSaga.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        order = order();
+        when(orderRepository.findById(ORDER_ID)).thenReturn(Optional.of(order));
+        orderStatusTransitionService = mock(OrderStatusTransitionService.class);
+        when(orderStatusTransitionService.cancelForCheckout(any(Order.class), anyString())).thenReturn(true);
+        rabbitTemplate = mock(RabbitTemplate.class);
+        inventoryConfig = new InventoryConfig();
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("orderStatusTransitionService", orderStatusTransitionService);
+        orchestrator = new CheckoutSagaOrchestrator(sagaRepository, orderRepository,
+                mock(OrderStatusHistoryRepository.class), inventoryConfig,
+                beanFactory.getBeanProvider(OrderStatusTransitionService.class), rabbitTemplate,
+                transactionManager, 30_000L, MAX_ATTEMPTS, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void firstStepIsDispatchedOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        CheckoutSaga saga = orchestrator.start(order);
+
+        assertEquals(CheckoutStep.RESERVE_INVENTORY, saga.getStep());
+        assertTrue(saga.isInventoryHeld());
+        verifyNoInteractions(rabbitTemplate);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        CheckoutCommand command = sentCommands().get(0);
+        assertEquals(CheckoutStep.RESERVE_INVENTORY, command.getStep());
+        // 同一商品的多行合并为一次预留
+        assertEquals(Map.of(100L, 3, 200L, 1), command.getVariantQuantities());
+    }
+
+    @Test
+    void reservationFailureIsIgnoredWhenValidationIsDisabled() {
+        inventoryConfig.setValidationEnabled(false);
+        CheckoutSaga saga = saga(CheckoutState.RUNNING, CheckoutStep.RESERVE_INVENTORY, true, false);
+
+        orchestrator.onReply(reply(CheckoutStep.RESERVE_INVENTORY, false, false));
+
+        assertEquals(CheckoutState.RUNNING, saga.getState());
+        assertEquals(CheckoutStep.INITIALIZE_PAYMENT, saga.getStep());
+        assertFalse(saga.isInventoryHeld());
+        assertEquals(List.of(CheckoutStep.INITIALIZE_PAYMENT), sentSteps());
+        verify(orderStatusTransitionService, never()).cancelForCheckout(any(), any());
+    }
+
+    @Test
+    void reservationFailureCancelsOrderWhenValidationIsEnabled() {
+        CheckoutSaga saga = saga(CheckoutState.RUNNING, CheckoutStep.RESERVE_INVENTORY, true, false);
+
+        orchestrator.onReply(reply(CheckoutStep.RESERVE_INVENTORY, false, false));
+
+        assertEquals(CheckoutState.COMPENSATING, saga.getState());
+        assertEquals(CheckoutStep.RELEASE_INVENTORY, saga.getStep());
+        verify(orderStatusTransitionService).cancelForCheckout(order, "库存不足");
+    }
+
+    @Test
+    void compensationCancelsPaymentBeforeReleasingInventory() {
+        CheckoutSaga saga = saga(CheckoutState.COMPLETED, null, true, true);
+
+        orchestrator.compensate(saga, order, "用户取消");
+        assertEquals(CheckoutStep.CANCEL_PAYMENT, saga.getStep());
+
+        orchestrator.onReply(reply(CheckoutStep.CANCEL_PAYMENT, true, false));
+        assertFalse(saga.isPaymentInitialized());
+        assertEquals(CheckoutStep.RELEASE_INVENTORY, saga.getStep());
+
+        orchestrator.onReply(reply(CheckoutStep.RELEASE_INVENTORY, true, false));
+        assertFalse(saga.isInventoryHeld());
+        assertEquals(CheckoutState.COMPENSATED, saga.getState());
+        assertNull(saga.getStep());
+
+        assertEquals(List.of(CheckoutStep.CANCEL_PAYMENT, CheckoutStep.RELEASE_INVENTORY), sentSteps());
+    }
+
+    @Test
+    void failedCompensationStepIsRetriedNotAbandoned() {
+        CheckoutSaga saga = saga(CheckoutState.COMPENSATING, CheckoutStep.CANCEL_PAYMENT, true, true);
+
+        orchestrator.onReply(reply(CheckoutStep.CANCEL_PAYMENT, false, false));
+
+        assertEquals(CheckoutState.COMPENSATING, saga.getState());
+        assertEquals(CheckoutStep.CANCEL_PAYMENT, saga.getStep());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void lateReservationSuccessCompensatesACompensatedSagaAgain() {
+        CheckoutSaga saga = saga(CheckoutState.COMPENSATED, null, false, false);
+
+        orchestrator.onReply(reply(CheckoutStep.RESERVE_INVENTORY, true, false));
+
+        assertEquals(CheckoutState.COMPENSATING, saga.getState());
+        assertTrue(saga.isInventoryHeld());
+        assertEquals(CheckoutStep.RELEASE_INVENTORY, saga.getStep());
+        assertEquals(List.of(CheckoutStep.RELEASE_INVENTORY), sentSteps());
+    }
+
+    @Test
+    void lateSuccessForHeldResourceIsIgnored() {
+        CheckoutSaga saga = saga(CheckoutState.COMPENSATING, CheckoutStep.RELEASE_INVENTORY, true, false);
+
+        orchestrator.onReply(reply(CheckoutStep.RESERVE_INVENTORY, true, false));
+
+        assertEquals(CheckoutStep.RELEASE_INVENTORY, saga.getStep());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void staleStepsAreResentUntilMaxAttempts() {
+        CheckoutSaga retrying = saga(CheckoutState.RUNNING, CheckoutStep.INITIALIZE_PAYMENT, true, false);
+        retrying.setAttempts(MAX_ATTEMPTS - 2);
+        CheckoutSaga exhausted = saga(CheckoutState.RUNNING, CheckoutStep.INITIALIZE_PAYMENT, true, false);
+        exhausted.setAttempts(MAX_ATTEMPTS - 1);
+        CheckoutSaga compensating = saga(CheckoutState.COMPENSATING, CheckoutStep.RELEASE_INVENTORY, true, false);
+        compensating.setAttempts(MAX_ATTEMPTS - 1);
+        when(sagaRepository.claimStale(any(), anyInt())).thenReturn(List.of(retrying, exhausted, compensating));
+
+        orchestrator.resendStale();
+
+        assertEquals(MAX_ATTEMPTS - 1, retrying.getAttempts());
+        assertEquals(CheckoutStep.INITIALIZE_PAYMENT, retrying.getStep());
+        // 正向步骤超过次数转入补偿；补偿步骤超过次数标记失败，不再重发
+        assertEquals(CheckoutState.COMPENSATING, exhausted.getState());
+        assertEquals(CheckoutStep.RELEASE_INVENTORY, exhausted.getStep());
+        verify(orderStatusTransitionService, times(1)).cancelForCheckout(eq(order), anyString());
+        assertEquals(CheckoutState.FAILED, compensating.getState());
+        assertNull(compensating.getStep());
+        assertEquals(List.of(CheckoutStep.INITIALIZE_PAYMENT, CheckoutStep.RELEASE_INVENTORY), sentSteps());
+    }
+
+    private CheckoutSaga saga(CheckoutState state, CheckoutStep step, boolean inventoryHeld, boolean paymentInitialized) {
+        CheckoutSaga saga = new CheckoutSaga();
+        saga.setOrderId(ORDER_ID);
+        saga.setOrderNumber(ORDER_NUMBER);
+        saga.setState(state);
+        saga.setStep(step);
+        saga.setInventoryHeld(inventoryHeld);
+        saga.setPaymentInitialized(paymentInitialized);
+        when(sagaRepository.findByOrderNumberForUpdate(ORDER_NUMBER)).thenReturn(Optional.of(saga));
+        return saga;
+    }
+
+    private List<CheckoutCommand> sentCommands() {
+        ArgumentCaptor<CheckoutCommand> commands = ArgumentCaptor.forClass(CheckoutCommand.class);
+        verify(rabbitTemplate, atLeastOnce()).convertAndSend(eq(RabbitMQConfig.ORDER_EXCHANGE),
+                eq(RabbitMQConfig.CHECKOUT_COMMAND_ROUTING_KEY), commands.capture());
+        return commands.getAllValues();
+    }
+
+    private List<CheckoutStep> sentSteps() {
+        return sentCommands().stream().map(CheckoutCommand::getStep).collect(Collectors.toList());
+    }
+
+    private static CheckoutReply reply(CheckoutStep step, boolean success, boolean retryable) {
+        return CheckoutReply.builder()
+                .orderNumber(ORDER_NUMBER)
+                .step(step)
+                .success(success)
+                .retryable(retryable)
+                .reason(success ? null : "库存不足")
+                .build();
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.setId(ORDER_ID);
+        order.setOrderNumber(ORDER_NUMBER);
+        order.setStatus(OrderStatus.PENDING);
+        order.setTotalAmount(new BigDecimal("25.80"));
+        order.addOrderItem(item(100L, 2));
+        order.addOrderItem(item(200L, 1));
+        order.addOrderItem(item(100L, 1));
+        return order;
+    }
+
+    private static OrderItem item(long productId, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
@@ -0,0 +1,95 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.client.ClientCallGuard;
+import com.ecommerce.order.client.InventoryClient;
+import com.ecommerce.order.client.PaymentClient;
+import com.ecommerce.order.config.InventoryConfig;
+import com.ecommerce.order.config.RabbitMQConfig;
+import com.ecommerce.order.dto.saga.CheckoutCommand;
+import com.ecommerce.order.dto.saga.CheckoutReply;
+import com.ecommerce.order.model.enums.CheckoutStep;
+import feign.FeignException;
+import feign.Request;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CheckoutStepExecutorTest {
+
+    private static final Request REQUEST = Request.create(Request.HttpMethod.GET, "/api/payments/order/ORD1",
+            Map.of(), null, StandardCharsets.UTF_8, null);
+
+    private PaymentClient paymentClient;
+    private RabbitTemplate rabbitTemplate;
+    private CheckoutStepExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        paymentClient = mock(PaymentClient.class);
+        rabbitTemplate = mock(RabbitTemplate.class);
+        ClientCallGuard callGuard = mock(ClientCallGuard.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(callGuard).run(anyString(), any(Runnable.class));
+        executor = new CheckoutStepExecutor(mock(InventoryClient.class), paymentClient, callGuard,
+                new InventoryConfig(), rabbitTemplate);
+    }
+
+    @Test
+    void resentPaymentStepCreatesPaymentWhenLookupReturns404() {
+        when(paymentClient.getPayment("ORD1")).thenThrow(new FeignException.NotFound("not found", REQUEST, null, null));
+
+        executor.execute(resentPaymentCommand());
+
+        verify(paymentClient).createPayment(anyMap());
+        assertTrue(reply().isSuccess());
+    }
+
+    @Test
+    void resentPaymentStepDoesNotCreatePaymentWhenLookupFails() {
+        when(paymentClient.getPayment("ORD1"))
+                .thenThrow(new FeignException.ServiceUnavailable("unavailable", REQUEST, null, null));
+
+        executor.execute(resentPaymentCommand());
+
+        verify(paymentClient, never()).createPayment(anyMap());
+        CheckoutReply reply = reply();
+        assertFalse(reply.isSuccess());
+        assertTrue(reply.isRetryable());
+    }
+
+    private CheckoutReply reply() {
+        ArgumentCaptor<CheckoutReply> reply = ArgumentCaptor.forClass(CheckoutReply.class);
+        verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.ORDER_EXCHANGE),
+                eq(RabbitMQConfig.CHECKOUT_REPLY_ROUTING_KEY), reply.capture());
+        return reply.getValue();
+    }
+
+    private static CheckoutCommand resentPaymentCommand() {
+        return CheckoutCommand.builder()
+                .orderNumber("ORD1")
+                .step(CheckoutStep.INITIALIZE_PAYMENT)
+                .attempt(1)
+                .amount(new BigDecimal("25.80"))
+                .currency("CNY")
+                .build();
+    }
+}
@@ -0,0 +1,229 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.client.ClientCallGuard;
+import com.ecommerce.order.client.InventoryClient;
+import com.ecommerce.order.client.ProductClient;
+import com.ecommerce.order.config.ClientResilienceProperties;
+import com.ecommerce.order.config.InventoryConfig;
+import com.ecommerce.order.dto.cart.CartLine;
+import com.ecommerce.order.dto.checkout.ProductPrice;
+import com.ecommerce.order.dto.checkout.ProductPriceListResponse;
+import com.ecommerce.order.dto.checkout.StockAvailability;
+import com.ecommerce.order.dto.checkout.ValidatedCartLine;
+import com.ecommerce.order.dto.checkout.ValidatedCartResponse;
+import com.ecommerce.order.dto.request.OrderItemRequest;
+import com.ecommerce.order.exception.OrderValidationException;
+import com.ecommerce.order.model.enums.CartLineIssue;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CheckoutValidationServiceTest {
+
+    private static final long USER_ID = 42L;
+
+    private CartService cartService;
+    private ProductClient productClient;
+    private InventoryClient inventoryClient;
+    private CheckoutCatalogCache catalogCache;
+    private InventoryConfig inventoryConfig;
+    private ExecutorService executor;
+    private CircuitBreakerRegistry circuitBreakers;
+    private CheckoutValidationService service;
+
+    @BeforeEach
+    void setUp() {
+        cartService = mock(CartService.class);
+        productClient = mock(ProductClient.class);
+        inventoryClient = mock(InventoryClient.class);
+        catalogCache = mock(CheckoutCatalogCache.class);
+        when(catalogCache.getPrices(anyList())).thenReturn(Map.of());
+        when(catalogCache.getAvailability(anyList())).thenReturn(Map.of());
+        inventoryConfig = new InventoryConfig();
+        executor = Executors.newFixedThreadPool(2);
+        circuitBreakers = CircuitBreakerRegistry.ofDefaults();
+        ClientCallGuard callGuard = new ClientCallGuard(new ClientResilienceProperties(),
+                circuitBreakers, BulkheadRegistry.ofDefaults(), ThreadPoolBulkheadRegistry.ofDefaults(),
+                TimeLimiterRegistry.ofDefaults(), new SimpleMeterRegistry());
+        service = new CheckoutValidationService(cartService, productClient, inventoryClient, callGuard, inventoryConfig,
+                catalogCache, executor, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void flagsPriceChangesMissingProductsAndShortStockWithOneCallPerService() {
+        when(cartService.getCartLines(USER_ID)).thenReturn(List.of(
+                line(1L, "9.90", 2),
+                line(2L, "5.00", 1),
+                line(3L, "3.00", 5),
+                line(4L, "1.00", 1)));
+        when(productClient.getPrices(anyList())).thenReturn(prices(
+                price(1L, "9.90"), price(2L, "5.50"), price(3L, "3.00")));
+        when(inventoryClient.getAvailability(anyList())).thenReturn(List.of(
+                stock(1L, 10), stock(2L, 10), stock(3L, 4), stock(4L, 10)));
+
+        ValidatedCartResponse cart = service.validateCart(USER_ID);
+
+        verify(productClient, times(1)).getPrices(List.of(1L, 2L, 3L, 4L));
+        verify(inventoryClient, times(1)).getAvailability(List.of(1L, 2L, 3L, 4L));
+        assertFalse(cart.isValid());
+        assertTrue(cart.isStockChecked());
+        assertEquals(List.of(), cart.getLines().get(0).getIssues());
+        assertEquals(List.of(CartLineIssue.PRICE_CHANGED), cart.getLines().get(1).getIssues());
+        assertEquals(List.of(CartLineIssue.INSUFFICIENT_STOCK), cart.getLines().get(2).getIssues());
+        assertEquals(List.of(CartLineIssue.UNAVAILABLE), cart.getLines().get(3).getIssues());
+        // 按当前售价计价，下架商品不计入
+        assertEquals(0, new BigDecimal("40.30").compareTo(cart.getSubtotal()));
+        ValidatedCartLine repriced = cart.getLines().get(1);
+        assertEquals(0, new BigDecimal("5.50").compareTo(repriced.getUnitPrice()));
+        assertEquals(0, new BigDecimal("5.00").compareTo(repriced.getCartPrice()));
+    }
+
+    @Test
+    void priceAndStockLookupsRunInParallel() {
+        when(cartService.getCartLines(USER_ID)).thenReturn(List.of(line(1L, "9.90", 1)));
+        // 两个调用互相等待，串行执行时会超时
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        when(productClient.getPrices(anyList())).thenAnswer(invocation -> {
+            barrier.await(5, TimeUnit.SECONDS);
+            return prices(price(1L, "9.90"));
+        });
+        when(inventoryClient.getAvailability(anyList())).thenAnswer(invocation -> {
+            barrier.await(5, TimeUnit.SECONDS);
+            return List.of(stock(1L, 3));
+        });
+
+        assertTrue(service.validateCart(USER_ID).isValid());
+    }
+
+    @Test
+    void cachedProductsAreNotRequestedAgain() {
+        when(cartService.getCartLines(USER_ID)).thenReturn(List.of(line(1L, "9.90", 1), line(2L, "5.00", 1)));
+        when(catalogCache.getPrices(anyList())).thenReturn(Map.of(1L, price(1L, "9.90")));
+        when(catalogCache.getAvailability(anyList())).thenReturn(Map.of(1L, stock(1L, 5), 2L, stock(2L, 5)));
+        when(productClient.getPrices(anyList())).thenReturn(prices(price(2L, "5.00")));
+
+        assertTrue(service.validateCart(USER_ID).isValid());
+
+        verify(productClient).getPrices(List.of(2L));
+        verify(inventoryClient, times(0)).getAvailability(anyList());
+        verify(catalogCache).putPrices(Map.of(2L, price(2L, "5.00")));
+    }
+
+    @Test
+    void inventoryOutageSkipsStockCheckWhenFallbackEnabled() {
+        inventoryConfig.setFallbackEnabled(true);
+        when(cartService.getCartLines(USER_ID)).thenReturn(List.of(line(1L, "9.90", 1)));
+        when(productClient.getPrices(anyList())).thenReturn(prices(price(1L, "9.90")));
+        when(inventoryClient.getAvailability(anyList())).thenThrow(new IllegalStateException("inventory down"));
+
+        ValidatedCartResponse cart = service.validateCart(USER_ID);
+
+        assertTrue(cart.isValid());
+        assertFalse(cart.isStockChecked());
+        assertNull(cart.getLines().get(0).getAvailableStock());
+
+        inventoryConfig.setFallbackEnabled(false);
+        assertThrows(IllegalStateException.class, () -> service.validateCart(USER_ID));
+    }
+
+    @Test
+    void orderWithStalePriceIsRejected() {
+        when(productClient.getPrices(anyList())).thenReturn(prices(price(1L, "9.90")));
+
+        service.verifyOrderPrices(List.of(item(1L, "9.90")));
+        assertThrows(OrderValidationException.class, () -> service.verifyOrderPrices(List.of(item(1L, "8.00"))));
+        assertThrows(OrderValidationException.class, () -> service.verifyOrderPrices(List.of(item(2L, "1.00"))));
+        verify(catalogCache, times(3)).putPrices(anyMap());
+        verify(productClient, times(3)).getPrices(any());
+    }
+
+    @Test
+    void priceCheckOnlySkippedWhenExplicitlyDisabled() {
+        CheckoutValidationService optedOut = new CheckoutValidationService(cartService, productClient, inventoryClient,
+                mock(ClientCallGuard.class), inventoryConfig, catalogCache, executor, false);
+
+        optedOut.verifyOrderPrices(List.of(item(1L, "0.01")));
+
+        verify(productClient, never()).getPrices(any());
+    }
+
+    @Test
+    void priceLookupFailsFastWhileProductCircuitIsOpen() {
+        circuitBreakers.circuitBreaker(ClientCallGuard.PRODUCT).transitionToOpenState();
+
+        assertThrows(CallNotPermittedException.class, () -> service.verifyOrderPrices(List.of(item(1L, "9.90"))));
+        verify(productClient, never()).getPrices(any());
+    }
+
+    private static CartLine line(long productId, String price, int quantity) {
+        return CartLine.builder()
+                .productId(productId)
+                .productName("商品 " + productId)
+                .price(new BigDecimal(price))
+                .quantity(quantity)
+                .build();
+    }
+
+    private static ProductPrice price(long productId, String price) {
+        return ProductPrice.builder()
+                .productId(productId)
+                .name("商品 " + productId)
+                .price(new BigDecimal(price))
+                .isActive(true)
+                .build();
+    }
+
+    private static ProductPriceListResponse prices(ProductPrice... prices) {
+        ProductPriceListResponse response = new ProductPriceListResponse();
+        response.setSuccess(true);
+        response.setData(new ArrayList<>(List.of(prices)));
+        return response;
+    }
+
+    private static StockAvailability stock(long variantId, int available) {
+        return StockAvailability.builder().variantId(variantId).availableStock(available).status("IN_STOCK").build();
+    }
+
+    private static OrderItemRequest item(long productId, String unitPrice) {
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(productId);
+        item.setProductName("商品 " + productId);
+        item.setUnitPrice(new BigDecimal(unitPrice));
+        item.setQuantity(1);
+        return item;
+    }
+}
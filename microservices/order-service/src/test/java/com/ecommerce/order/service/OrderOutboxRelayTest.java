@@ -0,0 +1,117 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.config.RabbitMQConfig;
+import com.ecommerce.order.model.OrderOutboxEvent;
+import com.ecommerce.order.model.enums.OrderEventType;
+import com.ecommerce.order.repository.OrderOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderOutboxRelayTest {
+
+    private static final int BATCH_SIZE = 2;
+    private static final long CONFIRM_TIMEOUT_MS = 5_000;
+
+    private OrderOutboxRepository outboxRepository;
+    private RabbitOperations operations;
+    private PlatformTransactionManager transactionManager;
+    private OrderOutboxRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        outboxRepository = mock(OrderOutboxRepository.class);
+        operations = mock(RabbitOperations.class);
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        when(rabbitTemplate.invoke(any(RabbitOperations.OperationsCallback.class))).thenAnswer(invocation ->
+                invocation.getArgument(0, RabbitOperations.OperationsCallback.class).doInRabbit(operations));
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        relay = new OrderOutboxRelay(outboxRepository, rabbitTemplate, transactionManager, BATCH_SIZE, CONFIRM_TIMEOUT_MS);
+    }
+
+    @Test
+    void publishesStoredPayloadsAndDeletesAfterConfirm() {
+        List<OrderOutboxEvent> events = List.of(
+                event(1L, OrderEventType.ORDER_CREATED, "{\"orderNumber\":\"ORD1\"}"),
+                event(2L, OrderEventType.ORDER_CANCELLED, "{\"orderNumber\":\"ORD1\",\"reason\":\"超时\"}"));
+        when(outboxRepository.claimBatch(BATCH_SIZE)).thenReturn(events).thenReturn(List.of());
+
+        relay.relay();
+
+        ArgumentCaptor<Message> messages = ArgumentCaptor.forClass(Message.class);
+        InOrder inOrder = inOrder(operations, outboxRepository);
+        inOrder.verify(operations).send(eq(RabbitMQConfig.ORDER_EXCHANGE), eq("order.created"), messages.capture());
+        inOrder.verify(operations).send(eq(RabbitMQConfig.ORDER_EXCHANGE), eq("order.cancelled"), messages.capture());
+        inOrder.verify(operations).waitForConfirmsOrDie(CONFIRM_TIMEOUT_MS);
+        inOrder.verify(outboxRepository).deleteAllInBatch(events);
+
+        Message cancelled = messages.getAllValues().get(1);
+        assertArrayEquals(events.get(1).getPayload().getBytes(StandardCharsets.UTF_8), cancelled.getBody());
+        assertEquals("2", cancelled.getMessageProperties().getMessageId());
+        assertEquals("application/json", cancelled.getMessageProperties().getContentType());
+        assertEquals(MessageDeliveryMode.PERSISTENT, cancelled.getMessageProperties().getDeliveryMode());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void unconfirmedBatchStaysInOutbox() {
+        when(outboxRepository.claimBatch(BATCH_SIZE)).thenReturn(List.of(event(1L, OrderEventType.ORDER_CREATED, "{}")));
+        doThrow(new AmqpTimeoutException("no confirm")).when(operations).waitForConfirmsOrDie(anyLong());
+
+        relay.relay();
+
+        verify(outboxRepository, never()).deleteAllInBatch(anyList());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void drainsBacklogUntilBatchIsNotFull() {
+        when(outboxRepository.claimBatch(BATCH_SIZE))
+                .thenReturn(List.of(event(1L, OrderEventType.ORDER_CREATED, "{}"), event(2L, OrderEventType.ORDER_CREATED, "{}")))
+                .thenReturn(List.of(event(3L, OrderEventType.ORDER_CREATED, "{}"), event(4L, OrderEventType.ORDER_STATUS_UPDATED, "{}")))
+                .thenReturn(List.of(event(5L, OrderEventType.ORDER_STATUS_UPDATED, "{}")));
+
+        relay.relay();
+
+        verify(outboxRepository, times(3)).claimBatch(BATCH_SIZE);
+        verify(operations, times(5)).send(eq(RabbitMQConfig.ORDER_EXCHANGE), anyString(), any(Message.class));
+        verify(operations, times(3)).waitForConfirmsOrDie(CONFIRM_TIMEOUT_MS);
+    }
+
+    private static OrderOutboxEvent event(long id, OrderEventType type, String payload) {
+        OrderOutboxEvent event = new OrderOutboxEvent();
+        event.setId(id);
+        event.setOrderNumber("ORD1");
+        event.setEventType(type);
+        event.setPayload(payload);
+        return event;
+    }
+}
@@ -0,0 +1,130 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.response.OrderPageResponse;
+import com.ecommerce.order.dto.response.OrderSummaryResponse;
+import com.ecommerce.order.model.enums.OrderStatus;
+import com.ecommerce.order.repository.OrderQueryRepository;
+import com.ecommerce.order.repository.OrderQueryRepository.OrderItemView;
+import com.ecommerce.order.repository.OrderQueryRepository.OrderSummaryView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderQueryServiceTest {
+
+    private static final LocalDateTime FIRST_PAGE_CREATED_AT = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final LocalDateTime NOON = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    private OrderQueryRepository orderQueryRepository;
+    private OrderQueryService service;
+
+    @BeforeEach
+    void setUp() {
+        orderQueryRepository = mock(OrderQueryRepository.class);
+        service = new OrderQueryService(orderQueryRepository);
+    }
+
+    @Test
+    void firstPageUsesSentinelCursorAndExtraRowForHasNext() {
+        List<OrderSummaryView> rows = List.of(summary(30L, NOON), summary(20L, NOON), summary(10L, NOON.minusHours(1)));
+        when(orderQueryRepository.findPage(FIRST_PAGE_CREATED_AT, Long.MAX_VALUE, 3)).thenReturn(rows);
+
+        OrderPageResponse page = service.getOrders(null, null, 2, false);
+
+        assertEquals(List.of(30L, 20L), ids(page));
+        assertTrue(page.isHasNext());
+        // 游标取本页最后一行，而不是多取的那一行
+        assertEquals(NOON, page.getNextCreatedAt());
+        assertEquals(20L, page.getNextId());
+        verify(orderQueryRepository, never()).findItemsByOrderIds(any());
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        List<OrderSummaryView> rows = List.of(summary(10L, NOON.minusHours(1)));
+        when(orderQueryRepository.findPageByUserId(5L, NOON, 20L, 3)).thenReturn(rows);
+
+        OrderPageResponse page = service.getOrdersByUser(5L, NOON, 20L, 2, false);
+
+        assertEquals(List.of(10L), ids(page));
+        assertFalse(page.isHasNext());
+        assertNull(page.getNextCreatedAt());
+        assertNull(page.getNextId());
+    }
+
+    @Test
+    void pageSizeIsClamped() {
+        when(orderQueryRepository.findPageByStatus(any(), any(), any(), anyInt())).thenReturn(List.of());
+
+        service.getOrdersByStatus(OrderStatus.SHIPPED, null, null, 0, false);
+        service.getOrdersByStatus(OrderStatus.SHIPPED, null, null, 1000, false);
+
+        verify(orderQueryRepository).findPageByStatus("SHIPPED", FIRST_PAGE_CREATED_AT, Long.MAX_VALUE, 2);
+        verify(orderQueryRepository).findPageByStatus("SHIPPED", FIRST_PAGE_CREATED_AT, Long.MAX_VALUE,
+                OrderQueryService.MAX_PAGE_SIZE + 1);
+    }
+
+    @Test
+    void itemsForThePageAreLoadedWithOneQuery() {
+        List<OrderSummaryView> rows = List.of(summary(30L, NOON), summary(20L, NOON), summary(10L, NOON));
+        List<OrderItemView> items = List.of(item(30L, 301L), item(30L, 302L));
+        when(orderQueryRepository.findPage(FIRST_PAGE_CREATED_AT, Long.MAX_VALUE, 3)).thenReturn(rows);
+        when(orderQueryRepository.findItemsByOrderIds(Set.of(30L, 20L))).thenReturn(items);
+
+        OrderPageResponse page = service.getOrders(null, null, 2, true);
+
+        // 只查本页订单的明细，不含多取的一行
+        verify(orderQueryRepository, times(1)).findItemsByOrderIds(Set.of(30L, 20L));
+        assertEquals(2, page.getOrders().get(0).getItems().size());
+        assertEquals(301L, page.getOrders().get(0).getItems().get(0).getId());
+        assertEquals(List.of(), page.getOrders().get(1).getItems());
+    }
+
+    @Test
+    void emptyPageSkipsItemQuery() {
+        when(orderQueryRepository.findPage(any(), any(), anyInt())).thenReturn(List.of());
+
+        OrderPageResponse page = service.getOrders(null, null, 20, true);
+
+        assertEquals(List.of(), page.getOrders());
+        assertFalse(page.isHasNext());
+        verify(orderQueryRepository, never()).findItemsByOrderIds(any());
+    }
+
+    private static List<Long> ids(OrderPageResponse page) {
+        return page.getOrders().stream().map(OrderSummaryResponse::getId).collect(Collectors.toList());
+    }
+
+    private static OrderSummaryView summary(Long id, LocalDateTime createdAt) {
+        OrderSummaryView view = mock(OrderSummaryView.class);
+        when(view.getId()).thenReturn(id);
+        when(view.getOrderNumber()).thenReturn("ORD" + id);
+        when(view.getStatus()).thenReturn(OrderStatus.PENDING);
+        when(view.getCreatedAt()).thenReturn(createdAt);
+        return view;
+    }
+
+    private static OrderItemView item(Long orderId, Long id) {
+        OrderItemView view = mock(OrderItemView.class);
+        when(view.getOrderId()).thenReturn(orderId);
+        when(view.getId()).thenReturn(id);
+        when(view.getQuantity()).thenReturn(1);
+        return view;
+    }
+}
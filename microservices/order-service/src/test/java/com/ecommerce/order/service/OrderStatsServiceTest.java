@@ -0,0 +1,164 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.model.enums.OrderStatus;
+import com.ecommerce.order.repository.OrderStatsRepository;
+import com.ecommerce.order.repository.OrderStatsRepository.StatsRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderStatsServiceTest {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MARCH_1 = LocalDateTime.of(2026, 3, 1, 0, 0);
+
+    private OrderStatsRepository orderStatsRepository;
+    private OrderStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        orderStatsRepository = mock(OrderStatsRepository.class);
+        when(orderStatsRepository.tryRollupLock()).thenReturn(true);
+        service = new OrderStatsService(orderStatsRepository, 300, 168);
+    }
+
+    @Test
+    void firstRollupStartsAtEarliestChangeAndAdvancesOneChunk() {
+        LocalDateTime firstChange = LocalDateTime.of(2024, 6, 1, 8, 0);
+        when(orderStatsRepository.findWatermark()).thenReturn(EPOCH);
+        when(orderStatsRepository.findMaxUpdatedAt()).thenReturn(MARCH_1);
+        when(orderStatsRepository.findMinUpdatedAtAfter(EPOCH)).thenReturn(firstChange);
+
+        service.rollup();
+
+        LocalDateTime until = firstChange.plusHours(168);
+        verify(orderStatsRepository).rollupHourly(EPOCH.minusSeconds(300), until);
+        verify(orderStatsRepository).rollupDaily(EPOCH.minusSeconds(300), until);
+        verify(orderStatsRepository).saveWatermark(until);
+    }
+
+    @Test
+    void rollupWithinOneChunkCatchesUpToLatestChange() {
+        LocalDateTime watermark = MARCH_1.minusHours(2);
+        when(orderStatsRepository.findWatermark()).thenReturn(watermark);
+        when(orderStatsRepository.findMaxUpdatedAt()).thenReturn(MARCH_1);
+
+        service.rollup();
+
+        verify(orderStatsRepository).rollupHourly(watermark.minusSeconds(300), MARCH_1);
+        verify(orderStatsRepository).saveWatermark(MARCH_1);
+        verify(orderStatsRepository, never()).findMinUpdatedAtAfter(any());
+    }
+
+    @Test
+    void rollupRescansOverlapWithoutMovingWatermarkBack() {
+        when(orderStatsRepository.findWatermark()).thenReturn(MARCH_1);
+        when(orderStatsRepository.findMaxUpdatedAt()).thenReturn(MARCH_1);
+
+        service.rollup();
+
+        verify(orderStatsRepository).rollupHourly(MARCH_1.minusSeconds(300), MARCH_1);
+        verify(orderStatsRepository, never()).saveWatermark(any());
+    }
+
+    @Test
+    void rollupIsSkippedWhenAnotherInstanceHoldsTheLock() {
+        when(orderStatsRepository.tryRollupLock()).thenReturn(false);
+
+        service.rollup();
+
+        verify(orderStatsRepository, never()).findWatermark();
+        verify(orderStatsRepository, never()).rollupHourly(any(), any());
+    }
+
+    @Test
+    void subHourRangeOnlyScansOrders() {
+        LocalDateTime start = MARCH_1.plusHours(10).plusMinutes(10);
+        LocalDateTime end = MARCH_1.plusHours(10).plusMinutes(40);
+
+        service.getStatistics(start, end);
+
+        // 桶区间全部为空，零头 [start, end] 覆盖整个区间
+        verify(orderStatsRepository).sumRange(start, end, end, end, end, end);
+    }
+
+    @Test
+    void sameDayRangeUsesHourlyBucketsBetweenPartialHours() {
+        LocalDateTime start = MARCH_1.plusHours(8).plusMinutes(30);
+        LocalDateTime end = MARCH_1.plusHours(17).plusMinutes(15);
+        LocalDateTime hourFrom = MARCH_1.plusHours(9);
+        LocalDateTime hourTo = MARCH_1.plusHours(17);
+
+        service.getStatistics(start, end);
+
+        // 没有整天：日桶区间为空，小时桶覆盖 [09:00, 17:00)
+        verify(orderStatsRepository).sumRange(start, hourFrom, hourFrom, hourFrom, hourTo, end);
+    }
+
+    @Test
+    void multiDayRangeUsesDailyBucketsForWholeDays() {
+        LocalDateTime start = MARCH_1.plusHours(22).plusMinutes(30);
+        LocalDateTime end = MARCH_1.plusDays(3).plusHours(3).plusMinutes(20);
+
+        service.getStatistics(start, end);
+
+        verify(orderStatsRepository).sumRange(start, MARCH_1.plusHours(23), MARCH_1.plusDays(1),
+                MARCH_1.plusDays(3), MARCH_1.plusDays(3).plusHours(3), end);
+    }
+
+    @Test
+    void alignedRangeNeedsNoPartialBuckets() {
+        LocalDateTime end = MARCH_1.plusDays(2);
+
+        service.getStatistics(MARCH_1, end);
+
+        verify(orderStatsRepository).sumRange(MARCH_1, MARCH_1, MARCH_1, end, end, end);
+    }
+
+    @Test
+    void totalsCountAllOrdersButOnlyDeliveredRevenue() {
+        List<StatsRow> rows = List.of(row(OrderStatus.DELIVERED, 3, "120.00"), row(OrderStatus.CANCELLED, 2, "50.00"));
+        when(orderStatsRepository.sumRange(any(), any(), any(), any(), any(), any())).thenReturn(rows);
+
+        Map<String, Object> stats = service.getStatistics(MARCH_1, MARCH_1.plusDays(1));
+
+        assertEquals(5L, stats.get("totalOrders"));
+        assertEquals(new BigDecimal("120.00"), stats.get("totalRevenue"));
+        assertEquals(2, ((List<?>) stats.get("breakdown")).size());
+    }
+
+    private static StatsRow row(OrderStatus status, long orderCount, String revenue) {
+        return new StatsRow() {
+            @Override
+            public OrderStatus getStatus() {
+                return status;
+            }
+
+            @Override
+            public String getCurrency() {
+                return "CNY";
+            }
+
+            @Override
+            public Long getOrderCount() {
+                return orderCount;
+            }
+
+            @Override
+            public BigDecimal getRevenue() {
+                return new BigDecimal(revenue);
+            }
+        };
+    }
+}
@@ -0,0 +1,270 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.request.BulkStatusUpdateRequest;
+import com.ecommerce.order.dto.response.BulkStatusUpdateResponse;
+import com.ecommerce.order.exception.OrderStatusConflictException;
+import com.ecommerce.order.exception.OrderValidationException;
+import com.ecommerce.order.model.CheckoutSaga;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderStatusHistory;
+import com.ecommerce.order.model.enums.OrderStatus;
+import com.ecommerce.order.repository.OrderRepository;
+import com.ecommerce.order.repository.OrderRepository.OrderStatusView;
+import com.ecommerce.order.repository.OrderRepository.TransitionedOrderView;
+import com.ecommerce.order.repository.OrderStatusHistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderStatusTransitionServiceTest {
+
+    private static final long ORDER_ID = 7L;
+    private static final String SEPARATOR = String.valueOf((char) 31);
+
+    private OrderRepository orderRepository;
+    private OrderStatusHistoryRepository statusHistoryRepository;
+    private RabbitMQService rabbitMQService;
+    private CheckoutSagaOrchestrator checkoutSagaOrchestrator;
+    private OrderStatusTransitionService service;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        statusHistoryRepository = mock(OrderStatusHistoryRepository.class);
+        rabbitMQService = mock(RabbitMQService.class);
+        checkoutSagaOrchestrator = mock(CheckoutSagaOrchestrator.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(orderRepository.saveAndFlush(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        service = new OrderStatusTransitionService(orderRepository, statusHistoryRepository, rabbitMQService,
+                checkoutSagaOrchestrator, transactionManager, 3, 2, 10);
+    }
+
+    @Test
+    void transitionTableFollowsOrderLifecycle() {
+        assertTrue(OrderStatusTransitionService.canTransition(OrderStatus.PENDING, OrderStatus.CONFIRMED));
+        assertTrue(OrderStatusTransitionService.canTransition(OrderStatus.CONFIRMED, OrderStatus.SHIPPED));
+        assertTrue(OrderStatusTransitionService.canTransition(OrderStatus.SHIPPED, OrderStatus.DELIVERED));
+        assertTrue(!OrderStatusTransitionService.canTransition(OrderStatus.SHIPPED, OrderStatus.CANCELLED));
+        assertTrue(!OrderStatusTransitionService.canTransition(OrderStatus.REFUNDED, OrderStatus.PENDING));
+        assertEquals(Set.of(OrderStatus.CONFIRMED, OrderStatus.PROCESSING),
+                OrderStatusTransitionService.sourcesOf(OrderStatus.SHIPPED));
+    }
+
+    @Test
+    void illegalTransitionIsRejected() {
+        when(orderRepository.findById(ORDER_ID)).thenReturn(Optional.of(order(OrderStatus.DELIVERED, 3)));
+
+        assertThrows(OrderValidationException.class,
+                () -> service.transition(ORDER_ID, OrderStatus.CONFIRMED, null, null, null));
+        verify(orderRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void concurrentModificationIsRetriedOnFreshState() {
+        // 第一次读到 CONFIRMED，提交时版本冲突；重试时读到并发写入后的 PROCESSING，发货仍然合法
+        when(orderRepository.findById(ORDER_ID))
+                .thenReturn(Optional.of(order(OrderStatus.CONFIRMED, 1)))
+                .thenReturn(Optional.of(order(OrderStatus.PROCESSING, 2)));
+        when(orderRepository.saveAndFlush(any(Order.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Order.class, ORDER_ID))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        Order shipped = service.transition(ORDER_ID, OrderStatus.SHIPPED, "已发货", "SF123", null);
+
+        assertEquals(OrderStatus.SHIPPED, shipped.getStatus());
+        assertEquals("SF123", shipped.getTrackingNumber());
+        assertNotNull(shipped.getShippedAt());
+        verify(orderRepository, times(2)).findById(ORDER_ID);
+        verify(statusHistoryRepository, times(1)).save(any(OrderStatusHistory.class));
+        verify(rabbitMQService).sendOrderStatusUpdateEvent(shipped, OrderStatus.PROCESSING);
+    }
+
+    @Test
+    void staleExpectedVersionIsAConflict() {
+        when(orderRepository.findById(ORDER_ID)).thenReturn(Optional.of(order(OrderStatus.CONFIRMED, 5)));
+
+        assertThrows(OrderStatusConflictException.class,
+                () -> service.transition(ORDER_ID, OrderStatus.SHIPPED, null, null, 4));
+        verify(orderRepository, times(1)).findById(ORDER_ID);
+        verify(orderRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void retriesAreBounded() {
+        when(orderRepository.findById(ORDER_ID)).thenAnswer(invocation -> Optional.of(order(OrderStatus.PENDING, 1)));
+        when(orderRepository.saveAndFlush(any(Order.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Order.class, ORDER_ID));
+
+        assertThrows(OrderStatusConflictException.class,
+                () -> service.transition(ORDER_ID, OrderStatus.CONFIRMED, null, null, null));
+        verify(orderRepository, times(3)).saveAndFlush(any());
+    }
+
+    @Test
+    void repeatedTransitionIsANoop() {
+        when(orderRepository.findById(ORDER_ID)).thenReturn(Optional.of(order(OrderStatus.CONFIRMED, 2)));
+
+        service.transition(ORDER_ID, OrderStatus.CONFIRMED, null, null, null);
+
+        verify(orderRepository, never()).saveAndFlush(any());
+        verify(statusHistoryRepository, never()).save(any());
+    }
+
+    @Test
+    void cancellationStartsCompensation() {
+        when(orderRepository.findById(ORDER_ID)).thenReturn(Optional.of(order(OrderStatus.PENDING, 0)));
+        CheckoutSaga saga = new CheckoutSaga();
+        when(checkoutSagaOrchestrator.lockForCompensation(any(Order.class))).thenReturn(saga);
+
+        Order cancelled = service.transition(ORDER_ID, OrderStatus.CANCELLED, "用户取消", null, null);
+
+        assertEquals(OrderStatus.CANCELLED, cancelled.getStatus());
+        assertEquals("用户取消", cancelled.getCancellationReason());
+        verify(rabbitMQService).sendOrderCancelledEvent(cancelled);
+        // 先锁 saga 再写订单，与 saga 回复处理的加锁顺序一致
+        InOrder inOrder = inOrder(checkoutSagaOrchestrator, orderRepository);
+        inOrder.verify(checkoutSagaOrchestrator).lockForCompensation(cancelled);
+        inOrder.verify(orderRepository).saveAndFlush(cancelled);
+        inOrder.verify(checkoutSagaOrchestrator).compensate(saga, cancelled, "用户取消");
+    }
+
+    @Test
+    void checkoutCancellationGoesThroughStateMachine() {
+        Order pending = order(OrderStatus.PENDING, 0);
+        Order shipped = order(OrderStatus.SHIPPED, 4);
+
+        assertTrue(service.cancelForCheckout(pending, "支付创建失败"));
+        assertFalse(service.cancelForCheckout(shipped, "支付创建失败"));
+
+        assertEquals(OrderStatus.CANCELLED, pending.getStatus());
+        assertEquals(OrderStatus.SHIPPED, shipped.getStatus());
+        verify(orderRepository).saveAndFlush(pending);
+        verify(orderRepository, never()).saveAndFlush(shipped);
+        verify(statusHistoryRepository).save(any(OrderStatusHistory.class));
+        verify(rabbitMQService).sendOrderCancelledEvent(pending);
+        verify(checkoutSagaOrchestrator, never()).compensate(any(), any(), any());
+    }
+
+    @Test
+    void bulkUpdateRunsOneStatementPerChunkAndReportsRejections() {
+        when(orderRepository.transitionBatch(eq("A" + SEPARATOR + "B"), eq("T-A" + SEPARATOR), anyCollection(),
+                eq("SHIPPED"), eq("批量发货"), eq("bulk")))
+                .thenReturn(List.of(transitioned("A", OrderStatus.CONFIRMED), transitioned("B", OrderStatus.PROCESSING)));
+        when(orderRepository.transitionBatch(eq("C" + SEPARATOR + "D"), eq("T-C" + SEPARATOR + "T-D"), anyCollection(),
+                eq("SHIPPED"), eq("批量发货"), eq("bulk")))
+                .thenReturn(List.of(transitioned("D", OrderStatus.CONFIRMED)));
+        when(orderRepository.findStatusesByOrderNumbers(List.of("C"))).thenReturn(List.of(status("C", OrderStatus.DELIVERED)));
+        when(orderRepository.transitionBatch(eq("E"), eq(""), anyCollection(), eq("SHIPPED"), anyString(), anyString()))
+                .thenReturn(List.of());
+        when(orderRepository.findStatusesByOrderNumbers(List.of("E"))).thenReturn(List.of());
+
+        BulkStatusUpdateResponse response = service.transitionAll(bulkRequest(OrderStatus.SHIPPED,
+                item("A", "T-A"), item("B", null), item("C", "T-C"), item("D", "T-D"), item("E", null)));
+
+        assertEquals(5, response.getRequested());
+        assertEquals(3, response.getUpdated());
+        assertEquals(List.of(new BulkStatusUpdateResponse.Rejection("C", OrderStatus.DELIVERED),
+                new BulkStatusUpdateResponse.Rejection("E", null)), response.getRejected());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<java.util.Collection<String>> fromStatuses = ArgumentCaptor.forClass(java.util.Collection.class);
+        verify(orderRepository, times(3)).transitionBatch(anyString(), anyString(), fromStatuses.capture(),
+                anyString(), anyString(), anyString());
+        assertEquals(Set.of("CONFIRMED", "PROCESSING"), Set.copyOf(fromStatuses.getValue()));
+        verify(rabbitMQService).sendOrderStatusUpdateEvent("B", OrderStatus.PROCESSING, OrderStatus.SHIPPED);
+        verify(rabbitMQService, times(3)).sendOrderStatusUpdateEvent(anyString(), any(), eq(OrderStatus.SHIPPED));
+    }
+
+    @Test
+    void bulkCancellationAndOversizedRequestsAreRejected() {
+        assertThrows(OrderValidationException.class,
+                () -> service.transitionAll(bulkRequest(OrderStatus.CANCELLED, item("A", null))));
+        assertThrows(OrderValidationException.class,
+                () -> service.transitionAll(bulkRequest(OrderStatus.PENDING, item("A", null))));
+
+        List<BulkStatusUpdateRequest.Item> items = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            items.add(item("ORD" + i, null));
+        }
+        assertThrows(OrderValidationException.class,
+                () -> service.transitionAll(bulkRequest(OrderStatus.SHIPPED, items.toArray(new BulkStatusUpdateRequest.Item[0]))));
+        verify(orderRepository, never()).transitionBatch(anyString(), anyString(), anyCollection(), anyString(), anyString(), anyString());
+    }
+
+    private static Order order(OrderStatus status, int version) {
+        Order order = new Order();
+        order.setId(ORDER_ID);
+        order.setOrderNumber("ORD" + ORDER_ID);
+        order.setStatus(status);
+        order.setVersion(version);
+        return order;
+    }
+
+    private static BulkStatusUpdateRequest bulkRequest(OrderStatus status, BulkStatusUpdateRequest.Item... items) {
+        BulkStatusUpdateRequest request = new BulkStatusUpdateRequest();
+        request.setStatus(status);
+        request.setNotes("批量发货");
+        request.setOrders(List.of(items));
+        return request;
+    }
+
+    private static BulkStatusUpdateRequest.Item item(String orderNumber, String trackingNumber) {
+        BulkStatusUpdateRequest.Item item = new BulkStatusUpdateRequest.Item();
+        item.setOrderNumber(orderNumber);
+        item.setTrackingNumber(trackingNumber);
+        return item;
+    }
+
+    private static TransitionedOrderView transitioned(String orderNumber, OrderStatus previousStatus) {
+        return new TransitionedOrderView() {
+            @Override
+            public String getOrderNumber() {
+                return orderNumber;
+            }
+
+            @Override
+            public OrderStatus getPreviousStatus() {
+                return previousStatus;
+            }
+        };
+    }
+
+    private static OrderStatusView status(String orderNumber, OrderStatus status) {
+        return new OrderStatusView() {
+            @Override
+            public String getOrderNumber() {
+                return orderNumber;
+            }
+
+            @Override
+            public OrderStatus getStatus() {
+                return status;
+            }
+        };
+    }
+}
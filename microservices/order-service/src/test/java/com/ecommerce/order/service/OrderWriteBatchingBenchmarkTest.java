@@ -0,0 +1,392 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.config.InventoryConfig;
+import com.ecommerce.order.dto.request.BulkStatusUpdateRequest;
+import com.ecommerce.order.dto.request.CreateOrderRequest;
+import com.ecommerce.order.dto.request.OrderItemRequest;
+import com.ecommerce.order.dto.request.UpdateOrderStatusRequest;
+import com.ecommerce.order.dto.response.BulkStatusUpdateResponse;
+import com.ecommerce.order.dto.response.OrderResponse;
+import com.ecommerce.order.exception.OrderStatusConflictException;
+import com.ecommerce.order.model.Address;
+import com.ecommerce.order.model.OrderOutboxEvent;
+import com.ecommerce.order.model.enums.OrderEventType;
+import com.ecommerce.order.model.enums.OrderStatus;
+import com.ecommerce.order.repository.OrderOutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * 下单写路径的数据库往返次数基准：1、10、100 行明细的订单各创建若干次，
+ * 统计每单的 JDBC 往返（语句执行、批量执行与提交；序列预分配按单均摊）；
+ * 另外统计批量发货每单的往返，并验证并发变更同一订单只生效一次。
+ * 需要已执行迁移的 PostgreSQL，例如：
+ * ORDER_BENCHMARK_DB_URL=jdbc:postgresql://localhost:5432/ecommerce_orders?reWriteBatchedInserts=true
+ */
+@EnabledIfEnvironmentVariable(named = "ORDER_BENCHMARK_DB_URL", matches = ".+")
+@DataJpaTest(properties = {"spring.flyway.enabled=false", "spring.jpa.hibernate.ddl-auto=none", "spring.jpa.show-sql=false",
+        "app.order-number.node-id=0"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderService.class, OrderItemService.class, CheckoutSagaOrchestrator.class, SnowflakeOrderNumberGenerator.class,
+        OrderStatusTransitionService.class, RabbitMQService.class, InventoryConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderWriteBatchingBenchmarkTest {
+
+    private static final long BENCHMARK_USER_ID = 9_300_001L;
+    private static final int WARMUP_ORDERS = 20;
+    private static final int ORDERS = 100;
+    private static final int BATCH_SIZE = 50;
+    private static final int BULK_ORDERS = 2_000;
+    private static final int BULK_CHUNK_SIZE = 500;
+    private static final int CONCURRENT_WRITERS = 8;
+
+    /**
+     * 只装配 JPA 与下单相关的 bean；数据源外包一层往返计数
+     */
+    @SpringBootConfiguration
+    @EntityScan("com.ecommerce.order.model")
+    @EnableJpaRepositories("com.ecommerce.order.repository")
+    static class BenchmarkConfig {
+        @Bean
+        RoundTripCountingDataSource dataSource(DataSourceProperties properties) {
+            return new RoundTripCountingDataSource(properties.initializeDataSourceBuilder().type(HikariDataSource.class).build());
+        }
+        
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+    }
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("ORDER_BENCHMARK_DB_URL"));
+        registry.add("spring.datasource.username",
+                () -> System.getenv().getOrDefault("ORDER_BENCHMARK_DB_USERNAME", "admin"));
+        registry.add("spring.datasource.password",
+                () -> System.getenv().getOrDefault("ORDER_BENCHMARK_DB_PASSWORD", "postgres123"));
+    }
+
+    @MockBean
+    private RabbitTemplate rabbitTemplate;
+
+    @MockBean
+    private OrderStatsService orderStatsService;
+
+    @MockBean
+    private CartService cartService;
+
+    @MockBean
+    private CheckoutValidationService checkoutValidationService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private RoundTripCountingDataSource dataSource;
+
+    @Autowired
+    private OrderOutboxRepository outboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        // 明细、状态历史与 saga 通过外键级联删除，outbox 事件按订单号删除
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM order_outbox WHERE order_number IN (SELECT order_number FROM orders WHERE user_id = ?)",
+                BENCHMARK_USER_ID);
+        jdbcTemplate.update("DELETE FROM orders WHERE user_id = ?", BENCHMARK_USER_ID);
+    }
+
+    @Test
+    void roundTripsPerOrder() {
+        for (int lines : new int[]{1, 10, 100}) {
+            CreateOrderRequest request = orderRequest(lines);
+            for (int i = 0; i < WARMUP_ORDERS; i++) {
+                orderService.createOrder(request);
+            }
+
+            long roundTripsBefore = dataSource.getRoundTrips();
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < ORDERS; i++) {
+                orderService.createOrder(request);
+            }
+            double micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos) / (double) ORDERS;
+            double roundTrips = (dataSource.getRoundTrips() - roundTripsBefore) / (double) ORDERS;
+
+            // 逐行 IDENTITY 插入时为 1（订单）+ lines（明细）+ 1（状态历史）+ 1（saga）+ 1（outbox 事件）+ 1（提交）
+            System.out.printf("%3d lines: %.2f round trips per order (row-by-row would be %d), %.0f us per order%n",
+                    lines, roundTrips, lines + 5, micros);
+            // 批量后：订单、状态历史、saga、outbox 事件、提交各 1 次，明细每 50 行 1 个批次，明细序列每 50 行取 1 次（其余序列均摊）
+            int chunks = (lines + BATCH_SIZE - 1) / BATCH_SIZE;
+            assertTrue(roundTrips <= 6 + 2 * chunks, "order write path should be batched, got " + roundTrips + " round trips");
+        }
+    }
+
+    @Test
+    void createdOrderResponseCarriesTimestamps() {
+        OrderResponse response = orderService.createOrder(orderRequest(2));
+
+        assertNotNull(response.getCreatedAt());
+        assertNotNull(response.getUpdatedAt());
+    }
+
+    @Test
+    void priceCheckRunsBeforeTheTransactionOpens() {
+        AtomicBoolean inTransaction = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            inTransaction.set(TransactionSynchronizationManager.isActualTransactionActive());
+            return null;
+        }).when(checkoutValidationService).verifyOrderPrices(anyList());
+
+        orderService.createOrder(orderRequest(1));
+
+        assertFalse(inTransaction.get(), "the product-service price lookup must not hold a database connection");
+    }
+
+    @Test
+    void bulkShippingRoundTrips() {
+        CreateOrderRequest request = orderRequest(1);
+        List<BulkStatusUpdateRequest.Item> items = new ArrayList<>();
+        for (int i = 0; i < BULK_ORDERS; i++) {
+            BulkStatusUpdateRequest.Item item = new BulkStatusUpdateRequest.Item();
+            item.setOrderNumber(orderService.createOrder(request).getOrderNumber());
+            item.setTrackingNumber("SF" + i);
+            items.add(item);
+        }
+        BulkStatusUpdateRequest confirm = new BulkStatusUpdateRequest();
+        confirm.setStatus(OrderStatus.CONFIRMED);
+        confirm.setOrders(items);
+        orderService.updateOrderStatuses(confirm);
+
+        BulkStatusUpdateRequest ship = new BulkStatusUpdateRequest();
+        ship.setStatus(OrderStatus.SHIPPED);
+        ship.setNotes("批量发货");
+        ship.setOrders(items);
+        long roundTripsBefore = dataSource.getRoundTrips();
+        long startNanos = System.nanoTime();
+        BulkStatusUpdateResponse response = orderService.updateOrderStatuses(ship);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        double roundTrips = (dataSource.getRoundTrips() - roundTripsBefore) / (double) BULK_ORDERS;
+
+        // 逐单时为 读取 + 更新 + 状态历史 + outbox 事件 + 提交，每单 5 次
+        System.out.printf("bulk ship %d orders: %.3f round trips per order (one by one would be 5), %d ms%n",
+                BULK_ORDERS, roundTrips, millis);
+        assertEquals(BULK_ORDERS, response.getUpdated());
+        // 每个分块：1 条变更语句 + outbox 事件每 50 条 1 个批次与 1 次取序列 + 提交
+        int chunks = (BULK_ORDERS + BULK_CHUNK_SIZE - 1) / BULK_CHUNK_SIZE;
+        int bound = chunks * (2 + 2 * (BULK_CHUNK_SIZE / BATCH_SIZE));
+        assertTrue(roundTrips * BULK_ORDERS <= bound, "bulk update should be set-based, got " + roundTrips + " round trips per order");
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertEquals(BULK_ORDERS, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders WHERE user_id = ? AND status = 'SHIPPED' AND tracking_number LIKE 'SF%' "
+                        + "AND shipped_at IS NOT NULL AND version = 2", Integer.class, BENCHMARK_USER_ID));
+        assertEquals(BULK_ORDERS, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_status_history h JOIN orders o ON o.id = h.order_id "
+                        + "WHERE o.user_id = ? AND h.status = 'SHIPPED'", Integer.class, BENCHMARK_USER_ID));
+
+        // 重复提交不会再次变更，全部按当前状态拒绝
+        BulkStatusUpdateResponse replay = orderService.updateOrderStatuses(ship);
+        assertEquals(0, replay.getUpdated());
+        assertEquals(OrderStatus.SHIPPED, replay.getRejected().get(0).getCurrentStatus());
+    }
+
+    @Test
+    void concurrentTransitionsApplyOnce() throws Exception {
+        OrderResponse order = orderService.createOrder(orderRequest(1));
+        UpdateOrderStatusRequest confirm = new UpdateOrderStatusRequest();
+        confirm.setStatus(OrderStatus.CONFIRMED);
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<OrderStatus>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < CONCURRENT_WRITERS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return orderService.updateOrderStatus(order.getId(), confirm).getStatus();
+                }));
+            }
+            start.countDown();
+            for (Future<OrderStatus> result : results) {
+                assertEquals(OrderStatus.CONFIRMED, result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_status_history WHERE order_id = ? AND status = 'CONFIRMED'",
+                Integer.class, order.getId()));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT version FROM orders WHERE id = ?", Integer.class, order.getId()));
+
+        // 带着过期版本号的变更直接冲突
+        UpdateOrderStatusRequest ship = new UpdateOrderStatusRequest();
+        ship.setStatus(OrderStatus.SHIPPED);
+        ship.setExpectedVersion(order.getVersion());
+        assertThrows(OrderStatusConflictException.class,
+                () -> orderService.updateOrderStatus(order.getId(), ship));
+    }
+
+    @Test
+    void outboxReleasesEventsOfAnOrderOneAtATime() {
+        OrderResponse order = orderService.createOrder(orderRequest(1));
+        UpdateOrderStatusRequest confirm = new UpdateOrderStatusRequest();
+        confirm.setStatus(OrderStatus.CONFIRMED);
+        orderService.updateOrderStatus(order.getId(), confirm);
+        UpdateOrderStatusRequest ship = new UpdateOrderStatusRequest();
+        ship.setStatus(OrderStatus.SHIPPED);
+        orderService.updateOrderStatus(order.getId(), ship);
+
+        // 每轮模拟一次中继：领取、发布、删除；同一订单每轮最多领到一条，且按写入先后
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<String> published = new ArrayList<>();
+        for (int round = 0; round < 4; round++) {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<OrderOutboxEvent> claimed = outboxRepository.claimBatch(1_000).stream()
+                        .filter(event -> event.getOrderNumber().equals(order.getOrderNumber()))
+                        .collect(Collectors.toList());
+                assertTrue(claimed.size() <= 1, "claimed " + claimed.size() + " events of one order in a batch");
+                claimed.forEach(event -> published.add(event.getPayload()));
+                outboxRepository.deleteAllInBatch(claimed);
+            });
+        }
+
+        assertEquals(3, published.size());
+        assertTrue(published.get(0).contains(OrderEventType.ORDER_CREATED.name()));
+        assertTrue(published.get(1).contains("\"status\":\"CONFIRMED\""));
+        assertTrue(published.get(2).contains("\"status\":\"SHIPPED\""));
+    }
+
+    private static CreateOrderRequest orderRequest(int lines) {
+        Address address = new Address();
+        address.setName("基准测试");
+        address.setPhone("13800000000");
+        address.setProvince("上海");
+        address.setCity("上海");
+        address.setDistrict("浦东新区");
+        address.setDetailAddress("基准路 1 号");
+
+        List<OrderItemRequest> items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            OrderItemRequest item = new OrderItemRequest();
+            item.setProductId(9_300_000L + i);
+            item.setProductName("商品 " + i);
+            item.setUnitPrice(new BigDecimal("9.90"));
+            item.setQuantity(1 + i % 3);
+            items.add(item);
+        }
+
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setUserId(BENCHMARK_USER_ID);
+        request.setShippingAddress(address);
+        request.setItems(items);
+        return request;
+    }
+
+    /**
+     * 统计发往数据库的请求：语句执行（executeBatch 算一次）与提交
+     */
+    static class RoundTripCountingDataSource extends DelegatingDataSource {
+
+        private final AtomicLong roundTrips = new AtomicLong();
+
+        RoundTripCountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        long getRoundTrips() {
+            return roundTrips.get();
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(Connection.class, super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(Connection.class, super.getConnection(username, password));
+        }
+
+        private <T> T counting(Class<T> type, T target) {
+            return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if (method.getName().startsWith("execute") || method.getName().equals("commit")) {
+                    roundTrips.incrementAndGet();
+                }
+                Object result = invoke(method, target, args);
+                if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                    return wrapStatement(method.getReturnType(), result);
+                }
+                return result;
+            }));
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T wrapStatement(Class<?> type, Object statement) {
+            return counting((Class<T>) type, (T) statement);
+        }
+
+        private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
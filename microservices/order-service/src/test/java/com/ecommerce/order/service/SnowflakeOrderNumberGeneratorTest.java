@@ -0,0 +1,119 @@
+package com.ecommerce.order.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeOrderNumberGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 100_000;
+
+    @Test
+    void concurrentCallersGetUniqueMonotonicIds() throws Exception {
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(7, System::currentTimeMillis);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[IDS_PER_THREAD];
+                    start.await();
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+
+            long startNanos = System.nanoTime();
+            start.countDown();
+            long[] all = new long[THREADS * IDS_PER_THREAD];
+            int offset = 0;
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get(60, TimeUnit.SECONDS);
+                for (int i = 1; i < ids.length; i++) {
+                    assertTrue(ids[i] > ids[i - 1], "ids must increase within a thread");
+                }
+                System.arraycopy(ids, 0, all, offset, ids.length);
+                offset += ids.length;
+            }
+            long elapsedNanos = System.nanoTime() - startNanos;
+
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++) {
+                assertTrue(all[i] != all[i - 1], "duplicate id " + all[i]);
+            }
+            for (long id : all) {
+                assertEquals(7, (id >>> SnowflakeOrderNumberGenerator.SEQUENCE_BITS) & SnowflakeOrderNumberGenerator.MAX_NODE_ID);
+            }
+            System.out.printf("%d threads generated %d unique ids at %.1f M ids/s%n",
+                    THREADS, all.length, all.length * 1_000.0 / elapsedNanos);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void exhaustedMillisecondBorrowsNextOne() {
+        long frozen = SnowflakeOrderNumberGenerator.EPOCH_MILLIS + 1_000;
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(1, () -> frozen);
+
+        long previous = generator.nextId();
+        for (int i = 0; i < 3 * (1 << SnowflakeOrderNumberGenerator.SEQUENCE_BITS); i++) {
+            long next = generator.nextId();
+            assertTrue(next > previous);
+            previous = next;
+        }
+        long millis = previous >>> (SnowflakeOrderNumberGenerator.NODE_BITS + SnowflakeOrderNumberGenerator.SEQUENCE_BITS);
+        assertEquals(1_003, millis);
+    }
+
+    @Test
+    void clockMovingBackwardsStaysMonotonic() {
+        AtomicLong clock = new AtomicLong(SnowflakeOrderNumberGenerator.EPOCH_MILLIS + 10_000);
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(1, clock::get);
+
+        long beforeRollback = generator.nextId();
+        clock.addAndGet(-5_000);
+        assertTrue(generator.nextId() > beforeRollback);
+    }
+
+    @Test
+    void orderNumbersAreFixedWidthAndSortable() {
+        AtomicLong clock = new AtomicLong(SnowflakeOrderNumberGenerator.EPOCH_MILLIS);
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(3, clock::get);
+
+        String first = generator.nextOrderNumber();
+        clock.addAndGet(365L * 24 * 3600 * 1000);
+        String second = generator.nextOrderNumber();
+
+        assertEquals("ORD0000000000000012288", first);
+        assertEquals(22, second.length());
+        assertTrue(second.compareTo(first) > 0);
+    }
+
+    @Test
+    void nodeIdComesFromConfigOrPodOrdinalOrStartupFails() {
+        assertEquals(5, SnowflakeOrderNumberGenerator.resolveNodeId(5, "order-service-2"));
+        assertEquals(2, SnowflakeOrderNumberGenerator.resolveNodeId(-1, "order-service-2"));
+        assertThrows(IllegalStateException.class,
+                () -> SnowflakeOrderNumberGenerator.resolveNodeId(-1, "order-service-7d9f8b6c5-xk4qz"));
+        assertThrows(IllegalStateException.class, () -> SnowflakeOrderNumberGenerator.resolveNodeId(-1, ""));
+        assertThrows(IllegalStateException.class, () -> SnowflakeOrderNumberGenerator.resolveNodeId(-1, "order-service-2048"));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeOrderNumberGenerator(1024, System::currentTimeMillis));
+    }
+}
@@ -2,6 +2,7 @@ package com.ecommerce.product.controller;
 
 import com.ecommerce.product.model.dto.ApiResponse;
 import com.ecommerce.product.model.dto.ProductDetailDTO;
+import com.ecommerce.product.model.dto.ProductPriceDTO;
 import com.ecommerce.product.model.dto.ProductResponse;
 import com.ecommerce.product.model.entity.ProductCategory;
 import com.ecommerce.product.service.ProductService;
@@ -20,6 +21,8 @@ import java.util.List;
 @RequiredArgsConstructor
 @CrossOrigin(origins = "*")
 public class ProductController {
+    private static final int MAX_PRICE_BATCH_SIZE = 200;
+
     private final ProductService productService;
 
     /**
@@ -72,6 +75,26 @@ public class ProductController {
         }
     }
 
+    /**
+     * 批量查询商品当前售价（订单服务结账校验使用）
+     */
+    @GetMapping("/prices")
+    public ResponseEntity<ApiResponse<List<ProductPriceDTO>>> getProductPrices(
+            @RequestParam("ids") List<Long> ids) {
+        if (ids.size() > MAX_PRICE_BATCH_SIZE) {
+            return ResponseEntity.badRequest()
+                .body(ApiResponse.error("At most " + MAX_PRICE_BATCH_SIZE + " products per request"));
+        }
+        try {
+            List<ProductPriceDTO> prices = productService.getProductPrices(ids);
+            return ResponseEntity.ok(ApiResponse.success("Product prices found", prices));
+        } catch (Exception e) {
+            log.error("Error getting product prices: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                .body(ApiResponse.error("Error getting product prices: " + e.getMessage()));
+        }
+    }
+
     /**
      * 根据英文名称获取产品详情
      */
@@ -50,6 +50,13 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(ex.getMessage()));
     }
     
+    @ExceptionHandler(IndexRebuildInProgressException.class)
+    public ResponseEntity<ApiResponse<Object>> handleIndexRebuildInProgressException(IndexRebuildInProgressException ex) {
+        log.warn("Index rebuild rejected: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+    
     @ExceptionHandler(InsufficientStockException.class)
     public ResponseEntity<ApiResponse<Object>> handleInsufficientStockException(InsufficientStockException ex) {
         log.warn("Insufficient stock: {}", ex.getMessage());
@@ -0,0 +1,10 @@
+package com.ecommerce.product.exception;
+
+/**
+ * 已有一次全量重建在进行中，本次请求不会再启动重建
+ */
+public class IndexRebuildInProgressException extends RuntimeException {
+    public IndexRebuildInProgressException() {
+        super("Elasticsearch 索引重建正在进行中，请稍后再试");
+    }
+}
@@ -0,0 +1,16 @@
+package com.ecommerce.product.model.dto;
+
+import lombok.Data;
+import java.math.BigDecimal;
+
+/**
+ * 商品当前售价，供订单服务结账前批量校验购物车
+ */
+@Data
+public class ProductPriceDTO {
+    private Long productId;
+    private String name;
+    private BigDecimal price;
+    private String mainImageUrl;
+    private Boolean isActive;
+}
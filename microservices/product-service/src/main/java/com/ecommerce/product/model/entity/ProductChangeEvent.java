@@ -0,0 +1,29 @@
+package com.ecommerce.product.model.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 待同步到 Elasticsearch 的产品变更，只记录产品 ID，索引时读取产品的最新状态
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "product_change_outbox")
+public class ProductChangeEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_change_outbox_id_seq")
+    @SequenceGenerator(name = "product_change_outbox_id_seq", sequenceName = "product_change_outbox_id_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
@@ -16,7 +16,8 @@ import java.util.List;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Document(indexName = "ecommerce_products")
+// 文档版本来自产品的 updated_at，见 EsProductConverter#toIndexQuery
+@Document(indexName = "ecommerce_products", versionType = Document.VersionType.EXTERNAL_GTE)
 public class EsProduct {
     
     @Id
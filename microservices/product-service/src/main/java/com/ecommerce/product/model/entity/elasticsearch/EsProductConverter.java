@@ -1,11 +1,14 @@
 package com.ecommerce.product.model.entity.elasticsearch;
 
 import com.ecommerce.product.model.entity.Product;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -13,6 +16,19 @@ import java.util.stream.Collectors;
 @Component
 public class EsProductConverter {
     
+    /**
+     * 写入索引的请求，文档版本取产品的 updated_at（微秒）。EsProduct 按 external_gte 比较版本，
+     * 先读到的旧快照晚于新快照写入时被 ES 拒绝，重复写入同一快照仍然成功
+     */
+    public IndexQuery toIndexQuery(Product product) {
+        EsProduct esProduct = convertToEsProduct(product);
+        return new IndexQueryBuilder()
+            .withId(String.valueOf(esProduct.getId()))
+            .withObject(esProduct)
+            .withVersion(documentVersion(product.getUpdatedAt()))
+            .build();
+    }
+    
     public EsProduct convertToEsProduct(Product product) {
         if (product == null) {
             return null;
@@ -62,6 +78,16 @@ public class EsProductConverter {
             .build();
     }
     
+    /**
+     * 将 updated_at 转换为 Elasticsearch 外部版本号（微秒，与 PostgreSQL 时间精度一致）
+     */
+    private Long documentVersion(LocalDateTime updatedAt) {
+        if (updatedAt == null) {
+            return null;
+        }
+        return updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + updatedAt.getNano() / 1_000;
+    }
+    
     /**
      * 将 LocalDateTime 转换为 LocalDate
      */
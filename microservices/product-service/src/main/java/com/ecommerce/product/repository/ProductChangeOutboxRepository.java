@@ -0,0 +1,23 @@
+package com.ecommerce.product.repository;
+
+import com.ecommerce.product.model.entity.ProductChangeEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductChangeOutboxRepository extends JpaRepository<ProductChangeEvent, Long> {
+    
+    /**
+     * 领取一批待索引的变更，多个副本并发消费时互不重叠。id 由各实例按段预分配（INCREMENT BY 50），
+     * 只用于分批，不代表提交顺序；同一产品的新旧快照由文档的外部版本排序
+     */
+    @Query(value = "SELECT * FROM product_change_outbox " +
+                   "ORDER BY id " +
+                   "LIMIT :limit " +
+                   "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<ProductChangeEvent> claimBatch(@Param("limit") int limit);
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,9 +18,36 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByCategoryTypeAndIsActiveTrueOrderBySortOrderAsc(ProductCategory categoryType);
     List<Product> findByIsFeaturedTrueAndIsActiveTrueOrderBySortOrderAsc();
     
-    @Query("SELECT p FROM Product p WHERE p.name LIKE %:keyword% OR p.description LIKE %:keyword% AND p.isActive = true")
+    @Query("SELECT p FROM Product p WHERE (p.name LIKE %:keyword% OR p.description LIKE %:keyword%) AND p.isActive = true")
     List<Product> searchProducts(@Param("keyword") String keyword);
     
+    /**
+     * 数据库全文搜索（V9 的 search_vector GIN 索引与 search_text 三元组索引）：
+     * 整词命中 search_vector 或子串命中 search_text 的上架商品，按相关度排序，名称命中优先。
+     * keyword 为小写关键词，pattern 为转义后的 LIKE 模式（%关键词%）
+     */
+    @Query(value = "SELECT p.* FROM product p " +
+           "WHERE p.is_active = true " +
+           "AND (p.search_vector @@ websearch_to_tsquery('simple', :keyword) OR p.search_text LIKE :pattern) " +
+           "ORDER BY ts_rank(p.search_vector, websearch_to_tsquery('simple', :keyword)) " +
+           "+ CASE WHEN lower(p.name) LIKE :pattern THEN 1 ELSE 0 END DESC, " +
+           "p.is_featured DESC, p.sort_order ASC, p.id ASC",
+           nativeQuery = true)
+    List<Product> fullTextSearch(@Param("keyword") String keyword, @Param("pattern") String pattern, Pageable pageable);
+
+    /**
+     * 一两个字的关键词提取不出三元组，改用 search_grams（单字与相邻两字）的 GIN 索引，
+     * 只匹配名称、英文名称、简介、标签，排序同 fullTextSearch
+     */
+    @Query(value = "SELECT p.* FROM product p " +
+           "WHERE p.is_active = true " +
+           "AND (p.search_vector @@ websearch_to_tsquery('simple', :keyword) OR p.search_grams @> ARRAY[CAST(:keyword AS text)]) " +
+           "ORDER BY ts_rank(p.search_vector, websearch_to_tsquery('simple', :keyword)) " +
+           "+ CASE WHEN lower(p.name) LIKE :pattern THEN 1 ELSE 0 END DESC, " +
+           "p.is_featured DESC, p.sort_order ASC, p.id ASC",
+           nativeQuery = true)
+    List<Product> shortTermSearch(@Param("keyword") String keyword, @Param("pattern") String pattern, Pageable pageable);
+    
     /**
      * 搜索产品（支持分页，在名称、描述、英文名称、标签中搜索）
      */
@@ -27,7 +55,7 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
            "(LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
            "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
            "LOWER(p.englishName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "LOWER(p.tags) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+           "LOWER(CAST(p.tags AS string)) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
            "LOWER(p.shortDescription) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND " +
            "p.isActive = true " +
            "ORDER BY p.isFeatured DESC, p.sortOrder ASC, p.name ASC")
@@ -40,7 +68,7 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
            "(LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
            "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
            "LOWER(p.englishName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "LOWER(p.tags) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+           "LOWER(CAST(p.tags AS string)) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
            "LOWER(p.shortDescription) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND " +
            "p.isActive = true " +
            "ORDER BY p.isFeatured DESC, p.sortOrder ASC, p.name ASC")
@@ -55,7 +83,7 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE " +
            "(LOWER(p.name) LIKE LOWER(CONCAT('%', '猕猴桃', '%')) OR " +
            "LOWER(p.englishName) LIKE LOWER(CONCAT('%', 'kiwi', '%')) OR " +
-           "LOWER(p.tags) LIKE LOWER(CONCAT('%', '猕猴桃', '%')) OR " +
+           "LOWER(CAST(p.tags AS string)) LIKE LOWER(CONCAT('%', '猕猴桃', '%')) OR " +
            "p.kiwiVariety IS NOT NULL) AND " +
            "p.isActive = true " +
            "ORDER BY p.sortOrder ASC")
@@ -67,7 +95,7 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE " +
            "(LOWER(p.name) LIKE LOWER(CONCAT('%', '猕猴桃', '%')) OR " +
            "LOWER(p.englishName) LIKE LOWER(CONCAT('%', 'kiwi', '%')) OR " +
-           "LOWER(p.tags) LIKE LOWER(CONCAT('%', '猕猴桃', '%')) OR " +
+           "LOWER(CAST(p.tags AS string)) LIKE LOWER(CONCAT('%', '猕猴桃', '%')) OR " +
            "p.kiwiVariety IS NOT NULL) AND " +
            "p.isFeatured = true AND " +
            "p.isActive = true " +
@@ -137,4 +165,16 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
            "p.isActive = true " +
            "ORDER BY p.sortOrder ASC")
     List<Product> findProductsWithKiwiFields();
-}
\ No newline at end of file
+
+    /**
+     * 按主键分块读取（键集分页），用于全量重建索引
+     */
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * 按 (updated_at, id) 键集分页读取某时间点之后变更的产品，用于增量同步索引
+     */
+    @Query("SELECT p FROM Product p WHERE p.updatedAt > :since OR (p.updatedAt = :since AND p.id > :afterId) " +
+           "ORDER BY p.updatedAt ASC, p.id ASC")
+    List<Product> findUpdatedSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId, Pageable pageable);
+}
@@ -0,0 +1,122 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.model.entity.Product;
+import com.ecommerce.product.model.entity.ProductChangeEvent;
+import com.ecommerce.product.model.entity.elasticsearch.EsProduct;
+import com.ecommerce.product.model.entity.elasticsearch.EsProductConverter;
+import com.ecommerce.product.repository.ProductChangeOutboxRepository;
+import com.ecommerce.product.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * product_change_outbox 索引器：领取一批变更，同一产品的多次变更合并为一次，
+ * 读取产品最新状态后用一个 _bulk 请求写入别名，成功后删除这批变更。
+ * 写入失败时事务回滚，变更留在表中下一轮重试；重复写入是幂等的。
+ * 多个副本可能先后读到同一产品的新旧快照并以相反顺序写入，文档版本取 updated_at，
+ * 旧快照因版本冲突被 ES 拒绝，这类冲突视为已写入。
+ */
+@Slf4j
+@Component
+public class ProductChangeIndexer {
+
+    private final ProductChangeOutboxRepository outboxRepository;
+    private final ProductRepository productRepository;
+    private final EsProductConverter esProductConverter;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public ProductChangeIndexer(ProductChangeOutboxRepository outboxRepository,
+                                ProductRepository productRepository,
+                                EsProductConverter esProductConverter,
+                                ElasticsearchOperations elasticsearchOperations,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.product.outbox.batch-size:500}") int batchSize) {
+        this.outboxRepository = outboxRepository;
+        this.productRepository = productRepository;
+        this.esProductConverter = esProductConverter;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 积压时连续处理满批，直到取不满一批为止
+     */
+    @Scheduled(fixedDelayString = "${app.product.outbox.relay-interval-ms:1000}")
+    public void drain() {
+        try {
+            int drained;
+            do {
+                drained = drainBatch();
+            } while (drained == batchSize);
+        } catch (Exception e) {
+            log.warn("Product change indexing failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    int drainBatch() {
+        Integer drained = transactionTemplate.execute(status -> {
+            List<ProductChangeEvent> events = outboxRepository.claimBatch(batchSize);
+            if (events.isEmpty()) {
+                return 0;
+            }
+            Set<Long> productIds = events.stream()
+                    .map(ProductChangeEvent::getProductId)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            apply(productIds);
+            outboxRepository.deleteAllInBatch(events);
+            log.debug("Indexed {} product changes as {} documents", events.size(), productIds.size());
+            return events.size();
+        });
+        return drained != null ? drained : 0;
+    }
+
+    /**
+     * 产品仍存在则写入最新状态（下架是软删除，isActive 随文档更新）；已从库中删除的按 ID 删除文档
+     */
+    private void apply(Set<Long> productIds) {
+        IndexCoordinates index = elasticsearchOperations.getIndexCoordinatesFor(EsProduct.class);
+        List<Product> products = productRepository.findAllById(productIds);
+        if (!products.isEmpty()) {
+            List<IndexQuery> queries = products.stream()
+                    .map(esProductConverter::toIndexQuery)
+                    .collect(Collectors.toList());
+            bulkIndexLatest(elasticsearchOperations, queries, index);
+        }
+        Set<Long> deleted = new LinkedHashSet<>(productIds);
+        products.forEach(product -> deleted.remove(product.getId()));
+        deleted.forEach(productId -> elasticsearchOperations.delete(String.valueOf(productId), index));
+    }
+
+    /**
+     * 写入一批带版本的文档；失败的文档全部是版本冲突时（索引里已是更新的快照）视为成功，其余失败照常抛出
+     */
+    static void bulkIndexLatest(ElasticsearchOperations operations, List<IndexQuery> queries, IndexCoordinates index) {
+        try {
+            operations.bulkIndex(queries, index);
+        } catch (BulkFailureException e) {
+            boolean allStale = e.getFailedDocuments().values().stream()
+                    .allMatch(message -> message != null && message.contains("version_conflict_engine_exception"));
+            if (!allStale) {
+                throw e;
+            }
+            log.debug("Skipped {} stale product snapshots already superseded in {}", e.getFailedDocuments().size(),
+                    index.getIndexName());
+        }
+    }
+}
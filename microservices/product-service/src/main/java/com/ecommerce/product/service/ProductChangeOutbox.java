@@ -0,0 +1,30 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.model.entity.ProductChangeEvent;
+import com.ecommerce.product.repository.ProductChangeOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 产品变更：在调用方的事务中写入 product_change_outbox，与产品一起提交或回滚；
+ * 提交后由 {@link ProductChangeIndexer} 批量写入 Elasticsearch，请求线程不等待索引。
+ * 规格等从属数据变更时同样按所属产品 ID 记录。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductChangeOutbox {
+    
+    private final ProductChangeOutboxRepository outboxRepository;
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void productChanged(Long productId) {
+        ProductChangeEvent event = new ProductChangeEvent();
+        event.setProductId(productId);
+        outboxRepository.save(event);
+        log.debug("Product change queued for {}", productId);
+    }
+}
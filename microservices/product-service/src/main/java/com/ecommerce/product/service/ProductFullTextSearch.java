@@ -0,0 +1,45 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.model.entity.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Elasticsearch 不可用时的数据库搜索：走 V9 建立的全文检索与三元组索引，按相关度排序并分页。
+ * 关键词统一小写（search_text 为小写生成列），LIKE 通配符按字面匹配；
+ * 一两个字的关键词走 search_grams，不匹配描述。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductFullTextSearch {
+
+    /** pg_trgm 能缩小范围的最短关键词长度（按字符计） */
+    static final int MIN_TRIGRAM_LENGTH = 3;
+
+    private final ProductRepository productRepository;
+
+    public List<Product> search(String keyword, int page, int size) {
+        String term = keyword == null ? "" : keyword.trim().toLowerCase(Locale.ROOT);
+        if (term.isEmpty()) {
+            return List.of();
+        }
+        PageRequest pageRequest = PageRequest.of(page, size);
+        List<Product> products = term.codePointCount(0, term.length()) < MIN_TRIGRAM_LENGTH
+                ? productRepository.shortTermSearch(term, likePattern(term), pageRequest)
+                : productRepository.fullTextSearch(term, likePattern(term), pageRequest);
+        log.debug("Database full-text search for '{}' returned {} products", term, products.size());
+        return products;
+    }
+
+    static String likePattern(String term) {
+        String escaped = term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
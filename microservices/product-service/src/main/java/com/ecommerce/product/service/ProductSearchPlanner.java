@@ -0,0 +1,163 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.model.entity.elasticsearch.EsProduct;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.common.unit.Fuzziness;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.DisMaxQueryBuilder;
+import org.elasticsearch.index.query.MultiMatchQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 商品搜索查询规划：把原来逐个尝试的九种查询合并成一个 dis_max 查询，一次往返完成。
+ * 每一档查询带 _name，命中后按 matched_queries 统计最终由哪一档命中；
+ * 前缀/模糊这类开销大的兜底只在关键词很短时加入。
+ */
+@Slf4j
+@Component
+public class ProductSearchPlanner {
+
+    /**
+     * 各档按优先级排列：精确 > 短语 > 分词匹配 > 短词兜底
+     */
+    static final String TIER_EXACT = "exact";
+    static final String TIER_PHRASE = "phrase";
+    static final String TIER_TERMS = "terms";
+    static final String TIER_FALLBACK = "fallback";
+    static final String TIER_NONE = "none";
+    private static final List<String> TIERS = List.of(TIER_EXACT, TIER_PHRASE, TIER_TERMS, TIER_FALLBACK);
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final MeterRegistry meterRegistry;
+    private final int shortTermLength;
+    private final String termsMinimumShouldMatch;
+
+    public ProductSearchPlanner(ElasticsearchOperations elasticsearchOperations,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.product.search.short-term-length:4}") int shortTermLength,
+                                @Value("${app.product.search.minimum-should-match:75%}") String termsMinimumShouldMatch) {
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.meterRegistry = meterRegistry;
+        this.shortTermLength = shortTermLength;
+        this.termsMinimumShouldMatch = termsMinimumShouldMatch;
+    }
+
+    public List<EsProduct> search(String keyword, Pageable pageable) {
+        return search(keyword, pageable, elasticsearchOperations.getIndexCoordinatesFor(EsProduct.class));
+    }
+
+    public List<EsProduct> search(String keyword, Pageable pageable, IndexCoordinates index) {
+        String term = keyword == null ? "" : keyword.trim();
+        if (term.isEmpty()) {
+            return List.of();
+        }
+        NativeSearchQuery query = new NativeSearchQueryBuilder()
+                .withQuery(buildQuery(term))
+                .withPageable(pageable)
+                .withTrackTotalHits(false)
+                .build();
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            SearchHits<EsProduct> hits = elasticsearchOperations.search(query, EsProduct.class, index);
+            outcome = hits.hasSearchHits() ? "hit" : "miss";
+            String tier = hits.hasSearchHits() ? tierOf(hits.getSearchHit(0)) : TIER_NONE;
+            meterRegistry.counter("product.search.tier.hits", "tier", tier).increment();
+            log.debug("Search '{}' returned {} hits, top hit matched tier {}", term, hits.getSearchHits().size(), tier);
+            return hits.getSearchHits().stream()
+                    .map(SearchHit::getContent)
+                    .collect(Collectors.toList());
+        } finally {
+            sample.stop(meterRegistry.timer("product.search.latency", "outcome", outcome));
+        }
+    }
+
+    /**
+     * 只返回上架商品；各档之间取最高分（tie_breaker 让同时命中多档的略靠前），
+     * 档内至少命中一个子查询
+     */
+    QueryBuilder buildQuery(String term) {
+        DisMaxQueryBuilder tiers = QueryBuilders.disMaxQuery().tieBreaker(0.1f);
+
+        tiers.add(QueryBuilders.boolQuery()
+                .should(QueryBuilders.termQuery("englishName", term))
+                .should(QueryBuilders.termQuery("tags", term))
+                .should(QueryBuilders.matchPhraseQuery("name", term))
+                .minimumShouldMatch(1)
+                .boost(10f)
+                .queryName(TIER_EXACT));
+
+        tiers.add(QueryBuilders.matchPhraseQuery("searchText", term)
+                .boost(5f)
+                .queryName(TIER_PHRASE));
+
+        tiers.add(QueryBuilders.multiMatchQuery(term)
+                .field("name", 3f)
+                .field("searchText", 2f)
+                .field("description")
+                .type(MultiMatchQueryBuilder.Type.BEST_FIELDS)
+                .minimumShouldMatch(termsMinimumShouldMatch)
+                .queryName(TIER_TERMS));
+
+        if (term.codePointCount(0, term.length()) <= shortTermLength) {
+            tiers.add(shortTermFallback(term));
+        }
+
+        return QueryBuilders.boolQuery()
+                .must(tiers)
+                .filter(QueryBuilders.termQuery("isActive", true));
+    }
+
+    /**
+     * 短词：英文按前缀和拼写容错匹配，中文按词组前缀匹配；都限制扩展的词项数量
+     */
+    private QueryBuilder shortTermFallback(String term) {
+        BoolQueryBuilder fallback = QueryBuilders.boolQuery()
+                .minimumShouldMatch(1)
+                .boost(0.5f)
+                .queryName(TIER_FALLBACK);
+        if (isLatin(term)) {
+            fallback.should(QueryBuilders.prefixQuery("englishName", term));
+            fallback.should(QueryBuilders.multiMatchQuery(term, "name", "searchText")
+                    .fuzziness(Fuzziness.AUTO)
+                    .prefixLength(1)
+                    .maxExpansions(20));
+        } else {
+            fallback.should(QueryBuilders.matchPhrasePrefixQuery("name", term).maxExpansions(20));
+            fallback.should(QueryBuilders.prefixQuery("tags", term));
+        }
+        return fallback;
+    }
+
+    private static boolean isLatin(String term) {
+        return term.chars().allMatch(c -> c < 0x80);
+    }
+
+    private static String tierOf(SearchHit<EsProduct> hit) {
+        List<String> matched = hit.getMatchedQueries();
+        if (matched != null) {
+            for (String tier : TIERS) {
+                if (matched.contains(tier)) {
+                    return tier;
+                }
+            }
+        }
+        return TIER_NONE;
+    }
+}
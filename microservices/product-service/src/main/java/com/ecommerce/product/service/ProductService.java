@@ -3,6 +3,7 @@ package com.ecommerce.product.service;
 import com.ecommerce.product.model.dto.CreateAppleRequest;
 import com.ecommerce.product.model.dto.KiwiProductResponse;
 import com.ecommerce.product.model.dto.ProductDetailDTO;
+import com.ecommerce.product.model.dto.ProductPriceDTO;
 import com.ecommerce.product.model.dto.ProductResponse;
 import com.ecommerce.product.model.dto.ProductVariantResponse;
 import com.ecommerce.product.model.dto.UpdateAppleRequest;
@@ -12,11 +13,9 @@ import com.ecommerce.product.model.entity.ProductVariant;
 import com.ecommerce.product.model.entity.elasticsearch.EsProduct;
 import com.ecommerce.product.repository.ProductRepository;
 import com.ecommerce.product.repository.ProductVariantRepository;
-import com.ecommerce.product.repository.elasticsearch.EsProductRepository;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,14 +30,23 @@ public class ProductService {
     
     private final ProductRepository productRepository;
     private final ProductVariantRepository productVariantRepository;
-    private final EsProductRepository esProductRepository;
+    private final ProductSearchPlanner productSearchPlanner;
+    private final SearchBackendHealthMonitor searchBackendHealthMonitor;
+    private final ProductFullTextSearch productFullTextSearch;
+    private final ProductChangeOutbox productChangeOutbox;
 
     public ProductService(ProductRepository productRepository, 
                          ProductVariantRepository productVariantRepository,
-                         EsProductRepository esProductRepository) {
+                         ProductSearchPlanner productSearchPlanner,
+                         SearchBackendHealthMonitor searchBackendHealthMonitor,
+                         ProductFullTextSearch productFullTextSearch,
+                         ProductChangeOutbox productChangeOutbox) {
         this.productRepository = productRepository;
         this.productVariantRepository = productVariantRepository;
-        this.esProductRepository = esProductRepository;
+        this.productSearchPlanner = productSearchPlanner;
+        this.searchBackendHealthMonitor = searchBackendHealthMonitor;
+        this.productFullTextSearch = productFullTextSearch;
+        this.productChangeOutbox = productChangeOutbox;
     }
 
     /**
@@ -48,11 +56,14 @@ public class ProductService {
         try {
             log.info("Searching products with keyword: '{}', page: {}, size: {}", keyword, page, size);
             
-            // 首先尝试使用 Elasticsearch 搜索（如果可用）
-            if (isElasticsearchAvailable()) {
+            // Elasticsearch 可用时优先使用（只读健康标志，不额外访问 ES）
+            if (searchBackendHealthMonitor.isElasticsearchAvailable()) {
                 try {
-                    return searchProductsWithElasticsearch(keyword, page, size);
+                    List<ProductResponse> results = searchProductsWithElasticsearch(keyword, page, size);
+                    searchBackendHealthMonitor.recordSuccess();
+                    return results;
                 } catch (Exception e) {
+                    searchBackendHealthMonitor.recordFailure(e);
                     log.warn("Elasticsearch search failed, falling back to database search: {}", e.getMessage());
                 }
             }
@@ -68,186 +79,35 @@ public class ProductService {
     }
 
     /**
-     * 使用数据库搜索产品
+     * 使用数据库搜索产品：全文检索与三元组索引，按相关度排序分页，见 {@link ProductFullTextSearch}
      */
     private List<ProductResponse> searchProductsWithDatabase(String keyword, int page, int size) {
-        try {
-            log.debug("Using database search for keyword: '{}'", keyword);
-            
-            // 使用新的支持分页的搜索方法
-            List<Product> products = productRepository.searchProductsList(
-                keyword.toLowerCase(), 
-                PageRequest.of(page, size)
-            );
-            
-            log.info("Database search found {} products for keyword: '{}'", products.size(), keyword);
-            return convertToProductResponseList(products);
-            
-        } catch (Exception e) {
-            log.error("Database search failed for keyword '{}': {}", keyword, e.getMessage());
-            // 如果分页搜索失败，尝试使用旧的搜索方法
-            try {
-                log.debug("Trying old search method for keyword: '{}'", keyword);
-                List<Product> products = productRepository.searchProducts(keyword.toLowerCase());
-                return convertToProductResponseList(products);
-            } catch (Exception ex) {
-                log.error("All search methods failed for keyword '{}': {}", keyword, ex.getMessage());
-                throw new RuntimeException("Search failed: " + ex.getMessage());
-            }
-        }
+        log.debug("Using database search for keyword: '{}'", keyword);
+        
+        List<Product> products = productFullTextSearch.search(keyword, page, size);
+        
+        log.info("Database search found {} products for keyword: '{}'", products.size(), keyword);
+        return convertToProductResponseList(products);
     }
 
     /**
-     * 使用 Elasticsearch 搜索产品 - 使用 @Query 修复版本
+     * 使用 Elasticsearch 搜索产品：由 {@link ProductSearchPlanner} 组合成单个查询，一次往返
      */
     private List<ProductResponse> searchProductsWithElasticsearch(String keyword, int page, int size) {
-        try {
-            log.debug("Using Elasticsearch search for keyword: '{}'", keyword);
-            
-            Pageable pageable = PageRequest.of(page, size);
-            Page<EsProduct> esProductPage = null;
-            
-            // 方案1：优先使用 @Query 注解的综合搜索
-            log.debug("Attempt 1: Trying @Query comprehensive search...");
-            try {
-                esProductPage = esProductRepository.comprehensiveSearch(keyword, pageable);
-                log.debug("@Query comprehensive search returned {} results", esProductPage.getContent().size());
-                if (!esProductPage.getContent().isEmpty()) {
-                    log.debug("First result: {}", esProductPage.getContent().get(0).getName());
-                }
-            } catch (Exception e) {
-                log.error("❌ @Query comprehensive search FAILED: {}", e.getMessage());
-            }
-            
-            // 方案2：如果综合搜索没有结果，尝试加权搜索
-            if (esProductPage == null || esProductPage.getContent().isEmpty()) {
-                log.debug("Attempt 2: Trying @Query weighted search...");
-                try {
-                    esProductPage = esProductRepository.weightedSearch(keyword, pageable);
-                    log.debug("@Query weighted search returned {} results", esProductPage.getContent().size());
-                } catch (Exception e) {
-                    log.error("❌ @Query weighted search FAILED: {}", e.getMessage());
-                }
-            }
-            
-            // 方案3：如果加权搜索没有结果，尝试 searchText 字段搜索
-            if (esProductPage == null || esProductPage.getContent().isEmpty()) {
-                log.debug("Attempt 3: Trying @Query searchText match...");
-                try {
-                    esProductPage = esProductRepository.findBySearchTextUsingMatch(keyword, pageable);
-                    log.debug("@Query searchText match returned {} results", esProductPage.getContent().size());
-                } catch (Exception e) {
-                    log.error("❌ @Query searchText match FAILED: {}", e.getMessage());
-                }
-            }
-            
-            // 方案4：如果 searchText 搜索没有结果，尝试多字段搜索
-            if (esProductPage == null || esProductPage.getContent().isEmpty()) {
-                log.debug("Attempt 4: Trying @Query multi-field search...");
-                try {
-                    esProductPage = esProductRepository.searchByMultipleFields(keyword, pageable);
-                    log.debug("@Query multi-field search returned {} results", esProductPage.getContent().size());
-                } catch (Exception e) {
-                    log.error("❌ @Query multi-field search FAILED: {}", e.getMessage());
-                }
-            }
-            
-            // 方案5：如果多字段搜索没有结果，尝试 query_string 搜索
-            if (esProductPage == null || esProductPage.getContent().isEmpty()) {
-                log.debug("Attempt 5: Trying @Query query_string search...");
-                try {
-                    esProductPage = esProductRepository.searchByQueryString(keyword, pageable);
-                    log.debug("@Query query_string search returned {} results", esProductPage.getContent().size());
-                } catch (Exception e) {
-                    log.error("❌ @Query query_string search FAILED: {}", e.getMessage());
-                }
-            }
-            
-            // 方案6：如果 query_string 搜索没有结果，尝试通配符搜索
-            if (esProductPage == null || esProductPage.getContent().isEmpty()) {
-                log.debug("Attempt 6: Trying @Query wildcard search...");
-                try {
-                    esProductPage = esProductRepository.searchByWildcard(keyword, pageable);
-                    log.debug("@Query wildcard search returned {} results", esProductPage.getContent().size());
-                } catch (Exception e) {
-                    log.error("❌ @Query wildcard search FAILED: {}", e.getMessage());
-                }
-            }
-            
-            // 方案7：如果通配符搜索没有结果，尝试短语匹配
-            if (esProductPage == null || esProductPage.getContent().isEmpty()) {
-                log.debug("Attempt 7: Trying @Query phrase search...");
-                try {
-                    esProductPage = esProductRepository.searchByPhrase(keyword, pageable);
-                    log.debug("@Query phrase search returned {} results", esProductPage.getContent().size());
-                } catch (Exception e) {
-                    log.error("❌ @Query phrase search FAILED: {}", e.getMessage());
-                }
-            }
-            
-            // 方案8：如果以上 @Query 方法都失败，回退到原始的 Containing 方法
-            if (esProductPage == null || esProductPage.getContent().isEmpty()) {
-                log.debug("Attempt 8: Trying original Containing methods...");
-                try {
-                    esProductPage = esProductRepository.findByNameContainingOrDescriptionContainingOrEnglishNameContaining(
-                        keyword, keyword, keyword, pageable);
-                    log.debug("Original Containing search returned {} results", esProductPage.getContent().size());
-                } catch (Exception e) {
-                    log.error("❌ Original Containing search FAILED: {}", e.getMessage());
-                }
-            }
-            
-            // 方案9：如果原始的 Containing 方法失败，尝试 searchText Containing 方法
-            if (esProductPage == null || esProductPage.getContent().isEmpty()) {
-                log.debug("Attempt 9: Trying searchText Containing method...");
-                try {
-                    esProductPage = esProductRepository.findBySearchTextContaining(keyword, pageable);
-                    log.debug("SearchText Containing search returned {} results", esProductPage.getContent().size());
-                } catch (Exception e) {
-                    log.error("❌ SearchText Containing search FAILED: {}", e.getMessage());
-                }
-            }
-            
-            // 方案10：如果所有方法都失败，记录错误
-            if (esProductPage == null) {
-                log.error("❌ ALL Elasticsearch search methods failed for keyword: '{}'", keyword);
-                throw new RuntimeException("All Elasticsearch search methods failed");
-            }
-            
-            if (esProductPage.getContent().isEmpty()) {
-                log.info("No products found in Elasticsearch for keyword: '{}'", keyword);
-            }
-            
-            // 从 Page 对象中获取内容
-            List<EsProduct> esProducts = esProductPage.getContent();
-            
-            // 将 EsProduct 转换为 ProductResponse
-            List<ProductResponse> results = esProducts.stream()
-                .map(this::convertEsProductToProductResponse)
-                .collect(Collectors.toList());
-            
-            log.info("Elasticsearch search found {} products for keyword: '{}'", results.size(), keyword);
-            return results;
-            
-        } catch (Exception e) {
-            log.error("❌ Elasticsearch search completely failed for keyword '{}': {}", keyword, e.getMessage());
-            throw new RuntimeException("Elasticsearch search failed: " + e.getMessage());
-        }
-    }
-
-    /**
-     * 检查 Elasticsearch 是否可用
-     */
-    private boolean isElasticsearchAvailable() {
-        try {
-            // 检查 Elasticsearch 是否有数据
-            long count = esProductRepository.count();
-            log.debug("Elasticsearch document count: {}", count);
-            return count > 0; // 如果有数据则认为可用
-        } catch (Exception e) {
-            log.debug("Elasticsearch is not available: {}", e.getMessage());
-            return false;
+        log.debug("Using Elasticsearch search for keyword: '{}'", keyword);
+        
+        List<EsProduct> esProducts = productSearchPlanner.search(keyword, PageRequest.of(page, size));
+        if (esProducts.isEmpty()) {
+            log.info("No products found in Elasticsearch for keyword: '{}'", keyword);
         }
+        
+        // 将 EsProduct 转换为 ProductResponse
+        List<ProductResponse> results = esProducts.stream()
+            .map(this::convertEsProductToProductResponse)
+            .collect(Collectors.toList());
+        
+        log.info("Elasticsearch search found {} products for keyword: '{}'", results.size(), keyword);
+        return results;
     }
 
     /**
@@ -322,6 +182,23 @@ public class ProductService {
         return detailDTO;
     }
 
+    /**
+     * 批量查询商品当前售价（一次 IN 查询），不存在的商品不返回
+     */
+    public List<ProductPriceDTO> getProductPrices(List<Long> productIds) {
+        return productRepository.findAllById(productIds).stream()
+            .map(product -> {
+                ProductPriceDTO dto = new ProductPriceDTO();
+                dto.setProductId(product.getId());
+                dto.setName(product.getName());
+                dto.setPrice(product.getBasePrice());
+                dto.setMainImageUrl(product.getMainImageUrl());
+                dto.setIsActive(product.getIsActive());
+                return dto;
+            })
+            .collect(Collectors.toList());
+    }
+
     public List<ProductResponse> getProductsByCategory(ProductCategory category) {
         List<Product> products = productRepository.findByCategoryTypeAndIsActiveTrueOrderBySortOrderAsc(category);
         return convertToProductResponseList(products);
@@ -483,6 +360,7 @@ public class ProductService {
     /**
      * 后台管理 - 更新苹果产品
      */
+    @Transactional
     public ProductResponse updateAppleProduct(Long id, UpdateAppleRequest updateRequest) {
         Product product = productRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Apple product not found: " + id));
@@ -552,6 +430,7 @@ public class ProductService {
         
         product.setUpdatedAt(LocalDateTime.now());
         Product savedProduct = productRepository.save(product);
+        productChangeOutbox.productChanged(savedProduct.getId());
         
         log.info("Apple product updated successfully: {}", id);
         return convertToProductResponse(savedProduct);
@@ -560,6 +439,7 @@ public class ProductService {
     /**
      * 后台管理 - 创建苹果产品
      */
+    @Transactional
     public ProductResponse createAppleProduct(CreateAppleRequest createRequest) {
         log.info("Creating new apple product: {}", createRequest);
         
@@ -597,6 +477,7 @@ public class ProductService {
         product.setUpdatedAt(LocalDateTime.now());
         
         Product savedProduct = productRepository.save(product);
+        productChangeOutbox.productChanged(savedProduct.getId());
         
         log.info("Apple product created successfully with id: {}", savedProduct.getId());
         return convertToProductResponse(savedProduct);
@@ -605,6 +486,7 @@ public class ProductService {
     /**
      * 后台管理 - 删除苹果产品（软删除）
      */
+    @Transactional
     public void deleteAppleProduct(Long id) {
         Product product = productRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Apple product not found: " + id));
@@ -617,6 +499,7 @@ public class ProductService {
         product.setIsActive(false);
         product.setUpdatedAt(LocalDateTime.now());
         productRepository.save(product);
+        productChangeOutbox.productChanged(id);
         
         log.info("Apple product soft deleted: {}", id);
     }
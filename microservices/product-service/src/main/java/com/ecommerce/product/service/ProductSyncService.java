@@ -1,26 +1,93 @@
 package com.ecommerce.product.service;
 
+import com.ecommerce.product.exception.IndexRebuildInProgressException;
 import com.ecommerce.product.model.entity.Product;
 import com.ecommerce.product.model.entity.elasticsearch.EsProduct;
 import com.ecommerce.product.model.entity.elasticsearch.EsProductConverter;
 import com.ecommerce.product.repository.ProductRepository;
 import com.ecommerce.product.repository.elasticsearch.EsProductRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // 添加这行导入
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
+/**
+ * 产品索引同步。搜索与单条写入都走别名（EsProduct 的 indexName），别名背后是带版本号的索引：
+ * 全量重建按主键分块读库，经 _bulk 写入新索引（在途请求数有上限，满了读库就等待），
+ * 写完后一次原子操作把别名切到新索引再删除旧索引，重建期间搜索不受影响；
+ * 两次重建之间按 updated_at 定时增量同步。
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
-public class ProductSyncService {
-    
+public class ProductSyncService implements DisposableBean {
+
     private final ProductRepository productRepository;
     private final EsProductRepository esProductRepository;
     private final EsProductConverter esProductConverter;
-    
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final int chunkSize;
+    private final int bulkConcurrency;
+    private final Duration syncOverlap;
+    /**
+     * 全量重建执行 _bulk 的线程（product-reindex-N），重建互斥，所有重建共用；空闲时线程回收
+     */
+    private final ThreadPoolExecutor bulkExecutor;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    /**
+     * 已同步到的 updated_at 水位；为空时从索引中最新的 updatedAt 恢复
+     */
+    private volatile LocalDateTime syncedUpTo;
+
+    public ProductSyncService(ProductRepository productRepository,
+                              EsProductRepository esProductRepository,
+                              EsProductConverter esProductConverter,
+                              ElasticsearchOperations elasticsearchOperations,
+                              @Value("${app.product.batch.reindex-size:100}") int chunkSize,
+                              @Value("${app.product.batch.reindex-concurrency:4}") int bulkConcurrency,
+                              @Value("${app.product.batch.sync-overlap-ms:60000}") long syncOverlapMs) {
+        this.productRepository = productRepository;
+        this.esProductRepository = esProductRepository;
+        this.esProductConverter = esProductConverter;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.chunkSize = chunkSize;
+        this.bulkConcurrency = bulkConcurrency;
+        this.syncOverlap = Duration.ofMillis(syncOverlapMs);
+        // 在途请求数由 bulkLoad 的信号量限制，队列不会超过 bulkConcurrency
+        this.bulkExecutor = new ThreadPoolExecutor(bulkConcurrency, bulkConcurrency, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("product-reindex-"));
+        this.bulkExecutor.allowCoreThreadTimeOut(true);
+    }
+
     /**
      * 同步单个产品到 Elasticsearch
      */
@@ -29,41 +96,24 @@ public class ProductSyncService {
         try {
             Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("产品不存在: " + productId));
-            
+
             EsProduct esProduct = esProductConverter.convertToEsProduct(product);
             esProductRepository.save(esProduct);
-            
+
             log.info("同步产品到 Elasticsearch 成功: {}", productId);
         } catch (Exception e) {
             log.error("同步产品到 Elasticsearch 失败: {}, 错误: {}", productId, e.getMessage(), e);
             throw new RuntimeException("同步产品失败: " + e.getMessage(), e);
         }
     }
-    
+
     /**
-     * 批量同步所有产品到 Elasticsearch
+     * 批量同步所有产品到 Elasticsearch（即全量重建）；已有重建在进行时抛出 {@link IndexRebuildInProgressException}
      */
-    @Transactional
-    public void syncAllProductsToElasticsearch() {
-        try {
-            log.info("开始批量同步所有产品到 Elasticsearch...");
-            
-            List<Product> products = productRepository.findAll();
-            List<EsProduct> esProducts = esProductConverter.convertToEsProducts(products);
-            
-            // 先删除所有现有数据
-            esProductRepository.deleteAll();
-            
-            // 批量保存新数据
-            esProductRepository.saveAll(esProducts);
-            
-            log.info("批量同步完成，共同步 {} 个产品到 Elasticsearch", esProducts.size());
-        } catch (Exception e) {
-            log.error("批量同步产品到 Elasticsearch 失败: {}", e.getMessage(), e);
-            throw new RuntimeException("批量同步失败: " + e.getMessage(), e);
-        }
+    public long syncAllProductsToElasticsearch() {
+        return rebuildElasticsearchIndex();
     }
-    
+
     /**
      * 从 Elasticsearch 删除产品
      */
@@ -75,25 +125,193 @@ public class ProductSyncService {
             log.error("从 Elasticsearch 删除产品失败: {}, 错误: {}", productId, e.getMessage(), e);
         }
     }
-    
+
     /**
-     * 重建 Elasticsearch 索引
+     * 重建 Elasticsearch 索引：写入新的版本索引后切换别名，返回写入的产品数。
+     * 不在事务中执行，每个分块读完即脱离持久化上下文，内存只保留在途的分块。
+     * 同一时间只允许一次重建，已有重建在进行时抛出 {@link IndexRebuildInProgressException}
      */
-    @Transactional
-    public void rebuildElasticsearchIndex() {
+    public long rebuildElasticsearchIndex() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IndexRebuildInProgressException();
+        }
+        String alias = aliasName();
+        String newIndex = alias + "_v" + System.currentTimeMillis();
+        // 重建期间的变更可能只写进了旧索引，切换后由增量同步从这里补上
+        LocalDateTime startedAt = LocalDateTime.now();
         try {
-            log.info("开始重建 Elasticsearch 索引...");
-            
-            // 删除现有索引
-            esProductRepository.deleteAll();
-            
-            // 重新同步所有数据
-            syncAllProductsToElasticsearch();
-            
-            log.info("Elasticsearch 索引重建完成");
+            log.info("开始重建 Elasticsearch 索引: {}", newIndex);
+            IndexOperations newIndexOps = elasticsearchOperations.indexOps(IndexCoordinates.of(newIndex));
+            newIndexOps.create(newIndexOps.createSettings(EsProduct.class));
+            newIndexOps.putMapping(newIndexOps.createMapping(EsProduct.class));
+
+            long indexed;
+            try {
+                indexed = bulkLoad(IndexCoordinates.of(newIndex));
+                newIndexOps.refresh();
+            } catch (Exception e) {
+                newIndexOps.delete();
+                throw e;
+            }
+
+            Set<String> oldIndices;
+            synchronized (this) {
+                oldIndices = switchAlias(alias, newIndex);
+                syncedUpTo = startedAt;
+            }
+            oldIndices.forEach(oldIndex -> elasticsearchOperations.indexOps(IndexCoordinates.of(oldIndex)).delete());
+
+            log.info("Elasticsearch 索引重建完成，共写入 {} 个产品到 {}，已删除旧索引 {}", indexed, newIndex, oldIndices);
+            return indexed;
         } catch (Exception e) {
             log.error("重建 Elasticsearch 索引失败: {}", e.getMessage(), e);
             throw new RuntimeException("重建索引失败: " + e.getMessage(), e);
+        } finally {
+            rebuilding.set(false);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 增量同步：把 updated_at 在水位之后的产品写入别名。回看 sync-overlap-ms，
+     * 覆盖 updated_at 早于提交时间的事务；重复写入是幂等的，比索引中更旧的快照按版本跳过。
+     * 下架是软删除（is_active = false），同样会更新 updated_at。
+     * 与切换别名互斥，避免切换后水位被切换前开始的同步覆盖
+     */
+    @Scheduled(initialDelayString = "${app.product.batch.sync-interval-ms:30000}",
+               fixedDelayString = "${app.product.batch.sync-interval-ms:30000}")
+    public synchronized void syncUpdatedProducts() {
+        if (rebuilding.get()) {
+            return;
+        }
+        try {
+            LocalDateTime watermark = syncedUpTo != null ? syncedUpTo : latestIndexedUpdate();
+            if (watermark == null) {
+                return;
+            }
+            IndexCoordinates index = IndexCoordinates.of(aliasName());
+            LocalDateTime since = watermark.minus(syncOverlap);
+            long afterId = 0;
+            long synced = 0;
+            List<Product> chunk;
+            do {
+                chunk = productRepository.findUpdatedSince(since, afterId, PageRequest.of(0, chunkSize));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                ProductChangeIndexer.bulkIndexLatest(elasticsearchOperations, toIndexQueries(chunk), index);
+                synced += chunk.size();
+                Product last = chunk.get(chunk.size() - 1);
+                since = last.getUpdatedAt();
+                afterId = last.getId();
+                if (since.isAfter(watermark)) {
+                    watermark = since;
+                }
+            } while (chunk.size() == chunkSize);
+
+            syncedUpTo = watermark;
+            if (synced > 0) {
+                log.info("增量同步 {} 个产品到 Elasticsearch，水位 {}", synced, watermark);
+            }
+        } catch (Exception e) {
+            log.warn("增量同步产品到 Elasticsearch 失败，下次重试: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        bulkExecutor.shutdownNow();
+    }
+
+    /**
+     * 按主键分块读库，提交到重建线程池执行 _bulk；在途批次达到上限时读库线程阻塞。
+     * 任一批次失败即停止读库，等在途批次结束后抛出
+     */
+    private long bulkLoad(IndexCoordinates index) throws Exception {
+        Semaphore inFlight = new Semaphore(bulkConcurrency);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        AtomicLong indexed = new AtomicLong();
+        try {
+            long lastId = 0;
+            List<Product> chunk;
+            do {
+                chunk = productRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, chunkSize));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                lastId = chunk.get(chunk.size() - 1).getId();
+                List<IndexQuery> queries = toIndexQueries(chunk);
+
+                inFlight.acquire();
+                bulkExecutor.execute(() -> {
+                    try {
+                        elasticsearchOperations.bulkIndex(queries, index);
+                        indexed.addAndGet(queries.size());
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } while (chunk.size() == chunkSize && failure.get() == null);
+
+            inFlight.acquire(bulkConcurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return indexed.get();
+    }
+
+    /**
+     * 一次 _aliases 请求完成切换：别名从旧索引移除并指向新索引。
+     * 旧部署里别名同名的是实体索引（启动时由仓库自动创建），同一请求中删除它
+     */
+    private Set<String> switchAlias(String alias, String newIndex) {
+        IndexOperations aliasOps = elasticsearchOperations.indexOps(IndexCoordinates.of(alias));
+        Set<String> oldIndices = aliasOps.exists() ? aliasOps.getAliases(alias).keySet() : Set.of();
+
+        List<AliasAction> actions = new ArrayList<>();
+        actions.add(new AliasAction.Add(AliasActionParameters.builder()
+                .withIndices(newIndex)
+                .withAliases(alias)
+                .build()));
+        if (aliasOps.exists() && oldIndices.isEmpty()) {
+            actions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder()
+                    .withIndices(alias)
+                    .build()));
+        } else if (!oldIndices.isEmpty()) {
+            actions.add(new AliasAction.Remove(AliasActionParameters.builder()
+                    .withIndices(oldIndices.toArray(new String[0]))
+                    .withAliases(alias)
+                    .build()));
+        }
+        aliasOps.alias(new AliasActions(actions.toArray(new AliasAction[0])));
+        return oldIndices;
+    }
+
+    /**
+     * 索引里最新的 updatedAt 只精确到天，从当天零点开始补同步
+     */
+    private LocalDateTime latestIndexedUpdate() {
+        SearchHits<EsProduct> hits = elasticsearchOperations.search(new NativeSearchQueryBuilder()
+                .withPageable(PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "updatedAt")))
+                .build(), EsProduct.class, IndexCoordinates.of(aliasName()));
+        if (!hits.hasSearchHits() || hits.getSearchHit(0).getContent().getUpdatedAt() == null) {
+            return null;
+        }
+        return hits.getSearchHit(0).getContent().getUpdatedAt().atStartOfDay();
+    }
+
+    private List<IndexQuery> toIndexQueries(List<Product> products) {
+        return products.stream()
+                .map(esProductConverter::toIndexQuery)
+                .collect(Collectors.toList());
+    }
+
+    private String aliasName() {
+        return elasticsearchOperations.getIndexCoordinatesFor(EsProduct.class).getIndexName();
+    }
+}
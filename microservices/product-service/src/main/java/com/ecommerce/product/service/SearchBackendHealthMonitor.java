@@ -0,0 +1,89 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.repository.elasticsearch.EsProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 搜索后端健康状态：后台定时探测 Elasticsearch（索引可访问且有数据），
+ * 再结合真实查询的失败信号（连续失败达到阈值即熔断），结果放在原子标志里。
+ * 搜索请求只读这个标志决定走 ES 还是数据库，热路径上不再额外访问 ES。
+ * 熔断后至少保持 open-duration，之后由探测成功恢复。
+ */
+@Slf4j
+@Component
+public class SearchBackendHealthMonitor {
+
+    private final EsProductRepository esProductRepository;
+    private final int failureThreshold;
+    private final long openDurationMs;
+
+    private final AtomicBoolean available = new AtomicBoolean(false);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openUntilMillis;
+
+    public SearchBackendHealthMonitor(EsProductRepository esProductRepository,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.product.search.health.failure-threshold:3}") int failureThreshold,
+                                      @Value("${app.product.search.health.open-duration-ms:30000}") long openDurationMs) {
+        this.esProductRepository = esProductRepository;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDurationMs;
+        Gauge.builder("product.search.backend.available", available, flag -> flag.get() ? 1 : 0)
+                .description("1 when searches are routed to Elasticsearch, 0 when they use the database")
+                .register(meterRegistry);
+    }
+
+    public boolean isElasticsearchAvailable() {
+        return available.get();
+    }
+
+    /**
+     * 启动后立即探测一次，之后按固定间隔探测
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.product.search.health.probe-interval-ms:5000}")
+    public void probe() {
+        boolean healthy;
+        try {
+            // 与原来每次搜索前的检查一致：索引为空时同样走数据库
+            healthy = esProductRepository.count() > 0;
+        } catch (Exception e) {
+            log.debug("Elasticsearch probe failed: {}", e.getMessage());
+            healthy = false;
+        }
+
+        if (!healthy) {
+            if (available.compareAndSet(true, false)) {
+                log.warn("Elasticsearch probe failed, routing searches to the database");
+            }
+            return;
+        }
+        if (System.currentTimeMillis() < openUntilMillis) {
+            return;
+        }
+        consecutiveFailures.set(0);
+        if (available.compareAndSet(false, true)) {
+            log.info("Elasticsearch is available, routing searches to Elasticsearch");
+        }
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+    }
+
+    public void recordFailure(Exception e) {
+        int failures = consecutiveFailures.incrementAndGet();
+        if (failures >= failureThreshold && available.compareAndSet(true, false)) {
+            openUntilMillis = System.currentTimeMillis() + openDurationMs;
+            log.warn("Elasticsearch failed {} searches in a row ({}), routing searches to the database for at least {} ms",
+                    failures, e.getMessage(), openDurationMs);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+-- V10__Add_product_updated_at_index.sql
+
+-- Elasticsearch 增量同步按 (updated_at, id) 键集分页读取变更的产品
+CREATE INDEX IF NOT EXISTS idx_product_updated_at_id ON product(updated_at, id);
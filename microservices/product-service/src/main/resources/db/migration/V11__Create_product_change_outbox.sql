@@ -0,0 +1,12 @@
+-- V11__Create_product_change_outbox.sql
+
+-- 产品变更 outbox：与产品写入在同一事务中记录产品 ID，由后台索引器批量读取最新状态写入 Elasticsearch，
+-- 写入成功后删除；表中只保留尚未索引的变更
+CREATE TABLE IF NOT EXISTS product_change_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 与实体上的 allocationSize 一致
+ALTER SEQUENCE product_change_outbox_id_seq INCREMENT BY 50;
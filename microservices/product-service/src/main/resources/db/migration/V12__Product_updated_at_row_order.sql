@@ -0,0 +1,17 @@
+-- V12__Product_updated_at_row_order.sql
+
+-- product.updated_at 用作 Elasticsearch 文档的外部版本，同一行的先后更新必须得到递增的值。
+-- CURRENT_TIMESTAMP 是事务开始时间：等待行锁的事务可能比先提交的事务开始得早，写入更小的 updated_at。
+-- 改用 clock_timestamp()：BEFORE 触发器在取得行锁之后执行，取到的时刻晚于上一次更新的提交。
+-- 只用于 product；category、product_variant、inventory 仍使用 V1 的 update_updated_at_column()
+CREATE OR REPLACE FUNCTION update_product_updated_at_column()
+RETURNS TRIGGER AS $$
+BEGIN
+    NEW.updated_at = clock_timestamp();
+    RETURN NEW;
+END;
+$$ language 'plpgsql';
+
+-- 插入时同样由数据库取时间，不用应用服务器的时钟
+DROP TRIGGER IF EXISTS update_product_updated_at ON product;
+CREATE TRIGGER update_product_updated_at BEFORE INSERT OR UPDATE ON product FOR EACH ROW EXECUTE FUNCTION update_product_updated_at_column();
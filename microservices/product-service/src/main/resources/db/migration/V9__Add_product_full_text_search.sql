@@ -0,0 +1,55 @@
+-- V9__Add_product_full_text_search.sql
+
+-- Elasticsearch 不可用时的数据库搜索：
+-- search_vector 按词匹配英文名称、标签等（simple 配置，不做词干处理），GIN 索引
+-- search_text 为小写拼接的搜索文本，配合 pg_trgm 的 GIN 索引支持三个字符及以上关键词的任意子串匹配；
+--   中文需要数据库 LC_CTYPE 为 UTF-8（如 en_US.utf8），否则非 ASCII 字符提取不出三元组
+-- search_grams 为名称、英文名称、简介、标签中的单字与相邻两字，GIN 索引，
+--   一两个字的关键词（如“梨”“苹果”）提取不出三元组，用它匹配
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE OR REPLACE FUNCTION product_search_grams(value TEXT) RETURNS TEXT[] AS $$
+    SELECT coalesce(array_agg(DISTINCT gram), '{}')
+    FROM (
+        SELECT substr(value, i, 1) AS gram FROM generate_series(1, char_length(value)) AS i
+        UNION ALL
+        SELECT substr(value, i, 2) FROM generate_series(1, char_length(value) - 1) AS i
+    ) grams
+    WHERE gram !~ '\s'
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+ALTER TABLE product ADD COLUMN IF NOT EXISTS search_text TEXT GENERATED ALWAYS AS (
+    lower(
+        coalesce(name, '') || ' ' ||
+        coalesce(english_name, '') || ' ' ||
+        coalesce(short_description, '') || ' ' ||
+        coalesce(tags::text, '') || ' ' ||
+        coalesce(description, '')
+    )
+) STORED;
+
+ALTER TABLE product ADD COLUMN IF NOT EXISTS search_vector TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(english_name, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(tags::text, '')), 'B') ||
+    setweight(to_tsvector('simple', coalesce(short_description, '')), 'C') ||
+    setweight(to_tsvector('simple', coalesce(description, '')), 'D')
+) STORED;
+
+ALTER TABLE product ADD COLUMN IF NOT EXISTS search_grams TEXT[] GENERATED ALWAYS AS (
+    product_search_grams(lower(
+        coalesce(name, '') || ' ' ||
+        coalesce(english_name, '') || ' ' ||
+        coalesce(short_description, '') || ' ' ||
+        coalesce(tags::text, '')
+    ))
+) STORED;
+
+-- 只有上架商品参与搜索
+CREATE INDEX IF NOT EXISTS idx_product_search_vector ON product USING GIN (search_vector) WHERE is_active = true;
+CREATE INDEX IF NOT EXISTS idx_product_search_text_trgm ON product USING GIN (search_text gin_trgm_ops) WHERE is_active = true;
+CREATE INDEX IF NOT EXISTS idx_product_search_grams ON product USING GIN (search_grams) WHERE is_active = true;
+
+COMMENT ON COLUMN product.search_text IS '搜索文本：名称、英文名称、简介、标签、描述的小写拼接（生成列）';
+COMMENT ON COLUMN product.search_vector IS '全文检索向量：名称/英文名称 A、标签 B、简介 C、描述 D（生成列）';
+COMMENT ON COLUMN product.search_grams IS '名称、英文名称、简介、标签中的单字与相邻两字，用于一两个字的关键词（生成列）';
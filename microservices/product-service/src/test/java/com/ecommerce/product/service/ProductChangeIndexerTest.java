@@ -0,0 +1,175 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.model.entity.Product;
+import com.ecommerce.product.model.entity.ProductChangeEvent;
+import com.ecommerce.product.model.entity.elasticsearch.EsProduct;
+import com.ecommerce.product.model.entity.elasticsearch.EsProductConverter;
+import com.ecommerce.product.repository.ProductChangeOutboxRepository;
+import com.ecommerce.product.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductChangeIndexerTest {
+
+    private static final int BATCH_SIZE = 3;
+    private static final IndexCoordinates INDEX = IndexCoordinates.of("ecommerce_products");
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2026, 3, 1, 8, 30, 15, 123_456_000);
+
+    private ProductChangeOutboxRepository outboxRepository;
+    private ProductRepository productRepository;
+    private ElasticsearchOperations operations;
+    private PlatformTransactionManager transactionManager;
+    private ProductChangeIndexer indexer;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(ProductChangeOutboxRepository.class);
+        productRepository = mock(ProductRepository.class);
+        operations = mock(ElasticsearchOperations.class);
+        when(operations.getIndexCoordinatesFor(EsProduct.class)).thenReturn(INDEX);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        indexer = new ProductChangeIndexer(outboxRepository, productRepository, new EsProductConverter(),
+                operations, transactionManager, BATCH_SIZE);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void coalescesChangesToOneDocumentPerProductAndDeletesAfterBulk() {
+        List<ProductChangeEvent> events = List.of(event(1L, 7L), event(2L, 8L), event(3L, 7L));
+        when(outboxRepository.claimBatch(BATCH_SIZE)).thenReturn(events).thenReturn(List.of());
+        when(productRepository.findAllById(Set.of(7L, 8L))).thenReturn(List.of(product(7L), product(8L)));
+
+        indexer.drain();
+
+        ArgumentCaptor<List<IndexQuery>> queries = ArgumentCaptor.forClass(List.class);
+        InOrder inOrder = inOrder(operations, outboxRepository);
+        inOrder.verify(operations).bulkIndex(queries.capture(), eq(INDEX));
+        inOrder.verify(outboxRepository).deleteAllInBatch(events);
+        assertEquals(List.of("7", "8"), queries.getValue().stream().map(IndexQuery::getId).collect(Collectors.toList()));
+        verify(operations, never()).delete(any(String.class), any(IndexCoordinates.class));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void productsGoneFromDatabaseAreDeletedFromIndex() {
+        List<ProductChangeEvent> events = List.of(event(1L, 7L), event(2L, 9L));
+        when(outboxRepository.claimBatch(BATCH_SIZE)).thenReturn(events);
+        when(productRepository.findAllById(Set.of(7L, 9L))).thenReturn(List.of(product(7L)));
+
+        indexer.drain();
+
+        verify(operations).delete("9", INDEX);
+        verify(operations, never()).delete("7", INDEX);
+        verify(outboxRepository).deleteAllInBatch(events);
+    }
+
+    @Test
+    void failedBulkLeavesChangesInOutbox() {
+        when(outboxRepository.claimBatch(BATCH_SIZE)).thenReturn(List.of(event(1L, 7L)));
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(product(7L)));
+        when(operations.bulkIndex(anyList(), eq(INDEX))).thenThrow(new RuntimeException("cluster_block_exception"));
+
+        indexer.drain();
+
+        verify(outboxRepository, never()).deleteAllInBatch(anyList());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void documentsAreVersionedByUpdatedAtMicros() {
+        when(outboxRepository.claimBatch(BATCH_SIZE)).thenReturn(List.of(event(1L, 7L)));
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(product(7L)));
+
+        indexer.drain();
+
+        ArgumentCaptor<List<IndexQuery>> queries = ArgumentCaptor.forClass(List.class);
+        verify(operations).bulkIndex(queries.capture(), eq(INDEX));
+        assertEquals(1_772_353_815_123_456L, queries.getValue().get(0).getVersion());
+    }
+
+    @Test
+    void staleSnapshotRejectedByVersionCountsAsIndexed() {
+        List<ProductChangeEvent> events = List.of(event(1L, 7L));
+        when(outboxRepository.claimBatch(BATCH_SIZE)).thenReturn(events);
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(product(7L)));
+        when(operations.bulkIndex(anyList(), eq(INDEX))).thenThrow(new BulkFailureException("Bulk operation has failures",
+                Map.of("7", "ElasticsearchException[Elasticsearch exception [type=version_conflict_engine_exception, "
+                        + "reason=[7]: version conflict, current version [1772353815123457] is higher than the one provided [1772353815123456]]]")));
+
+        indexer.drain();
+
+        verify(outboxRepository).deleteAllInBatch(events);
+        verify(transactionManager, never()).rollback(any());
+    }
+
+    @Test
+    void otherBulkItemFailuresLeaveChangesInOutbox() {
+        when(outboxRepository.claimBatch(BATCH_SIZE)).thenReturn(List.of(event(1L, 7L), event(2L, 8L)));
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(product(7L), product(8L)));
+        when(operations.bulkIndex(anyList(), eq(INDEX))).thenThrow(new BulkFailureException("Bulk operation has failures",
+                Map.of("7", "ElasticsearchException[Elasticsearch exception [type=version_conflict_engine_exception, reason=stale]]",
+                        "8", "ElasticsearchException[Elasticsearch exception [type=es_rejected_execution_exception, reason=queue full]]")));
+
+        indexer.drain();
+
+        verify(outboxRepository, never()).deleteAllInBatch(anyList());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void drainsBacklogUntilBatchIsNotFull() {
+        when(outboxRepository.claimBatch(BATCH_SIZE))
+                .thenReturn(List.of(event(1L, 1L), event(2L, 2L), event(3L, 3L)))
+                .thenReturn(List.of(event(4L, 1L)));
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(product(1L)));
+
+        indexer.drain();
+
+        verify(outboxRepository, times(2)).claimBatch(BATCH_SIZE);
+        verify(operations, times(2)).bulkIndex(anyList(), eq(INDEX));
+    }
+
+    private static ProductChangeEvent event(long id, long productId) {
+        ProductChangeEvent event = new ProductChangeEvent();
+        event.setId(id);
+        event.setProductId(productId);
+        return event;
+    }
+
+    private static Product product(long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("红富士苹果 " + id);
+        product.setIsActive(true);
+        product.setUpdatedAt(UPDATED_AT);
+        return product;
+    }
+}
@@ -0,0 +1,156 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.model.entity.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 数据库搜索基准：在合成的商品表（默认 100 万行）上对比原来的多列 LIKE 与 V9 的全文检索/三元组索引。
+ * 需要已执行迁移、LC_CTYPE 为 UTF-8 的 PostgreSQL，基准数据按 english_name 前缀在结束后删除，例如：
+ * PRODUCT_BENCHMARK_DB_URL=jdbc:postgresql://localhost:5432/ecommerce_products
+ */
+@EnabledIfEnvironmentVariable(named = "PRODUCT_BENCHMARK_DB_URL", matches = ".+")
+@DataJpaTest(properties = {"spring.flyway.enabled=false", "spring.jpa.hibernate.ddl-auto=none"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ProductFullTextSearch.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ProductFullTextSearchBenchmarkTest {
+
+    private static final String BENCHMARK_PREFIX = "bench-product-";
+    private static final int ROWS = Integer.parseInt(System.getenv().getOrDefault("PRODUCT_BENCHMARK_ROWS", "1000000"));
+    private static final int RUNS = 5;
+    private static final int PAGE_SIZE = 20;
+
+    @SpringBootConfiguration
+    @EntityScan("com.ecommerce.product.model.entity")
+    @EnableJpaRepositories("com.ecommerce.product.repository")
+    static class BenchmarkConfig {
+    }
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("PRODUCT_BENCHMARK_DB_URL"));
+        registry.add("spring.datasource.username",
+                () -> System.getenv().getOrDefault("PRODUCT_BENCHMARK_DB_USERNAME", "admin"));
+        registry.add("spring.datasource.password",
+                () -> System.getenv().getOrDefault("PRODUCT_BENCHMARK_DB_PASSWORD", "postgres123"));
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductFullTextSearch productFullTextSearch;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        // 产地 × 品种 × 规格组合出商品名；每 50 个下架 1 个，每 100 个推荐 1 个
+        jdbcTemplate.update("INSERT INTO product (name, english_name, description, short_description, category_type, "
+                + "base_price, is_active, is_featured, sort_order, tags) "
+                + "SELECT (ARRAY['栖霞','洛川','阿克苏','眉县','周至','烟台','静宁','盐源'])[1 + i % 8] "
+                + "    || (ARRAY['红富士','嘎啦','黄元帅','蛇果','徐香','红心','翠香','海沃德','花牛','秦冠'])[1 + (i / 8) % 10] "
+                + "    || (ARRAY['苹果','猕猴桃','礼盒','精选装','家庭装'])[1 + (i / 80) % 5] || ' ' || i, "
+                + "  ? || i, "
+                + "  '产地直发，' || (ARRAY['果肉脆爽','酸甜适中','香气浓郁','汁多味甜','个大皮薄'])[1 + i % 5] || '，批次 ' || (i % 997), "
+                + "  (ARRAY['当季鲜果','冷链配送','坏果包赔'])[1 + i % 3], "
+                + "  'FRUIT', 9.90 + (i % 100), i % 50 <> 0, i % 100 = 0, i % 1000, "
+                + "  jsonb_build_array((ARRAY['新鲜','脆甜','特产','有机'])[1 + i % 4], 'sku' || (i % 5000)) "
+                + "FROM generate_series(1, ?) AS s(i)", BENCHMARK_PREFIX, ROWS);
+        // 少量冷门品种，一两个字的关键词也应走索引
+        jdbcTemplate.update("INSERT INTO product (name, english_name, description, category_type, is_active, tags) "
+                + "SELECT '库尔勒香梨 ' || i, ? || 'pear-' || i, '产地直发', 'FRUIT', true, '[\"新鲜\"]' "
+                + "FROM generate_series(1, 10) AS s(i)", BENCHMARK_PREFIX);
+        // 名称命中但已下架的商品，不应被搜索到
+        jdbcTemplate.update("INSERT INTO product (name, english_name, description, category_type, is_active) "
+                + "VALUES ('precedence-check 苹果', ?, 'precedence-check', 'FRUIT', false)", BENCHMARK_PREFIX + "precedence");
+        jdbcTemplate.execute("ANALYZE product");
+    }
+
+    @AfterAll
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM product WHERE english_name LIKE ?", BENCHMARK_PREFIX + "%");
+    }
+
+    @Test
+    void fullTextSearchVersusLike() {
+        for (String keyword : List.of("红富士苹果", "猕猴桃", "不存在的水果", BENCHMARK_PREFIX + "4242", "香梨", "梨")) {
+            long like = medianMillis(() -> productRepository.searchProductsList(keyword, PageRequest.of(0, PAGE_SIZE)));
+            long fullText = medianMillis(() -> productFullTextSearch.search(keyword, 0, PAGE_SIZE));
+            System.out.printf("%-20s LIKE %5d ms, full-text %5d ms%n", keyword, like, fullText);
+            assertTrue(fullText < like, "full-text search should beat LIKE for '" + keyword + "'");
+        }
+    }
+
+    @Test
+    void exactWordMatchRanksFirstAndPagesAreDisjoint() {
+        List<Product> results = productFullTextSearch.search(BENCHMARK_PREFIX + "4242", 0, PAGE_SIZE);
+        assertEquals(BENCHMARK_PREFIX + "4242", results.get(0).getEnglishName());
+
+        List<Product> firstPage = productFullTextSearch.search("红富士苹果", 0, PAGE_SIZE);
+        List<Product> secondPage = productFullTextSearch.search("红富士苹果", 1, PAGE_SIZE);
+        assertEquals(PAGE_SIZE, firstPage.size());
+        assertEquals(PAGE_SIZE, secondPage.size());
+        List<Long> secondPageIds = secondPage.stream().map(Product::getId).collect(Collectors.toList());
+        assertTrue(firstPage.stream().map(Product::getId).noneMatch(secondPageIds::contains));
+        assertTrue(firstPage.stream().allMatch(product -> Boolean.TRUE.equals(product.getIsActive())));
+    }
+
+    @Test
+    void shortKeywordsMatchNamesAndTags() {
+        assertEquals(10, productFullTextSearch.search("梨", 0, PAGE_SIZE).size());
+        assertEquals(10, productFullTextSearch.search("香梨", 0, PAGE_SIZE).size());
+        // 命中大量商品的短关键词选择性差，规划器会走顺序扫描，这里只校验结果
+        List<Product> apples = productFullTextSearch.search("苹果", 0, PAGE_SIZE);
+        assertEquals(PAGE_SIZE, apples.size());
+        assertTrue(apples.stream().allMatch(product -> product.getName().contains("苹果")));
+    }
+
+    @Test
+    void inactiveProductsAreNotReturned() {
+        assertTrue(productRepository.searchProducts("precedence-check").isEmpty());
+        assertTrue(productFullTextSearch.search("precedence-check", 0, PAGE_SIZE).isEmpty());
+        // LIKE 通配符按字面匹配
+        assertTrue(productFullTextSearch.search("%", 0, PAGE_SIZE).isEmpty());
+    }
+
+    private static long medianMillis(Supplier<List<Product>> search) {
+        search.get();
+        long[] millis = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long startNanos = System.nanoTime();
+            search.get();
+            millis[i] = (System.nanoTime() - startNanos) / 1_000_000;
+        }
+        Arrays.sort(millis);
+        return millis[RUNS / 2];
+    }
+}
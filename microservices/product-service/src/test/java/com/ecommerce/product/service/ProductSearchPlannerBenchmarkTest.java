@@ -0,0 +1,157 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.model.entity.elasticsearch.EsProduct;
+import com.ecommerce.product.repository.elasticsearch.EsProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.data.elasticsearch.ReactiveElasticsearchRepositoriesAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.data.elasticsearch.DataElasticsearchTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.repository.config.EnableElasticsearchRepositories;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 搜索未命中路径的延迟基准：原来依次尝试九种查询，现在一次查询。
+ * 需要可写的 Elasticsearch，基准数据使用单独的 id 段并在结束后删除，例如：
+ * PRODUCT_BENCHMARK_ES_URL=http://localhost:9200
+ */
+@EnabledIfEnvironmentVariable(named = "PRODUCT_BENCHMARK_ES_URL", matches = ".+")
+// 只用同步仓库；响应式仓库的自动配置需要 @EnableAutoConfiguration 的包路径，这里没有
+@DataElasticsearchTest(excludeAutoConfiguration = ReactiveElasticsearchRepositoriesAutoConfiguration.class)
+@Import(ProductSearchPlanner.class)
+class ProductSearchPlannerBenchmarkTest {
+
+    private static final long FIRST_ID = 9_400_000L;
+    private static final int PRODUCTS = 5_000;
+    private static final int WARMUP = 20;
+    private static final int SEARCHES = 200;
+    private static final String MISSING_KEYWORD = "不存在的进口榴莲";
+
+    @SpringBootConfiguration
+    @EnableElasticsearchRepositories("com.ecommerce.product.repository.elasticsearch")
+    static class BenchmarkConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @DynamicPropertySource
+    static void elasticsearch(DynamicPropertyRegistry registry) {
+        registry.add("spring.elasticsearch.uris", () -> System.getenv("PRODUCT_BENCHMARK_ES_URL"));
+    }
+
+    @Autowired
+    private EsProductRepository esProductRepository;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private ProductSearchPlanner productSearchPlanner;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void seed() {
+        String[] varieties = {"红富士", "嘎啦", "蛇果", "黄元帅", "阳光金果", "徐香", "红心", "海沃德"};
+        List<EsProduct> products = LongStream.range(0, PRODUCTS)
+                .mapToObj(i -> {
+                    String variety = varieties[(int) (i % varieties.length)];
+                    return EsProduct.builder()
+                            .id(FIRST_ID + i)
+                            .name(variety + "水果 " + i)
+                            .englishName("bench-" + i)
+                            .description("基准测试商品 " + variety + "，产地直发")
+                            .tags(List.of(variety, "基准"))
+                            .searchText(variety + " 水果 基准测试 bench-" + i)
+                            .isActive(true)
+                            .build();
+                })
+                .collect(Collectors.toList());
+        esProductRepository.saveAll(products);
+        elasticsearchOperations.indexOps(EsProduct.class).refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        esProductRepository.deleteAllById(LongStream.range(0, PRODUCTS).mapToObj(i -> FIRST_ID + i).collect(Collectors.toList()));
+    }
+
+    @Test
+    void missPathLatency() {
+        Pageable pageable = PageRequest.of(0, 20);
+        long cascade = medianMicros(keyword -> legacyCascade(keyword, pageable).size());
+        long planned = medianMicros(keyword -> productSearchPlanner.search(keyword, pageable).size());
+
+        System.out.printf("miss path: cascade %d us (9 queries), planner %d us (1 query)%n", cascade, planned);
+        assertTrue(planned < cascade, "single planned query should beat the 9-query cascade on a miss");
+        assertTrue(meterRegistry.counter("product.search.tier.hits", "tier", ProductSearchPlanner.TIER_NONE).count() > 0);
+
+        // 命中路径：品种名精确命中标签
+        List<EsProduct> hits = productSearchPlanner.search("阳光金果", pageable);
+        assertEquals(20, hits.size());
+        assertTrue(hits.get(0).getName().startsWith("阳光金果"));
+        assertEquals(1.0, meterRegistry.counter("product.search.tier.hits", "tier", ProductSearchPlanner.TIER_EXACT).count());
+    }
+
+    private long medianMicros(Function<String, Integer> search) {
+        for (int i = 0; i < WARMUP; i++) {
+            search.apply(MISSING_KEYWORD);
+        }
+        long[] micros = new long[SEARCHES];
+        for (int i = 0; i < SEARCHES; i++) {
+            long startNanos = System.nanoTime();
+            assertEquals(0, search.apply(MISSING_KEYWORD));
+            micros[i] = (System.nanoTime() - startNanos) / 1_000;
+        }
+        Arrays.sort(micros);
+        return micros[SEARCHES / 2];
+    }
+
+    /**
+     * 原 ProductService 的查询顺序：每一步没有结果才执行下一步
+     */
+    private List<EsProduct> legacyCascade(String keyword, Pageable pageable) {
+        List<Function<String, Page<EsProduct>>> attempts = new ArrayList<>();
+        attempts.add(k -> esProductRepository.comprehensiveSearch(k, pageable));
+        attempts.add(k -> esProductRepository.weightedSearch(k, pageable));
+        attempts.add(k -> esProductRepository.findBySearchTextUsingMatch(k, pageable));
+        attempts.add(k -> esProductRepository.searchByMultipleFields(k, pageable));
+        attempts.add(k -> esProductRepository.searchByQueryString(k, pageable));
+        attempts.add(k -> esProductRepository.searchByWildcard(k, pageable));
+        attempts.add(k -> esProductRepository.searchByPhrase(k, pageable));
+        attempts.add(k -> esProductRepository.findByNameContainingOrDescriptionContainingOrEnglishNameContaining(k, k, k, pageable));
+        attempts.add(k -> esProductRepository.findBySearchTextContaining(k, pageable));
+        for (Function<String, Page<EsProduct>> attempt : attempts) {
+            Page<EsProduct> page = attempt.apply(keyword);
+            if (!page.getContent().isEmpty()) {
+                return page.getContent();
+            }
+        }
+        return List.of();
+    }
+}
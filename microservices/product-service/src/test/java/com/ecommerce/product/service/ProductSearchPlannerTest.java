@@ -0,0 +1,110 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.model.entity.elasticsearch.EsProduct;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.Query;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductSearchPlannerTest {
+
+    private static final IndexCoordinates INDEX = IndexCoordinates.of("ecommerce_products");
+
+    private ElasticsearchOperations operations;
+    private SimpleMeterRegistry meterRegistry;
+    private ProductSearchPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        operations = mock(ElasticsearchOperations.class);
+        when(operations.getIndexCoordinatesFor(EsProduct.class)).thenReturn(INDEX);
+        meterRegistry = new SimpleMeterRegistry();
+        planner = new ProductSearchPlanner(operations, meterRegistry, 4, "75%");
+    }
+
+    @Test
+    void hitIsOneRoundTripAndRecordsBestMatchedTier() {
+        EsProduct fuji = EsProduct.builder().id(1L).name("红富士苹果").build();
+        List<SearchHit<EsProduct>> matched = List.of(hit(fuji, List.of(ProductSearchPlanner.TIER_FALLBACK, ProductSearchPlanner.TIER_TERMS)));
+        SearchHits<EsProduct> hits = hits(matched);
+        when(operations.search(any(Query.class), eq(EsProduct.class), eq(INDEX))).thenReturn(hits);
+
+        List<EsProduct> results = planner.search(" 富士 ", PageRequest.of(0, 20));
+
+        assertEquals(List.of(fuji), results);
+        verify(operations, times(1)).search(any(Query.class), eq(EsProduct.class), eq(INDEX));
+        assertEquals(1.0, meterRegistry.counter("product.search.tier.hits", "tier", ProductSearchPlanner.TIER_TERMS).count());
+        assertEquals(1L, meterRegistry.timer("product.search.latency", "outcome", "hit").count());
+    }
+
+    @Test
+    void missIsStillOneRoundTrip() {
+        SearchHits<EsProduct> empty = hits(List.of());
+        when(operations.search(any(Query.class), eq(EsProduct.class), eq(INDEX))).thenReturn(empty);
+
+        assertTrue(planner.search("不存在的商品", PageRequest.of(0, 20)).isEmpty());
+
+        verify(operations, times(1)).search(any(Query.class), eq(EsProduct.class), eq(INDEX));
+        assertEquals(1.0, meterRegistry.counter("product.search.tier.hits", "tier", ProductSearchPlanner.TIER_NONE).count());
+        assertEquals(1L, meterRegistry.timer("product.search.latency", "outcome", "miss").count());
+    }
+
+    @Test
+    void blankKeywordDoesNotQueryElasticsearch() {
+        assertTrue(planner.search("  ", PageRequest.of(0, 20)).isEmpty());
+        verify(operations, never()).search(any(Query.class), eq(EsProduct.class), any(IndexCoordinates.class));
+    }
+
+    @Test
+    void fallbackTierIsOnlyPlannedForShortTerms() {
+        String shortTerm = planner.buildQuery("苹果").toString();
+        String longTerm = planner.buildQuery("新西兰阳光金果").toString();
+        String shortLatin = planner.buildQuery("fuji").toString();
+
+        assertTrue(shortTerm.contains("\"" + ProductSearchPlanner.TIER_FALLBACK + "\""));
+        assertTrue(shortLatin.contains("\"fuzziness\""));
+        assertFalse(longTerm.contains("\"" + ProductSearchPlanner.TIER_FALLBACK + "\""));
+        for (String query : List.of(shortTerm, longTerm, shortLatin)) {
+            assertTrue(query.contains("\"dis_max\""));
+            assertTrue(query.contains("\"isActive\""));
+            assertFalse(query.contains("\"wildcard\""), "leading wildcards must not be planned");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SearchHits<EsProduct> hits(List<SearchHit<EsProduct>> hits) {
+        SearchHits<EsProduct> searchHits = mock(SearchHits.class);
+        when(searchHits.hasSearchHits()).thenReturn(!hits.isEmpty());
+        when(searchHits.getSearchHits()).thenReturn(hits);
+        if (!hits.isEmpty()) {
+            when(searchHits.getSearchHit(0)).thenReturn(hits.get(0));
+        }
+        return searchHits;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SearchHit<EsProduct> hit(EsProduct product, List<String> matchedQueries) {
+        SearchHit<EsProduct> hit = mock(SearchHit.class);
+        when(hit.getContent()).thenReturn(product);
+        when(hit.getMatchedQueries()).thenReturn(matchedQueries);
+        return hit;
+    }
+}
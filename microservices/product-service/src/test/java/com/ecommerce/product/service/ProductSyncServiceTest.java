@@ -0,0 +1,212 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.exception.IndexRebuildInProgressException;
+import com.ecommerce.product.model.entity.Product;
+import com.ecommerce.product.model.entity.elasticsearch.EsProduct;
+import com.ecommerce.product.model.entity.elasticsearch.EsProductConverter;
+import com.ecommerce.product.repository.ProductRepository;
+import com.ecommerce.product.repository.elasticsearch.EsProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductSyncServiceTest {
+
+    private static final String ALIAS = "ecommerce_products";
+    private static final int CHUNK_SIZE = 2;
+
+    private ProductRepository productRepository;
+    private ElasticsearchOperations operations;
+    private Map<String, IndexOperations> indexOpsByName;
+    private ProductSyncService syncService;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        operations = mock(ElasticsearchOperations.class);
+        indexOpsByName = new HashMap<>();
+        when(operations.getIndexCoordinatesFor(EsProduct.class)).thenReturn(IndexCoordinates.of(ALIAS));
+        when(operations.indexOps(any(IndexCoordinates.class))).thenAnswer(invocation -> indexOps(
+                invocation.<IndexCoordinates>getArgument(0).getIndexName()));
+        syncService = new ProductSyncService(productRepository, mock(EsProductRepository.class),
+                new EsProductConverter(), operations, CHUNK_SIZE, 2, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        syncService.destroy();
+    }
+
+    @Test
+    void rebuildStreamsChunksIntoNewIndexAndSwitchesAlias() {
+        stubCatalog(5);
+        when(indexOps(ALIAS).exists()).thenReturn(true);
+        when(indexOps(ALIAS).getAliases(ALIAS)).thenReturn(Map.of("ecommerce_products_v1", Set.of()));
+
+        assertEquals(5, syncService.rebuildElasticsearchIndex());
+
+        ArgumentCaptor<IndexCoordinates> target = ArgumentCaptor.forClass(IndexCoordinates.class);
+        verify(operations, times(3)).bulkIndex(anyList(), target.capture());
+        String newIndex = target.getValue().getIndexName();
+        assertTrue(newIndex.startsWith(ALIAS + "_v"));
+        assertTrue(target.getAllValues().stream().allMatch(index -> index.getIndexName().equals(newIndex)));
+
+        AliasAction[] actions = aliasActions();
+        assertEquals(2, actions.length);
+        assertTrue(actions[0] instanceof AliasAction.Add);
+        assertEquals(List.of(newIndex), List.of(actions[0].getParameters().getIndices()));
+        assertTrue(actions[1] instanceof AliasAction.Remove);
+        assertEquals(List.of("ecommerce_products_v1"), List.of(actions[1].getParameters().getIndices()));
+        verify(indexOps(newIndex)).refresh();
+        verify(indexOps("ecommerce_products_v1")).delete();
+    }
+
+    @Test
+    void legacyConcreteIndexIsRemovedInTheSameAliasRequest() {
+        stubCatalog(1);
+        when(indexOps(ALIAS).exists()).thenReturn(true);
+        when(indexOps(ALIAS).getAliases(ALIAS)).thenReturn(Map.of());
+
+        syncService.rebuildElasticsearchIndex();
+
+        AliasAction[] actions = aliasActions();
+        assertEquals(2, actions.length);
+        assertTrue(actions[1] instanceof AliasAction.RemoveIndex);
+        assertEquals(List.of(ALIAS), List.of(actions[1].getParameters().getIndices()));
+    }
+
+    @Test
+    void failedBulkDropsNewIndexAndLeavesAliasUntouched() {
+        stubCatalog(5);
+        when(operations.bulkIndex(anyList(), any(IndexCoordinates.class))).thenThrow(new RuntimeException("es_rejected_execution_exception"));
+
+        assertThrows(RuntimeException.class, () -> syncService.rebuildElasticsearchIndex());
+
+        ArgumentCaptor<IndexCoordinates> target = ArgumentCaptor.forClass(IndexCoordinates.class);
+        verify(operations, atLeastOnce()).bulkIndex(anyList(), target.capture());
+        verify(indexOps(target.getValue().getIndexName())).delete();
+        verify(indexOps(ALIAS), never()).alias(any(AliasActions.class));
+    }
+
+    @Test
+    void inFlightBulksNeverExceedTheConcurrencyLimit() {
+        stubCatalog(20);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(operations.bulkIndex(anyList(), any(IndexCoordinates.class))).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return List.of();
+        });
+
+        assertEquals(20, syncService.rebuildElasticsearchIndex());
+        assertTrue(maxInFlight.get() <= 2, "at most 2 bulk requests in flight, saw " + maxInFlight.get());
+    }
+
+    @Test
+    void secondRebuildIsRejectedWhileOneIsRunning() throws Exception {
+        stubCatalog(1);
+        CountDownLatch bulkStarted = new CountDownLatch(1);
+        CountDownLatch releaseBulk = new CountDownLatch(1);
+        when(operations.bulkIndex(anyList(), any(IndexCoordinates.class))).thenAnswer(invocation -> {
+            bulkStarted.countDown();
+            releaseBulk.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        CompletableFuture<Long> running = CompletableFuture.supplyAsync(syncService::rebuildElasticsearchIndex);
+        assertTrue(bulkStarted.await(5, TimeUnit.SECONDS));
+
+        assertThrows(IndexRebuildInProgressException.class, () -> syncService.syncAllProductsToElasticsearch());
+
+        releaseBulk.countDown();
+        assertEquals(1, running.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void incrementalSyncPagesByUpdatedAtAndId() {
+        stubCatalog(0);
+        syncService.rebuildElasticsearchIndex();
+
+        LocalDateTime updatedAt = LocalDateTime.now();
+        List<Product> changed = List.of(product(7L, updatedAt), product(9L, updatedAt));
+        when(productRepository.findUpdatedSince(any(LocalDateTime.class), eq(0L), any(Pageable.class))).thenReturn(changed);
+        when(productRepository.findUpdatedSince(eq(updatedAt), eq(9L), any(Pageable.class))).thenReturn(List.of());
+
+        syncService.syncUpdatedProducts();
+
+        ArgumentCaptor<List<IndexQuery>> queries = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<IndexCoordinates> target = ArgumentCaptor.forClass(IndexCoordinates.class);
+        verify(operations).bulkIndex(queries.capture(), target.capture());
+        assertEquals(ALIAS, target.getValue().getIndexName());
+        assertEquals(List.of("7", "9"), queries.getValue().stream().map(IndexQuery::getId).collect(Collectors.toList()));
+        verify(productRepository).findUpdatedSince(eq(updatedAt), eq(9L), any(Pageable.class));
+    }
+
+    private void stubCatalog(int size) {
+        List<Product> products = LongStream.rangeClosed(1, size)
+                .mapToObj(id -> product(id, LocalDateTime.now()))
+                .collect(Collectors.toList());
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            return products.stream()
+                    .filter(product -> product.getId() > afterId)
+                    .limit(CHUNK_SIZE)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    private AliasAction[] aliasActions() {
+        ArgumentCaptor<AliasActions> aliasActions = ArgumentCaptor.forClass(AliasActions.class);
+        verify(indexOps(ALIAS)).alias(aliasActions.capture());
+        return aliasActions.getValue().getActions().toArray(new AliasAction[0]);
+    }
+
+    private IndexOperations indexOps(String indexName) {
+        return indexOpsByName.computeIfAbsent(indexName, name -> mock(IndexOperations.class));
+    }
+
+    private static Product product(long id, LocalDateTime updatedAt) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("红富士苹果 " + id);
+        product.setIsActive(true);
+        product.setUpdatedAt(updatedAt);
+        return product;
+    }
+}
@@ -0,0 +1,76 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.repository.elasticsearch.EsProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SearchBackendHealthMonitorTest {
+
+    private EsProductRepository esProductRepository;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        esProductRepository = mock(EsProductRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void probeDecidesAvailability() {
+        SearchBackendHealthMonitor monitor = new SearchBackendHealthMonitor(esProductRepository, meterRegistry, 3, 0);
+        assertFalse(monitor.isElasticsearchAvailable());
+
+        when(esProductRepository.count()).thenReturn(0L);
+        monitor.probe();
+        assertFalse(monitor.isElasticsearchAvailable(), "empty index should keep searches on the database");
+
+        when(esProductRepository.count()).thenReturn(42L);
+        monitor.probe();
+        assertTrue(monitor.isElasticsearchAvailable());
+        assertEquals(1.0, meterRegistry.get("product.search.backend.available").gauge().value());
+
+        when(esProductRepository.count()).thenThrow(new RuntimeException("connection refused"));
+        monitor.probe();
+        assertFalse(monitor.isElasticsearchAvailable());
+        assertEquals(0.0, meterRegistry.get("product.search.backend.available").gauge().value());
+    }
+
+    @Test
+    void consecutiveSearchFailuresOpenTheBreaker() {
+        SearchBackendHealthMonitor monitor = new SearchBackendHealthMonitor(esProductRepository, meterRegistry, 3, 0);
+        when(esProductRepository.count()).thenReturn(42L);
+        monitor.probe();
+
+        monitor.recordFailure(new RuntimeException("timeout"));
+        monitor.recordFailure(new RuntimeException("timeout"));
+        monitor.recordSuccess();
+        monitor.recordFailure(new RuntimeException("timeout"));
+        monitor.recordFailure(new RuntimeException("timeout"));
+        assertTrue(monitor.isElasticsearchAvailable(), "a success in between resets the failure count");
+
+        monitor.recordFailure(new RuntimeException("timeout"));
+        assertFalse(monitor.isElasticsearchAvailable());
+
+        monitor.probe();
+        assertTrue(monitor.isElasticsearchAvailable(), "probe closes the breaker once the open duration has passed");
+    }
+
+    @Test
+    void breakerStaysOpenForOpenDurationEvenIfProbeSucceeds() {
+        SearchBackendHealthMonitor monitor = new SearchBackendHealthMonitor(esProductRepository, meterRegistry, 1, 60_000);
+        when(esProductRepository.count()).thenReturn(42L);
+        monitor.probe();
+
+        monitor.recordFailure(new RuntimeException("timeout"));
+        monitor.probe();
+
+        assertFalse(monitor.isElasticsearchAvailable());
+    }
+}